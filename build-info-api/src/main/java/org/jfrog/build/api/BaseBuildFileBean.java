@@ -16,8 +16,10 @@
 
 package org.jfrog.build.api;
 
+import org.jfrog.build.api.util.StringPool;
+
 /**
- * Base implementation of the build file bean interface
+ * Base implementation of the build file bean interface. The type and checksums are pooled, see {@link StringPool}.
  *
  * @author Noam Y. Tenne
  */
@@ -32,7 +34,7 @@ public abstract class BaseBuildFileBean extends BaseBuildBean implements BuildFi
     }
 
     public void setType(String type) {
-        this.type = type;
+        this.type = StringPool.intern(type);
     }
 
     public String getSha1() {
@@ -40,7 +42,7 @@ public abstract class BaseBuildFileBean extends BaseBuildBean implements BuildFi
     }
 
     public void setSha1(String sha1) {
-        this.sha1 = sha1;
+        this.sha1 = StringPool.intern(sha1);
     }
 
     public String getMd5() {
@@ -48,6 +50,6 @@ public abstract class BaseBuildFileBean extends BaseBuildBean implements BuildFi
     }
 
     public void setMd5(String md5) {
-        this.md5 = md5;
+        this.md5 = StringPool.intern(md5);
     }
 }
\ No newline at end of file
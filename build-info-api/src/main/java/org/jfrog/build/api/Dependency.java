@@ -16,8 +16,12 @@
 
 package org.jfrog.build.api;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
+import org.jfrog.build.api.util.StringPool;
 
+import java.util.AbstractList;
 import java.util.List;
 
 /**
@@ -49,25 +53,38 @@ public class Dependency extends BaseBuildFileBean {
      * @param id Dependency ID
      */
     public void setId(String id) {
-        this.id = id;
+        this.id = StringPool.intern(id);
     }
 
     /**
-     * Returns the scope list of the dependency
+     * Returns the scope list of the dependency. The list can be modified, the shared scope list of the dependency is
+     * copied on the first modification.
      *
      * @return Dependency scope list
      */
     public List<String> getScopes() {
+        if (scopes instanceof ImmutableList) {
+            return new ScopesView();
+        }
         return scopes;
     }
 
     /**
-     * Sets the scope list of the dependency
+     * Sets the scope list of the dependency. The list is replaced by a shared pooled copy.
      *
      * @param scopes Dependency scope list
      */
     public void setScopes(List<String> scopes) {
-        this.scopes = scopes;
+        this.scopes = StringPool.scopes(scopes);
+    }
+
+    /**
+     * Adds a scope to the scope list of the dependency, if not already present
+     *
+     * @param scope Dependency scope
+     */
+    public void addScope(String scope) {
+        this.scopes = StringPool.withScope(scopes, scope);
     }
 
     /**
@@ -88,4 +105,44 @@ public class Dependency extends BaseBuildFileBean {
     public void setRequiredBy(List<String> requiredBy) {
         this.requiredBy = requiredBy;
     }
+
+    private List<String> getMutableScopes() {
+        if (scopes instanceof ImmutableList) {
+            scopes = Lists.newArrayList(scopes);
+        }
+        return scopes;
+    }
+
+    /**
+     * Reads the current scope list of the dependency, and replaces the shared list by a private copy when modified.
+     */
+    private class ScopesView extends AbstractList<String> {
+
+        @Override
+        public String get(int index) {
+            return scopes.get(index);
+        }
+
+        @Override
+        public int size() {
+            return scopes.size();
+        }
+
+        @Override
+        public String set(int index, String element) {
+            return getMutableScopes().set(index, element);
+        }
+
+        @Override
+        public void add(int index, String element) {
+            getMutableScopes().add(index, element);
+            modCount++;
+        }
+
+        @Override
+        public String remove(int index) {
+            modCount++;
+            return getMutableScopes().remove(index);
+        }
+    }
 }
\ No newline at end of file
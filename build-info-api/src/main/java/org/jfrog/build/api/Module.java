@@ -17,6 +17,7 @@
 package org.jfrog.build.api;
 
 import com.thoughtworks.xstream.annotations.XStreamAlias;
+import org.jfrog.build.api.util.StringPool;
 
 import java.util.List;
 
@@ -56,7 +57,7 @@ public class Module extends BaseBuildBean {
      * @param id Module ID
      */
     public void setId(String id) {
-        this.id = id;
+        this.id = StringPool.intern(id);
     }
 
     /**
@@ -19,12 +19,14 @@ package org.jfrog.build.api.builder;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
 import org.jfrog.build.api.*;
 import org.jfrog.build.api.release.PromotionStatus;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -35,6 +37,11 @@ import java.util.Properties;
  */
 public class BuildInfoMavenBuilder extends BuildInfoBuilder {
 
+    /**
+     * Index of the modules by id, so merging doesn't go over the modules (which may be spilled to disk)
+     */
+    private Map<String, Integer> moduleIndexes;
+
     public BuildInfoMavenBuilder(String name) {
         super(name);
     }
@@ -233,6 +240,7 @@ public class BuildInfoMavenBuilder extends BuildInfoBuilder {
      */
     public BuildInfoMavenBuilder modules(List<Module> modules) {
         super.modules(modules);
+        moduleIndexes = null;
         return this;
     }
 
@@ -277,8 +285,6 @@ public class BuildInfoMavenBuilder extends BuildInfoBuilder {
     public BuildInfoMavenBuilder addModule(Module module) {
         if (modules == null) {
             modules = Lists.newArrayList();
-            modules.add(module);
-            return this;
         }
         mergeModule(module);
         return this;
@@ -318,22 +324,32 @@ public class BuildInfoMavenBuilder extends BuildInfoBuilder {
     }
 
     private void mergeModule(Module moduleToMerge) {
-        Module existingModule = findModule(moduleToMerge.getId());
-        if (existingModule == null) {
+        Map<String, Integer> indexes = getModuleIndexes();
+        Integer index = indexes.get(moduleToMerge.getId());
+        if (index == null) {
+            indexes.put(moduleToMerge.getId(), modules.size());
             modules.add(moduleToMerge);
             return;
         }
 
+        Module existingModule = modules.get(index);
         mergeModuleArtifacts(existingModule, moduleToMerge);
         mergeModuleDependencies(existingModule, moduleToMerge);
+        // The list may hold copies of the modules, store the merged module back
+        modules.set(index, existingModule);
     }
 
-    private Module findModule(final String moduleKey) {
-        return Iterables.find(modules, new Predicate<Module>() {
-            public boolean apply(Module input) {
-                return input.getId().equals(moduleKey);
+    private Map<String, Integer> getModuleIndexes() {
+        if (moduleIndexes == null) {
+            moduleIndexes = Maps.newHashMap();
+            for (int i = 0; i < modules.size(); i++) {
+                String id = modules.get(i).getId();
+                if (!moduleIndexes.containsKey(id)) {
+                    moduleIndexes.put(id, i);
+                }
             }
-        }, null);
+        }
+        return moduleIndexes;
     }
 
     private void mergeModuleArtifacts(Module existingModule, Module moduleToMerge) {
@@ -388,12 +404,9 @@ public class BuildInfoMavenBuilder extends BuildInfoBuilder {
             if (foundDependency == null) {
                 existingDependencies.add(dependencyToMarge);
             } else {
-                List<String> existingScopes = foundDependency.getScopes();
                 List<String> scopesToMerge = dependencyToMarge.getScopes();
                 for (String scopeToMerge : scopesToMerge) {
-                    if (!existingScopes.contains(scopeToMerge)) {
-                        existingScopes.add(scopeToMerge);
-                    }
+                    foundDependency.addScope(scopeToMerge);
                 }
             }
         }
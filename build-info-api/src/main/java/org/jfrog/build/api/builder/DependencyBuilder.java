@@ -18,6 +18,7 @@ package org.jfrog.build.api.builder;
 
 import com.google.common.collect.Lists;
 import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.util.StringPool;
 
 import java.util.List;
 import java.util.Properties;
@@ -87,6 +88,18 @@ public class DependencyBuilder {
         return this;
     }
 
+    /**
+     * Adds a scope to the scope list of the dependency. The scope lists are shared immutable lists, adding a scope
+     * doesn't allocate a list per dependency.
+     *
+     * @param scope Dependency scope
+     * @return Builder instance
+     */
+    public DependencyBuilder addScope(String scope) {
+        this.scopes = StringPool.withScope(scopes, scope);
+        return this;
+    }
+
     /**
      * Sets the SHA1 checksum of the dependency
      *
@@ -130,7 +143,7 @@ public class DependencyBuilder {
         if (this.requiredBy == null) {
             this.requiredBy = Lists.newArrayList();
         }
-        this.requiredBy.add(requiredBy);
+        this.requiredBy.add(StringPool.intern(requiredBy));
         return this;
     }
 
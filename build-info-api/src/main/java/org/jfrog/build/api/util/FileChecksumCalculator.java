@@ -21,6 +21,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Map;
 
 import com.google.common.collect.Maps;
@@ -33,6 +34,8 @@ import com.google.common.collect.Maps;
 public abstract class FileChecksumCalculator {
 
     private static final int BUFFER_SIZE = 32768;
+    private static final FlightRecorderEvent CHECKSUM_EVENT = FlightRecorderEvent.define("org.jfrog.build.Checksum",
+            "Checksum Calculation", "file", String.class, "size", long.class, "algorithms", String.class);
 
     /**
      * Calculates the given file's checksums
@@ -85,6 +88,7 @@ public abstract class FileChecksumCalculator {
      */
     private static Map<String, String> calculate(File fileToCalculate, String... algorithms)
             throws NoSuchAlgorithmException, IOException {
+        Object event = CHECKSUM_EVENT.begin();
         Map<String, MessageDigest> digestMap = Maps.newHashMap();
         Map<String, String> checksumMap = Maps.newHashMap();
 
@@ -123,6 +127,10 @@ public abstract class FileChecksumCalculator {
             checksumMap.put(algorithm, sb.toString().trim());
         }
 
+        if (event != null) {
+            CHECKSUM_EVENT.commit(event, fileToCalculate.getPath(), fileToCalculate.length(),
+                    Arrays.toString(algorithms));
+        }
         return checksumMap;
     }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.api.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Java Flight Recorder event type, defined at runtime so that the build-info libraries still run on JDKs without
+ * JFR. When JFR is unavailable, or the event is not enabled in any recording, {@link #begin()} returns null and the
+ * instrumented code pays a null check.
+ * <p/>
+ * Typical usage:
+ * <pre>
+ * Object event = CHECKSUM.begin();
+ * ... the timed work ...
+ * CHECKSUM.commit(event, file.getPath(), file.length());
+ * </pre>
+ */
+public class FlightRecorderEvent {
+    private static final String CATEGORY = "Artifactory Build Info";
+    /**
+     * How long {@link #begin()} relies on the last enabled state before checking it again
+     */
+    private static final long ENABLED_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private volatile Object eventFactory;
+    private volatile Object eventType;
+    private volatile boolean enabled;
+    private volatile long enabledCheckedAt;
+
+    private FlightRecorderEvent(String name) {
+        this.name = name;
+        enabledCheckedAt = System.nanoTime() - ENABLED_CHECK_INTERVAL_NANOS;
+    }
+
+    /**
+     * Defines an event type. The duration of the event is recorded by JFR and does not need to be declared.
+     *
+     * @param name   The full name of the event, e.g. org.jfrog.build.Checksum
+     * @param label  The human readable name of the event
+     * @param fields Pairs of field name and type (String, long, int or boolean) of the event values
+     * @return The event type, disabled if JFR is not available
+     */
+    public static FlightRecorderEvent define(String name, String label, Object... fields) {
+        FlightRecorderEvent event = new FlightRecorderEvent(name);
+        try {
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+            List<Object> annotations = new ArrayList<Object>();
+            annotations.add(annotationElement.newInstance(Class.forName("jdk.jfr.Name"), name));
+            annotations.add(annotationElement.newInstance(Class.forName("jdk.jfr.Label"), label));
+            annotations.add(annotationElement.newInstance(Class.forName("jdk.jfr.Category"),
+                    new String[]{CATEGORY}));
+
+            Constructor<?> valueDescriptor =
+                    Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class);
+            List<Object> values = new ArrayList<Object>();
+            for (int i = 0; i < fields.length; i += 2) {
+                values.add(valueDescriptor.newInstance(fields[i + 1], fields[i]));
+            }
+
+            Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            Object factory = eventFactoryClass.getMethod("create", List.class, List.class)
+                    .invoke(null, annotations, values);
+            event.eventType = eventFactoryClass.getMethod("getEventType").invoke(factory);
+            event.eventFactory = factory;
+        } catch (Throwable e) {
+            // JFR is not available on this JDK, the event stays disabled
+        }
+        return event;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return True if JFR is available and a recording enables this event
+     */
+    public boolean isEnabled() {
+        Object type = eventType;
+        if (type == null) {
+            return false;
+        }
+        try {
+            enabled = (Boolean) Methods.isEnabled.invoke(type);
+        } catch (Throwable e) {
+            disable();
+        }
+        enabledCheckedAt = System.nanoTime();
+        return enabled;
+    }
+
+    /**
+     * Starts timing an event. The enabled state is checked through reflection at most once a second, so an event is
+     * only recorded from about a second after a recording enabled it.
+     *
+     * @return The started event to pass to {@link #commit}, or null if the event is not recorded
+     */
+    public Object begin() {
+        if (eventType == null) {
+            return null;
+        }
+        boolean recorded = System.nanoTime() - enabledCheckedAt < ENABLED_CHECK_INTERVAL_NANOS ? enabled : isEnabled();
+        if (!recorded) {
+            return null;
+        }
+        try {
+            Object event = Methods.newEvent.invoke(eventFactory);
+            Methods.begin.invoke(event);
+            return event;
+        } catch (Throwable e) {
+            disable();
+            return null;
+        }
+    }
+
+    /**
+     * Ends and commits an event started by {@link #begin()}.
+     *
+     * @param event  The started event, may be null
+     * @param values The event values, in the order of the fields of the event type
+     */
+    public void commit(Object event, Object... values) {
+        if (event == null) {
+            return;
+        }
+        try {
+            Methods.end.invoke(event);
+            for (int i = 0; i < values.length; i++) {
+                Methods.set.invoke(event, i, values[i]);
+            }
+            Methods.commit.invoke(event);
+        } catch (Throwable e) {
+            disable();
+        }
+    }
+
+    private void disable() {
+        eventType = null;
+        eventFactory = null;
+        enabled = false;
+    }
+
+    /**
+     * The reflected JFR methods, only loaded once an event is enabled.
+     */
+    private static class Methods {
+        private static final Method isEnabled;
+        private static final Method newEvent;
+        private static final Method begin;
+        private static final Method end;
+        private static final Method set;
+        private static final Method commit;
+
+        static {
+            try {
+                isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+                newEvent = Class.forName("jdk.jfr.EventFactory").getMethod("newEvent");
+                Class<?> eventClass = Class.forName("jdk.jfr.Event");
+                begin = eventClass.getMethod("begin");
+                end = eventClass.getMethod("end");
+                set = eventClass.getMethod("set", int.class, Object.class);
+                commit = eventClass.getMethod("commit");
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not load the Flight Recorder API", e);
+            }
+        }
+    }
+}
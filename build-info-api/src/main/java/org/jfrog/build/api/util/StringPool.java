@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.api.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Lists;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Flyweight pool of the highly repetitive values of the build-info model: ids, types, checksums and scope lists.
+ * <p/>
+ * Large builds repeat the same dependency in many modules, so the model beans keep a single instance of each value.
+ * Scope lists are shared immutable lists, use {@link #withScope(List, String)} to add a scope; the beans hand out
+ * modifiable views of them. The pools hold their values weakly, values no longer referenced by any build are garbage
+ * collected.
+ */
+public abstract class StringPool {
+
+    private static final Interner<String> strings = Interners.newWeakInterner();
+    private static final Interner<List<String>> scopeLists = Interners.newWeakInterner();
+
+    /**
+     * @param value A value of the model
+     * @return The pooled instance equal to the value, null if the value is null
+     */
+    public static String intern(String value) {
+        return value == null ? null : strings.intern(value);
+    }
+
+    /**
+     * @param scopes A list of scopes
+     * @return A shared immutable list equal to the given scopes, null if the scopes are null
+     */
+    public static List<String> scopes(Collection<String> scopes) {
+        if (scopes == null) {
+            return null;
+        }
+        if (scopes.contains(null)) {
+            // Immutable lists don't allow null elements, keep a private copy
+            return Lists.newArrayList(scopes);
+        }
+        ImmutableList.Builder<String> pooled = ImmutableList.builder();
+        for (String scope : scopes) {
+            pooled.add(intern(scope));
+        }
+        return scopeLists.intern(pooled.build());
+    }
+
+    /**
+     * @param scopes A list of scopes, may be null
+     * @param scope  The scope to add
+     * @return A shared immutable list of the given scopes followed by the added scope, the given scopes if they
+     *         already contain it
+     */
+    public static List<String> withScope(List<String> scopes, String scope) {
+        if (scopes == null || scopes.isEmpty()) {
+            return scopes(ImmutableList.of(scope));
+        }
+        if (scopes.contains(scope)) {
+            return scopes;
+        }
+        List<String> added = Lists.newArrayListWithCapacity(scopes.size() + 1);
+        added.addAll(scopes);
+        added.add(scope);
+        return scopes(added);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.api.util;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the runtime defined Flight Recorder events, through reflection since the tests also run on JDKs without JFR.
+ */
+@Test
+public class FlightRecorderEventTest {
+    private static final FlightRecorderEvent EVENT = FlightRecorderEvent.define("org.jfrog.build.Test", "Test Event",
+            "file", String.class, "size", long.class);
+
+    public void disabledWithoutRecording() {
+        assertFalse(EVENT.isEnabled());
+        assertNull(EVENT.begin());
+        EVENT.commit(null, "a.jar", 1L);
+    }
+
+    public void recordedWhenEnabled() throws Exception {
+        Class<?> recordingClass;
+        try {
+            recordingClass = Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            throw new SkipException("Flight Recorder is not available");
+        }
+        Object recording = recordingClass.newInstance();
+        File dump = File.createTempFile("events", ".jfr");
+        try {
+            recordingClass.getMethod("enable", String.class).invoke(recording, EVENT.getName());
+            recordingClass.getMethod("start").invoke(recording);
+            assertTrue(EVENT.isEnabled());
+            Object event = EVENT.begin();
+            assertNotNull(event);
+            EVENT.commit(event, "a.jar", 42L);
+            recordingClass.getMethod("stop").invoke(recording);
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Object path = File.class.getMethod("toPath").invoke(dump);
+            recordingClass.getMethod("dump", pathClass).invoke(recording, path);
+
+            Class<?> recordingFile = Class.forName("jdk.jfr.consumer.RecordingFile");
+            List<?> events = (List<?>) recordingFile.getMethod("readAllEvents", pathClass)
+                    .invoke(null, path);
+            int found = 0;
+            for (Object recorded : events) {
+                Object type = recorded.getClass().getMethod("getEventType").invoke(recorded);
+                if (EVENT.getName().equals(type.getClass().getMethod("getName").invoke(type))) {
+                    Class<?> recordedObject = Class.forName("jdk.jfr.consumer.RecordedObject");
+                    assertEquals(recordedObject.getMethod("getString", String.class).invoke(recorded, "file"), "a.jar");
+                    assertEquals(recordedObject.getMethod("getLong", String.class).invoke(recorded, "size"), 42L);
+                    found++;
+                }
+            }
+            assertEquals(found, 1);
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            dump.delete();
+        }
+        assertFalse(EVENT.isEnabled());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.api.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.builder.DependencyBuilder;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Measures the heap footprint of a large build with the pooled model and with the previous, unshared layout of the
+ * dependency. Part of the benchmark group, which the default test run excludes; run it with the benchmark task.
+ */
+@Test(groups = "benchmark")
+public class StringPoolBenchmark {
+    private static final int MODULES = 500;
+    private static final int DEPENDENCIES = 200;
+
+    /**
+     * Reports the heap retained by each layout in the test output, and the number of distinct instances of the pooled
+     * build.
+     */
+    public void largeBuildFootprint() throws Exception {
+        long before = usedHeap();
+        List<UnpooledDependency> unshared = Lists.newArrayListWithCapacity(MODULES * DEPENDENCIES);
+        for (int m = 0; m < MODULES; m++) {
+            for (int d = 0; d < DEPENDENCIES; d++) {
+                unshared.add(new UnpooledDependency("org.jfrog.test:lib" + d + ":1.0", new String("jar"),
+                        Lists.newArrayList(new String("compile")), StringPoolTest.checksum(d, 40),
+                        StringPoolTest.checksum(d, 32)));
+            }
+        }
+        long unsharedHeap = usedHeap() - before;
+        assertEquals(unshared.size(), MODULES * DEPENDENCIES);
+        unshared = null;
+
+        before = usedHeap();
+        List<Dependency> pooled = Lists.newArrayListWithCapacity(MODULES * DEPENDENCIES);
+        for (int m = 0; m < MODULES; m++) {
+            for (int d = 0; d < DEPENDENCIES; d++) {
+                pooled.add(new DependencyBuilder().id("org.jfrog.test:lib" + d + ":1.0").type(new String("jar"))
+                        .addScope(new String("compile")).sha1(StringPoolTest.checksum(d, 40))
+                        .md5(StringPoolTest.checksum(d, 32)).build());
+            }
+        }
+        long pooledHeap = usedHeap() - before;
+
+        Set<Object> values = Sets.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        for (Dependency dependency : pooled) {
+            values.add(dependency.getId());
+            values.add(dependency.getType());
+            values.add(StringPoolTest.scopesOf(dependency));
+            values.add(dependency.getSha1());
+            values.add(dependency.getMd5());
+        }
+        Reporter.log(String.format("%d dependencies: %d KB unshared, %d KB pooled, %d distinct pooled values",
+                pooled.size(), unsharedHeap / 1024, pooledHeap / 1024, values.size()), true);
+    }
+
+    /**
+     * The field layout of the dependency before pooling, each dependency holding its own values and scope list.
+     */
+    private static class UnpooledDependency {
+        private Properties properties;
+        private final String type;
+        private final String sha1;
+        private final String md5;
+        private final String id;
+        private final List<String> scopes;
+        private List<String> requiredBy;
+
+        private UnpooledDependency(String id, String type, List<String> scopes, String sha1, String md5) {
+            this.id = id;
+            this.type = type;
+            this.scopes = scopes;
+            this.sha1 = sha1;
+            this.md5 = md5;
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.api.util;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.builder.DependencyBuilder;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the pooling of the build-info model values.
+ */
+@Test
+public class StringPoolTest {
+    private static final int DEPENDENCIES = 20;
+
+    public void internReturnsSingleInstance() {
+        String first = StringPool.intern(new String("org.jfrog:lib:1.0"));
+        assertSame(StringPool.intern(new String("org.jfrog:lib:1.0")), first);
+        assertNull(StringPool.intern(null));
+    }
+
+    public void scopesAreSharedAndImmutable() {
+        List<String> scopes = StringPool.scopes(Lists.newArrayList("compile", "runtime"));
+        assertSame(StringPool.scopes(Arrays.asList(new String("compile"), new String("runtime"))), scopes);
+        assertNull(StringPool.scopes(null));
+        try {
+            scopes.add("test");
+            fail("Pooled scopes should be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void withScope() {
+        List<String> compile = StringPool.withScope(null, "compile");
+        assertEquals(compile, Collections.singletonList("compile"));
+        assertSame(StringPool.withScope(compile, "compile"), compile);
+        assertEquals(StringPool.withScope(compile, "runtime"), Arrays.asList("compile", "runtime"));
+        assertSame(StringPool.withScope(compile, "runtime"), StringPool.scopes(Arrays.asList("compile", "runtime")));
+    }
+
+    public void dependencyAddScope() {
+        Dependency dependency = new DependencyBuilder().id("a").addScope("compile").build();
+        dependency.addScope("test");
+        dependency.addScope("compile");
+        assertEquals(dependency.getScopes(), Arrays.asList("compile", "test"));
+    }
+
+    public void dependencyScopesCopiedOnWrite() throws Exception {
+        Dependency first = new DependencyBuilder().id("a").addScope("compile").build();
+        Dependency second = new DependencyBuilder().id("b").addScope("compile").build();
+        List<String> scopes = first.getScopes();
+        scopes.add("test");
+        first.getScopes().remove("compile");
+        assertEquals(first.getScopes(), Collections.singletonList("test"));
+        assertEquals(scopes, Collections.singletonList("test"));
+        assertEquals(second.getScopes(), Collections.singletonList("compile"));
+        assertSame(scopesOf(second), StringPool.scopes(Collections.singletonList("compile")),
+                "Unmodified scope lists should stay shared.");
+    }
+
+    /**
+     * Builds the same dependencies for several modules from fresh strings and asserts that they share their values.
+     */
+    public void pooledModelSharesInstances() throws Exception {
+        List<Dependency> first = buildDependencies();
+        List<Dependency> second = buildDependencies();
+        for (int d = 0; d < DEPENDENCIES; d++) {
+            Dependency dependency = first.get(d);
+            Dependency other = second.get(d);
+            assertNotSame(other, dependency);
+            assertSame(other.getId(), dependency.getId(), "Dependency ids should be shared between modules.");
+            assertSame(other.getType(), first.get(0).getType(), "Types should be shared.");
+            assertSame(scopesOf(other), scopesOf(first.get(0)), "Scope lists should be shared.");
+            assertSame(other.getSha1(), dependency.getSha1(), "Checksums should be shared between modules.");
+            assertSame(other.getMd5(), dependency.getMd5(), "Checksums should be shared between modules.");
+        }
+    }
+
+    private static List<Dependency> buildDependencies() {
+        List<Dependency> dependencies = Lists.newArrayList();
+        for (int d = 0; d < DEPENDENCIES; d++) {
+            dependencies.add(new DependencyBuilder().id("org.jfrog.test:lib" + d + ":1.0").type(new String("jar"))
+                    .addScope(new String("compile")).sha1(checksum(d, 40)).md5(checksum(d, 32)).build());
+        }
+        return dependencies;
+    }
+
+    static Object scopesOf(Dependency dependency) throws Exception {
+        Field scopes = Dependency.class.getDeclaredField("scopes");
+        scopes.setAccessible(true);
+        return scopes.get(dependency);
+    }
+
+    static String checksum(int seed, int length) {
+        return Strings.padStart(Integer.toHexString(seed), length, '0');
+    }
+}
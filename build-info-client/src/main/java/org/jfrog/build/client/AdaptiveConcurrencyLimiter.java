@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the requests in flight to Artifactory with a limit adapted to the server backpressure: the limit grows by
+ * one per window of successful requests (additive increase), and shrinks when the server answers 429/503, times out
+ * (multiplicative decrease) or when the latency grows far above the lowest observed latency (gradient).
+ * <p/>
+ * Only one decrease is applied per window, i.e. the requests started before the last decrease do not shrink the
+ * limit again. The latency is the time until the response headers arrived, and only requests sending up to
+ * {@link #MAX_LATENCY_SAMPLE_BYTES} are sampled: the latency of larger uploads grows with their size and says
+ * nothing about the server load. A request stays in flight until its response was consumed. The limiter also
+ * computes the jittered exponential backoff of the retried requests.
+ */
+public class AdaptiveConcurrencyLimiter {
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    private static final double DECREASE_RATIO = 0.5;
+    private static final double LATENCY_DECREASE_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final long MIN_LATENCY_INCREASE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int LATENCY_PROBE_INTERVAL = 500;
+    static final long MAX_LATENCY_SAMPLE_BYTES = 64 * 1024;
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 10000;
+
+    private final int maxLimit;
+    private final int maxRetries;
+    private final Random random = new Random();
+    private double limit;
+    private int inFlight;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private long lastDecreaseNanos = System.nanoTime();
+    private int samples;
+    private long overloads;
+
+    /**
+     * @param maxLimit The maximum number of requests in flight
+     */
+    public AdaptiveConcurrencyLimiter(int maxLimit) {
+        this(Math.min(4, maxLimit), maxLimit, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * @param initialLimit The number of requests in flight allowed before any feedback
+     * @param maxLimit     The maximum number of requests in flight
+     * @param maxRetries   The number of retries of idempotent requests rejected by an overloaded server
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit, int maxRetries) {
+        if (maxLimit < 1 || initialLimit < 1 || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits: initial " + initialLimit + ", maximum " +
+                    maxLimit);
+        }
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Waits until a request can be sent.
+     *
+     * @return The start time of the request, to pass back when it ended
+     */
+    public synchronized long acquire() throws InterruptedException {
+        while (inFlight >= getLimit()) {
+            wait();
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Releases a request without content answered by the server, see {@link #onResponse} and {@link #release()}.
+     */
+    public synchronized void onSuccess(long startNanos) {
+        onResponse(startNanos, 0);
+        release();
+    }
+
+    /**
+     * Records the response headers of a request answered by the server. The request stays in flight until
+     * {@link #release() released}.
+     *
+     * @param startNanos The start time of the request
+     * @param bytesSent  The size of the request content, negative if unknown
+     */
+    public synchronized void onResponse(long startNanos, long bytesSent) {
+        long latency = System.nanoTime() - startNanos;
+        boolean saturated = inFlight >= getLimit();
+        if (bytesSent >= 0 && bytesSent <= MAX_LATENCY_SAMPLE_BYTES) {
+            if (++samples % LATENCY_PROBE_INTERVAL == 0) {
+                // Forget the lowest latency from time to time, it may not be reachable anymore
+                minLatencyNanos = latency;
+            } else {
+                minLatencyNanos = Math.min(minLatencyNanos, latency);
+            }
+            if (latency > minLatencyNanos * LATENCY_TOLERANCE &&
+                    latency - minLatencyNanos > MIN_LATENCY_INCREASE_NANOS) {
+                decrease(startNanos, LATENCY_DECREASE_RATIO);
+                return;
+            }
+        }
+        if (saturated) {
+            // Only grow when the limit is actually used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Releases a request rejected by an overloaded server (429/503) or that timed out.
+     */
+    public synchronized void onOverload(long startNanos) {
+        inFlight--;
+        overloads++;
+        decrease(startNanos, DECREASE_RATIO);
+        notifyAll();
+    }
+
+    /**
+     * Releases a request once its response was consumed, or when it failed for a reason unrelated to the server load.
+     */
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private void decrease(long startNanos, double ratio) {
+        if (startNanos - lastDecreaseNanos >= 0) {
+            limit = Math.max(1, limit * ratio);
+            lastDecreaseNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * @param attempt    The number of the retry, starting at 0
+     * @param retryAfter The Retry-After header of the response, in seconds, may be null
+     * @return The time to wait before the retry, a random value between the half and the whole exponential backoff
+     *         and at least the time asked by the server (up to the maximum backoff)
+     */
+    public long getBackoffMillis(int attempt, String retryAfter) {
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        long delay;
+        synchronized (random) {
+            delay = backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+        }
+        if (StringUtils.isNotBlank(retryAfter)) {
+            try {
+                long asked = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+                delay = Math.max(delay, Math.min(MAX_BACKOFF_MILLIS, asked));
+            } catch (NumberFormatException e) {
+                // An HTTP date, use the backoff
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * @return The current number of requests allowed in flight
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return The number of requests rejected by the server or that timed out
+     */
+    public synchronized long getOverloads() {
+        return overloads;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.Maps;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits an upload bandwidth evenly between the processes of the agent currently uploading.
+ * <p/>
+ * Each uploading process holds an OS lock on its own file in a shared directory; the share is the agent bandwidth
+ * divided by the number of locked files, recounted every second. The locks are released by the OS when a process
+ * dies, so the files of crashed processes are recognized and deleted.
+ * <p/>
+ * A process has a single share per directory, see {@link #forDirectory}, otherwise its other shares would count as
+ * other uploading processes.
+ */
+public class AgentBandwidthShare {
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final long RECOUNT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long STALE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final Map<File, AgentBandwidthShare> shares = Maps.newHashMap();
+
+    private final File dir;
+    private long agentBytesPerSecond;
+    private final File lockFile;
+    private int uploads;
+    private RandomAccessFile lockFileAccess;
+    private FileLock lock;
+    private long bytesPerSecond;
+    private long countedNanos;
+
+    /**
+     * @param dir                 The directory shared by the processes of the agent
+     * @param agentBytesPerSecond The bandwidth of the agent
+     */
+    public AgentBandwidthShare(File dir, long agentBytesPerSecond) {
+        this.dir = dir;
+        this.agentBytesPerSecond = agentBytesPerSecond;
+        this.bytesPerSecond = agentBytesPerSecond;
+        this.lockFile = new File(dir, UUID.randomUUID().toString() + LOCK_SUFFIX);
+    }
+
+    /**
+     * @param dir                 The directory shared by the processes of the agent
+     * @param agentBytesPerSecond The bandwidth of the agent
+     * @return The share of this process in the directory, created on the first call and updated with the bandwidth
+     */
+    public static AgentBandwidthShare forDirectory(File dir, long agentBytesPerSecond) {
+        File key = dir.getAbsoluteFile();
+        AgentBandwidthShare share;
+        synchronized (shares) {
+            share = shares.get(key);
+            if (share == null) {
+                share = new AgentBandwidthShare(key, agentBytesPerSecond);
+                shares.put(key, share);
+                return share;
+            }
+        }
+        share.setAgentBytesPerSecond(agentBytesPerSecond);
+        return share;
+    }
+
+    private synchronized void setAgentBytesPerSecond(long agentBytesPerSecond) {
+        if (this.agentBytesPerSecond != agentBytesPerSecond) {
+            this.agentBytesPerSecond = agentBytesPerSecond;
+            countedNanos = 0;
+        }
+    }
+
+    /**
+     * Registers an upload of this process, the first one locks the file of the process.
+     */
+    public synchronized void uploadStarted() throws IOException {
+        if (uploads++ > 0) {
+            return;
+        }
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+                throw new IOException("Could not create directory " + dir);
+            }
+            lockFileAccess = new RandomAccessFile(lockFile, "rw");
+            lock = lockFileAccess.getChannel().lock();
+        } catch (IOException e) {
+            uploads--;
+            release();
+            throw e;
+        }
+        countedNanos = 0;
+    }
+
+    /**
+     * Unregisters an upload of this process, the last one releases the file of the process.
+     */
+    public synchronized void uploadEnded() {
+        if (uploads > 0 && --uploads == 0) {
+            release();
+        }
+    }
+
+    /**
+     * @return The bandwidth of this process: the agent bandwidth divided by the processes uploading
+     */
+    public synchronized long getBytesPerSecond() {
+        long now = System.nanoTime();
+        if (countedNanos == 0 || now - countedNanos >= RECOUNT_NANOS) {
+            bytesPerSecond = agentBytesPerSecond / Math.max(1, countUploaders());
+            countedNanos = now;
+        }
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return The number of processes holding the lock of their file, deleting the files of dead processes
+     */
+    int countUploaders() {
+        File[] files = dir.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.getName().endsWith(LOCK_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return 0;
+        }
+        int uploaders = 0;
+        for (File file : files) {
+            if (file.equals(lockFile)) {
+                if (lock != null) {
+                    uploaders++;
+                }
+            } else if (isLocked(file)) {
+                uploaders++;
+            }
+        }
+        return uploaders;
+    }
+
+    private boolean isLocked(File file) {
+        RandomAccessFile access = null;
+        try {
+            access = new RandomAccessFile(file, "rw");
+            FileLock fileLock = access.getChannel().tryLock();
+            if (fileLock == null) {
+                return true;
+            }
+            fileLock.release();
+            access.close();
+            access = null;
+            if (file.lastModified() < System.currentTimeMillis() - STALE_MILLIS) {
+                // Left by a process that died, recent files may be about to be locked by their process
+                file.delete();
+            }
+            return false;
+        } catch (OverlappingFileLockException e) {
+            // Locked by another share of this process
+            return true;
+        } catch (IOException e) {
+            // Deleted meanwhile, or not accessible
+            return false;
+        } finally {
+            closeQuietly(access);
+        }
+    }
+
+    private void release() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+        } catch (IOException e) {
+            // closing the file releases the lock anyway
+        }
+        lock = null;
+        closeQuietly(lockFileAccess);
+        lockFileAccess = null;
+        lockFile.delete();
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -16,12 +16,10 @@
 
 package org.jfrog.build.client;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.LinkedList;
-import java.util.Map;
 
 /**
  * A map of artifact specs per configuration
@@ -30,6 +28,11 @@ import java.util.Map;
  */
 public class ArtifactSpecs extends LinkedList<ArtifactSpec> {
 
+    /**
+     * Compiled lookup index, rebuilt whenever the list is modified
+     */
+    private transient volatile ArtifactSpecsIndex index;
+
     public ArtifactSpecs() {
     }
 
@@ -52,21 +55,29 @@ public class ArtifactSpecs extends LinkedList<ArtifactSpec> {
     }
 
     /**
-     * Iterate over all the specs and if matches add the properties
+     * Collect the properties of all the specs matching the given spec, in the order the specs were added.
+     * Lookups go through a compiled index of the specs and are memoized per artifact coordinates.
      *
-     * @param spec
-     * @return
+     * @param spec The spec of the artifact to match
+     * @return An unmodifiable multimap of the properties of all matching specs
      */
     public Multimap<String, CharSequence> getProperties(ArtifactSpec spec) {
-        Multimap<String, CharSequence> props = ArrayListMultimap.create();
-        for (ArtifactSpec matcherSpec : this) {
-            if (matcherSpec.matches(spec)) {
-                Map<String, CharSequence> matcherSpecProperties = matcherSpec.getProperties();
-                for (Map.Entry<String, CharSequence> entry : matcherSpecProperties.entrySet()) {
-                    props.put(entry.getKey(), entry.getValue());
-                }
-            }
+        return getIndex().getProperties(spec);
+    }
+
+    @Override
+    public ArtifactSpec set(int index, ArtifactSpec element) {
+        // Not a structural modification, so it does not change the modCount
+        this.index = null;
+        return super.set(index, element);
+    }
+
+    private ArtifactSpecsIndex getIndex() {
+        ArtifactSpecsIndex current = index;
+        if (current == null || current.getRevision() != modCount) {
+            current = new ArtifactSpecsIndex(this, modCount);
+            index = current;
         }
-        return props;
+        return current;
     }
 }
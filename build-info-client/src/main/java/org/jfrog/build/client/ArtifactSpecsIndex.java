@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compiled, read-only view of {@link ArtifactSpecs}.
+ * <p/>
+ * Specs are bucketed by their configuration and group when those are exact values (no wildcards), so a lookup only
+ * evaluates the specs that can possibly match. Specs with wildcard configuration or group are kept in separate
+ * buckets. The resulting properties are memoized per coordinates tuple.
+ */
+class ArtifactSpecsIndex {
+
+    private static final Comparator<CompiledSpec> BY_ORDER = new Comparator<CompiledSpec>() {
+        public int compare(CompiledSpec o1, CompiledSpec o2) {
+            return o1.order < o2.order ? -1 : (o1.order == o2.order ? 0 : 1);
+        }
+    };
+
+    private final int revision;
+    private final Map<String, List<CompiledSpec>> byConfigurationAndGroup = Maps.newHashMap();
+    private final Map<String, List<CompiledSpec>> byConfiguration = Maps.newHashMap();
+    private final Map<String, List<CompiledSpec>> byGroup = Maps.newHashMap();
+    private final List<CompiledSpec> wildcards = Lists.newArrayList();
+    private final ConcurrentMap<List<String>, Multimap<String, CharSequence>> memo = Maps.newConcurrentMap();
+
+    ArtifactSpecsIndex(List<ArtifactSpec> specs, int revision) {
+        this.revision = revision;
+        int order = 0;
+        for (ArtifactSpec spec : specs) {
+            CompiledSpec compiled = new CompiledSpec(spec, order++);
+            String configurationKey = exactKey(spec.getConfiguration());
+            String groupKey = exactKey(spec.getGroup());
+            if (configurationKey != null && groupKey != null) {
+                bucket(byConfigurationAndGroup, configurationKey + ':' + groupKey).add(compiled);
+            } else if (configurationKey != null) {
+                bucket(byConfiguration, configurationKey).add(compiled);
+            } else if (groupKey != null) {
+                bucket(byGroup, groupKey).add(compiled);
+            } else {
+                wildcards.add(compiled);
+            }
+        }
+    }
+
+    int getRevision() {
+        return revision;
+    }
+
+    /**
+     * @param spec The spec of the artifact to look up
+     * @return The properties of all the matching specs, in the order the specs were defined. The result is shared and
+     *         must not be modified.
+     */
+    Multimap<String, CharSequence> getProperties(ArtifactSpec spec) {
+        List<String> coordinates = Arrays.asList(spec.getConfiguration(), spec.getGroup(), spec.getName(),
+                spec.getVersion(), spec.getClassifier(), spec.getType());
+        Multimap<String, CharSequence> props = memo.get(coordinates);
+        if (props == null) {
+            props = calculateProperties(spec);
+            memo.putIfAbsent(coordinates, props);
+        }
+        return props;
+    }
+
+    private Multimap<String, CharSequence> calculateProperties(ArtifactSpec spec) {
+        String configurationKey = exactKey(spec.getConfiguration());
+        String groupKey = exactKey(spec.getGroup());
+        List<CompiledSpec> candidates = Lists.newArrayList(wildcards);
+        if (configurationKey != null) {
+            addAll(candidates, byConfiguration.get(configurationKey));
+        }
+        if (groupKey != null) {
+            addAll(candidates, byGroup.get(groupKey));
+        }
+        if (configurationKey != null && groupKey != null) {
+            addAll(candidates, byConfigurationAndGroup.get(configurationKey + ':' + groupKey));
+        }
+        Collections.sort(candidates, BY_ORDER);
+
+        ListMultimap<String, CharSequence> props = ArrayListMultimap.create();
+        for (CompiledSpec candidate : candidates) {
+            if (candidate.matches(spec)) {
+                for (Map.Entry<String, CharSequence> entry : candidate.spec.getProperties().entrySet()) {
+                    props.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return Multimaps.unmodifiableListMultimap(props);
+    }
+
+    private static void addAll(List<CompiledSpec> candidates, List<CompiledSpec> bucket) {
+        if (bucket != null) {
+            candidates.addAll(bucket);
+        }
+    }
+
+    private static List<CompiledSpec> bucket(Map<String, List<CompiledSpec>> buckets, String key) {
+        List<CompiledSpec> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = Lists.newArrayList();
+            buckets.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * @return The case insensitive lookup key of an exact value, or null if the value is a wildcard pattern
+     */
+    private static String exactKey(String value) {
+        if (isAny(value) || isPattern(value)) {
+            return null;
+        }
+        return upperCase(value);
+    }
+
+    private static boolean isAny(String value) {
+        return value == null || ArtifactSpec.WILDCARD.equals(value);
+    }
+
+    private static boolean isPattern(String value) {
+        return value.indexOf('*') != -1 || value.indexOf('?') != -1;
+    }
+
+    /**
+     * Upper-cases char by char, the same way {@link PatternMatcher#match(String, String, boolean)} compares
+     */
+    private static String upperCase(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toUpperCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A spec with its field patterns pre-classified, so that exact values and wildcards skip the pattern matcher
+     */
+    private static class CompiledSpec {
+        private final ArtifactSpec spec;
+        private final int order;
+        private final FieldMatcher configuration;
+        private final FieldMatcher group;
+        private final FieldMatcher name;
+        private final FieldMatcher version;
+        private final FieldMatcher classifier;
+        private final FieldMatcher type;
+
+        private CompiledSpec(ArtifactSpec spec, int order) {
+            this.spec = spec;
+            this.order = order;
+            configuration = FieldMatcher.of(spec.getConfiguration());
+            group = FieldMatcher.of(spec.getGroup());
+            name = FieldMatcher.of(spec.getName());
+            version = FieldMatcher.of(spec.getVersion());
+            classifier = FieldMatcher.of(spec.getClassifier());
+            type = FieldMatcher.of(spec.getType());
+        }
+
+        private boolean matches(ArtifactSpec other) {
+            return configuration.matches(other.getConfiguration()) && group.matches(other.getGroup()) &&
+                    name.matches(other.getName()) && version.matches(other.getVersion()) &&
+                    classifier.matches(other.getClassifier()) && type.matches(other.getType());
+        }
+    }
+
+    /**
+     * Same semantics as {@link ArtifactSpec#matches(ArtifactSpec)} for a single field
+     */
+    private static class FieldMatcher {
+        private static final FieldMatcher ANY = new FieldMatcher(null, false);
+
+        private final String pattern;
+        private final boolean wildcard;
+
+        private FieldMatcher(String pattern, boolean wildcard) {
+            this.pattern = pattern;
+            this.wildcard = wildcard;
+        }
+
+        private static FieldMatcher of(String pattern) {
+            if (isAny(pattern)) {
+                return ANY;
+            }
+            return isPattern(pattern) ? new FieldMatcher(pattern, true) : new FieldMatcher(upperCase(pattern), false);
+        }
+
+        private boolean matches(String value) {
+            if (pattern == null) {
+                return true;
+            }
+            if (isAny(value)) {
+                return false;
+            }
+            if (wildcard) {
+                return PatternMatcher.match(pattern, value, false);
+            }
+            if (pattern.length() != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < pattern.length(); i++) {
+                if (pattern.charAt(i) != Character.toUpperCase(value.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
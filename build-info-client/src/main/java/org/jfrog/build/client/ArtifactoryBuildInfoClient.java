@@ -18,6 +18,8 @@ package org.jfrog.build.client;
 
 import com.google.common.base.Function;
 import com.google.common.collect.*;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -26,9 +28,14 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.FileEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.protocol.HTTP;
+import org.codehaus.jackson.JsonEncoding;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonNode;
@@ -36,16 +43,19 @@ import org.codehaus.jackson.JsonParser;
 import org.jfrog.build.api.Build;
 import org.jfrog.build.api.release.Promotion;
 import org.jfrog.build.api.util.FileChecksumCalculator;
+import org.jfrog.build.api.util.FlightRecorderEvent;
 import org.jfrog.build.api.util.Log;
 import org.jfrog.build.util.DeploymentUrlUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import static org.jfrog.build.client.ArtifactoryHttpClient.*;
 
@@ -61,6 +71,16 @@ public class ArtifactoryBuildInfoClient {
     private static final String BUILD_REST_URL = "/api/build";
     private static final String BUILD_BROWSE_URL = "/webapp/builds";
     private static final int CHECKSUM_DEPLOY_MIN_FILE_SIZE = 10240; // Try checksum deploy of files greater than 10KB
+    private static final FlightRecorderEvent DEPLOY_EVENT = FlightRecorderEvent.define("org.jfrog.build.Deploy",
+            "Artifact Deployment", "path", String.class, "bytes", long.class, "status", int.class, "checksumDeploy",
+            boolean.class);
+    /**
+     * Serialization of the build info, to a string, a request or an exported file. The size is in characters for a
+     * string and in bytes otherwise.
+     */
+    public static final FlightRecorderEvent SERIALIZATION_EVENT = FlightRecorderEvent.define(
+            "org.jfrog.build.Serialization", "Build Info Serialization", "build", String.class, "modules", int.class,
+            "size", long.class);
     private final Log log;
     /**
      * The http client used for deploying artifacts and build info. Created and cached on the first deploy request.
@@ -68,9 +88,21 @@ public class ArtifactoryBuildInfoClient {
     private ArtifactoryHttpClient httpClient;
     private String artifactoryUrl;
     /**
-     * Version of Artifactory we work with.
+     * Version of Artifactory we work with, requested once by the first deployment.
+     */
+    private ListenableFuture<ArtifactoryVersion> artifactoryVersion;
+    /**
+     * Records deployed artifacts to skip unchanged ones, null when publishing is not incremental.
+     */
+    private DeployManifest deployManifest;
+    /**
+     * Journal of the completed uploads, null when not journaling.
+     */
+    private DeployJournal deployJournal;
+    /**
+     * Publish metrics collector, may be null
      */
-    private ArtifactoryVersion artifactoryVersion;
+    private PublishMetrics publishMetrics;
 
     /**
      * Creates a new client for the given Artifactory url.
@@ -134,6 +166,86 @@ public class ArtifactoryBuildInfoClient {
         httpClient.setProxyConfiguration(proxy.host, proxy.port, proxy.username, proxy.password);
     }
 
+    /**
+     * Publish incrementally: artifacts recorded as deployed in the manifest are skipped, and the manifest is saved on
+     * {@link #shutdown()}.
+     *
+     * @param deployManifest The deploy manifest to use, null to deploy all artifacts
+     */
+    public void setDeployManifest(DeployManifest deployManifest) {
+        this.deployManifest = deployManifest;
+    }
+
+    public DeployManifest getDeployManifest() {
+        return deployManifest;
+    }
+
+    /**
+     * Record every completed upload in the journal, and skip the uploads the journal reports as completed by an
+     * interrupted publish. The journal is closed on {@link #shutdown()}.
+     *
+     * @param deployJournal The deploy journal to use, null to disable journaling
+     */
+    public void setDeployJournal(DeployJournal deployJournal) {
+        this.deployJournal = deployJournal;
+    }
+
+    /**
+     * Record the uploads, requests and build info deployment of this client in the publish metrics.
+     *
+     * @param publishMetrics The metrics of the publish, null to disable
+     */
+    public void setPublishMetrics(PublishMetrics publishMetrics) {
+        this.publishMetrics = publishMetrics;
+        httpClient.setPublishMetrics(publishMetrics);
+    }
+
+    public PublishMetrics getPublishMetrics() {
+        return publishMetrics;
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setTransport
+     */
+    public void setTransport(HttpTransport transport) {
+        httpClient.setTransport(transport);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setNonBlockingTransport
+     */
+    public void setNonBlockingTransport(boolean nonBlockingTransport) {
+        httpClient.setNonBlockingTransport(nonBlockingTransport);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setBandwidthLimiter
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        httpClient.setBandwidthLimiter(bandwidthLimiter);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setZeroCopyUpload
+     */
+    public void setZeroCopyUpload(boolean zeroCopyUpload) {
+        httpClient.setZeroCopyUpload(zeroCopyUpload);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setConcurrencyLimiter
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        httpClient.setConcurrencyLimiter(concurrencyLimiter);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setRequestListener
+     */
+    public void setRequestListener(HttpRequestListener requestListener) {
+        httpClient.setRequestListener(requestListener);
+    }
+
     /**
      * @return A list of local repositories available for deployment.
      * @throws IOException On any connection error
@@ -214,37 +326,81 @@ public class ArtifactoryBuildInfoClient {
     }
 
     public void sendBuildInfo(String buildInfoJson) throws IOException {
+        AsyncFutures.getResult(sendBuildInfoAsync(new StringEntity(buildInfoJson, "UTF-8")));
+    }
+
+    private ListenableFuture<Void> sendBuildInfoAsync(AbstractHttpEntity buildInfoEntity) {
         String url = artifactoryUrl + BUILD_REST_URL;
         HttpPut httpPut = new HttpPut(url);
-        StringEntity stringEntity = new StringEntity(buildInfoJson, "UTF-8");
-        stringEntity.setContentType("application/vnd.org.jfrog.artifactory+json");
-        httpPut.setEntity(stringEntity);
+        buildInfoEntity.setContentType("application/vnd.org.jfrog.artifactory+json");
+        httpPut.setEntity(buildInfoEntity);
         log.info("Deploying build info to: " + url);
-        HttpResponse response = httpClient.getHttpClient().execute(httpPut);
-        if (response.getEntity() != null) {
-            response.getEntity().consumeContent();
-        }
-        StatusLine statusLine = response.getStatusLine();
-        if (statusLine.getStatusCode() != HttpStatus.SC_NO_CONTENT) {
-            throwHttpIOException("Failed to send build info:", statusLine);
-        }
+        final long start = System.nanoTime();
+        return AsyncFutures.map(httpClient.getTransport().execute(httpPut),
+                new AsyncFutures.Transformation<HttpResponse, Void>() {
+                    public Void apply(HttpResponse response) throws IOException {
+                        if (response.getEntity() != null) {
+                            response.getEntity().consumeContent();
+                        }
+                        if (publishMetrics != null) {
+                            publishMetrics.phaseEnded(PublishMetrics.Phase.BUILD_INFO, start);
+                        }
+                        StatusLine statusLine = response.getStatusLine();
+                        if (statusLine.getStatusCode() != HttpStatus.SC_NO_CONTENT) {
+                            throwHttpIOException("Failed to send build info:", statusLine);
+                        }
+                        return null;
+                    }
+                });
     }
 
     /**
-     * Sends build info to Artifactory.
+     * Sends build info to Artifactory. The build info is serialized directly to the request, without building the
+     * whole JSON document in memory.
      *
      * @param buildInfo The build info to send
      * @throws IOException On any connection error
      */
-    public void sendBuildInfo(Build buildInfo) throws IOException {
+    public void sendBuildInfo(final Build buildInfo) throws IOException {
+        AsyncFutures.getResult(sendBuildInfoAsync(buildInfo));
+    }
+
+    /**
+     * Sends build info to Artifactory without blocking the caller, see {@link #sendBuildInfo(Build)}.
+     *
+     * @param buildInfo The build info to send
+     * @return Completed once the build info was accepted, or failed with the connection error
+     */
+    public ListenableFuture<Void> sendBuildInfoAsync(final Build buildInfo) {
+        ListenableFuture<Void> sent;
         try {
-            sendBuildInfo(buildInfoToJsonString(buildInfo));
-            log.info("Build successfully deployed. Browse it in Artifactory under " + artifactoryUrl + BUILD_BROWSE_URL + "/" + buildInfo.getName() + "/" + buildInfo.getNumber() + "/" + buildInfo.getStarted() + "/");
+            prepareBuildInfo(buildInfo);
+            sent = AsyncFutures.map(sendBuildInfoAsync(new EntityTemplate(new ContentProducer() {
+                public void writeTo(OutputStream outstream) throws IOException {
+                    Object event = SERIALIZATION_EVENT.begin();
+                    CountingOutputStream countingStream = new CountingOutputStream(outstream);
+                    JsonGenerator jsonGenerator = httpClient.createJsonFactory().createJsonGenerator(countingStream,
+                            JsonEncoding.UTF8);
+                    jsonGenerator.useDefaultPrettyPrinter();
+                    jsonGenerator.writeObject(buildInfo);
+                    jsonGenerator.flush();
+                    commitSerializationEvent(event, buildInfo, countingStream.getCount());
+                }
+            })), new AsyncFutures.Transformation<Void, Void>() {
+                public Void apply(Void input) {
+                    log.info("Build successfully deployed. Browse it in Artifactory under " + artifactoryUrl + BUILD_BROWSE_URL + "/" + buildInfo.getName() + "/" + buildInfo.getNumber() + "/" + buildInfo.getStarted() + "/");
+                    return null;
+                }
+            });
         } catch (Exception e) {
-            log.error("Could not build the build-info object.", e);
-            throw new IOException("Could not publish build-info: " + e.getMessage());
+            sent = AsyncFutures.failed(e);
         }
-
+        return AsyncFutures.recover(sent, new AsyncFutures.Recovery<Void>() {
+            public Void apply(Exception cause) throws IOException {
+                log.error("Could not build the build-info object.", cause);
+                throw new IOException("Could not publish build-info: " + cause.getMessage());
+            }
+        });
     }
 
     public String getItemLastModified(String path) throws IOException, ParseException {
@@ -287,6 +443,62 @@ public class ArtifactoryBuildInfoClient {
      * @throws IOException On any connection error
      */
     public ArtifactoryUploadResponse deployArtifact(DeployDetails details) throws IOException {
+        return AsyncFutures.getResult(deployArtifactAsync(details));
+    }
+
+    /**
+     * Deploys the artifact to the destination repository without blocking the caller.
+     *
+     * @param details Details about the deployed artifact
+     * @return The response content received from Artifactory, or the connection error
+     */
+    public ListenableFuture<ArtifactoryUploadResponse> deployArtifactAsync(final DeployDetails details) {
+        if (deployJournal != null && deployJournal.isCompleted(details)) {
+            log.info("Skipping artifact deployed by the interrupted publish: " + details.getTargetRepository() + "/" +
+                    details.artifactPath);
+            if (deployManifest != null) {
+                deployManifest.deployed(details);
+            }
+            return AsyncFutures.immediate(uploadResponse(details));
+        }
+        ListenableFuture<ArtifactoryUploadResponse> deployed;
+        try {
+            deployed = deployArtifactIfChanged(details);
+        } catch (IOException e) {
+            return AsyncFutures.failed(e);
+        }
+        return AsyncFutures.map(deployed,
+                new AsyncFutures.Transformation<ArtifactoryUploadResponse, ArtifactoryUploadResponse>() {
+                    public ArtifactoryUploadResponse apply(ArtifactoryUploadResponse response) {
+                        if (deployJournal != null) {
+                            deployJournal.completed(details);
+                        }
+                        return response;
+                    }
+                });
+    }
+
+    private ListenableFuture<ArtifactoryUploadResponse> deployArtifactIfChanged(final DeployDetails details)
+            throws IOException {
+        final DeployManifest.Status status =
+                deployManifest != null ? deployManifest.getStatus(details) : DeployManifest.Status.CHANGED;
+        if (status == DeployManifest.Status.UP_TO_DATE) {
+            log.info("Skipping deployment of unchanged artifact: " + details.getTargetRepository() + "/" +
+                    details.artifactPath);
+            deployManifest.skipped(details);
+            return AsyncFutures.immediate(uploadResponse(details));
+        }
+        return AsyncFutures.then(getArtifactoryVersion(),
+                new AsyncFutures.Step<ArtifactoryVersion, ArtifactoryUploadResponse>() {
+                    public ListenableFuture<ArtifactoryUploadResponse> apply(ArtifactoryVersion version)
+                            throws IOException {
+                        return deployArtifact(details, status, version);
+                    }
+                });
+    }
+
+    private ListenableFuture<ArtifactoryUploadResponse> deployArtifact(final DeployDetails details,
+            DeployManifest.Status status, final ArtifactoryVersion version) throws IOException {
         StringBuilder deploymentPathBuilder = new StringBuilder(artifactoryUrl);
         deploymentPathBuilder.append("/").append(details.getTargetRepository());
         if (!details.artifactPath.startsWith("/")) {
@@ -295,13 +507,56 @@ public class ArtifactoryBuildInfoClient {
         deploymentPathBuilder.append(details.artifactPath);
         String deploymentPath = deploymentPathBuilder.toString();
         log.info("Deploying artifact: " + deploymentPath);
-        deploymentPath = ArtifactoryHttpClient.encodeUrl(deploymentPath);
-        ArtifactoryUploadResponse response = uploadFile(details, deploymentPath);
-        // Artifactory 2.3.2+ will take the checksum from the headers of the put request for the file
-        if (!getArtifactoryVersion().isAtLeast(new ArtifactoryVersion("2.3.2"))) {
-            uploadChecksums(details, deploymentPath);
+        final String encodedPath = ArtifactoryHttpClient.encodeUrl(deploymentPath);
+        if (status != DeployManifest.Status.CONTENT_UP_TO_DATE) {
+            return uploadAndRecord(details, encodedPath, version);
         }
+        // Only the properties changed, the content is already there
+        final long start = System.nanoTime();
+        return AsyncFutures.then(tryChecksumDeploy(details, encodedPath, true, version),
+                new AsyncFutures.Step<ArtifactoryUploadResponse, ArtifactoryUploadResponse>() {
+                    public ListenableFuture<ArtifactoryUploadResponse> apply(ArtifactoryUploadResponse response)
+                            throws IOException {
+                        if (response == null) {
+                            return uploadAndRecord(details, encodedPath, version);
+                        }
+                        deployManifest.checksumDeployed(details);
+                        if (publishMetrics != null) {
+                            publishMetrics.uploaded(0, start);
+                        }
+                        return AsyncFutures.immediate(response);
+                    }
+                });
+    }
+
+    private ListenableFuture<ArtifactoryUploadResponse> uploadAndRecord(final DeployDetails details,
+            final String deploymentPath, final ArtifactoryVersion version) throws IOException {
+        return AsyncFutures.then(uploadFile(details, deploymentPath, version),
+                new AsyncFutures.Step<ArtifactoryUploadResponse, ArtifactoryUploadResponse>() {
+                    public ListenableFuture<ArtifactoryUploadResponse> apply(final ArtifactoryUploadResponse response) {
+                        // Artifactory 2.3.2+ will take the checksum from the headers of the put request for the file
+                        ListenableFuture<Void> checksumsUploaded = version.isAtLeast(new ArtifactoryVersion("2.3.2")) ?
+                                AsyncFutures.<Void>immediate(null) : uploadChecksumsAsync(details, deploymentPath);
+                        return AsyncFutures.map(checksumsUploaded,
+                                new AsyncFutures.Transformation<Void, ArtifactoryUploadResponse>() {
+                                    public ArtifactoryUploadResponse apply(Void input) {
+                                        if (deployManifest != null) {
+                                            deployManifest.deployed(details);
+                                        }
+                                        return response;
+                                    }
+                                });
+                    }
+                });
+    }
 
+    /**
+     * @return A response for an artifact that is not deployed since it is already in Artifactory
+     */
+    private ArtifactoryUploadResponse uploadResponse(DeployDetails details) {
+        ArtifactoryUploadResponse response = new ArtifactoryUploadResponse();
+        response.setRepo(details.getTargetRepository());
+        response.setPath(details.artifactPath);
         return response;
     }
 
@@ -352,7 +607,7 @@ public class ArtifactoryBuildInfoClient {
         httpPost.setEntity(stringEntity);
 
         log.info("Promoting build " + buildName + ", #" + buildNumber);
-        return httpClient.getHttpClient().execute(httpPost);
+        return bufferResponse(httpClient.getHttpClient().execute(httpPost));
     }
 
     public Map<String, List<Map>> getUserPluginInfo() throws IOException {
@@ -388,7 +643,7 @@ public class ArtifactoryBuildInfoClient {
                 .append(executionName).append("?");
         appendParamsToUrl(requestParams, urlBuilder);
         HttpPost postRequest = new HttpPost(urlBuilder.toString());
-        return httpClient.getHttpClient().execute(postRequest);
+        return bufferResponse(httpClient.getHttpClient().execute(postRequest));
     }
 
     public Map getStagingStrategy(String strategyName, String buildName, Map<String, String> requestParams)
@@ -430,13 +685,36 @@ public class ArtifactoryBuildInfoClient {
                 .append(ArtifactoryHttpClient.encodeUrl(buildNumber)).append("?");
         appendParamsToUrl(requestParams, urlBuilder);
         HttpPost postRequest = new HttpPost(urlBuilder.toString());
-        return httpClient.getHttpClient().execute(postRequest);
+        return bufferResponse(httpClient.getHttpClient().execute(postRequest));
+    }
+
+    /**
+     * Read the content of a response returned to the caller, so that its connection goes back to the pool even if the
+     * caller does not consume it.
+     */
+    private HttpResponse bufferResponse(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            response.setEntity(new BufferedHttpEntity(entity));
+        }
+        return response;
     }
 
     /**
      * Release all connection and cleanup resources.
      */
     public void shutdown() {
+        if (deployJournal != null) {
+            deployJournal.close();
+        }
+        if (deployManifest != null) {
+            try {
+                deployManifest.save();
+                log.info(deployManifest.getSummary());
+            } catch (IOException e) {
+                log.warn("Could not save the deploy manifest '" + deployManifest.getFile() + "': " + e.getMessage());
+            }
+        }
         if (httpClient != null) {
             httpClient.shutdown();
         }
@@ -464,7 +742,33 @@ public class ArtifactoryBuildInfoClient {
         }
     }
 
+    /**
+     * Commit a {@link #SERIALIZATION_EVENT} started for the build info.
+     *
+     * @param event     The started event, may be null
+     * @param buildInfo The serialized build info
+     * @param size      The size of the serialized build info
+     */
+    public static void commitSerializationEvent(Object event, Build buildInfo, long size) {
+        if (event != null) {
+            SERIALIZATION_EVENT.commit(event, buildInfo.getName() + "/" + buildInfo.getNumber(),
+                    buildInfo.getModules() != null ? buildInfo.getModules().size() : 0, size);
+        }
+    }
+
     public String buildInfoToJsonString(Build buildInfo) throws Exception {
+        prepareBuildInfo(buildInfo);
+        long start = System.nanoTime();
+        Object event = SERIALIZATION_EVENT.begin();
+        String json = toJsonString(buildInfo);
+        commitSerializationEvent(event, buildInfo, json.length());
+        if (publishMetrics != null) {
+            publishMetrics.phaseEnded(PublishMetrics.Phase.SERIALIZATION, start);
+        }
+        return json;
+    }
+
+    private void prepareBuildInfo(Build buildInfo) throws VersionException {
         ArtifactoryVersion version = verifyCompatibleArtifactoryVersion();
         //From Artifactory 2.2.3 we do not need to discard new properties in order to avoid a server side exception on
         //JSON parsing. Our JSON writer is configured to discard null values.
@@ -481,7 +785,6 @@ public class ArtifactoryBuildInfoClient {
             String parentBuildNumber = buildInfo.getParentNumber();
             verifyNonNumericBuildNumber(parentBuildNumber);
         }
-        return toJsonString(buildInfo);
     }
 
     String toJsonString(Object object) throws IOException {
@@ -508,64 +811,122 @@ public class ArtifactoryBuildInfoClient {
         }
     }
 
-    private ArtifactoryUploadResponse uploadFile(DeployDetails details, String uploadUrl) throws IOException {
-        ArtifactoryUploadResponse response = tryChecksumDeploy(details, uploadUrl);
-        if (response != null) {
-            // Checksum deploy was performed:
-            return response;
-        }
+    private ListenableFuture<ArtifactoryUploadResponse> uploadFile(final DeployDetails details,
+            final String uploadUrl, ArtifactoryVersion version) throws IOException {
+        final long start = System.nanoTime();
+        final Object event = DEPLOY_EVENT.begin();
+        return AsyncFutures.then(tryChecksumDeploy(details, uploadUrl, false, version),
+                new AsyncFutures.Step<ArtifactoryUploadResponse, ArtifactoryUploadResponse>() {
+                    public ListenableFuture<ArtifactoryUploadResponse> apply(ArtifactoryUploadResponse response)
+                            throws IOException {
+                        if (response != null) {
+                            // Checksum deploy was performed:
+                            if (event != null) {
+                                DEPLOY_EVENT.commit(event, uploadUrl, 0L, response.getStatusLine().getStatusCode(),
+                                        true);
+                            }
+                            if (publishMetrics != null) {
+                                publishMetrics.uploaded(0, start);
+                            }
+                            return AsyncFutures.immediate(response);
+                        }
+
+                        HttpPut httpPut = createHttpPutMethod(details, uploadUrl);
+                        // add the 100 continue directive
+                        httpPut.addHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+
+                        FileEntity fileEntity = httpClient.createFileEntity(details.file, "binary/octet-stream");
+                        return AsyncFutures.map(httpClient.uploadAsync(httpPut, fileEntity), new UploadResult(details,
+                                uploadUrl, start, event));
+                    }
+                });
+    }
 
-        HttpPut httpPut = createHttpPutMethod(details, uploadUrl);
-        // add the 100 continue directive
-        httpPut.addHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+    /**
+     * Checks the response of a file upload.
+     */
+    private class UploadResult implements AsyncFutures.Transformation<ArtifactoryUploadResponse,
+            ArtifactoryUploadResponse> {
+        private final DeployDetails details;
+        private final String uploadUrl;
+        private final long start;
+        private final Object event;
+
+        private UploadResult(DeployDetails details, String uploadUrl, long start, Object event) {
+            this.details = details;
+            this.uploadUrl = uploadUrl;
+            this.start = start;
+            this.event = event;
+        }
 
-        FileEntity fileEntity = new FileEntity(details.file, "binary/octet-stream");
+        public ArtifactoryUploadResponse apply(ArtifactoryUploadResponse response) throws IOException {
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (event != null) {
+                DEPLOY_EVENT.commit(event, uploadUrl, details.file.length(), statusCode, false);
+            }
 
-        response = httpClient.upload(httpPut, fileEntity);
-        int statusCode = response.getStatusLine().getStatusCode();
+            //Accept both 200, and 201 for backwards-compatibility reasons
+            if ((statusCode != HttpStatus.SC_CREATED) && (statusCode != HttpStatus.SC_OK)) {
+                throwHttpIOException("Failed to deploy file:", response.getStatusLine());
+            }
+            if (publishMetrics != null) {
+                publishMetrics.uploaded(details.file.length(), start);
+            }
 
-        //Accept both 200, and 201 for backwards-compatibility reasons
-        if ((statusCode != HttpStatus.SC_CREATED) && (statusCode != HttpStatus.SC_OK)) {
-            throwHttpIOException("Failed to deploy file:", response.getStatusLine());
+            return response;
         }
-
-        return response;
     }
 
-    private ArtifactoryUploadResponse tryChecksumDeploy(DeployDetails details, String uploadUrl) throws UnsupportedEncodingException {
-        // Try checksum deploy only on file size greater than CHECKSUM_DEPLOY_MIN_FILE_SIZE
+    /**
+     * @return The response of the checksum deploy, or null if it was not performed or failed
+     */
+    private ListenableFuture<ArtifactoryUploadResponse> tryChecksumDeploy(final DeployDetails details,
+            String uploadUrl, boolean knownContent, ArtifactoryVersion version) throws UnsupportedEncodingException {
+        // Try checksum deploy only on file size greater than CHECKSUM_DEPLOY_MIN_FILE_SIZE, unless the content is
+        // known to be deployed already
         long fileLength = details.file.length();
-        if (fileLength < CHECKSUM_DEPLOY_MIN_FILE_SIZE) {
+        if (!knownContent && fileLength < CHECKSUM_DEPLOY_MIN_FILE_SIZE) {
             log.debug("Skipping checksum deploy of file size " + fileLength + " , falling back to regular deployment.");
-            return null;
+            return AsyncFutures.immediate(null);
         }
 
         // Artifactory 2.5.1+ has efficient checksum deployment (checks if the artifact already exists by it's checksum)
-        if (!getArtifactoryVersion().isAtLeast(new ArtifactoryVersion("2.5.1"))) {
-            return null;
+        if (!version.isAtLeast(new ArtifactoryVersion("2.5.1"))) {
+            return AsyncFutures.immediate(null);
         }
 
         HttpPut httpPut = createHttpPutMethod(details, uploadUrl);
         // activate checksum deploy
         httpPut.addHeader("X-Checksum-Deploy", "true");
 
-        String fileAbsolutePath = details.file.getAbsolutePath();
-        try {
-            ArtifactoryUploadResponse response = httpClient.execute(httpPut);
-            int statusCode = response.getStatusLine().getStatusCode();
-
-            //Accept both 200, and 201 for backwards-compatibility reasons
-            if ((statusCode == HttpStatus.SC_CREATED) || (statusCode == HttpStatus.SC_OK)) {
-                log.debug("Successfully performed checksum deploy of file " + fileAbsolutePath + " : " + details.sha1);
-                return response;
-            } else {
-                log.debug("Failed checksum deploy of checksum '" + details.sha1 + "' with statusCode: " + statusCode);
+        final String fileAbsolutePath = details.file.getAbsolutePath();
+        ListenableFuture<ArtifactoryUploadResponse> checksumDeployed = AsyncFutures.map(
+                httpClient.executeAsync(httpPut),
+                new AsyncFutures.Transformation<ArtifactoryUploadResponse, ArtifactoryUploadResponse>() {
+                    public ArtifactoryUploadResponse apply(ArtifactoryUploadResponse response) {
+                        int statusCode = response.getStatusLine().getStatusCode();
+
+                        //Accept both 200, and 201 for backwards-compatibility reasons
+                        if ((statusCode == HttpStatus.SC_CREATED) || (statusCode == HttpStatus.SC_OK)) {
+                            log.debug("Successfully performed checksum deploy of file " + fileAbsolutePath + " : " +
+                                    details.sha1);
+                            return response;
+                        } else {
+                            log.debug("Failed checksum deploy of checksum '" + details.sha1 + "' with statusCode: " +
+                                    statusCode);
+                        }
+                        return null;
+                    }
+                });
+        return AsyncFutures.recover(checksumDeployed, new AsyncFutures.Recovery<ArtifactoryUploadResponse>() {
+            public ArtifactoryUploadResponse apply(Exception cause) throws Exception {
+                if (!(cause instanceof IOException)) {
+                    throw cause;
+                }
+                log.debug("Failed artifact checksum deploy of file " + fileAbsolutePath + " : " + details.sha1);
+                return null;
             }
-        } catch (IOException e) {
-            log.debug("Failed artifact checksum deploy of file " + fileAbsolutePath + " : " + details.sha1);
-        }
-
-        return null;
+        });
     }
 
     private HttpPut createHttpPutMethod(DeployDetails details, String uploadUrl) throws UnsupportedEncodingException {
@@ -578,38 +939,52 @@ public class ArtifactoryBuildInfoClient {
     }
 
     public void uploadChecksums(DeployDetails details, String uploadUrl) throws IOException {
-        Map<String, String> checksums = getChecksumMap(details);
-        String fileAbsolutePath = details.file.getAbsolutePath();
-        String sha1 = checksums.get("SHA1");
-        if (StringUtils.isNotBlank(sha1)) {
-            log.debug("Uploading SHA1 for file " + fileAbsolutePath + " : " + sha1);
-            String sha1Url = uploadUrl + ".sha1" + DeploymentUrlUtils.buildMatrixParamsString(details.properties);
-            HttpPut putSha1 = new HttpPut(sha1Url);
-            StringEntity sha1StringEntity = new StringEntity(sha1);
-            ArtifactoryUploadResponse response = httpClient.upload(putSha1, sha1StringEntity);
-            StatusLine sha1StatusLine = response.getStatusLine();
-            int sha1StatusCode = sha1StatusLine.getStatusCode();
+        AsyncFutures.getResult(uploadChecksumsAsync(details, uploadUrl));
+    }
 
-            //Accept both 200, and 201 for backwards-compatibility reasons
-            if ((sha1StatusCode != HttpStatus.SC_CREATED) && (sha1StatusCode != HttpStatus.SC_OK)) {
-                throwHttpIOException("Failed to deploy SHA1 checksum:", sha1StatusLine);
+    /**
+     * Uploads the checksums of the file without blocking the caller, the missing checksums are calculated by the
+     * work executor of the client.
+     */
+    public ListenableFuture<Void> uploadChecksumsAsync(final DeployDetails details, final String uploadUrl) {
+        ListenableFuture<Map<String, String>> checksums = AsyncFutures.submit(new Callable<Map<String, String>>() {
+            public Map<String, String> call() throws IOException {
+                return getChecksumMap(details);
             }
-        }
-        String md5 = checksums.get("MD5");
-        if (StringUtils.isNotBlank(md5)) {
-            log.debug("Uploading MD5 for file " + fileAbsolutePath + " : " + md5);
-            String md5Url = uploadUrl + ".md5" + DeploymentUrlUtils.buildMatrixParamsString(details.properties);
-            HttpPut putMd5 = new HttpPut(md5Url);
-            StringEntity md5StringEntity = new StringEntity(md5);
-            ArtifactoryUploadResponse response = httpClient.upload(putMd5, md5StringEntity);
-            StatusLine md5StatusLine = response.getStatusLine();
-            int md5StatusCode = md5StatusLine.getStatusCode();
-
-            //Accept both 200, and 201 for backwards-compatibility reasons
-            if ((md5StatusCode != HttpStatus.SC_CREATED) && (md5StatusCode != HttpStatus.SC_OK)) {
-                throwHttpIOException("Failed to deploy MD5 checksum:", md5StatusLine);
+        }, httpClient.getWorkExecutor());
+        return AsyncFutures.then(checksums, new AsyncFutures.Step<Map<String, String>, Void>() {
+            public ListenableFuture<Void> apply(final Map<String, String> checksums) throws IOException {
+                return AsyncFutures.then(uploadChecksum(details, uploadUrl, "SHA1", checksums.get("SHA1")),
+                        new AsyncFutures.Step<Void, Void>() {
+                            public ListenableFuture<Void> apply(Void input) throws IOException {
+                                return uploadChecksum(details, uploadUrl, "MD5", checksums.get("MD5"));
+                            }
+                        });
             }
+        });
+    }
+
+    private ListenableFuture<Void> uploadChecksum(DeployDetails details, String uploadUrl, final String type,
+            String checksum) throws UnsupportedEncodingException {
+        if (StringUtils.isBlank(checksum)) {
+            return AsyncFutures.immediate(null);
         }
+        log.debug("Uploading " + type + " for file " + details.file.getAbsolutePath() + " : " + checksum);
+        String checksumUrl = uploadUrl + "." + type.toLowerCase() +
+                DeploymentUrlUtils.buildMatrixParamsString(details.properties);
+        return AsyncFutures.map(httpClient.uploadAsync(new HttpPut(checksumUrl), new StringEntity(checksum)),
+                new AsyncFutures.Transformation<ArtifactoryUploadResponse, Void>() {
+                    public Void apply(ArtifactoryUploadResponse response) throws IOException {
+                        StatusLine statusLine = response.getStatusLine();
+                        int statusCode = statusLine.getStatusCode();
+
+                        //Accept both 200, and 201 for backwards-compatibility reasons
+                        if ((statusCode != HttpStatus.SC_CREATED) && (statusCode != HttpStatus.SC_OK)) {
+                            throwHttpIOException("Failed to deploy " + type + " checksum:", statusLine);
+                        }
+                        return null;
+                    }
+                });
     }
 
     private Map<String, String> getChecksumMap(DeployDetails details) throws IOException {
@@ -647,13 +1022,21 @@ public class ArtifactoryBuildInfoClient {
         throw new IOException(errorMessage);
     }
 
-    private ArtifactoryVersion getArtifactoryVersion() {
+    /**
+     * @return The version of Artifactory, requested once through the transport so that no caller or transport
+     *         thread waits for it
+     */
+    private synchronized ListenableFuture<ArtifactoryVersion> getArtifactoryVersion() {
         if (artifactoryVersion == null) {
-            try {
-                artifactoryVersion = httpClient.getVersion();
-            } catch (IOException e) {
-                artifactoryVersion = ArtifactoryVersion.NOT_FOUND;
-            }
+            artifactoryVersion = AsyncFutures.recover(httpClient.getVersionAsync(),
+                    new AsyncFutures.Recovery<ArtifactoryVersion>() {
+                        public ArtifactoryVersion apply(Exception cause) throws Exception {
+                            if (!(cause instanceof IOException)) {
+                                throw cause;
+                            }
+                            return ArtifactoryVersion.NOT_FOUND;
+                        }
+                    });
         }
         return artifactoryVersion;
     }
@@ -148,6 +148,14 @@ public class ArtifactoryClientConfiguration {
         root.setIntegerValue(PROP_TIMEOUT, timeout);
     }
 
+    public Integer getMaxConcurrentRequests() {
+        return root.getIntegerValue(PROP_MAX_CONCURRENT_REQUESTS);
+    }
+
+    public void setMaxConcurrentRequests(Integer maxConcurrentRequests) {
+        root.setIntegerValue(PROP_MAX_CONCURRENT_REQUESTS, maxConcurrentRequests);
+    }
+
     public String getPropertiesFile() {
         return rootConfig.getStringValue(PROPERTIES_FILE);
     }
@@ -205,6 +213,7 @@ public class ArtifactoryClientConfiguration {
     }
 
     public class ResolverHandler extends RepositoryConfiguration {
+        private volatile ResolverSettings settings;
 
         public ResolverHandler() {
             super(PROP_RESOLVE_PREFIX);
@@ -257,9 +266,57 @@ public class ArtifactoryClientConfiguration {
         public void setDownloadSnapshotRepoKey(String repoKey) {
             setStringValue(DOWN_SNAPSHOT_REPO_KEY, repoKey);
         }
+
+        public String getDownloadStore() {
+            return getStringValue(DOWNLOAD_STORE);
+        }
+
+        public void setDownloadStore(String path) {
+            setStringValue(DOWNLOAD_STORE, path);
+        }
+
+        public Integer getDownloadStoreSize() {
+            return getIntegerValue(DOWNLOAD_STORE_SIZE);
+        }
+
+        public void setDownloadStoreSize(Integer mb) {
+            setIntegerValue(DOWNLOAD_STORE_SIZE, mb);
+        }
+
+        public String getBuildDependenciesCache() {
+            return getStringValue(BUILD_DEPENDENCIES_CACHE);
+        }
+
+        public void setBuildDependenciesCache(String path) {
+            setStringValue(BUILD_DEPENDENCIES_CACHE, path);
+        }
+
+        public Integer getBuildDependenciesCacheTtl() {
+            return getIntegerValue(BUILD_DEPENDENCIES_CACHE_TTL);
+        }
+
+        public void setBuildDependenciesCacheTtl(Integer minutes) {
+            setIntegerValue(BUILD_DEPENDENCIES_CACHE_TTL, minutes);
+        }
+
+        /**
+         * @return An immutable snapshot of the resolver configuration, rebuilt only if the properties were modified
+         *         since the last call
+         */
+        @Override
+        public ResolverSettings getSettings() {
+            ResolverSettings current = settings;
+            if (current == null || current.getRevision() != getRevision()) {
+                current = new ResolverSettings(this);
+                settings = current;
+            }
+            return current;
+        }
     }
 
     public class PublisherHandler extends RepositoryConfiguration {
+        private volatile PublisherSettings settings;
+
         public PublisherHandler() {
             super(PROP_PUBLISH_PREFIX);
         }
@@ -306,6 +363,19 @@ public class ArtifactoryClientConfiguration {
             return getBooleanValue(COPY_AGGREGATED_ARTIFACTS, false);
         }
 
+        /**
+         * Hard links the aggregated artifacts instead of copying them. A linked artifact shares its content with the
+         * aggregated file: an artifact rewritten in place, rather than deleted by a clean build, changes the
+         * aggregated file and leaves its checksums in deployables.json stale.
+         */
+        public void setLinkAggregatedArtifacts(Boolean enabled) {
+            setBooleanValue(LINK_AGGREGATED_ARTIFACTS, enabled);
+        }
+
+        public Boolean isLinkAggregatedArtifacts() {
+            return getBooleanValue(LINK_AGGREGATED_ARTIFACTS, false);
+        }
+
         public Boolean isPublishAggregatedArtifacts() {
             return getBooleanValue(PUBLISH_AGGREGATED_ARTIFACTS, false);
         }
@@ -366,6 +436,102 @@ public class ArtifactoryClientConfiguration {
             return getBooleanValue(EVEN_UNSTABLE, false);
         }
 
+        public void setIncremental(Boolean enabled) {
+            setBooleanValue(INCREMENTAL, enabled);
+        }
+
+        public Boolean isIncremental() {
+            return getBooleanValue(INCREMENTAL, false);
+        }
+
+        public String getDeployManifest() {
+            return getStringValue(DEPLOY_MANIFEST);
+        }
+
+        public void setDeployManifest(String path) {
+            setStringValue(DEPLOY_MANIFEST, path);
+        }
+
+        public void setResetDeployManifest(Boolean enabled) {
+            setBooleanValue(DEPLOY_MANIFEST_RESET, enabled);
+        }
+
+        public Boolean isResetDeployManifest() {
+            return getBooleanValue(DEPLOY_MANIFEST_RESET, false);
+        }
+
+        public String getDeployJournal() {
+            return getStringValue(DEPLOY_JOURNAL);
+        }
+
+        public void setDeployJournal(String path) {
+            setStringValue(DEPLOY_JOURNAL, path);
+        }
+
+        public void setResume(Boolean enabled) {
+            setBooleanValue(RESUME, enabled);
+        }
+
+        public Boolean isResume() {
+            return getBooleanValue(RESUME, false);
+        }
+
+        public void setSkipUnchangedModules(Boolean enabled) {
+            setBooleanValue(SKIP_UNCHANGED_MODULES, enabled);
+        }
+
+        public Boolean isSkipUnchangedModules() {
+            return getBooleanValue(SKIP_UNCHANGED_MODULES, false);
+        }
+
+        public String getModuleFingerprints() {
+            return getStringValue(MODULE_FINGERPRINTS);
+        }
+
+        public void setModuleFingerprints(String path) {
+            setStringValue(MODULE_FINGERPRINTS, path);
+        }
+
+        public void setMetricsProperties(Boolean enabled) {
+            setBooleanValue(METRICS_PROPERTIES, enabled);
+        }
+
+        public Boolean isMetricsProperties() {
+            return getBooleanValue(METRICS_PROPERTIES, false);
+        }
+
+        public Integer getUploadBandwidth() {
+            return getIntegerValue(UPLOAD_BANDWIDTH);
+        }
+
+        public void setUploadBandwidth(Integer kbPerSecond) {
+            setIntegerValue(UPLOAD_BANDWIDTH, kbPerSecond);
+        }
+
+        public Integer getAgentUploadBandwidth() {
+            return getIntegerValue(AGENT_UPLOAD_BANDWIDTH);
+        }
+
+        public void setAgentUploadBandwidth(Integer kbPerSecond) {
+            setIntegerValue(AGENT_UPLOAD_BANDWIDTH, kbPerSecond);
+        }
+
+        public String getAgentBandwidthDir() {
+            return getStringValue(AGENT_BANDWIDTH_DIR);
+        }
+
+        public void setAgentBandwidthDir(String path) {
+            setStringValue(AGENT_BANDWIDTH_DIR, path);
+        }
+
+        public void setZeroCopyUpload(Boolean enabled) {
+            setBooleanValue(ZERO_COPY_UPLOAD, enabled);
+        }
+
+        public Boolean isZeroCopyUpload() {
+            return getBooleanValue(ZERO_COPY_UPLOAD, false);
+        }
+
         public String getBuildRoot() {
             return getMatrixParams().get(BUILD_ROOT);
         }
@@ -387,9 +553,25 @@ public class ArtifactoryClientConfiguration {
         public void setArtifactSpecs(String artifactSpecs) {
             setStringValue(ARTIFACT_SPECS, artifactSpecs);
         }
+
+        /**
+         * @return An immutable snapshot of the publisher configuration, rebuilt only if the properties were modified
+         *         since the last call
+         */
+        @Override
+        public PublisherSettings getSettings() {
+            PublisherSettings current = settings;
+            if (current == null || current.getRevision() != getRevision()) {
+                current = new PublisherSettings(this);
+                settings = current;
+            }
+            return current;
+        }
     }
 
     public class ProxyHandler extends AuthenticationConfiguration {
+        private volatile ProxySettings settings;
+
         public ProxyHandler() {
             super(PROP_PROXY_PREFIX);
         }
@@ -411,6 +593,19 @@ public class ArtifactoryClientConfiguration {
         public void setPort(Integer port) {
             setIntegerValue(PORT, port);
         }
+
+        /**
+         * @return An immutable snapshot of the proxy configuration, rebuilt only if the properties were modified since
+         *         the last call
+         */
+        public ProxySettings getSettings() {
+            ProxySettings current = settings;
+            if (current == null || current.getRevision() != getRevision()) {
+                current = new ProxySettings(this);
+                settings = current;
+            }
+            return current;
+        }
     }
 
     public class AuthenticationConfiguration extends PrefixPropertyHandler {
@@ -437,7 +632,8 @@ public class ArtifactoryClientConfiguration {
 
     public abstract class RepositoryConfiguration extends AuthenticationConfiguration {
 
-        private ImmutableMap<String, String> calculatedMatrixParams;
+        private volatile ImmutableMap<String, String> calculatedMatrixParams;
+        private volatile int calculatedMatrixParamsRevision;
 
         protected RepositoryConfiguration(String prefix) {
             super(prefix);
@@ -572,8 +768,9 @@ public class ArtifactoryClientConfiguration {
 
         public abstract String getContextUrl();
 
+        public abstract RepositorySettings getSettings();
+
         public void addMatrixParam(String key, String value) {
-            ensureImmutableMatrixParams();
             if (StringUtils.isBlank(key) || StringUtils.isBlank(value)) {
                 return;
             }
@@ -583,18 +780,19 @@ public class ArtifactoryClientConfiguration {
             } else {
                 props.put(matrixParamPrefix + key, value);
             }
+            propertiesChanged();
         }
 
         // INTERNAL METHOD
         public void addMatrixParams(Map<String, String> vars) {
-            ensureImmutableMatrixParams();
             for (Map.Entry<String, String> entry : vars.entrySet()) {
                 addMatrixParam(entry.getKey(), entry.getValue());
             }
         }
 
         public ImmutableMap<String, String> getMatrixParams() {
-            if (calculatedMatrixParams != null) {
+            int revision = getRevision();
+            if (calculatedMatrixParams != null && calculatedMatrixParamsRevision == revision) {
                 return calculatedMatrixParams;
             }
             Map<String, String> result = Maps.newHashMap();
@@ -604,14 +802,10 @@ public class ArtifactoryClientConfiguration {
                     result.put(entry.getKey().substring(matrixPrefix.length()), entry.getValue());
                 }
             }
-            this.calculatedMatrixParams = ImmutableMap.copyOf(result);
-            return calculatedMatrixParams;
-        }
-
-        private void ensureImmutableMatrixParams() {
-            if (calculatedMatrixParams != null) {
-                log.debug("Matrix params already set and cannot be modified");
-            }
+            ImmutableMap<String, String> matrixParams = ImmutableMap.copyOf(result);
+            this.calculatedMatrixParams = matrixParams;
+            this.calculatedMatrixParamsRevision = revision;
+            return matrixParams;
         }
 
     }
@@ -16,22 +16,31 @@
 
 package org.jfrog.build.client;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.client.methods.AbortableHttpRequest;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.util.EntityUtils;
+import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.type.TypeReference;
 import org.jfrog.build.api.dependency.BuildPatternArtifacts;
 import org.jfrog.build.api.dependency.BuildPatternArtifactsRequest;
+import org.jfrog.build.api.dependency.PatternArtifact;
 import org.jfrog.build.api.dependency.PatternResultFileSet;
 import org.jfrog.build.api.dependency.PropertySearchResult;
 import org.jfrog.build.api.util.Log;
@@ -40,6 +49,7 @@ import org.jfrog.build.util.JsonSerializer;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -58,6 +68,10 @@ public class ArtifactoryDependenciesClient {
         httpClient = new ArtifactoryHttpClient(this.artifactoryUrl, username, password, logger);
     }
 
+    public String getArtifactoryUrl() {
+        return artifactoryUrl;
+    }
+
     public void setConnectionTimeout(int connectionTimeout) {
         httpClient.setConnectionTimeout(connectionTimeout);
     }
@@ -70,6 +84,34 @@ public class ArtifactoryDependenciesClient {
         httpClient.setProxyConfiguration(host, port, username, password);
     }
 
+    /**
+     * @see ArtifactoryHttpClient#setConcurrencyLimiter
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        httpClient.setConcurrencyLimiter(concurrencyLimiter);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setRequestListener
+     */
+    public void setRequestListener(HttpRequestListener requestListener) {
+        httpClient.setRequestListener(requestListener);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setTransport
+     */
+    public void setTransport(HttpTransport transport) {
+        httpClient.setTransport(transport);
+    }
+
+    /**
+     * @see ArtifactoryHttpClient#setNonBlockingTransport
+     */
+    public void setNonBlockingTransport(boolean nonBlockingTransport) {
+        httpClient.setNonBlockingTransport(nonBlockingTransport);
+    }
+
     public void shutdown() {
         if (httpClient != null) {
             httpClient.shutdown();
@@ -101,15 +143,98 @@ public class ArtifactoryDependenciesClient {
     }
 
 
+    /**
+     * Retrieves the outputs of a single build dependency without blocking the caller, so that the builds can be
+     * requested in parallel. The response is requested gzip encoded and parsed as it is received, like
+     * {@link #retrievePatternArtifacts(java.util.List, SearchResultHandler)}.
+     *
+     * @param request build dependency to retrieve outputs for.
+     * @return the build outputs, null if the build was not found, or the connection error
+     */
+    public ListenableFuture<BuildPatternArtifacts> retrievePatternArtifactsAsync(BuildPatternArtifactsRequest request)
+            throws IOException {
+        final String json = new JsonSerializer<List<BuildPatternArtifactsRequest>>().toJSON(
+                Collections.singletonList(request));
+        final HttpPost post = new HttpPost(artifactoryUrl + "/api/build/patternArtifacts");
+
+        StringEntity stringEntity = new StringEntity(json);
+        stringEntity.setContentType("application/vnd.org.jfrog.artifactory+json");
+        post.setEntity(stringEntity);
+
+        post.setHeader("Accept-Encoding", "gzip");
+        return AsyncFutures.map(httpClient.getTransport().execute(post),
+                new AsyncFutures.Transformation<HttpResponse, BuildPatternArtifacts>() {
+                    public BuildPatternArtifacts apply(HttpResponse response) throws IOException {
+                        final List<BuildPatternArtifacts> artifacts = Lists.newArrayList();
+                        parseResponse(post, response, "Failed to retrieve build artifacts report",
+                                patternArtifactsParser(new SearchResultHandler<BuildPatternArtifacts>() {
+                                    public void handle(BuildPatternArtifacts result) {
+                                        artifacts.add(result);
+                                    }
+                                }));
+                        return artifacts.isEmpty() ? null : artifacts.get(0);
+                    }
+                });
+    }
+
+    /**
+     * Streaming {@link #retrievePatternArtifacts(java.util.List)}: each build output is handed to the handler as soon
+     * as it is parsed, in the order of the requests. The output is null for a build which was not found.
+     *
+     * @param requests build dependencies to retrieve outputs for.
+     * @param handler  receives the output of each request
+     * @return the number of outputs received
+     * @throws java.io.IOException
+     */
+    public int retrievePatternArtifacts(List<BuildPatternArtifactsRequest> requests,
+            final SearchResultHandler<BuildPatternArtifacts> handler) throws IOException {
+        final String json = new JsonSerializer<List<BuildPatternArtifactsRequest>>().toJSON(requests);
+        final HttpPost post = new HttpPost(artifactoryUrl + "/api/build/patternArtifacts");
+
+        StringEntity stringEntity = new StringEntity(json);
+        stringEntity.setContentType("application/vnd.org.jfrog.artifactory+json");
+        post.setEntity(stringEntity);
+
+        return streamResponse(post, "Failed to retrieve build artifacts report", patternArtifactsParser(handler));
+    }
+
+    private ResponseParser patternArtifactsParser(final SearchResultHandler<BuildPatternArtifacts> handler) {
+        return new ResponseParser() {
+            public int parse(JsonParser parser) throws IOException {
+                int count = 0;
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    BuildPatternArtifacts artifacts = null;
+                    if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
+                        artifacts = parser.readValueAs(BuildPatternArtifacts.class);
+                    }
+                    handler.handle(artifacts);
+                    count++;
+                }
+                return count;
+            }
+        };
+    }
+
     public PatternResultFileSet searchArtifactsByPattern(String pattern) throws IOException {
-        PreemptiveHttpClient client = httpClient.getHttpClient();
+        return AsyncFutures.getResult(searchArtifactsByPatternAsync(pattern));
+    }
 
+    /**
+     * Searches the artifacts matching the pattern without blocking the caller.
+     *
+     * @param pattern The pattern, e.g. repo:org/jfrog/*.jar
+     * @return The matching artifacts, or the connection error
+     */
+    public ListenableFuture<PatternResultFileSet> searchArtifactsByPatternAsync(final String pattern) {
         String url = artifactoryUrl + "/api/search/pattern?pattern=" + pattern;
-        PatternResultFileSet result = readResponse(client.execute(new HttpGet(url)),
-                new TypeReference<PatternResultFileSet>() {
-                },
-                "Failed to search artifact by the pattern '" + pattern + "'");
-        return result;
+        return AsyncFutures.map(httpClient.getTransport().execute(new HttpGet(url)),
+                new AsyncFutures.Transformation<HttpResponse, PatternResultFileSet>() {
+                    public PatternResultFileSet apply(HttpResponse response) throws IOException {
+                        return readResponse(response, new TypeReference<PatternResultFileSet>() {
+                        }, "Failed to search artifact by the pattern '" + pattern + "'");
+                    }
+                });
     }
 
     public PropertySearchResult searchArtifactsByProperties(String properties) throws IOException {
@@ -124,6 +249,148 @@ public class ArtifactoryDependenciesClient {
     }
 
 
+    /**
+     * Streaming {@link #searchArtifactsByPattern(String)}: each matching file is handed to the handler as soon as it
+     * is parsed, as a {@link PatternArtifact} whose URI is relative to the Artifactory URL.
+     *
+     * @param pattern The pattern, e.g. repo:org/jfrog/*.jar
+     * @param handler Receives the matching artifacts
+     * @return The number of matching artifacts
+     */
+    public int searchArtifactsByPattern(String pattern, final SearchResultHandler<PatternArtifact> handler)
+            throws IOException {
+        String url = artifactoryUrl + "/api/search/pattern?pattern=" + pattern;
+        return streamResponse(new HttpGet(url), "Failed to search artifact by the pattern '" + pattern + "'",
+                new ResponseParser() {
+                    public int parse(JsonParser parser) throws IOException {
+                        int count = 0;
+                        String repoUri = null;
+                        // The files are buffered only if the server sends them before the repository
+                        List<String> pendingFiles = Lists.newArrayList();
+                        expect(parser, JsonToken.START_OBJECT);
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String field = parser.getCurrentName();
+                            JsonToken value = parser.nextToken();
+                            if ("repoUri".equals(field)) {
+                                repoUri = parser.getText();
+                                for (String file : pendingFiles) {
+                                    handler.handle(toPatternArtifact(repoUri, file));
+                                }
+                                count += pendingFiles.size();
+                                pendingFiles.clear();
+                            } else if ("files".equals(field) && value == JsonToken.START_ARRAY) {
+                                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                    if (repoUri == null) {
+                                        pendingFiles.add(parser.getText());
+                                    } else {
+                                        handler.handle(toPatternArtifact(repoUri, parser.getText()));
+                                        count++;
+                                    }
+                                }
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        if (!pendingFiles.isEmpty()) {
+                            throw new IOException("Received search results without a repository URI");
+                        }
+                        return count;
+                    }
+                });
+    }
+
+    private PatternArtifact toPatternArtifact(String repoUri, String file) {
+        String repoKey = StringUtils.substringAfterLast(repoUri, "/");
+        return new PatternArtifact(StringUtils.substringBeforeLast(repoUri, "/"), repoKey + "/" + file, 0, null,
+                null);
+    }
+
+    /**
+     * Streaming {@link #searchArtifactsByProperties(String)}: each entry is handed to the handler as soon as it is
+     * parsed.
+     *
+     * @param properties The properties, e.g. a=1;b=2
+     * @param handler    Receives the matching artifacts
+     * @return The number of matching artifacts
+     */
+    public int searchArtifactsByProperties(String properties,
+            final SearchResultHandler<PropertySearchResult.SearchEntry> handler) throws IOException {
+        String replacedProperties = StringUtils.replaceEach(properties, new String[]{";", "+"}, new String[]{"&", ""});
+        String url = artifactoryUrl + "/api/search/prop?" + replacedProperties;
+        return streamResponse(new HttpGet(url), "Failed to search artifact by the properties '" + properties + "'",
+                new ResponseParser() {
+                    public int parse(JsonParser parser) throws IOException {
+                        int count = 0;
+                        expect(parser, JsonToken.START_OBJECT);
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String field = parser.getCurrentName();
+                            JsonToken value = parser.nextToken();
+                            if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                    handler.handle(parser.readValueAs(PropertySearchResult.SearchEntry.class));
+                                    count++;
+                                }
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        return count;
+                    }
+                });
+    }
+
+    private interface ResponseParser {
+        int parse(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Sends the request accepting a gzip encoded response and parses the response as it is received.
+     */
+    private int streamResponse(HttpUriRequest request, String errorMessage, ResponseParser responseParser)
+            throws IOException {
+        request.setHeader("Accept-Encoding", "gzip");
+        return parseResponse(request, httpClient.getHttpClient().execute(request), errorMessage, responseParser);
+    }
+
+    /**
+     * Parses the response of a request accepting a gzip encoded response as it is received.
+     */
+    private int parseResponse(HttpUriRequest request, HttpResponse response, String errorMessage,
+            ResponseParser responseParser) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+            EntityUtils.consume(entity);
+            throw new IOException(errorMessage + ": " + response.getStatusLine());
+        }
+        if (entity == null) {
+            return 0;
+        }
+
+        Header contentEncoding = entity.getContentEncoding();
+        if (contentEncoding != null && StringUtils.containsIgnoreCase(contentEncoding.getValue(), "gzip")) {
+            entity = new GzipDecompressingEntity(entity);
+        }
+        InputStream content = entity.getContent();
+        try {
+            return responseParser.parse(httpClient.createJsonParser(content));
+        } catch (IOException e) {
+            // Do not read the rest of the response
+            if (request instanceof AbortableHttpRequest) {
+                ((AbortableHttpRequest) request).abort();
+            }
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(content);
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.nextToken() != token) {
+            throw new JsonParseException("Expected " + token + " but was " + parser.getCurrentToken(),
+                    parser.getCurrentLocation());
+        }
+    }
+
     /**
      * Reads HTTP response and converts it to object of the type specified.
      *
@@ -163,34 +430,53 @@ public class ArtifactoryDependenciesClient {
     }
 
     public HttpResponse downloadArtifact(String downloadUrl) throws IOException {
-        return execute(downloadUrl, false);
+        return AsyncFutures.getResult(downloadArtifactAsync(downloadUrl));
+    }
+
+    /**
+     * Requests the artifact without blocking the caller. The response holds a pooled connection until its content
+     * is consumed, so callers issuing many downloads should consume each response as it completes rather than in
+     * the order of the requests.
+     *
+     * @param downloadUrl The URL of the artifact
+     * @return The response, whose content must be consumed by the caller, or the connection error
+     *         ({@link FileNotFoundException} if the artifact does not exist)
+     */
+    public ListenableFuture<HttpResponse> downloadArtifactAsync(String downloadUrl) {
+        return executeAsync(downloadUrl, false);
     }
 
     public HttpResponse getArtifactChecksums(String artifactUrl) throws IOException {
-        return execute(artifactUrl, true);
+        return AsyncFutures.getResult(getArtifactChecksumsAsync(artifactUrl));
     }
 
-    private HttpResponse execute(String artifactUrl, boolean isHead) throws IOException {
-        PreemptiveHttpClient client = httpClient.getHttpClient();
+    public ListenableFuture<HttpResponse> getArtifactChecksumsAsync(String artifactUrl) {
+        return executeAsync(artifactUrl, true);
+    }
 
-        artifactUrl = ArtifactoryHttpClient.encodeUrl(artifactUrl);
-        HttpRequestBase httpRequest = isHead ? new HttpHead(artifactUrl) : new HttpGet(artifactUrl);
+    private ListenableFuture<HttpResponse> executeAsync(String artifactUrl, boolean isHead) {
+        final String encodedUrl = ArtifactoryHttpClient.encodeUrl(artifactUrl);
+        HttpRequestBase httpRequest = isHead ? new HttpHead(encodedUrl) : new HttpGet(encodedUrl);
 
         //Explicitly force keep alive
         httpRequest.setHeader("Connection", "Keep-Alive");
-        HttpResponse response = client.execute(httpRequest);
-        StatusLine statusLine = response.getStatusLine();
-        int statusCode = statusLine.getStatusCode();
-        if (statusCode == HttpStatus.SC_NOT_FOUND) {
-            EntityUtils.consume(response.getEntity());
-            throw new FileNotFoundException("Unable to find " + artifactUrl);
-        }
+        return AsyncFutures.map(httpClient.getTransport().execute(httpRequest),
+                new AsyncFutures.Transformation<HttpResponse, HttpResponse>() {
+                    public HttpResponse apply(HttpResponse response) throws IOException {
+                        StatusLine statusLine = response.getStatusLine();
+                        int statusCode = statusLine.getStatusCode();
+                        if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                            EntityUtils.consume(response.getEntity());
+                            throw new FileNotFoundException("Unable to find " + encodedUrl);
+                        }
 
-        if (statusCode != HttpStatus.SC_OK) {
-            EntityUtils.consume(response.getEntity());
-            throw new IOException("Error downloading " + artifactUrl + ". Code: " + statusCode + " Message: " +
-                    statusLine.getReasonPhrase());
-        }
-        return response;
+                        if (statusCode != HttpStatus.SC_OK) {
+                            EntityUtils.consume(response.getEntity());
+                            throw new IOException("Error downloading " + encodedUrl + ". Code: " + statusCode +
+                                    " Message: " + statusLine.getReasonPhrase());
+                        }
+                        return response;
+                    }
+                });
     }
 }
\ No newline at end of file
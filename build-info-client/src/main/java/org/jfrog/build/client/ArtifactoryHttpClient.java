@@ -16,6 +16,7 @@
 
 package org.jfrog.build.client;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.apache.commons.codec.net.URLCodec;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
@@ -24,6 +25,7 @@ import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.FileEntity;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParser;
@@ -33,9 +35,15 @@ import org.codehaus.jackson.map.introspect.JacksonAnnotationIntrospector;
 import org.jfrog.build.api.util.Log;
 import org.jfrog.build.util.URI;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Noam Y. Tenne
@@ -57,6 +65,15 @@ public class ArtifactoryHttpClient {
     private ProxyConfiguration proxyConfiguration;
 
     private PreemptiveHttpClient deployClient;
+    private PublishMetrics publishMetrics;
+    private HttpRequestListener requestListener;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private BandwidthLimiter bandwidthLimiter;
+    private boolean zeroCopyUpload;
+    private HttpTransport transport;
+    private int transportThreads = ExecutorHttpTransport.DEFAULT_THREADS;
+    private boolean nonBlockingTransport;
+    private ExecutorService workExecutor;
 
     public ArtifactoryHttpClient(String artifactoryUrl, String username, String password, Log log) {
         this.artifactoryUrl = StringUtils.stripEnd(artifactoryUrl, "/");
@@ -109,19 +126,160 @@ public class ArtifactoryHttpClient {
     /**
      * Release all connection and cleanup resources.
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
+        if (transport != null) {
+            transport.shutdown();
+            transport = null;
+        }
+        if (workExecutor != null) {
+            workExecutor.shutdownNow();
+            workExecutor = null;
+        }
         if (deployClient != null) {
             deployClient.shutdown();
         }
     }
 
-    public PreemptiveHttpClient getHttpClient() {
+    /**
+     * Count the requests and retries of the client in the publish metrics.
+     */
+    public synchronized void setPublishMetrics(PublishMetrics publishMetrics) {
+        this.publishMetrics = publishMetrics;
+        if (deployClient != null) {
+            deployClient.setPublishMetrics(publishMetrics);
+        }
+        if (transport instanceof NioHttpTransport) {
+            ((NioHttpTransport) transport).setPublishMetrics(publishMetrics);
+        }
+    }
+
+    /**
+     * Notify the listener of every request sent to Artifactory, for example an {@link HttpRequestHistogram}.
+     *
+     * @param requestListener The listener, or null to remove it
+     */
+    public void setRequestListener(HttpRequestListener requestListener) {
+        this.requestListener = requestListener;
+        if (deployClient != null) {
+            deployClient.setRequestListener(requestListener);
+        }
+    }
+
+    /**
+     * Bound the requests in flight with a limit adapted to the server backpressure, see
+     * {@link PreemptiveHttpClient#setConcurrencyLimiter}.
+     *
+     * @param concurrencyLimiter The limiter, or null to send the requests unbounded
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        if (deployClient != null) {
+            deployClient.setConcurrencyLimiter(concurrencyLimiter);
+        }
+    }
+
+    /**
+     * Shape the bandwidth of the uploaded files, see {@link BandwidthLimiter}.
+     *
+     * @param bandwidthLimiter The limiter, or null to upload at full speed
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * Upload the files with {@link java.nio.channels.FileChannel#transferTo} over plain HTTP, see
+     * {@link ZeroCopyFileEntity}.
+     */
+    public synchronized void setZeroCopyUpload(boolean zeroCopyUpload) {
+        this.zeroCopyUpload = zeroCopyUpload;
+        if (deployClient != null) {
+            deployClient.setZeroCopyUpload(zeroCopyUpload);
+        }
+    }
+
+    /**
+     * @return An entity of the file, sent without copy if {@link #setZeroCopyUpload zero copy upload} is enabled
+     */
+    public synchronized FileEntity createFileEntity(File file, String contentType) {
+        return zeroCopyUpload ? new ZeroCopyFileEntity(file, contentType) : new FileEntity(file, contentType);
+    }
+
+    /**
+     * Plug the transport of the asynchronous requests, e.g. backed by a non-blocking HTTP engine.
+     *
+     * @param transport The transport, or null to use an {@link ExecutorHttpTransport}
+     */
+    public synchronized void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * @param transportThreads The threads of the default transport, i.e. the maximum number of requests in progress
+     */
+    public synchronized void setTransportThreads(int transportThreads) {
+        this.transportThreads = transportThreads;
+    }
+
+    /**
+     * Send the asynchronous requests with a {@link NioHttpTransport}, unless a proxy, a concurrency limiter or a
+     * request listener is configured since only the blocking client supports them.
+     */
+    public synchronized void setNonBlockingTransport(boolean nonBlockingTransport) {
+        this.nonBlockingTransport = nonBlockingTransport;
+    }
+
+    public synchronized HttpTransport getTransport() {
+        if (transport == null && nonBlockingTransport) {
+            transport = createNonBlockingTransport();
+        }
+        if (transport == null) {
+            transport = new ExecutorHttpTransport(getHttpClient(), transportThreads);
+        }
+        return transport;
+    }
+
+    private NioHttpTransport createNonBlockingTransport() {
+        if (proxyConfiguration != null || concurrencyLimiter != null || requestListener != null) {
+            log.info("The proxy, the concurrency limiter and the request listener require the blocking client, " +
+                    "the requests are sent by " + transportThreads + " threads.");
+            return null;
+        }
+        try {
+            NioHttpTransport nioTransport = new NioHttpTransport(username, password, connectionTimeout,
+                    NioHttpTransport.DEFAULT_MAX_CONNECTIONS, getWorkExecutor());
+            nioTransport.setPublishMetrics(publishMetrics);
+            return nioTransport;
+        } catch (IOException e) {
+            log.warn("Could not start the non-blocking transport, the requests are sent by " + transportThreads +
+                    " threads: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return The executor of the blocking steps of the asynchronous requests, e.g. hashing a file, which must not
+     *         run on the threads of the transport
+     */
+    public synchronized Executor getWorkExecutor() {
+        if (workExecutor == null) {
+            workExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new DaemonThreadFactory("artifactory-client-worker-"));
+        }
+        return workExecutor;
+    }
+
+    public synchronized PreemptiveHttpClient getHttpClient() {
         if (deployClient == null) {
             PreemptiveHttpClient client = new PreemptiveHttpClient(username, password, connectionTimeout);
             if (proxyConfiguration != null) {
                 client.setProxyConfiguration(proxyConfiguration.host, proxyConfiguration.port,
                         proxyConfiguration.username, proxyConfiguration.password);
             }
+            client.setConcurrencyLimiter(concurrencyLimiter);
+            client.setPublishMetrics(publishMetrics);
+            client.setRequestListener(requestListener);
+            client.setZeroCopyUpload(zeroCopyUpload);
             deployClient = client;
         }
 
@@ -129,10 +287,22 @@ public class ArtifactoryHttpClient {
     }
 
     public ArtifactoryVersion getVersion() throws IOException {
-        String versionUrl = artifactoryUrl + VERSION_INFO_URL;
-        PreemptiveHttpClient client = getHttpClient();
-        HttpGet httpGet = new HttpGet(versionUrl);
-        HttpResponse response = client.execute(httpGet);
+        return readVersion(getHttpClient().execute(new HttpGet(artifactoryUrl + VERSION_INFO_URL)));
+    }
+
+    /**
+     * Asynchronous {@link #getVersion()} through the transport.
+     */
+    public ListenableFuture<ArtifactoryVersion> getVersionAsync() {
+        return AsyncFutures.map(getTransport().execute(new HttpGet(artifactoryUrl + VERSION_INFO_URL)),
+                new AsyncFutures.Transformation<HttpResponse, ArtifactoryVersion>() {
+                    public ArtifactoryVersion apply(HttpResponse response) throws IOException {
+                        return readVersion(response);
+                    }
+                });
+    }
+
+    private ArtifactoryVersion readVersion(HttpResponse response) throws IOException {
         int statusCode = response.getStatusLine().getStatusCode();
         if (statusCode == HttpStatus.SC_NOT_FOUND) {
             HttpEntity httpEntity = response.getEntity();
@@ -184,12 +354,35 @@ public class ArtifactoryHttpClient {
     }
 
     public ArtifactoryUploadResponse upload(HttpPut httpPut, HttpEntity fileEntity) throws IOException {
-        httpPut.setEntity(fileEntity);
+        httpPut.setEntity(bandwidthLimiter != null ? bandwidthLimiter.throttle(fileEntity) : fileEntity);
         return execute(httpPut);
     }
 
     public ArtifactoryUploadResponse execute(HttpPut httpPut) throws IOException {
-        HttpResponse response = getHttpClient().execute(httpPut);
+        return readUploadResponse(httpPut, getHttpClient().execute(httpPut));
+    }
+
+    /**
+     * Asynchronous {@link #upload(HttpPut, HttpEntity)} through the transport.
+     */
+    public ListenableFuture<ArtifactoryUploadResponse> uploadAsync(HttpPut httpPut, HttpEntity fileEntity) {
+        httpPut.setEntity(bandwidthLimiter != null ? bandwidthLimiter.throttle(fileEntity) : fileEntity);
+        return executeAsync(httpPut);
+    }
+
+    /**
+     * Asynchronous {@link #execute(HttpPut)} through the transport.
+     */
+    public ListenableFuture<ArtifactoryUploadResponse> executeAsync(final HttpPut httpPut) {
+        return AsyncFutures.map(getTransport().execute(httpPut),
+                new AsyncFutures.Transformation<HttpResponse, ArtifactoryUploadResponse>() {
+                    public ArtifactoryUploadResponse apply(HttpResponse response) throws IOException {
+                        return readUploadResponse(httpPut, response);
+                    }
+                });
+    }
+
+    private ArtifactoryUploadResponse readUploadResponse(HttpPut httpPut, HttpResponse response) throws IOException {
         ArtifactoryUploadResponse artifactoryResponse = null;
         StatusLine statusLine = response.getStatusLine();
         HttpEntity entity = response.getEntity();
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jfrog.build.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ValueFuture;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Composition of the futures of the asynchronous client API, with functions that may throw IOException.
+ */
+abstract class AsyncFutures {
+
+    private AsyncFutures() {
+    }
+
+    /**
+     * A step of an asynchronous operation.
+     */
+    interface Step<I, O> {
+        ListenableFuture<O> apply(I input) throws IOException;
+    }
+
+    /**
+     * A synchronous step of an asynchronous operation, typically reading a response.
+     */
+    interface Transformation<I, O> {
+        O apply(I input) throws IOException;
+    }
+
+    /**
+     * @return The future of the step applied to the input once available, on the thread completing the input
+     */
+    static <I, O> ListenableFuture<O> then(ListenableFuture<I> input, Step<? super I, O> step) {
+        return then(input, step, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * @return The future of the step applied to the input once available, on the executor
+     */
+    static <I, O> ListenableFuture<O> then(final ListenableFuture<I> input, final Step<? super I, O> step,
+            Executor executor) {
+        final ValueFuture<O> output = ValueFuture.create();
+        input.addListener(new Runnable() {
+            public void run() {
+                try {
+                    forward(step.apply(input.get()), output);
+                } catch (ExecutionException e) {
+                    output.setException(e.getCause());
+                } catch (Throwable e) {
+                    output.setException(e);
+                }
+            }
+        }, executor);
+        return output;
+    }
+
+    static <I, O> ListenableFuture<O> map(ListenableFuture<I> input, Transformation<? super I, O> transformation) {
+        return map(input, transformation, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * @return The future of the transformation applied to the input once available, on the executor, e.g. to keep
+     *         a blocking transformation off the I/O threads
+     */
+    static <I, O> ListenableFuture<O> map(ListenableFuture<I> input,
+            final Transformation<? super I, O> transformation, Executor executor) {
+        return then(input, new Step<I, O>() {
+            public ListenableFuture<O> apply(I value) throws IOException {
+                return immediate(transformation.apply(value));
+            }
+        }, executor);
+    }
+
+    /**
+     * Handles the failure of an asynchronous operation.
+     */
+    interface Recovery<T> {
+        /**
+         * @return The result replacing the failure, or throws the failure to report
+         */
+        T apply(Exception cause) throws Exception;
+    }
+
+    /**
+     * @return The future of the input, or of the recovery if the input fails with an exception
+     */
+    static <T> ListenableFuture<T> recover(final ListenableFuture<T> input, final Recovery<T> recovery) {
+        final ValueFuture<T> output = ValueFuture.create();
+        input.addListener(new Runnable() {
+            public void run() {
+                try {
+                    T value;
+                    try {
+                        value = input.get();
+                    } catch (ExecutionException e) {
+                        if (!(e.getCause() instanceof Exception)) {
+                            throw e.getCause();
+                        }
+                        value = recovery.apply((Exception) e.getCause());
+                    }
+                    output.set(value);
+                } catch (Throwable e) {
+                    output.setException(e);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return output;
+    }
+
+    /**
+     * @return The future of the blocking call, run on the executor
+     */
+    static <T> ListenableFuture<T> submit(Callable<T> call, Executor executor) {
+        ListenableFutureTask<T> task = new ListenableFutureTask<T>(call);
+        executor.execute(task);
+        return task;
+    }
+
+    static <T> ListenableFuture<T> immediate(T value) {
+        ValueFuture<T> future = ValueFuture.create();
+        future.set(value);
+        return future;
+    }
+
+    static <T> ListenableFuture<T> failed(Throwable cause) {
+        ValueFuture<T> future = ValueFuture.create();
+        future.setException(cause);
+        return future;
+    }
+
+    /**
+     * Waits for the result of an asynchronous operation, for the synchronous client API.
+     *
+     * @return The result of the future
+     * @throws IOException The failure of the operation, or if interrupted while waiting
+     */
+    static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Artifactory");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (IOException) new IOException(cause.getMessage()).initCause(cause);
+        }
+    }
+
+    private static <T> void forward(final ListenableFuture<T> from, final ValueFuture<T> to) {
+        from.addListener(new Runnable() {
+            public void run() {
+                try {
+                    to.set(from.get());
+                } catch (ExecutionException e) {
+                    to.setException(e.getCause());
+                } catch (Throwable e) {
+                    to.setException(e);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.jfrog.build.api.util.Log;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shaping the bandwidth of the uploads, so that a large publish does not saturate the network link of
+ * an agent shared by several builds.
+ * <p/>
+ * The rate is the lowest of the cap of this process and of its share of the agent bandwidth, if any. Contents
+ * smaller than {@link #DEFAULT_UNTHROTTLED_MAX_SIZE} (checksums, poms, small jars) go through unthrottled, as well
+ * as the build info which is not uploaded as an artifact.
+ */
+public class BandwidthLimiter {
+    public static final long DEFAULT_UNTHROTTLED_MAX_SIZE = 1024 * 1024;
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final long KB = 1024;
+
+    private static BandwidthLimiter jvmLimiter;
+
+    private volatile long bytesPerSecond;
+    private volatile AgentBandwidthShare agentShare;
+    private final long unthrottledMaxSize;
+    private double tokens;
+    private long refilledNanos = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond     The bandwidth cap of the uploads, 0 for no cap
+     * @param agentShare         The share of the agent bandwidth, null for no agent cap
+     * @param unthrottledMaxSize The size below which contents are not throttled
+     */
+    public BandwidthLimiter(long bytesPerSecond, AgentBandwidthShare agentShare, long unthrottledMaxSize) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.agentShare = agentShare;
+        this.unthrottledMaxSize = unthrottledMaxSize;
+    }
+
+    /**
+     * @return The limiter shared by the publishers of this process configured with a bandwidth, null if none is
+     *         configured
+     */
+    public static BandwidthLimiter forPublisher(PublisherSettings publisher, Log log) {
+        Integer uploadBandwidth = publisher.getUploadBandwidth();
+        Integer agentUploadBandwidth = publisher.getAgentUploadBandwidth();
+        long bytesPerSecond = uploadBandwidth != null && uploadBandwidth > 0 ? uploadBandwidth * KB : 0;
+        AgentBandwidthShare agentShare = null;
+        if (agentUploadBandwidth != null && agentUploadBandwidth > 0) {
+            String dirPath = publisher.getAgentBandwidthDir();
+            File dir = StringUtils.isNotBlank(dirPath) ? new File(dirPath) :
+                    new File(System.getProperty("java.io.tmpdir"), "artifactory-upload-bandwidth");
+            agentShare = AgentBandwidthShare.forDirectory(dir, agentUploadBandwidth * KB);
+            log.info("Sharing an upload bandwidth of " + agentUploadBandwidth + " KB/s with the publishers of " +
+                    dir.getAbsolutePath());
+        }
+        if (bytesPerSecond == 0 && agentShare == null) {
+            return null;
+        }
+        if (bytesPerSecond > 0) {
+            log.info("Limiting the upload bandwidth to " + uploadBandwidth + " KB/s");
+        }
+        return forJvm(bytesPerSecond, agentShare);
+    }
+
+    /**
+     * @return The limiter of this process, reconfigured with the given bandwidth
+     */
+    public static synchronized BandwidthLimiter forJvm(long bytesPerSecond, AgentBandwidthShare agentShare) {
+        if (jvmLimiter == null) {
+            jvmLimiter = new BandwidthLimiter(bytesPerSecond, agentShare, DEFAULT_UNTHROTTLED_MAX_SIZE);
+        } else {
+            jvmLimiter.bytesPerSecond = bytesPerSecond;
+            jvmLimiter.agentShare = agentShare;
+        }
+        return jvmLimiter;
+    }
+
+    /**
+     * @return The current rate in bytes per second, 0 if not limited
+     */
+    public long getBytesPerSecond() {
+        long rate = bytesPerSecond;
+        AgentBandwidthShare share = agentShare;
+        if (share != null) {
+            long shared = share.getBytesPerSecond();
+            rate = rate > 0 ? Math.min(rate, shared) : shared;
+        }
+        return rate;
+    }
+
+    /**
+     * @return The entity throttled when written, or the entity itself if it is small enough to go unthrottled
+     */
+    public HttpEntity throttle(HttpEntity entity) {
+        long length = entity.getContentLength();
+        if (length >= 0 && length < unthrottledMaxSize) {
+            return entity;
+        }
+        return new ThrottledEntity(entity);
+    }
+
+    /**
+     * Waits until the bytes can be sent. The bucket holds up to one second of tokens; a request larger than the
+     * available tokens takes them in advance and waits for the debt to be refilled.
+     */
+    public void acquire(int bytes) throws InterruptedIOException {
+        long rate = getBytesPerSecond();
+        if (rate <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(rate, tokens + (now - refilledNanos) * rate / 1e9);
+            refilledNanos = now;
+            tokens -= bytes;
+            waitNanos = tokens < 0 ? (long) (-tokens * 1e9 / rate) : 0;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling the upload");
+            }
+        }
+    }
+
+    private class ThrottledEntity extends HttpEntityWrapper {
+
+        private ThrottledEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public void writeTo(final OutputStream outstream) throws IOException {
+            AgentBandwidthShare share = agentShare;
+            if (share != null) {
+                share.uploadStarted();
+            }
+            try {
+                super.writeTo(new FilterOutputStream(outstream) {
+                    @Override
+                    public void write(int b) throws IOException {
+                        acquire(1);
+                        out.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        while (len > 0) {
+                            int chunk = Math.min(len, CHUNK_SIZE);
+                            acquire(chunk);
+                            out.write(b, off, chunk);
+                            off += chunk;
+                            len -= chunk;
+                        }
+                    }
+                });
+            } finally {
+                if (share != null) {
+                    share.uploadEnded();
+                }
+            }
+        }
+    }
+}
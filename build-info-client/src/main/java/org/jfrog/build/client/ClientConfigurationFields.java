@@ -37,6 +37,7 @@ public interface ClientConfigurationFields {
     String AGGREGATE_ARTIFACTS = "aggregate";   // String  - directory where artifacts should be aggregated
     String PUBLISH_AGGREGATED_ARTIFACTS = "aggregated"; // Boolean - whether or not aggregated artifacts should be published
     String COPY_AGGREGATED_ARTIFACTS = "copy.aggregated"; // Boolean - whether or not aggregated artifacts should be published
+    String LINK_AGGREGATED_ARTIFACTS = "link.aggregated"; // Boolean - hard link the copied aggregated artifacts, only safe if the artifacts are never rewritten in place
     String PUBLISH_ARTIFACTS = "artifacts";
     String PUBLISH_BUILD_INFO = "buildInfo";
     String RECORD_ALL_DEPENDENCIES = "record.all.dependencies";
@@ -47,5 +48,22 @@ public interface ClientConfigurationFields {
     String EXCLUDE_PATTERNS = "excludePatterns";
     String FILTER_EXCLUDED_ARTIFACTS_FROM_BUILD = "filterExcludedArtifactsFromBuild";
     String EVEN_UNSTABLE = "unstable";
+    String INCREMENTAL = "incremental"; // Boolean - skip artifacts recorded as deployed in the deploy manifest
+    String DEPLOY_MANIFEST = "deployManifest"; // String - path of the deploy manifest file
+    String DEPLOY_MANIFEST_RESET = "deployManifest.reset"; // Boolean - discard the deploy manifest before publishing
+    String DEPLOY_JOURNAL = "deployJournal"; // String - path of the deploy journal file
+    String RESUME = "resume"; // Boolean - skip the uploads completed by an interrupted publish
+    String SKIP_UNCHANGED_MODULES = "skipUnchangedModules"; // Boolean - skip modules with an unchanged fingerprint
+    String MODULE_FINGERPRINTS = "moduleFingerprints"; // String - path of the module fingerprints file
+    String METRICS_PROPERTIES = "metricsProperties"; // Boolean - add the publish metrics to the build info properties
+    String UPLOAD_BANDWIDTH = "uploadBandwidth"; // Integer - KB per second of the uploads of this process
+    String AGENT_UPLOAD_BANDWIDTH = "agentUploadBandwidth"; // Integer - KB per second shared by the agent publishers
+    String AGENT_BANDWIDTH_DIR = "agentBandwidthDir"; // String - directory coordinating the agent publishers
+    String ZERO_COPY_UPLOAD = "zeroCopyUpload"; // Boolean - upload the files with sendfile over plain HTTP
+    // Resolve fields
+    String DOWNLOAD_STORE = "downloadStore"; // String - directory of the downloads shared by the agent builds
+    String DOWNLOAD_STORE_SIZE = "downloadStoreSize"; // Integer - MB kept in the download store
+    String BUILD_DEPENDENCIES_CACHE = "buildDependenciesCache"; // String - directory of the cached build outputs
+    String BUILD_DEPENDENCIES_CACHE_TTL = "buildDependenciesCacheTtl"; // Integer - minutes a build output is cached
     String CONTEXT_URL = "contextUrl";
 }
@@ -33,6 +33,11 @@ public interface ClientProperties {
 
     String PROP_TIMEOUT = ARTIFACTORY_PREFIX + "timeout";
 
+    /**
+     * The maximum number of requests in flight to Artifactory, adapted to the server backpressure when set
+     */
+    String PROP_MAX_CONCURRENT_REQUESTS = ARTIFACTORY_PREFIX + "maxConcurrentRequests";
+
     String PROP_PROXY_PREFIX = ARTIFACTORY_PREFIX + "proxy.";
 
     /**
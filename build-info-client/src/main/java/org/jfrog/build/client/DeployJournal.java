@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Append-only journal of the uploads of a publish, used to resume an interrupted publish.
+ * <p/>
+ * Every planned upload is appended before the deployment starts, and every completed upload is appended (and
+ * flushed) as soon as it succeeds, so the journal survives a killed or crashed process. The journal is deleted once
+ * the whole publish, including the build info, succeeded.
+ * <p/>
+ * In resume mode the journal of the interrupted publish is read first, and uploads it records as completed with the
+ * same checksum are not deployed again.
+ */
+public class DeployJournal {
+    private static final String PLANNED = "P";
+    private static final String COMPLETED = "C";
+    private static final char SEPARATOR = '\t';
+
+    private final File file;
+    private final Log log;
+    /**
+     * Completed uploads of the interrupted publish, by repository and path
+     */
+    private final Map<String, String> resumed = Maps.newHashMap();
+    private Writer writer;
+    private int planned;
+    private int skipped;
+
+    private DeployJournal(File file, Log log) {
+        this.file = file;
+        this.log = log;
+    }
+
+    /**
+     * Open the deploy journal of a publisher.
+     *
+     * @param publisher   The publisher settings
+     * @param defaultFile The journal file to use if none is configured, usually under the build directory
+     * @param log         The logger
+     * @return The opened journal
+     */
+    public static DeployJournal forPublisher(PublisherSettings publisher, File defaultFile, Log log) {
+        String journalPath = publisher.getDeployJournal();
+        File journalFile = StringUtils.isNotBlank(journalPath) ? new File(journalPath) : defaultFile;
+        return open(journalFile, publisher.isResume(), log);
+    }
+
+    /**
+     * Open the journal, starting a new one unless resuming. A journal that cannot be written only logs a warning,
+     * it never fails the publish.
+     *
+     * @param file   The journal file
+     * @param resume Whether to skip the uploads completed by the interrupted publish recorded in the file
+     * @param log    The logger
+     * @return The opened journal
+     */
+    public static DeployJournal open(File file, boolean resume, Log log) {
+        DeployJournal journal = new DeployJournal(file, log);
+        if (resume) {
+            if (file.isFile()) {
+                journal.read();
+                log.info("Resuming interrupted publish: " + journal.resumed.size() +
+                        " uploads were already completed.");
+            } else {
+                log.info("No interrupted publish to resume, deploying all artifacts.");
+            }
+        }
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory " + parent);
+            }
+            // Keep the completed uploads of the interrupted publish if it gets interrupted again
+            boolean truncated = resume && endsWithPartialRecord(file);
+            journal.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, resume), "UTF-8"));
+            if (truncated) {
+                journal.writer.write('\n');
+            }
+        } catch (IOException e) {
+            log.warn("Could not open the deploy journal '" + file + "': " + e.getMessage());
+        }
+        return journal;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Record the uploads about to be performed.
+     */
+    public synchronized void planned(Collection<DeployDetails> deployDetails) {
+        for (DeployDetails details : deployDetails) {
+            append(PLANNED, details, details.getFile().getAbsolutePath());
+        }
+        planned += deployDetails.size();
+        flush();
+    }
+
+    /**
+     * @return True if the upload was completed by the interrupted publish with the same content
+     */
+    public synchronized boolean isCompleted(DeployDetails details) {
+        String sha1 = resumed.get(key(details.getTargetRepository(), details.getArtifactPath()));
+        boolean completed = sha1 != null && sha1.equals(details.getSha1());
+        if (completed) {
+            skipped++;
+        }
+        return completed;
+    }
+
+    /**
+     * Record a completed upload, the record is flushed immediately.
+     */
+    public synchronized void completed(DeployDetails details) {
+        append(COMPLETED, details, null);
+        flush();
+    }
+
+    /**
+     * The whole publish succeeded, the journal is deleted.
+     */
+    public synchronized void finished() {
+        close();
+        if (skipped > 0) {
+            log.info("Resumed publish: " + skipped + " of " + planned + " uploads were skipped.");
+        }
+        FileUtils.deleteQuietly(file);
+    }
+
+    /**
+     * Close the journal and keep it for a future resume.
+     */
+    public synchronized void close() {
+        IOUtils.closeQuietly(writer);
+        writer = null;
+    }
+
+    private void append(String type, DeployDetails details, String filePath) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(type);
+            writer.write(SEPARATOR);
+            writer.write(details.getTargetRepository());
+            writer.write(SEPARATOR);
+            writer.write(normalizePath(details.getArtifactPath()));
+            writer.write(SEPARATOR);
+            writer.write(StringUtils.defaultString(details.getSha1()));
+            if (filePath != null) {
+                writer.write(SEPARATOR);
+                writer.write(filePath);
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    private void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    private void disable(IOException e) {
+        log.warn("Could not write the deploy journal '" + file + "', an interrupted publish will not be resumable: " +
+                e.getMessage());
+        IOUtils.closeQuietly(writer);
+        writer = null;
+    }
+
+    private void read() {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = StringUtils.splitPreserveAllTokens(line, SEPARATOR);
+                // The last line may be truncated by the interruption, ignore anything that is not a full record
+                if (fields.length >= 4 && COMPLETED.equals(fields[0]) && StringUtils.isNotBlank(fields[3])) {
+                    resumed.put(key(fields[1], fields[2]), fields[3]);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not read the deploy journal '" + file + "': " + e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    private static boolean endsWithPartialRecord(File file) throws IOException {
+        if (!file.isFile() || file.length() == 0) {
+            return false;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static String key(String repo, String artifactPath) {
+        return repo + ':' + normalizePath(artifactPath);
+    }
+
+    private static String normalizePath(String artifactPath) {
+        return StringUtils.removeStart(artifactPath, "/");
+    }
+}
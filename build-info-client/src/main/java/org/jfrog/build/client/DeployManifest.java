@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local record of the artifacts successfully deployed by previous publishes, used to skip re-deploying artifacts that
+ * did not change.
+ * <p/>
+ * Each entry holds the target repository, path, SHA1 and a digest of the deployment properties. An artifact with an
+ * identical entry is not deployed again; an artifact with the same content but different properties is deployed
+ * with a checksum deploy only, without sending its content.
+ * <p/>
+ * The manifest is bound to the Artifactory context URL it was written for and is discarded when the URL changes.
+ * Deleting the file (usually with the build directory) or setting {@link ClientConfigurationFields#DEPLOY_MANIFEST_RESET}
+ * invalidates it.
+ */
+public class DeployManifest {
+    private static final String HEADER = "# build-info deploy manifest v1";
+    private static final String CONTEXT_URL_PREFIX = "# contextUrl=";
+    private static final char SEPARATOR = '\t';
+
+    public enum Status {
+        /**
+         * Same repository, path, content and properties, nothing to deploy
+         */
+        UP_TO_DATE,
+        /**
+         * Same repository, path and content with different properties, a checksum deploy is enough
+         */
+        CONTENT_UP_TO_DATE,
+        /**
+         * Unknown or modified artifact, needs a full deploy
+         */
+        CHANGED
+    }
+
+    private final File file;
+    private final String contextUrl;
+    private final Log log;
+    private final ConcurrentMap<String, Entry> entries = Maps.newConcurrentMap();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger checksumDeployed = new AtomicInteger();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    private DeployManifest(File file, String contextUrl, Log log) {
+        this.file = file;
+        this.contextUrl = StringUtils.stripEnd(contextUrl, "/");
+        this.log = log;
+    }
+
+    /**
+     * Create the deploy manifest of an incremental publisher.
+     *
+     * @param publisher   The publisher settings
+     * @param defaultFile The manifest file to use if none is configured, usually under the build directory
+     * @param log         The logger
+     * @return The loaded manifest, or null if the publisher is not incremental
+     */
+    public static DeployManifest forPublisher(PublisherSettings publisher, File defaultFile, Log log) {
+        if (!publisher.isIncremental()) {
+            return null;
+        }
+        String manifestPath = publisher.getDeployManifest();
+        File manifestFile = StringUtils.isNotBlank(manifestPath) ? new File(manifestPath) : defaultFile;
+        return load(manifestFile, publisher.getContextUrl(), publisher.isResetDeployManifest(), log);
+    }
+
+    /**
+     * Load the manifest from the given file. A missing, unreadable or foreign file results in an empty manifest.
+     *
+     * @param file       The manifest file
+     * @param contextUrl The Artifactory URL the artifacts are deployed to
+     * @param reset      Whether to discard the existing manifest
+     * @param log        The logger
+     * @return The loaded manifest
+     */
+    public static DeployManifest load(File file, String contextUrl, boolean reset, Log log) {
+        DeployManifest manifest = new DeployManifest(file, contextUrl, log);
+        if (reset) {
+            log.info("Invalidating the deploy manifest '" + file + "'");
+            manifest.invalidate();
+        } else if (file.isFile()) {
+            try {
+                manifest.read();
+            } catch (IOException e) {
+                log.warn("Could not read the deploy manifest '" + file + "', deploying all artifacts: " +
+                        e.getMessage());
+                manifest.entries.clear();
+            }
+        }
+        return manifest;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @param details The artifact to deploy
+     * @return The status of the artifact compared to its last recorded deployment
+     */
+    public Status getStatus(DeployDetails details) {
+        if (StringUtils.isBlank(details.getSha1())) {
+            return Status.CHANGED;
+        }
+        Entry entry = entries.get(key(details));
+        if (entry == null || !entry.sha1.equals(details.getSha1())) {
+            return Status.CHANGED;
+        }
+        if (!entry.propertiesDigest.equals(propertiesDigest(details))) {
+            return Status.CONTENT_UP_TO_DATE;
+        }
+        return Status.UP_TO_DATE;
+    }
+
+    /**
+     * Record a successful deployment of the given artifact.
+     */
+    public void deployed(DeployDetails details) {
+        if (StringUtils.isNotBlank(details.getSha1())) {
+            Entry entry = new Entry(details.getTargetRepository(), normalizePath(details.getArtifactPath()),
+                    details.getSha1(), propertiesDigest(details));
+            entries.put(entry.key(), entry);
+        }
+    }
+
+    /**
+     * Record that an unchanged artifact was not deployed.
+     */
+    public void skipped(DeployDetails details) {
+        skipped.incrementAndGet();
+        bytesSaved.addAndGet(details.getFile().length());
+    }
+
+    /**
+     * Record that an artifact was deployed by checksum only, without sending its content.
+     */
+    public void checksumDeployed(DeployDetails details) {
+        checksumDeployed.incrementAndGet();
+        bytesSaved.addAndGet(details.getFile().length());
+        deployed(details);
+    }
+
+    /**
+     * Forget all the recorded deployments and delete the manifest file.
+     */
+    public void invalidate() {
+        entries.clear();
+        FileUtils.deleteQuietly(file);
+    }
+
+    public int getSkippedCount() {
+        return skipped.get();
+    }
+
+    public int getChecksumDeployedCount() {
+        return checksumDeployed.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * @return The number of requests saved, each skipped artifact saves its deploy request
+     */
+    public int getRequestsSaved() {
+        return skipped.get();
+    }
+
+    public String getSummary() {
+        return "Incremental publish: " + skipped.get() + " unchanged artifacts skipped, " + checksumDeployed.get() +
+                " artifacts deployed by checksum; saved " + getRequestsSaved() + " requests and " +
+                FileUtils.byteCountToDisplaySize(bytesSaved.get()) + " of upload.";
+    }
+
+    /**
+     * Persist the manifest, entries are written sorted to keep the file stable between publishes.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public void save() throws IOException {
+        List<Entry> sorted = Lists.newArrayList(entries.values());
+        Collections.sort(sorted);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+        try {
+            writer.write(HEADER);
+            writer.write('\n');
+            writer.write(CONTEXT_URL_PREFIX);
+            writer.write(StringUtils.defaultString(contextUrl));
+            writer.write('\n');
+            for (Entry entry : sorted) {
+                writer.write(entry.repo);
+                writer.write(SEPARATOR);
+                writer.write(entry.path);
+                writer.write(SEPARATOR);
+                writer.write(entry.sha1);
+                writer.write(SEPARATOR);
+                writer.write(entry.propertiesDigest);
+                writer.write('\n');
+            }
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace the deploy manifest " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not rename " + tmp + " to " + file);
+        }
+    }
+
+    private void read() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("unknown format");
+            }
+            String urlLine = reader.readLine();
+            if (urlLine == null || !urlLine.startsWith(CONTEXT_URL_PREFIX)) {
+                throw new IOException("missing context URL");
+            }
+            String recordedUrl = urlLine.substring(CONTEXT_URL_PREFIX.length());
+            if (!recordedUrl.equals(StringUtils.defaultString(contextUrl))) {
+                log.info("Artifactory URL changed since the last publish, ignoring the deploy manifest.");
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = StringUtils.splitPreserveAllTokens(line, SEPARATOR);
+                if (fields.length != 4) {
+                    throw new IOException("corrupted entry '" + line + "'");
+                }
+                Entry entry = new Entry(fields[0], fields[1], fields[2], fields[3]);
+                entries.put(entry.key(), entry);
+            }
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    private static String key(DeployDetails details) {
+        return details.getTargetRepository() + ':' + normalizePath(details.getArtifactPath());
+    }
+
+    private static String normalizePath(String artifactPath) {
+        return StringUtils.removeStart(artifactPath, "/");
+    }
+
+    /**
+     * @return A digest of the properties, independent of their insertion order
+     */
+    static String propertiesDigest(DeployDetails details) {
+        if (details.getProperties() == null || details.getProperties().isEmpty()) {
+            return "-";
+        }
+        List<String> pairs = Lists.newArrayList();
+        for (Map.Entry<String, String> property : details.getProperties().entries()) {
+            pairs.add(property.getKey() + '=' + property.getValue());
+        }
+        Collections.sort(pairs);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String pair : pairs) {
+                digest.update(pair.getBytes("UTF-8"));
+                digest.update((byte) '\n');
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final String repo;
+        private final String path;
+        private final String sha1;
+        private final String propertiesDigest;
+
+        private Entry(String repo, String path, String sha1, String propertiesDigest) {
+            this.repo = repo;
+            this.path = path;
+            this.sha1 = sha1;
+            this.propertiesDigest = propertiesDigest;
+        }
+
+        private String key() {
+            return repo + ':' + path;
+        }
+
+        public int compareTo(Entry o) {
+            return key().compareTo(o.key());
+        }
+    }
+}
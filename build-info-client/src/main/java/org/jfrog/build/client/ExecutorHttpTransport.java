@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jfrog.build.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport executing the requests with the blocking client on a bounded pool of daemon threads, shared by all the
+ * callers of the client. The threads are started on demand and stop after a minute without requests.
+ */
+public class ExecutorHttpTransport implements HttpTransport {
+    public static final int DEFAULT_THREADS = 8;
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final PreemptiveHttpClient client;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param client  The client sending the requests
+     * @param threads The maximum number of requests in progress, the connection pool of the client is sized
+     *                accordingly
+     */
+    public ExecutorHttpTransport(PreemptiveHttpClient client, int threads) {
+        this.client = client;
+        client.setMaxConnections(threads);
+        String prefix = "artifactory-transport-" + POOL_NUMBER.incrementAndGet() + "-";
+        executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(prefix));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public ListenableFuture<HttpResponse> execute(final HttpUriRequest request) {
+        ListenableFutureTask<HttpResponse> task = new ListenableFutureTask<HttpResponse>(
+                new Callable<HttpResponse>() {
+                    public HttpResponse call() throws Exception {
+                        return client.execute(request);
+                    }
+                });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * @return The number of requests waiting for a thread
+     */
+    public int getQueuedRequests() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
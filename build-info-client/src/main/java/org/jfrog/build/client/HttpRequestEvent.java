@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import java.net.URI;
+
+/**
+ * A single HTTP request observed by an {@link HttpRequestListener}, with its timings and transferred bytes.
+ * <p/>
+ * Times are {@link System#nanoTime()} values; durations of phases not reached yet are -1.
+ */
+public class HttpRequestEvent {
+    private final String method;
+    private final String url;
+    private final String urlTemplate;
+    private final long startNanos = System.nanoTime();
+    private volatile long firstByteNanos = -1;
+    private volatile long endNanos = -1;
+    private volatile int statusCode = -1;
+    private volatile long bytesSent = -1;
+    private volatile long bytesReceived;
+
+    public HttpRequestEvent(String method, URI uri) {
+        this.method = method;
+        this.url = uri.toString();
+        this.urlTemplate = urlTemplate(method, uri.getPath());
+    }
+
+    /**
+     * Group the requests by the Artifactory endpoint they call, without repository paths and parameters.
+     *
+     * @param method The HTTP method
+     * @param path   The path of the request URL
+     * @return The endpoint: version, build, search, repositories, plugins, api, deploy or download
+     */
+    public static String urlTemplate(String method, String path) {
+        if (path != null) {
+            if (path.contains("/api/system/version")) {
+                return "version";
+            }
+            if (path.contains("/api/build")) {
+                return "build";
+            }
+            if (path.contains("/api/search")) {
+                return "search";
+            }
+            if (path.contains("/api/repositories")) {
+                return "repositories";
+            }
+            if (path.contains("/api/plugins")) {
+                return "plugins";
+            }
+            if (path.contains("/api/")) {
+                return "api";
+            }
+        }
+        if ("PUT".equals(method)) {
+            return "deploy";
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return "download";
+        }
+        return method.toLowerCase();
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    /**
+     * @return The response status code, -1 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return The length of the request content, 0 without content and -1 if unknown
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return The bytes of response content read
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return The time from the start of the request to the head of the response
+     */
+    public long getTimeToFirstByteNanos() {
+        return firstByteNanos < 0 ? -1 : firstByteNanos - startNanos;
+    }
+
+    /**
+     * @return The time from the start of the request to its completion or failure
+     */
+    public long getDurationNanos() {
+        return endNanos < 0 ? -1 : endNanos - startNanos;
+    }
+
+    void setBytesSent(long bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    void addBytesReceived(long bytes) {
+        bytesReceived += bytes;
+    }
+
+    /**
+     * @return True for the first byte of the request, false if it was already received
+     */
+    boolean firstByteReceived() {
+        if (firstByteNanos >= 0) {
+            return false;
+        }
+        firstByteNanos = System.nanoTime();
+        return true;
+    }
+
+    void responseReceived(int statusCode) {
+        this.statusCode = statusCode;
+        if (firstByteNanos < 0) {
+            firstByteNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return True for the first call, false if the request already ended
+     */
+    boolean ended() {
+        if (endNanos >= 0) {
+            return false;
+        }
+        endNanos = System.nanoTime();
+        return true;
+    }
+}
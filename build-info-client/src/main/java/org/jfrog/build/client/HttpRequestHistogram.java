@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Request listener keeping latency histograms per endpoint (see {@link HttpRequestEvent#urlTemplate}) and for the
+ * connection lease waits.
+ * <p/>
+ * Latencies are counted in power of two millisecond buckets, so recording is lock free and the memory is constant;
+ * percentiles are reported as the upper bound of their bucket.
+ */
+public class HttpRequestHistogram implements HttpRequestListener {
+    public static final String CONNECTION_LEASE = "connection-lease";
+
+    private final ConcurrentMap<String, Histogram> durations = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Histogram> timesToFirstByte = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, EndpointStats> endpoints = Maps.newConcurrentMap();
+    private final Histogram leaseWaits = new Histogram();
+
+    public void requestStarted(HttpRequestEvent event) {
+    }
+
+    public void firstByteReceived(HttpRequestEvent event) {
+        histogram(timesToFirstByte, event.getUrlTemplate()).record(event.getTimeToFirstByteNanos());
+    }
+
+    public void requestCompleted(HttpRequestEvent event) {
+        histogram(durations, event.getUrlTemplate()).record(event.getDurationNanos());
+        EndpointStats stats = stats(event.getUrlTemplate());
+        stats.bytesSent.addAndGet(Math.max(event.getBytesSent(), 0));
+        stats.bytesReceived.addAndGet(event.getBytesReceived());
+        if (event.getStatusCode() >= 400) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    public void requestFailed(HttpRequestEvent event, Exception cause) {
+        histogram(durations, event.getUrlTemplate()).record(event.getDurationNanos());
+        stats(event.getUrlTemplate()).failures.incrementAndGet();
+    }
+
+    public void connectionLeased(String host, long waitNanos) {
+        leaseWaits.record(waitNanos);
+    }
+
+    /**
+     * @return The observed endpoints, sorted
+     */
+    public List<String> getUrlTemplates() {
+        List<String> templates = Lists.newArrayList(durations.keySet());
+        Collections.sort(templates);
+        return templates;
+    }
+
+    public long getCount(String urlTemplate) {
+        Histogram histogram = durations.get(urlTemplate);
+        return histogram != null ? histogram.getCount() : 0;
+    }
+
+    /**
+     * @return The requests of the endpoint that failed without a response or with an error status
+     */
+    public long getFailures(String urlTemplate) {
+        EndpointStats stats = endpoints.get(urlTemplate);
+        return stats != null ? stats.failures.get() + stats.errors.get() : 0;
+    }
+
+    /**
+     * @param urlTemplate The endpoint
+     * @param percentile  The percentile, between 0 and 100
+     * @return The upper bound in milliseconds of the bucket of the request duration percentile
+     */
+    public long getDurationMillis(String urlTemplate, double percentile) {
+        Histogram histogram = durations.get(urlTemplate);
+        return histogram != null ? histogram.getPercentileMillis(percentile) : 0;
+    }
+
+    public long getTimeToFirstByteMillis(String urlTemplate, double percentile) {
+        Histogram histogram = timesToFirstByte.get(urlTemplate);
+        return histogram != null ? histogram.getPercentileMillis(percentile) : 0;
+    }
+
+    public long getLeaseCount() {
+        return leaseWaits.getCount();
+    }
+
+    public long getLeaseWaitMillis(double percentile) {
+        return leaseWaits.getPercentileMillis(percentile);
+    }
+
+    /**
+     * @return One line per endpoint and one for the connection leases
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("HTTP requests:");
+        for (String template : getUrlTemplates()) {
+            EndpointStats stats = stats(template);
+            summary.append("\n  ").append(template).append(": ").append(getCount(template)).append(" requests, ")
+                    .append(getFailures(template)).append(" failed, duration p50/p95/p99 ")
+                    .append(getDurationMillis(template, 50)).append('/').append(getDurationMillis(template, 95))
+                    .append('/').append(getDurationMillis(template, 99)).append("ms, first byte p50/p95 ")
+                    .append(getTimeToFirstByteMillis(template, 50)).append('/')
+                    .append(getTimeToFirstByteMillis(template, 95)).append("ms, sent ")
+                    .append(FileUtils.byteCountToDisplaySize(stats.bytesSent.get())).append(", received ")
+                    .append(FileUtils.byteCountToDisplaySize(stats.bytesReceived.get()));
+        }
+        summary.append("\n  ").append(CONNECTION_LEASE).append(": ").append(getLeaseCount())
+                .append(" leases, wait p50/p95/p99 ").append(getLeaseWaitMillis(50)).append('/')
+                .append(getLeaseWaitMillis(95)).append('/').append(getLeaseWaitMillis(99)).append("ms");
+        return summary.toString();
+    }
+
+    private Histogram histogram(ConcurrentMap<String, Histogram> histograms, String urlTemplate) {
+        Histogram histogram = histograms.get(urlTemplate);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent(urlTemplate, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    private EndpointStats stats(String urlTemplate) {
+        EndpointStats stats = endpoints.get(urlTemplate);
+        if (stats == null) {
+            EndpointStats created = new EndpointStats();
+            stats = endpoints.putIfAbsent(urlTemplate, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    private static class EndpointStats {
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+    }
+
+    /**
+     * Counts of the values below 1ms, 2ms, 4ms... up to about 18 minutes, and above.
+     */
+    static class Histogram {
+        private static final int BUCKETS = 22;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                return;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = millis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+            counts.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+            count.incrementAndGet();
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        long getPercentileMillis(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= rank) {
+                    return 1L << bucket;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+/**
+ * Observes the HTTP requests sent to Artifactory, see {@link ArtifactoryHttpClient#setRequestListener}.
+ * <p/>
+ * Listeners are called on the thread executing the request and must be thread safe and fast. No events are created
+ * when no listener is set.
+ * @see HttpRequestHistogram
+ */
+public interface HttpRequestListener {
+
+    /**
+     * Called before the request is sent.
+     */
+    void requestStarted(HttpRequestEvent event);
+
+    /**
+     * Called when the head of the response was received, once per request.
+     */
+    void firstByteReceived(HttpRequestEvent event);
+
+    /**
+     * Called when the response was fully read or released, or right after the head if the response has no content.
+     */
+    void requestCompleted(HttpRequestEvent event);
+
+    /**
+     * Called when the request could not be sent or the response could not be read.
+     */
+    void requestFailed(HttpRequestEvent event, Exception cause);
+
+    /**
+     * Called when a connection was leased from the connection manager.
+     *
+     * @param host      The target host of the connection
+     * @param waitNanos The time waited for the connection
+     */
+    void connectionLeased(String host, long waitNanos);
+}
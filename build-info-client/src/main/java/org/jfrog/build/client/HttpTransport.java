@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jfrog.build.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Sends the requests of the asynchronous client API. The default transport is {@link ExecutorHttpTransport}, the
+ * non-blocking {@link NioHttpTransport} is enabled with {@link ArtifactoryHttpClient#setNonBlockingTransport} and
+ * other engines can be plugged with {@link ArtifactoryHttpClient#setTransport}.
+ */
+public interface HttpTransport {
+
+    /**
+     * Sends the request without blocking the caller.
+     *
+     * @param request The request to send
+     * @return The response, available once its head was received. Its content must be consumed or closed by the
+     *         consumer of the future
+     */
+    ListenableFuture<HttpResponse> execute(HttpUriRequest request);
+
+    /**
+     * Releases the resources of the transport, the requests in progress may fail.
+     */
+    void shutdown();
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.BuildInfoFields;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fingerprints of the modules published by the last successful publish, used to skip the deployment of modules that
+ * did not change.
+ * <p/>
+ * The fingerprint of a module is the root of a Merkle tree: the artifact leaves hash the path, SHA1 and deploy
+ * properties of an artifact to deploy, the dependency leaves hash the dependency id and SHA1, and the root hashes the
+ * module id with the sorted artifact and dependency leaves. Computing it only needs the deploy details and the
+ * dependencies of the build info, whose checksums are already calculated. A module whose fingerprint matches the one
+ * recorded for the same target repositories is not deployed at all; it is still recorded in the build info.
+ * <p/>
+ * The properties identifying the build ({@link #BUILD_PROPERTIES}: build name, number, timestamp, parent and VCS
+ * revision) change with every build and are left out of the fingerprint, otherwise no module would ever be skipped.
+ * The artifacts of a skipped module therefore keep these properties as set by the build that deployed them last.
+ * <p/>
+ * New fingerprints are recorded by {@link #save()}, which should only be called once the whole publish succeeded. The
+ * file is bound to the Artifactory context URL it was written for and is ignored when the URL changes.
+ */
+public class ModuleFingerprints {
+    private static final String HEADER = "# build-info module fingerprints v3";
+    private static final String CONTEXT_URL_PREFIX = "# contextUrl=";
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * The deploy properties identifying the build, not part of the fingerprint
+     */
+    public static final Set<String> BUILD_PROPERTIES = ImmutableSet.of(BuildInfoFields.BUILD_NAME,
+            BuildInfoFields.BUILD_NUMBER, BuildInfoFields.BUILD_TIMESTAMP, BuildInfoFields.BUILD_STARTED,
+            BuildInfoFields.BUILD_PARENT_NAME, BuildInfoFields.BUILD_PARENT_NUMBER, BuildInfoFields.VCS_REVISION);
+
+    private final File file;
+    private final String contextUrl;
+    private final Log log;
+    private final Map<String, String> recorded = Maps.newHashMap();
+    private final Map<String, String> published = Maps.newHashMap();
+    private int skippedModules;
+    private int skippedArtifacts;
+
+    private ModuleFingerprints(File file, String contextUrl, Log log) {
+        this.file = file;
+        this.contextUrl = StringUtils.stripEnd(contextUrl, "/");
+        this.log = log;
+    }
+
+    /**
+     * Load the module fingerprints of a publisher.
+     *
+     * @param publisher   The publisher settings
+     * @param defaultFile The fingerprints file to use if none is configured, usually next to the exported build info
+     * @param log         The logger
+     * @return The loaded fingerprints, or null if the publisher does not skip unchanged modules
+     */
+    public static ModuleFingerprints forPublisher(PublisherSettings publisher, File defaultFile, Log log) {
+        if (!publisher.isSkipUnchangedModules()) {
+            return null;
+        }
+        String fingerprintsPath = publisher.getModuleFingerprints();
+        File fingerprintsFile = StringUtils.isNotBlank(fingerprintsPath) ? new File(fingerprintsPath) : defaultFile;
+        return load(fingerprintsFile, publisher.getContextUrl(), log);
+    }
+
+    /**
+     * Load the fingerprints from the given file. A missing, unreadable or foreign file results in no fingerprints.
+     *
+     * @param file       The fingerprints file
+     * @param contextUrl The Artifactory URL the modules are deployed to
+     * @param log        The logger
+     * @return The loaded fingerprints
+     */
+    public static ModuleFingerprints load(File file, String contextUrl, Log log) {
+        ModuleFingerprints fingerprints = new ModuleFingerprints(file, contextUrl, log);
+        if (file.isFile()) {
+            try {
+                fingerprints.read();
+            } catch (IOException e) {
+                log.warn("Could not read the module fingerprints '" + file + "', deploying all modules: " +
+                        e.getMessage());
+                fingerprints.recorded.clear();
+            }
+        }
+        return fingerprints;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Calculate the fingerprint of a module.
+     *
+     * @param moduleId     The id of the module
+     * @param deployables  The artifacts of the module to deploy, with their checksums
+     * @param dependencies The dependencies of the module, with their checksums, or null if it has none
+     * @return The fingerprint, null if an artifact has no SHA1
+     */
+    public static String fingerprint(String moduleId, Collection<DeployDetails> deployables,
+            Collection<Dependency> dependencies) {
+        List<String> artifactLeaves = Lists.newArrayList();
+        for (DeployDetails deployable : deployables) {
+            if (StringUtils.isBlank(deployable.getSha1())) {
+                return null;
+            }
+            List<String> leaf = Lists.newArrayList(deployable.getArtifactPath(), deployable.getSha1());
+            if (deployable.getProperties() != null) {
+                for (String key : Sets.newTreeSet(deployable.getProperties().keySet())) {
+                    if (!BUILD_PROPERTIES.contains(key)) {
+                        leaf.add(key + "=" + StringUtils.join(deployable.getProperties().get(key), ','));
+                    }
+                }
+            }
+            artifactLeaves.add(sha1(leaf.toArray(new String[leaf.size()])));
+        }
+        List<String> dependencyLeaves = Lists.newArrayList();
+        if (dependencies != null) {
+            for (Dependency dependency : dependencies) {
+                dependencyLeaves.add(sha1(dependency.getId(), dependency.getSha1()));
+            }
+        }
+        return sha1(moduleId, node(artifactLeaves), node(dependencyLeaves));
+    }
+
+    /**
+     * Check whether a module was already published with the same content to the same repositories. A changed module
+     * is recorded, and its fingerprint is saved by {@link #save()}.
+     *
+     * @param moduleId     The id of the module
+     * @param deployables  The artifacts of the module to deploy
+     * @param dependencies The dependencies of the module, or null if it has none
+     * @return True if the deployment of the module can be skipped
+     */
+    public synchronized boolean isUnchanged(String moduleId, Collection<DeployDetails> deployables,
+            Collection<Dependency> dependencies) {
+        if (deployables.isEmpty()) {
+            return false;
+        }
+        String fingerprint = fingerprint(moduleId, deployables, dependencies);
+        if (fingerprint == null) {
+            return false;
+        }
+        String key = key(moduleId, deployables);
+        if (fingerprint.equals(recorded.get(key))) {
+            skippedModules++;
+            skippedArtifacts += deployables.size();
+            log.debug("Module '" + moduleId + "' is unchanged, skipping its deployment.");
+            return true;
+        }
+        published.put(key, fingerprint);
+        return false;
+    }
+
+    public synchronized int getSkippedModules() {
+        return skippedModules;
+    }
+
+    public synchronized String getSummary() {
+        return "Skipped the deployment of " + skippedModules + " unchanged modules (" + skippedArtifacts +
+                " artifacts).";
+    }
+
+    /**
+     * Record the fingerprints of the published modules, entries are written sorted to keep the file stable between
+     * publishes.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        recorded.putAll(published);
+        published.clear();
+        List<String> keys = Lists.newArrayList(recorded.keySet());
+        Collections.sort(keys);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+        try {
+            writer.write(HEADER);
+            writer.write('\n');
+            writer.write(CONTEXT_URL_PREFIX);
+            writer.write(StringUtils.defaultString(contextUrl));
+            writer.write('\n');
+            for (String key : keys) {
+                writer.write(key);
+                writer.write(SEPARATOR);
+                writer.write(recorded.get(key));
+                writer.write('\n');
+            }
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace the module fingerprints " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not rename " + tmp + " to " + file);
+        }
+    }
+
+    private void read() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("unknown format");
+            }
+            String urlLine = reader.readLine();
+            if (urlLine == null || !urlLine.startsWith(CONTEXT_URL_PREFIX)) {
+                throw new IOException("missing context URL");
+            }
+            if (!urlLine.substring(CONTEXT_URL_PREFIX.length()).equals(StringUtils.defaultString(contextUrl))) {
+                log.info("Artifactory URL changed since the last publish, ignoring the module fingerprints.");
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf(SEPARATOR);
+                if (separator < 0) {
+                    throw new IOException("corrupted entry '" + line + "'");
+                }
+                recorded.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * @return The key of the module deployed to the repositories of the deployables
+     */
+    private static String key(String moduleId, Collection<DeployDetails> deployables) {
+        Set<String> repositories = Sets.newTreeSet();
+        for (DeployDetails deployable : deployables) {
+            repositories.add(deployable.getTargetRepository());
+        }
+        return StringUtils.join(repositories, ',') + SEPARATOR + moduleId;
+    }
+
+    /**
+     * @return The hash of the sorted child hashes
+     */
+    private static String node(List<String> children) {
+        Collections.sort(children);
+        return sha1(children.toArray(new String[children.size()]));
+    }
+
+    private static String sha1(String... values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String value : values) {
+                digest.update(StringUtils.defaultString(value).getBytes("UTF-8"));
+                digest.update((byte) '\n');
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
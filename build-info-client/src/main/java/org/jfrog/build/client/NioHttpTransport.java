@@ -0,0 +1,598 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jfrog.build.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ValueFuture;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.pool.BasicNIOConnFactory;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentInputStream;
+import org.apache.http.nio.entity.ContentOutputStream;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.nio.util.SharedOutputBuffer;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport sending the requests with the non-blocking engine of httpcore-nio: a single I/O thread multiplexes all
+ * the connections, so the requests in progress are bounded by the connection pool and not by a number of threads.
+ * <p/>
+ * The files and in-memory contents are sent from the I/O thread, the files with {@link FileChannel#transferTo} when
+ * the connection allows it. Other contents, e.g. throttled or generated while written, are written by a thread of the
+ * executor into a buffer drained by the I/O thread. The futures are completed on the executor once the response head
+ * is received, and the response content is streamed from a buffer filled by the I/O thread.
+ * <p/>
+ * The transport connects directly to the server with preemptive BASIC authentication: it supports neither proxies
+ * nor the concurrency limiter and the request listener of {@link PreemptiveHttpClient}.
+ */
+public class NioHttpTransport implements HttpTransport {
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long SHUTDOWN_MILLIS = 1000;
+    private static final AtomicInteger REACTOR_NUMBER = new AtomicInteger();
+    /**
+     * Ends the content buffer of a response without content.
+     */
+    private static final ContentDecoder NO_CONTENT = new ContentDecoder() {
+        public int read(ByteBuffer dst) {
+            return -1;
+        }
+
+        public boolean isCompleted() {
+            return true;
+        }
+    };
+
+    private final Executor executor;
+    private final DefaultConnectingIOReactor ioReactor;
+    private final BasicNIOConnPool connectionPool;
+    private final HttpAsyncRequester requester;
+    private volatile PublishMetrics publishMetrics;
+
+    /**
+     * @param username       The user of the preemptive BASIC authentication, none if empty
+     * @param password       The password of the user
+     * @param timeout        The connection and socket timeout in seconds
+     * @param maxConnections The maximum number of requests in progress
+     * @param executor       The executor completing the futures and writing the contents that cannot be sent from
+     *                       the I/O thread
+     * @throws IOException If the I/O reactor cannot be started
+     */
+    public NioHttpTransport(String username, String password, int timeout, int maxConnections, Executor executor)
+            throws IOException {
+        this.executor = executor;
+        HttpParams params = new BasicHttpParams();
+        int timeoutMilliSeconds = timeout * 1000;
+        HttpConnectionParams.setConnectionTimeout(params, timeoutMilliSeconds);
+        HttpConnectionParams.setSoTimeout(params, timeoutMilliSeconds);
+        HttpProtocolParams.setUserAgent(params, PreemptiveHttpClient.getUserAgent());
+
+        IOReactorConfig config = new IOReactorConfig();
+        config.setIoThreadCount(1);
+        config.setConnectTimeout(timeoutMilliSeconds);
+        config.setSoTimeout(timeoutMilliSeconds);
+        String prefix = "artifactory-nio-transport-" + REACTOR_NUMBER.incrementAndGet() + "-";
+        ioReactor = new DefaultConnectingIOReactor(config, new DaemonThreadFactory(prefix));
+        SSLContext sslContext;
+        try {
+            sslContext = SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw (IOException) new IOException("No default SSL context").initCause(e);
+        }
+        connectionPool = new BasicNIOConnPool(ioReactor,
+                new BasicNIOConnFactory(sslContext, new HostnameVerification(), params), params);
+        connectionPool.setMaxTotal(maxConnections);
+        connectionPool.setDefaultMaxPerRoute(maxConnections);
+
+        HttpRequestInterceptor metricsInterceptor = new HttpRequestInterceptor() {
+            public void process(HttpRequest request, HttpContext context) {
+                PublishMetrics metrics = publishMetrics;
+                if (metrics != null) {
+                    metrics.requestSent();
+                }
+            }
+        };
+        HttpRequestInterceptor[] interceptors;
+        if (StringUtils.isNotEmpty(username)) {
+            final UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(username, password);
+            HttpRequestInterceptor authInterceptor = new HttpRequestInterceptor() {
+                public void process(HttpRequest request, HttpContext context) {
+                    request.addHeader(BasicScheme.authenticate(credentials, "US-ASCII", false));
+                }
+            };
+            interceptors = new HttpRequestInterceptor[]{new RequestContent(), new RequestTargetHost(),
+                    new RequestConnControl(), new RequestUserAgent(), authInterceptor, metricsInterceptor};
+        } else {
+            interceptors = new HttpRequestInterceptor[]{new RequestContent(), new RequestTargetHost(),
+                    new RequestConnControl(), new RequestUserAgent(), metricsInterceptor};
+        }
+        requester = new HttpAsyncRequester(new ImmutableHttpProcessor(interceptors),
+                new DefaultConnectionReuseStrategy(), params);
+
+        final IOEventDispatch dispatch = new DefaultHttpClientIODispatch(new HttpAsyncRequestExecutor(), params);
+        Thread reactorThread = new DaemonThreadFactory(prefix + "reactor-").newThread(new Runnable() {
+            public void run() {
+                try {
+                    ioReactor.execute(dispatch);
+                } catch (IOException e) {
+                    // The reactor stopped, the pending requests fail with the connection pool shutdown
+                }
+            }
+        });
+        reactorThread.start();
+    }
+
+    /**
+     * Count the requests sent by this transport.
+     *
+     * @param metrics The metrics of the publish, or null to stop counting
+     */
+    public void setPublishMetrics(PublishMetrics metrics) {
+        publishMetrics = metrics;
+    }
+
+    public ListenableFuture<HttpResponse> execute(HttpUriRequest request) {
+        URI uri = request.getURI();
+        HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+        int port = uri.getPort() >= 0 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        HttpHost route = new HttpHost(uri.getHost(), port, uri.getScheme());
+        HttpContext context = new BasicHttpContext();
+        context.setAttribute(ExecutionContext.HTTP_TARGET_HOST, host);
+
+        final ValueFuture<HttpResponse> future = ValueFuture.create();
+        final ResponseConsumer consumer = new ResponseConsumer(future, context);
+        final Future<HttpResponse> exchange = requester.execute(
+                new RequestProducer(route, toOriginForm(request)), consumer, connectionPool, context,
+                new FutureCallback<HttpResponse>() {
+                    public void completed(HttpResponse response) {
+                    }
+
+                    public void failed(Exception cause) {
+                        consumer.failed(cause);
+                    }
+
+                    public void cancelled() {
+                        consumer.cancel();
+                    }
+                });
+        future.addListener(new Runnable() {
+            public void run() {
+                if (future.isCancelled()) {
+                    exchange.cancel(true);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return future;
+    }
+
+    public void shutdown() {
+        try {
+            connectionPool.shutdown(SHUTDOWN_MILLIS);
+        } catch (IOException e) {
+            // ignore, the reactor is shut down by the pool
+        }
+    }
+
+    /**
+     * @return The request addressed by its path, as sent to the server without proxy
+     */
+    private static HttpRequest toOriginForm(HttpUriRequest request) {
+        URI uri = request.getURI();
+        String path = StringUtils.defaultIfEmpty(uri.getRawPath(), "/");
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        HttpRequest converted;
+        if (request instanceof HttpEntityEnclosingRequest) {
+            BasicHttpEntityEnclosingRequest enclosingRequest = new BasicHttpEntityEnclosingRequest(
+                    request.getMethod(), path, request.getProtocolVersion());
+            enclosingRequest.setEntity(((HttpEntityEnclosingRequest) request).getEntity());
+            converted = enclosingRequest;
+        } else {
+            converted = new BasicHttpRequest(request.getMethod(), path, request.getProtocolVersion());
+        }
+        converted.setHeaders(request.getAllHeaders());
+        return converted;
+    }
+
+    /**
+     * Rejects the certificates not issued to the host, the engine only checks the trust chain.
+     */
+    private static class HostnameVerification implements SSLSetupHandler {
+        public void initalize(SSLEngine sslEngine) {
+        }
+
+        public void verify(IOSession ioSession, SSLSession sslSession) throws SSLException {
+            X509Certificate certificate = (X509Certificate) sslSession.getPeerCertificates()[0];
+            SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER.verify(sslSession.getPeerHost(), certificate);
+        }
+    }
+
+    /**
+     * Sends the request content, from the I/O thread when it can be read without blocking.
+     */
+    private class RequestProducer implements HttpAsyncRequestProducer {
+        private final HttpHost target;
+        private final HttpRequest request;
+        private final HttpEntity entity;
+        private ReadableByteChannel channel;
+        private FileChannel fileChannel;
+        private long position;
+        private ByteBuffer buffer;
+        private boolean endOfChannel;
+        private SharedOutputBuffer outputBuffer;
+        private volatile Exception writeFailure;
+
+        RequestProducer(HttpHost target, HttpRequest request) {
+            this.target = target;
+            this.request = request;
+            this.entity = request instanceof HttpEntityEnclosingRequest ?
+                    ((HttpEntityEnclosingRequest) request).getEntity() : null;
+        }
+
+        public HttpHost getTarget() {
+            return target;
+        }
+
+        public HttpRequest generateRequest() {
+            return request;
+        }
+
+        public synchronized void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+            if (channel == null && outputBuffer == null) {
+                start(ioControl);
+            }
+            if (outputBuffer != null) {
+                checkWriter();
+                outputBuffer.produceContent(encoder);
+                return;
+            }
+            long length = entity.getContentLength();
+            if (fileChannel != null && length >= 0 && encoder instanceof FileContentEncoder) {
+                long transferred = ((FileContentEncoder) encoder).transfer(fileChannel, position, length - position);
+                position += transferred;
+                if (transferred == 0 && !encoder.isCompleted() && position >= fileChannel.size()) {
+                    throw new IOException("The content ended before its length of " + length + " bytes");
+                }
+            } else {
+                if (!endOfChannel && channel.read(buffer) < 0) {
+                    endOfChannel = true;
+                }
+                buffer.flip();
+                encoder.write(buffer);
+                buffer.compact();
+                if (endOfChannel && buffer.position() == 0 && !encoder.isCompleted()) {
+                    if (length >= 0) {
+                        throw new IOException("The content ended before its length of " + length + " bytes");
+                    }
+                    encoder.complete();
+                }
+            }
+            if (encoder.isCompleted()) {
+                closeChannel();
+            }
+        }
+
+        private void start(final IOControl ioControl) throws IOException {
+            InputStream content = entity.isRepeatable() ? entity.getContent() : null;
+            if (content instanceof FileInputStream) {
+                fileChannel = ((FileInputStream) content).getChannel();
+                channel = fileChannel;
+            } else if (content instanceof ByteArrayInputStream) {
+                channel = Channels.newChannel(content);
+            } else {
+                if (content != null) {
+                    content.close();
+                }
+                outputBuffer = new SharedOutputBuffer(BUFFER_SIZE, ioControl, new HeapByteBufferAllocator());
+                final SharedOutputBuffer writtenBuffer = outputBuffer;
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            entity.writeTo(new ContentOutputStream(writtenBuffer));
+                            writtenBuffer.writeCompleted();
+                        } catch (Exception e) {
+                            writeFailure = e;
+                            writtenBuffer.shutdown();
+                            ioControl.requestOutput();
+                        }
+                    }
+                });
+                return;
+            }
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        private void checkWriter() throws IOException {
+            Exception failure = writeFailure;
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure != null) {
+                throw (IOException) new IOException("Failed writing the content: " + failure.getMessage())
+                        .initCause(failure);
+            }
+        }
+
+        public void requestCompleted(HttpContext context) {
+            close();
+        }
+
+        public void failed(Exception cause) {
+            close();
+        }
+
+        public boolean isRepeatable() {
+            return entity == null || entity.isRepeatable();
+        }
+
+        public synchronized void resetRequest() {
+            close();
+            channel = null;
+            fileChannel = null;
+            position = 0;
+            buffer = null;
+            endOfChannel = false;
+            outputBuffer = null;
+            writeFailure = null;
+        }
+
+        public synchronized void close() {
+            closeChannel();
+            if (outputBuffer != null) {
+                outputBuffer.shutdown();
+            }
+        }
+
+        private void closeChannel() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes the future with the response head, its content is then streamed to the consumer of the future.
+     */
+    private class ResponseConsumer implements HttpAsyncResponseConsumer<HttpResponse> {
+        private final ValueFuture<HttpResponse> future;
+        private final HttpContext context;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile SharedInputBuffer inputBuffer;
+        private volatile HttpResponse response;
+        private volatile Exception failure;
+        private volatile boolean contentReceived;
+        private volatile boolean done;
+
+        ResponseConsumer(ValueFuture<HttpResponse> future, HttpContext context) {
+            this.future = future;
+            this.context = context;
+        }
+
+        public void responseReceived(HttpResponse response) throws IOException, HttpException {
+            this.response = response;
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                IOControl ioControl = (IOControl) context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+                inputBuffer = new SharedInputBuffer(BUFFER_SIZE, ioControl, new HeapByteBufferAllocator());
+                BasicHttpEntity streamedEntity = new BasicHttpEntity();
+                streamedEntity.setContentLength(entity.getContentLength());
+                streamedEntity.setContentType(entity.getContentType());
+                streamedEntity.setContentEncoding(entity.getContentEncoding());
+                streamedEntity.setChunked(entity.isChunked());
+                streamedEntity.setContent(new ResponseStream(inputBuffer));
+                response.setEntity(streamedEntity);
+            }
+            complete(response, null);
+        }
+
+        public void consumeContent(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            contentReceived = true;
+            inputBuffer.consumeContent(decoder);
+        }
+
+        public void responseCompleted(HttpContext context) {
+            done = true;
+            if (inputBuffer != null && !contentReceived) {
+                // No content, e.g. the response of a HEAD request
+                try {
+                    inputBuffer.consumeContent(NO_CONTENT);
+                } catch (IOException e) {
+                    failed(e);
+                }
+            }
+        }
+
+        public void failed(Exception cause) {
+            if (done) {
+                return;
+            }
+            failure = cause;
+            if (inputBuffer != null) {
+                inputBuffer.shutdown();
+            }
+            complete(null, cause);
+        }
+
+        public boolean cancel() {
+            failed(new InterruptedIOException("Request cancelled"));
+            return true;
+        }
+
+        public Exception getException() {
+            return failure;
+        }
+
+        public HttpResponse getResult() {
+            return response;
+        }
+
+        public boolean isDone() {
+            return done || failure != null;
+        }
+
+        public void close() {
+        }
+
+        private void complete(final HttpResponse result, final Exception cause) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            Runnable completion = new Runnable() {
+                public void run() {
+                    if (cause != null) {
+                        future.setException(cause);
+                    } else {
+                        future.set(result);
+                    }
+                }
+            };
+            try {
+                executor.execute(completion);
+            } catch (RejectedExecutionException e) {
+                completion.run();
+            }
+        }
+
+        /**
+         * The content of the response, ending with the failure of the exchange if it was aborted.
+         */
+        private class ResponseStream extends ContentInputStream {
+
+            ResponseStream(SharedInputBuffer inputBuffer) {
+                super(inputBuffer);
+            }
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    return checkEnd(super.read());
+                } catch (InterruptedIOException e) {
+                    throw abortedRead(e);
+                }
+            }
+
+            @Override
+            public int read(byte[] b) throws IOException {
+                return read(b, 0, b.length);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    return checkEnd(super.read(b, off, len));
+                } catch (InterruptedIOException e) {
+                    throw abortedRead(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (failure == null) {
+                    super.close();
+                }
+            }
+
+            private int checkEnd(int read) throws IOException {
+                if (read < 0 && failure != null) {
+                    throw abortedRead(null);
+                }
+                return read;
+            }
+
+            /**
+             * @return The failure of the exchange, which shut the buffer down
+             */
+            private IOException abortedRead(InterruptedIOException aborted) {
+                Exception cause = failure;
+                if (cause == null) {
+                    return aborted;
+                }
+                return (IOException) new IOException("Failed reading the response: " + cause.getMessage())
+                        .initCause(cause);
+            }
+        }
+    }
+}
@@ -19,12 +19,29 @@ package org.jfrog.build.client;
 import org.apache.http.*;
 import org.apache.http.auth.*;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.params.HttpClientParams;
 import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.OperatedClientConnection;
 import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
@@ -32,10 +49,18 @@ import org.apache.http.params.HttpProtocolParams;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.ExecutionContext;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.util.EntityUtils;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Wrapper of HttpClient that forces preemptive BASIC authentication if user credentials exist.
@@ -45,9 +70,18 @@ import java.util.Properties;
 public class PreemptiveHttpClient {
 
     private final static String CLIENT_VERSION;
+    private final static String REQUEST_EVENT = "http-request-event";
+    private final static int DEFAULT_MAX_CONNECTIONS = 2;
+    private final static int SC_TOO_MANY_REQUESTS = 429;
 
     private DefaultHttpClient httpClient;
     private BasicHttpContext localContext;
+    private volatile HttpRequestListener requestListener;
+    private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private volatile PublishMetrics publishMetrics;
+    private PoolingClientConnectionManager connectionPool;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private boolean zeroCopyUpload;
 
     static {
         // initialize client version
@@ -83,11 +117,218 @@ public class PreemptiveHttpClient {
         }
     }
 
+    /**
+     * Count the requests sent and retried by this client.
+     *
+     * @param metrics The metrics of the publish, or null to stop counting
+     */
+    public synchronized void setPublishMetrics(PublishMetrics metrics) {
+        publishMetrics = metrics;
+        if (metrics != null) {
+            metrics.setConcurrencyLimiter(concurrencyLimiter);
+        }
+    }
+
+    /**
+     * Notify the listener of every request executed by this client; requests are not instrumented without one.
+     *
+     * @param requestListener The listener, or null to remove it
+     */
+    public void setRequestListener(HttpRequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    /**
+     * Bound the requests in flight with the limiter, and retry the idempotent requests rejected by an overloaded
+     * server or that timed out. The connection pool is at least as large as the maximum limit.
+     *
+     * @param concurrencyLimiter The limiter, or null to send the requests unbounded and without retries
+     */
+    public synchronized void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        if (publishMetrics != null) {
+            publishMetrics.setConcurrencyLimiter(concurrencyLimiter);
+        }
+        if (connectionPool != null) {
+            sizeConnectionPool();
+        }
+    }
+
+    /**
+     * Send the {@link ZeroCopyFileEntity} entities with {@link java.nio.channels.FileChannel#transferTo} on the plain
+     * HTTP connections opened from now on. The TLS connections are not affected.
+     */
+    public synchronized void setZeroCopyUpload(boolean zeroCopyUpload) {
+        this.zeroCopyUpload = zeroCopyUpload;
+        if (connectionPool != null) {
+            registerPlainScheme(connectionPool.getSchemeRegistry());
+        }
+    }
+
+    private void registerPlainScheme(SchemeRegistry schemeRegistry) {
+        schemeRegistry.register(new Scheme("http", 80, zeroCopyUpload ?
+                new ZeroCopyClientConnection.ChannelSocketFactory() : PlainSocketFactory.getSocketFactory()));
+    }
+
+    /**
+     * Size the connection pool for the given number of concurrent requests. The pool is at least as large as the
+     * maximum limit of the concurrency limiter, if any.
+     */
+    public synchronized void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        if (connectionPool != null) {
+            sizeConnectionPool();
+        }
+    }
+
     public HttpResponse execute(HttpUriRequest request) throws IOException {
-        if (localContext != null) {
-            return httpClient.execute(request, localContext);
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter == null) {
+            return executeObserved(request);
+        }
+        boolean retryable = isRetryable(request);
+        for (int attempt = 0; ; attempt++) {
+            long start;
+            try {
+                start = limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send " + request.getRequestLine());
+            }
+            HttpResponse response;
+            try {
+                response = executeObserved(request);
+            } catch (IOException e) {
+                boolean timeout = (e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException) &&
+                        !(e instanceof ConnectionPoolTimeoutException);
+                if (!timeout) {
+                    limiter.release();
+                    throw e;
+                }
+                limiter.onOverload(start);
+                if (!retryable || attempt >= limiter.getMaxRetries()) {
+                    throw e;
+                }
+                backoff(limiter, attempt, null);
+                continue;
+            } catch (RuntimeException e) {
+                limiter.release();
+                throw e;
+            }
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != SC_TOO_MANY_REQUESTS && statusCode != HttpStatus.SC_SERVICE_UNAVAILABLE) {
+                limiter.onResponse(start, getContentLength(request));
+                HttpEntity entity = response.getEntity();
+                if (entity == null) {
+                    limiter.release();
+                } else {
+                    // The request stays in flight while its response is streamed
+                    response.setEntity(new LimitedEntity(entity, limiter));
+                }
+                return response;
+            }
+            limiter.onOverload(start);
+            if (!retryable || attempt >= limiter.getMaxRetries()) {
+                return response;
+            }
+            Header retryAfter = response.getFirstHeader("Retry-After");
+            EntityUtils.consume(response.getEntity());
+            backoff(limiter, attempt, retryAfter != null ? retryAfter.getValue() : null);
+        }
+    }
+
+    private static long getContentLength(HttpUriRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity != null ? entity.getContentLength() : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * @return True if the request can be sent again: its method is idempotent and its content can be re-read
+     */
+    private boolean isRetryable(HttpUriRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method) && !"PUT".equals(method) && !"DELETE".equals(method)) {
+            return false;
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    private void backoff(AdaptiveConcurrencyLimiter limiter, int attempt, String retryAfter) throws IOException {
+        PublishMetrics metrics = publishMetrics;
+        if (metrics != null) {
+            metrics.retried();
+        }
+        try {
+            Thread.sleep(limiter.getBackoffMillis(attempt, retryAfter));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+    private synchronized void sizeConnectionPool() {
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+        int connections = limiter != null ? Math.max(limiter.getMaxLimit(), maxConnections) : maxConnections;
+        connectionPool.setMaxTotal(connections);
+        connectionPool.setDefaultMaxPerRoute(connections);
+    }
+
+    private HttpResponse executeObserved(HttpUriRequest request) throws IOException {
+        final HttpRequestListener listener = requestListener;
+        if (listener == null) {
+            if (localContext != null) {
+                return httpClient.execute(request, localContext);
+            } else {
+                return httpClient.execute(request);
+            }
+        }
+
+        final HttpRequestEvent event = new HttpRequestEvent(request.getMethod(), request.getURI());
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            event.setBytesSent(entity != null ? entity.getContentLength() : 0);
         } else {
-            return httpClient.execute(request);
+            event.setBytesSent(0);
+        }
+        HttpContext context = new BasicHttpContext(localContext);
+        context.setAttribute(REQUEST_EVENT, event);
+        listener.requestStarted(event);
+        HttpResponse response;
+        try {
+            response = httpClient.execute(request, context);
+        } catch (IOException e) {
+            failed(listener, event, e);
+            throw e;
+        } catch (RuntimeException e) {
+            failed(listener, event, e);
+            throw e;
+        }
+        event.responseReceived(response.getStatusLine().getStatusCode());
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            completed(listener, event);
+        } else {
+            response.setEntity(new ObservedEntity(entity, listener, event));
+        }
+        return response;
+    }
+
+    private static void completed(HttpRequestListener listener, HttpRequestEvent event) {
+        if (event.ended()) {
+            listener.requestCompleted(event);
+        }
+    }
+
+    private static void failed(HttpRequestListener listener, HttpRequestEvent event, Exception cause) {
+        if (event.ended()) {
+            listener.requestFailed(event, cause);
         }
     }
 
@@ -96,7 +337,9 @@ public class PreemptiveHttpClient {
         int timeoutMilliSeconds = timeout * 1000;
         HttpConnectionParams.setConnectionTimeout(params, timeoutMilliSeconds);
         HttpConnectionParams.setSoTimeout(params, timeoutMilliSeconds);
-        DefaultHttpClient client = new DefaultHttpClient(params);
+        // Fail instead of waiting forever for a connection held by an unconsumed response
+        HttpClientParams.setConnectionManagerTimeout(params, timeoutMilliSeconds);
+        DefaultHttpClient client = new ObservedHttpClient(params);
 
         if (userName != null && !"".equals(userName)) {
             client.getCredentialsProvider().setCredentials(
@@ -116,12 +359,38 @@ public class PreemptiveHttpClient {
         if(requestSentRetryEnabled){
             client.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(3,requestSentRetryEnabled));
         }
+        // Count the requests of the publish metrics, if any
+        final HttpRequestRetryHandler retryHandler = client.getHttpRequestRetryHandler();
+        client.setHttpRequestRetryHandler(new HttpRequestRetryHandler() {
+            public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+                boolean retry = retryHandler.retryRequest(exception, executionCount, context);
+                PublishMetrics metrics = publishMetrics;
+                if (retry && metrics != null) {
+                    metrics.retried();
+                }
+                return retry;
+            }
+        });
+        client.addRequestInterceptor(new HttpRequestInterceptor() {
+            public void process(HttpRequest request, HttpContext context) {
+                PublishMetrics metrics = publishMetrics;
+                if (metrics != null) {
+                    metrics.requestSent();
+                }
+            }
+        });
         // set the following user agent with each request
-        String userAgent = "ArtifactoryBuildClient/" + CLIENT_VERSION;
-        HttpProtocolParams.setUserAgent(client.getParams(), userAgent);
+        HttpProtocolParams.setUserAgent(client.getParams(), getUserAgent());
         return client;
     }
 
+    /**
+     * @return The user agent sent with each request
+     */
+    static String getUserAgent() {
+        return "ArtifactoryBuildClient/" + CLIENT_VERSION;
+    }
+
     public void shutdown() {
         httpClient.getConnectionManager().shutdown();
     }
@@ -130,6 +399,268 @@ public class PreemptiveHttpClient {
         httpClient.setParams(httpParams);
     }
 
+    /**
+     * Reports the first response bytes and the connection lease waits to the request listener, if any.
+     */
+    private class ObservedHttpClient extends DefaultHttpClient {
+
+        private ObservedHttpClient(HttpParams params) {
+            super(params);
+        }
+
+        @Override
+        protected HttpRequestExecutor createRequestExecutor() {
+            return new HttpRequestExecutor() {
+                @Override
+                protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn,
+                        HttpContext context) throws HttpException, IOException {
+                    HttpResponse response = super.doReceiveResponse(request, conn, context);
+                    HttpRequestListener listener = requestListener;
+                    HttpRequestEvent event = (HttpRequestEvent) context.getAttribute(REQUEST_EVENT);
+                    if (listener != null && event != null && event.firstByteReceived()) {
+                        listener.firstByteReceived(event);
+                    }
+                    return response;
+                }
+            };
+        }
+
+        @Override
+        protected ClientConnectionManager createClientConnectionManager() {
+            final ClientConnectionManager connectionManager;
+            synchronized (PreemptiveHttpClient.this) {
+                SchemeRegistry schemeRegistry = SchemeRegistryFactory.createDefault();
+                registerPlainScheme(schemeRegistry);
+                connectionPool = new PoolingClientConnectionManager(schemeRegistry) {
+                    @Override
+                    protected ClientConnectionOperator createConnectionOperator(SchemeRegistry registry) {
+                        return new DefaultClientConnectionOperator(registry) {
+                            @Override
+                            public OperatedClientConnection createConnection() {
+                                return new ZeroCopyClientConnection();
+                            }
+                        };
+                    }
+                };
+                sizeConnectionPool();
+                connectionManager = connectionPool;
+            }
+            return new ClientConnectionManager() {
+                public SchemeRegistry getSchemeRegistry() {
+                    return connectionManager.getSchemeRegistry();
+                }
+
+                public ClientConnectionRequest requestConnection(final HttpRoute route, Object state) {
+                    final ClientConnectionRequest connectionRequest =
+                            connectionManager.requestConnection(route, state);
+                    return new ClientConnectionRequest() {
+                        public ManagedClientConnection getConnection(long timeout, TimeUnit unit)
+                                throws InterruptedException, ConnectionPoolTimeoutException {
+                            HttpRequestListener listener = requestListener;
+                            if (listener == null) {
+                                return connectionRequest.getConnection(timeout, unit);
+                            }
+                            long start = System.nanoTime();
+                            ManagedClientConnection connection = connectionRequest.getConnection(timeout, unit);
+                            listener.connectionLeased(route.getTargetHost().getHostName(), System.nanoTime() - start);
+                            return connection;
+                        }
+
+                        public void abortRequest() {
+                            connectionRequest.abortRequest();
+                        }
+                    };
+                }
+
+                public void releaseConnection(ManagedClientConnection conn, long validDuration, TimeUnit timeUnit) {
+                    connectionManager.releaseConnection(conn, validDuration, timeUnit);
+                }
+
+                public void closeExpiredConnections() {
+                    connectionManager.closeExpiredConnections();
+                }
+
+                public void closeIdleConnections(long idletime, TimeUnit tunit) {
+                    connectionManager.closeIdleConnections(idletime, tunit);
+                }
+
+                public void shutdown() {
+                    connectionManager.shutdown();
+                }
+            };
+        }
+    }
+
+    /**
+     * Counts the response bytes and completes the request when the content was read, closed or consumed.
+     */
+    private static class ObservedEntity extends HttpEntityWrapper {
+        private final HttpRequestListener listener;
+        private final HttpRequestEvent event;
+
+        private ObservedEntity(HttpEntity entity, HttpRequestListener listener, HttpRequestEvent event) {
+            super(entity);
+            this.listener = listener;
+            this.event = event;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            InputStream content = super.getContent();
+            if (content == null) {
+                completed(listener, event);
+                return null;
+            }
+            return new FilterInputStream(content) {
+                @Override
+                public int read() throws IOException {
+                    int b = observe(super.read());
+                    if (b >= 0) {
+                        event.addBytesReceived(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = observe(super.read(b, off, len));
+                    if (read > 0) {
+                        event.addBytesReceived(read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        completed(listener, event);
+                    }
+                }
+
+                private int observe(int read) {
+                    if (read < 0) {
+                        completed(listener, event);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outstream) throws IOException {
+            InputStream content = getContent();
+            try {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    outstream.write(buffer, 0, read);
+                }
+            } finally {
+                content.close();
+            }
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void consumeContent() throws IOException {
+            try {
+                super.consumeContent();
+            } finally {
+                completed(listener, event);
+            }
+        }
+    }
+
+    /**
+     * Releases the request from the concurrency limiter once the content was read, closed or consumed.
+     */
+    private static class LimitedEntity extends HttpEntityWrapper {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private LimitedEntity(HttpEntity entity, AdaptiveConcurrencyLimiter limiter) {
+            super(entity);
+            this.limiter = limiter;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            InputStream content;
+            try {
+                content = super.getContent();
+            } catch (IOException e) {
+                release();
+                throw e;
+            }
+            if (content == null) {
+                release();
+                return null;
+            }
+            return new FilterInputStream(content) {
+                @Override
+                public int read() throws IOException {
+                    return observe(super.read());
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return observe(super.read(b, off, len));
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release();
+                    }
+                }
+
+                private int observe(int read) {
+                    if (read < 0) {
+                        release();
+                    }
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outstream) throws IOException {
+            InputStream content = getContent();
+            if (content == null) {
+                return;
+            }
+            try {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    outstream.write(buffer, 0, read);
+                }
+            } finally {
+                content.close();
+            }
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void consumeContent() throws IOException {
+            try {
+                super.consumeContent();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release();
+            }
+        }
+    }
+
     static class PreemptiveAuth implements HttpRequestInterceptor {
         public void process(final HttpRequest request, final HttpContext context) throws HttpException, IOException {
 
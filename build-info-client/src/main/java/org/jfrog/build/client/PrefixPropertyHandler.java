@@ -4,6 +4,7 @@ import org.apache.commons.lang.StringUtils;
 import org.jfrog.build.api.util.Log;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author freds
@@ -13,19 +14,24 @@ public class PrefixPropertyHandler {
     protected final Map<String, String> props;
     protected final Log log;
     private final String prefix;
+    /**
+     * Shared by all the handlers of the same properties map, incremented on every modification
+     */
+    private final AtomicInteger revision;
 
     public PrefixPropertyHandler(Log log, Map<String, String> props) {
-        this(log, props, "");
+        this(log, props, "", new AtomicInteger());
     }
 
     public PrefixPropertyHandler(PrefixPropertyHandler root, String prefix) {
-        this(root.log, root.props, prefix);
+        this(root.log, root.props, prefix, root.revision);
     }
 
-    private PrefixPropertyHandler(Log log, Map<String, String> props, String prefix) {
+    private PrefixPropertyHandler(Log log, Map<String, String> props, String prefix, AtomicInteger revision) {
         this.log = log;
         this.props = props;
         this.prefix = prefix;
+        this.revision = revision;
     }
 
     public Log getLog() {
@@ -36,6 +42,18 @@ public class PrefixPropertyHandler {
         return prefix;
     }
 
+    /**
+     * @return The modification count of the underlying properties. Changes whenever a value is set or removed through
+     *         any handler sharing the same properties.
+     */
+    public int getRevision() {
+        return revision.get();
+    }
+
+    protected void propertiesChanged() {
+        revision.incrementAndGet();
+    }
+
     public String getStringValue(String key) {
         return getStringValue(key, null);
     }
@@ -54,6 +72,7 @@ public class PrefixPropertyHandler {
         } else {
             props.put(prefix + key, value);
         }
+        propertiesChanged();
     }
 
     public Boolean getBooleanValue(String key, Boolean def) {
@@ -72,6 +91,7 @@ public class PrefixPropertyHandler {
         } else {
             props.put(prefix + key, value.toString());
         }
+        propertiesChanged();
     }
 
     public Integer getIntegerValue(String key) {
@@ -99,6 +119,7 @@ public class PrefixPropertyHandler {
         } else {
             props.put(prefix + key, value.toString());
         }
+        propertiesChanged();
     }
 
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Immutable snapshot of the proxy configuration.
+ * @see ArtifactoryClientConfiguration.ProxyHandler#getSettings()
+ */
+public class ProxySettings {
+    private final int revision;
+    private final String host;
+    private final Integer port;
+    private final String username;
+    private final String password;
+
+    ProxySettings(ArtifactoryClientConfiguration.ProxyHandler handler) {
+        this.revision = handler.getRevision();
+        this.host = handler.getHost();
+        this.port = handler.getPort();
+        this.username = handler.getUsername();
+        this.password = handler.getPassword();
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return True if both a proxy host and port are configured
+     */
+    public boolean isConfigured() {
+        return StringUtils.isNotBlank(host) && port != null;
+    }
+
+    public boolean hasCredentials() {
+        return StringUtils.isNotBlank(username);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public Integer getPort() {
+        return port;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jfrog.build.api.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the timing and throughput of a publish: the wall time of every phase, the bytes hashed and uploaded, the
+ * HTTP requests and retries and the latency percentiles of the uploads.
+ * <p/>
+ * A collector is created per publish, set on the {@link ArtifactoryBuildInfoClient} (which records the uploads, the
+ * requests and the build info PUT) and passed to the extractor code timing the other phases. It is thread safe.
+ */
+public class PublishMetrics {
+    /**
+     * Prefix of the build info properties holding the metrics
+     */
+    public static final String PROPERTY_PREFIX = "buildInfo.publish.";
+    public static final String REPORT_FILE_NAME = "build-info-publish-metrics.json";
+
+    public enum Phase {
+        CHECKSUMS("checksums"),
+        FILTERING("filtering"),
+        UPLOAD("upload"),
+        SERIALIZATION("serialization"),
+        BUILD_INFO("buildInfo");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final Map<Phase, AtomicLong> phaseNanos = new EnumMap<Phase, AtomicLong>(Phase.class);
+    private final AtomicLong bytesHashed = new AtomicLong();
+    private final AtomicLong bytesUploaded = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private long[] uploadLatencies = new long[64];
+    private int uploads;
+    private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    public PublishMetrics() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new AtomicLong());
+        }
+    }
+
+    /**
+     * @return The start time of a timed operation, to pass to {@link #phaseEnded} or {@link #uploaded}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Add the time elapsed since the start to the phase. Phases may be timed several times, or concurrently.
+     *
+     * @param phase      The timed phase
+     * @param startNanos The start time returned by {@link #start()}
+     */
+    public void phaseEnded(Phase phase, long startNanos) {
+        phaseNanos.get(phase).addAndGet(System.nanoTime() - startNanos);
+    }
+
+    public void hashed(long bytes) {
+        bytesHashed.addAndGet(bytes);
+    }
+
+    /**
+     * Record a completed upload and its latency.
+     *
+     * @param bytes      The uploaded bytes, 0 for a checksum deploy
+     * @param startNanos The start time of the upload returned by {@link #start()}
+     */
+    public void uploaded(long bytes, long startNanos) {
+        long latency = System.nanoTime() - startNanos;
+        bytesUploaded.addAndGet(bytes);
+        synchronized (this) {
+            if (uploads == uploadLatencies.length) {
+                uploadLatencies = Arrays.copyOf(uploadLatencies, uploads * 2);
+            }
+            uploadLatencies[uploads++] = latency;
+        }
+    }
+
+    public void requestSent() {
+        requests.incrementAndGet();
+    }
+
+    public void retried() {
+        retries.incrementAndGet();
+    }
+
+    /**
+     * Report the current limit and the overloads of the limiter bounding the requests.
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public long getPhaseMillis(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos.get(phase).get());
+    }
+
+    public long getBytesHashed() {
+        return bytesHashed.get();
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded.get();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public synchronized int getUploads() {
+        return uploads;
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100
+     * @return The upload latency of the percentile in milliseconds (nearest rank), 0 if nothing was uploaded
+     */
+    public synchronized long getUploadLatencyMillis(double percentile) {
+        if (uploads == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(uploadLatencies, uploads);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * uploads);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(rank, 1) - 1]);
+    }
+
+    /**
+     * @return The metrics by name, in a stable order
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> metrics = Maps.newLinkedHashMap();
+        metrics.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        for (Phase phase : Phase.values()) {
+            metrics.put(phase.getKey() + "Millis", getPhaseMillis(phase));
+        }
+        metrics.put("bytesHashed", getBytesHashed());
+        metrics.put("bytesUploaded", getBytesUploaded());
+        metrics.put("uploads", getUploads());
+        metrics.put("requests", getRequests());
+        metrics.put("retries", getRetries());
+        metrics.put("uploadLatencyP50Millis", getUploadLatencyMillis(50));
+        metrics.put("uploadLatencyP95Millis", getUploadLatencyMillis(95));
+        metrics.put("uploadLatencyP99Millis", getUploadLatencyMillis(99));
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null) {
+            metrics.put("concurrencyLimit", limiter.getLimit());
+            metrics.put("overloads", limiter.getOverloads());
+        }
+        return metrics;
+    }
+
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("Publish metrics:");
+        for (Phase phase : Phase.values()) {
+            summary.append(' ').append(phase.getKey()).append(' ').append(getPhaseMillis(phase)).append("ms,");
+        }
+        summary.append(" hashed ").append(FileUtils.byteCountToDisplaySize(getBytesHashed()))
+                .append(", uploaded ").append(FileUtils.byteCountToDisplaySize(getBytesUploaded()))
+                .append(" in ").append(getUploads()).append(" uploads, ")
+                .append(getRequests()).append(" requests, ").append(getRetries()).append(" retries")
+                .append(", upload latency p50/p95/p99 ").append(getUploadLatencyMillis(50)).append('/')
+                .append(getUploadLatencyMillis(95)).append('/').append(getUploadLatencyMillis(99)).append("ms");
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null) {
+            summary.append(", concurrency limit ").append(limiter.getLimit()).append(" after ")
+                    .append(limiter.getOverloads()).append(" overloads");
+        }
+        summary.append('.');
+        return summary.toString();
+    }
+
+    /**
+     * Add the metrics collected so far to the build info properties, prefixed with {@link #PROPERTY_PREFIX}.
+     */
+    public void addToBuild(Build build) {
+        Properties properties = build.getProperties();
+        if (properties == null) {
+            properties = new Properties();
+            build.setProperties(properties);
+        }
+        for (Map.Entry<String, Object> metric : toMap().entrySet()) {
+            properties.setProperty(PROPERTY_PREFIX + metric.getKey(), String.valueOf(metric.getValue()));
+        }
+    }
+
+    /**
+     * Write the metrics as a JSON report.
+     *
+     * @param reportFile The report file, usually {@link #reportFile(File)}
+     */
+    public void writeReport(File reportFile) throws IOException {
+        File parent = reportFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportFile, toMap());
+    }
+
+    /**
+     * @param buildInfoFile The exported build info file
+     * @return The report file next to the exported build info
+     */
+    public static File reportFile(File buildInfoFile) {
+        return new File(buildInfoFile.getAbsoluteFile().getParentFile(), REPORT_FILE_NAME);
+    }
+}
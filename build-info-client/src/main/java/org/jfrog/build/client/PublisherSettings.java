@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Immutable snapshot of the publisher configuration, to be used in per-artifact code paths instead of the string
+ * based {@link ArtifactoryClientConfiguration.PublisherHandler} getters.
+ * @see ArtifactoryClientConfiguration.PublisherHandler#getSettings()
+ */
+public class PublisherSettings extends RepositorySettings {
+    private final String snapshotRepoKey;
+    private final boolean publishArtifacts;
+    private final boolean publishBuildInfo;
+    private final boolean evenUnstable;
+    private final boolean recordAllDependencies;
+    private final boolean filterExcludedArtifactsFromBuild;
+    private final IncludeExcludePatterns includeExcludePatterns;
+    private final String aggregateArtifacts;
+    private final boolean copyAggregatedArtifacts;
+    private final boolean linkAggregatedArtifacts;
+    private final boolean publishAggregatedArtifacts;
+    private final boolean incremental;
+    private final String deployManifest;
+    private final boolean resetDeployManifest;
+    private final String deployJournal;
+    private final boolean resume;
+    private final boolean skipUnchangedModules;
+    private final String moduleFingerprints;
+    private final boolean metricsProperties;
+    private final Integer uploadBandwidth;
+    private final Integer agentUploadBandwidth;
+    private final String agentBandwidthDir;
+    private final boolean zeroCopyUpload;
+
+    PublisherSettings(ArtifactoryClientConfiguration.PublisherHandler handler) {
+        super(handler);
+        this.snapshotRepoKey = handler.getSnapshotRepoKey();
+        this.publishArtifacts = handler.isPublishArtifacts();
+        this.publishBuildInfo = handler.isPublishBuildInfo();
+        this.evenUnstable = handler.isEvenUnstable();
+        this.recordAllDependencies = handler.isRecordAllDependencies();
+        this.filterExcludedArtifactsFromBuild = handler.isFilterExcludedArtifactsFromBuild();
+        this.includeExcludePatterns = new IncludeExcludePatterns(handler.getIncludePatterns(),
+                handler.getExcludePatterns());
+        this.aggregateArtifacts = handler.getAggregateArtifacts();
+        this.copyAggregatedArtifacts = handler.isCopyAggregatedArtifacts();
+        this.linkAggregatedArtifacts = handler.isLinkAggregatedArtifacts();
+        this.publishAggregatedArtifacts = handler.isPublishAggregatedArtifacts();
+        this.incremental = handler.isIncremental();
+        this.deployManifest = handler.getDeployManifest();
+        this.resetDeployManifest = handler.isResetDeployManifest();
+        this.deployJournal = handler.getDeployJournal();
+        this.resume = handler.isResume();
+        this.skipUnchangedModules = handler.isSkipUnchangedModules();
+        this.moduleFingerprints = handler.getModuleFingerprints();
+        this.metricsProperties = handler.isMetricsProperties();
+        this.uploadBandwidth = handler.getUploadBandwidth();
+        this.agentUploadBandwidth = handler.getAgentUploadBandwidth();
+        this.agentBandwidthDir = handler.getAgentBandwidthDir();
+        this.zeroCopyUpload = handler.isZeroCopyUpload();
+    }
+
+    public String getSnapshotRepoKey() {
+        return snapshotRepoKey;
+    }
+
+    /**
+     * @param deployPath The deployment path of the artifact
+     * @return The snapshots repository if defined and the path is of a snapshot, otherwise the releases repository
+     */
+    public String getTargetRepository(String deployPath) {
+        if (snapshotRepoKey != null && deployPath.contains("-SNAPSHOT")) {
+            return snapshotRepoKey;
+        }
+        return getRepoKey();
+    }
+
+    public boolean isPublishArtifacts() {
+        return publishArtifacts;
+    }
+
+    public boolean isPublishBuildInfo() {
+        return publishBuildInfo;
+    }
+
+    public boolean isEvenUnstable() {
+        return evenUnstable;
+    }
+
+    public boolean isRecordAllDependencies() {
+        return recordAllDependencies;
+    }
+
+    public boolean isFilterExcludedArtifactsFromBuild() {
+        return filterExcludedArtifactsFromBuild;
+    }
+
+    public IncludeExcludePatterns getIncludeExcludePatterns() {
+        return includeExcludePatterns;
+    }
+
+    public String getAggregateArtifacts() {
+        return aggregateArtifacts;
+    }
+
+    public boolean isAggregateArtifacts() {
+        return StringUtils.isNotBlank(aggregateArtifacts);
+    }
+
+    public boolean isCopyAggregatedArtifacts() {
+        return copyAggregatedArtifacts;
+    }
+
+    public boolean isLinkAggregatedArtifacts() {
+        return linkAggregatedArtifacts;
+    }
+
+    public boolean isPublishAggregatedArtifacts() {
+        return publishAggregatedArtifacts;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public String getDeployManifest() {
+        return deployManifest;
+    }
+
+    public boolean isResetDeployManifest() {
+        return resetDeployManifest;
+    }
+
+    public String getDeployJournal() {
+        return deployJournal;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public boolean isSkipUnchangedModules() {
+        return skipUnchangedModules;
+    }
+
+    public String getModuleFingerprints() {
+        return moduleFingerprints;
+    }
+
+    public boolean isMetricsProperties() {
+        return metricsProperties;
+    }
+
+    public Integer getUploadBandwidth() {
+        return uploadBandwidth;
+    }
+
+    public Integer getAgentUploadBandwidth() {
+        return agentUploadBandwidth;
+    }
+
+    public String getAgentBandwidthDir() {
+        return agentBandwidthDir;
+    }
+
+    public boolean isZeroCopyUpload() {
+        return zeroCopyUpload;
+    }
+}
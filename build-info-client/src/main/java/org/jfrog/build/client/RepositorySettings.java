@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Map;
+
+/**
+ * Immutable, typed view of the repository related properties shared by the publisher and the resolver.
+ * All the values are parsed once when the snapshot is taken.
+ * @see ArtifactoryClientConfiguration.RepositoryConfiguration#getSettings()
+ */
+public abstract class RepositorySettings {
+    private final int revision;
+    private final String contextUrl;
+    private final ResolvedUrl url;
+    private final String repoKey;
+    private final String username;
+    private final String password;
+    private final String name;
+    private final boolean maven;
+    private final boolean ivy;
+    private final boolean m2Compatible;
+    private final String ivyPattern;
+    private final String ivyArtifactPattern;
+    private final ImmutableMap<String, String> matrixParams;
+    private final String urlWithMatrixParams;
+
+    protected RepositorySettings(ArtifactoryClientConfiguration.RepositoryConfiguration handler) {
+        this.revision = handler.getRevision();
+        this.contextUrl = safeContextUrl(handler);
+        this.repoKey = handler.getRepoKey();
+        this.url = ResolvedUrl.resolve(handler, repoKey);
+        this.username = handler.getUsername();
+        this.password = handler.getPassword();
+        this.name = handler.getName();
+        this.maven = handler.isMaven();
+        this.ivy = handler.isIvy();
+        this.m2Compatible = handler.isM2Compatible();
+        this.ivyPattern = handler.getIvyPattern();
+        this.ivyArtifactPattern = handler.getIvyArtifactPattern();
+        this.matrixParams = handler.getMatrixParams();
+        this.urlWithMatrixParams = url.isResolved() ? handler.urlWithMatrixParams(url.get()) : null;
+    }
+
+    /**
+     * The context url getters throw an exception when no context url is configured, which must not fail the snapshot
+     * creation. The exception is thrown lazily by {@link #getContextUrl()} instead.
+     */
+    private static String safeContextUrl(ArtifactoryClientConfiguration.RepositoryConfiguration handler) {
+        try {
+            String value = handler.getContextUrl();
+            return StringUtils.isBlank(value) ? null : value;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The revision of the configuration properties this snapshot was taken from
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    public String getContextUrl() {
+        if (contextUrl == null) {
+            throw new IllegalStateException("Context URL cannot be empty");
+        }
+        return contextUrl;
+    }
+
+    public boolean hasContextUrl() {
+        return contextUrl != null;
+    }
+
+    /**
+     * @throws IllegalStateException If the url is derived from a missing context url, like the live configuration
+     */
+    public String getUrl() {
+        return url.get();
+    }
+
+    public String getUrlWithMatrixParams() {
+        url.get();
+        return urlWithMatrixParams;
+    }
+
+    public String getRepoKey() {
+        return repoKey;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isMaven() {
+        return maven;
+    }
+
+    public boolean isIvy() {
+        return ivy;
+    }
+
+    public boolean isM2Compatible() {
+        return m2Compatible;
+    }
+
+    public String getIvyPattern() {
+        return ivyPattern;
+    }
+
+    public String getIvyArtifactPattern() {
+        return ivyArtifactPattern;
+    }
+
+    public Map<String, String> getMatrixParams() {
+        return matrixParams;
+    }
+
+    /**
+     * A repository url, resolved when the snapshot is taken. A failure to resolve it is reported when the url is read,
+     * since the missing context url only matters to the code using the url.
+     */
+    static final class ResolvedUrl {
+        private final String url;
+        private final String error;
+
+        private ResolvedUrl(String url, String error) {
+            this.url = url;
+            this.error = error;
+        }
+
+        static ResolvedUrl resolve(ArtifactoryClientConfiguration.RepositoryConfiguration handler, String repo) {
+            try {
+                return new ResolvedUrl(handler.getUrl(repo), null);
+            } catch (IllegalStateException e) {
+                return new ResolvedUrl(null, e.getMessage());
+            }
+        }
+
+        boolean isResolved() {
+            return error == null;
+        }
+
+        String get() {
+            if (error != null) {
+                throw new IllegalStateException(error);
+            }
+            return url;
+        }
+    }
+}
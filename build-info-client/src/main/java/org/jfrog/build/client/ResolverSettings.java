@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.client;
+
+/**
+ * Immutable snapshot of the resolver configuration.
+ * @see ArtifactoryClientConfiguration.ResolverHandler#getSettings()
+ */
+public class ResolverSettings extends RepositorySettings {
+    private final String downloadSnapshotRepoKey;
+    private final ResolvedUrl downloadSnapshotUrl;
+    private final String downloadUrl;
+    private final String downloadStore;
+    private final Integer downloadStoreSize;
+    private final String buildDependenciesCache;
+    private final Integer buildDependenciesCacheTtl;
+
+    ResolverSettings(ArtifactoryClientConfiguration.ResolverHandler handler) {
+        super(handler);
+        this.downloadSnapshotRepoKey = handler.getDownloadSnapshotRepoKey();
+        this.downloadSnapshotUrl = ResolvedUrl.resolve(handler, downloadSnapshotRepoKey);
+        this.downloadUrl = handler.getDownloadUrl();
+        this.downloadStore = handler.getDownloadStore();
+        this.downloadStoreSize = handler.getDownloadStoreSize();
+        this.buildDependenciesCache = handler.getBuildDependenciesCache();
+        this.buildDependenciesCacheTtl = handler.getBuildDependenciesCacheTtl();
+    }
+
+    public String getDownloadSnapshotRepoKey() {
+        return downloadSnapshotRepoKey;
+    }
+
+    /**
+     * @return The resolution url of the snapshots repository, or the explicit resolver url when configured
+     * @throws IllegalStateException If the url is derived from a missing context url, like the live configuration
+     */
+    public String getDownloadSnapshotUrl() {
+        return downloadSnapshotUrl.get();
+    }
+
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    public String getDownloadStore() {
+        return downloadStore;
+    }
+
+    public Integer getDownloadStoreSize() {
+        return downloadStoreSize;
+    }
+
+    public String getBuildDependenciesCache() {
+        return buildDependenciesCache;
+    }
+
+    public Integer getBuildDependenciesCacheTtl() {
+        return buildDependenciesCacheTtl;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jfrog.build.client;
+
+import java.io.IOException;
+
+/**
+ * Receives the results of a search one by one, as soon as they are parsed from the response.
+ */
+public interface SearchResultHandler<T> {
+
+    /**
+     * @param result The next result of the search
+     * @throws IOException To stop the search
+     */
+    void handle(T result) throws IOException;
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jfrog.build.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.impl.client.RequestWrapper;
+import org.apache.http.impl.conn.DefaultClientConnection;
+import org.apache.http.params.HttpParams;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection sending the {@link ZeroCopyFileEntity} entities straight to the socket channel, bypassing the
+ * output buffer of the connection. Only the sockets created by the {@link ChannelSocketFactory} have a channel.
+ */
+class ZeroCopyClientConnection extends DefaultClientConnection {
+
+    @Override
+    public void sendRequestEntity(HttpEntityEnclosingRequest request) throws HttpException, IOException {
+        HttpEntity entity = request.getEntity();
+        if (request instanceof RequestWrapper) {
+            // The client wraps the entity of the original request to track its consumption, a file is repeatable
+            HttpRequest original = ((RequestWrapper) request).getOriginal();
+            if (original instanceof HttpEntityEnclosingRequest) {
+                entity = ((HttpEntityEnclosingRequest) original).getEntity();
+            }
+        }
+        Socket socket = getSocket();
+        if (entity instanceof ZeroCopyFileEntity && !isSecure() && socket != null && socket.getChannel() != null
+                && !entity.isChunked() && entity.getContentLength() >= 0) {
+            assertOpen();
+            // The headers may still be in the output buffer
+            doFlush();
+            ((ZeroCopyFileEntity) entity).transferTo(socket.getChannel());
+            return;
+        }
+        super.sendRequestEntity(request);
+    }
+
+    /**
+     * Creates plain sockets backed by a channel, which the file entities can be transferred to.
+     */
+    static class ChannelSocketFactory extends PlainSocketFactory {
+
+        @Override
+        public Socket createSocket(HttpParams params) {
+            return createSocket();
+        }
+
+        @Override
+        public Socket createSocket() {
+            try {
+                return SocketChannel.open().socket();
+            } catch (IOException e) {
+                // Fall back to a socket without channel, sent through the output buffer
+                return new Socket();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jfrog.build.client;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.FileEntity;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * File entity sent with {@link FileChannel#transferTo} (sendfile) when the client writes it straight to a plain
+ * socket channel, see {@link PreemptiveHttpClient#setZeroCopyUpload(boolean)}. On TLS connections, or when the
+ * entity is wrapped (e.g. by the bandwidth limiter), the file is copied through pooled buffers instead of the small
+ * buffer allocated by {@link FileEntity} for every upload.
+ */
+public class ZeroCopyFileEntity extends FileEntity {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 16;
+    private static final Queue<byte[]> BUFFERS = new ConcurrentLinkedQueue<byte[]>();
+
+    private final long contentLength;
+
+    public ZeroCopyFileEntity(File file, String contentType) {
+        super(file, contentType);
+        contentLength = file.length();
+    }
+
+    /**
+     * @return The size of the file when the entity was created, sent as the Content-Length of the request
+     */
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Sends the whole file to the channel without copying it to the heap.
+     *
+     * @param target The channel of the connection
+     * @return The number of bytes sent
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            checkSize(channel.size());
+            long position = 0;
+            while (position < contentLength) {
+                long sent = channel.transferTo(position, contentLength - position, target);
+                if (sent <= 0) {
+                    // The file was truncated meanwhile
+                    checkSize(position);
+                }
+                position += sent;
+            }
+            return position;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Fails the upload of a file modified since the Content-Length was taken, instead of sending a content of another
+     * length or waiting forever for the missing bytes.
+     */
+    private void checkSize(long size) throws IOException {
+        if (size != contentLength) {
+            throw new IOException("The size of '" + file + "' changed from " + contentLength + " to " + size +
+                    " bytes during the upload");
+        }
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        if (outstream == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+        byte[] buffer = BUFFERS.poll();
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            checkSize(channel.size());
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long written = 0;
+            while (written < contentLength) {
+                byteBuffer.limit((int) Math.min(buffer.length, contentLength - written));
+                int read = channel.read(byteBuffer);
+                if (read < 0) {
+                    checkSize(written);
+                }
+                outstream.write(buffer, 0, read);
+                written += read;
+                byteBuffer.clear();
+            }
+            outstream.flush();
+        } finally {
+            IOUtils.closeQuietly(in);
+            if (BUFFERS.size() < MAX_POOLED_BUFFERS) {
+                BUFFERS.offer(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jfrog.build.api.dependency.BuildPatternArtifacts;
+import org.jfrog.build.api.dependency.BuildPatternArtifactsRequest;
+import org.jfrog.build.api.util.Log;
+import org.jfrog.build.client.ResolverSettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache of the outputs of the build dependencies, shared by the builds of an agent. Only the builds requested
+ * by an explicit number are cached, since LATEST and LAST_RELEASE resolve to another build over time, and only once
+ * they were found. The entries expire after their time to live, or when they are invalidated.
+ */
+public class BuildDependenciesCache {
+    private static final long DEFAULT_TTL_MINUTES = TimeUnit.DAYS.toMinutes(1);
+
+    private final File dir;
+    private final long ttlMillis;
+    private final Log log;
+
+    /**
+     * @param dir       The directory of the cache
+     * @param ttlMillis The time an output is cached
+     */
+    public BuildDependenciesCache(File dir, long ttlMillis, Log log) {
+        this.dir = dir;
+        this.ttlMillis = ttlMillis;
+        this.log = log;
+    }
+
+    /**
+     * @return The cache configured for the resolver, or null if it is disabled
+     */
+    public static BuildDependenciesCache forResolver(ResolverSettings resolver, Log log) {
+        String dirPath = resolver.getBuildDependenciesCache();
+        if (StringUtils.isBlank(dirPath)) {
+            return null;
+        }
+        Integer ttl = resolver.getBuildDependenciesCacheTtl();
+        long ttlMinutes = ttl != null ? ttl : DEFAULT_TTL_MINUTES;
+        if (ttlMinutes <= 0) {
+            return null;
+        }
+        return new BuildDependenciesCache(new File(dirPath), TimeUnit.MINUTES.toMillis(ttlMinutes), log);
+    }
+
+    /**
+     * @return True if the build number always designates the same build
+     */
+    public static boolean isImmutable(String buildNumber) {
+        return StringUtils.isNotBlank(buildNumber) && !buildNumber.startsWith("LATEST") &&
+                !buildNumber.startsWith("LAST_RELEASE") && !buildNumber.contains("*");
+    }
+
+    /**
+     * @return The cached outputs of the build, or null if they are not cached or expired
+     */
+    public BuildPatternArtifacts get(String artifactoryUrl, BuildPatternArtifactsRequest request) throws IOException {
+        if (!isImmutable(request.getBuildNumber())) {
+            return null;
+        }
+        File file = getFile(artifactoryUrl, request);
+        long lastModified = file.lastModified();
+        if (lastModified == 0) {
+            return null;
+        }
+        if (System.currentTimeMillis() - lastModified > ttlMillis) {
+            FileUtils.deleteQuietly(file);
+            return null;
+        }
+        try {
+            return new ObjectMapper().readValue(file, BuildPatternArtifacts.class);
+        } catch (IOException e) {
+            log.debug("Ignoring the unreadable cached build outputs " + file + ": " + e.getMessage());
+            FileUtils.deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the outputs of a build found by its number.
+     */
+    public void put(String artifactoryUrl, BuildPatternArtifactsRequest request, BuildPatternArtifacts artifacts)
+            throws IOException {
+        if (!isImmutable(request.getBuildNumber()) || artifacts == null || artifacts.getBuildNumber() == null) {
+            return;
+        }
+        File file = getFile(artifactoryUrl, request);
+        FileUtils.forceMkdir(dir);
+        // Written to a temporary file then renamed, not to expose a partial file to the other builds
+        File temp = new File(dir, ".tmp-" + UUID.randomUUID());
+        try {
+            FileUtils.writeStringToFile(temp, new JsonSerializer<BuildPatternArtifacts>().toJSON(artifacts),
+                    "UTF-8");
+            if (!temp.renameTo(file)) {
+                FileUtils.deleteQuietly(file);
+                temp.renameTo(file);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Removes the cached outputs of the build, e.g. once its artifacts were deleted.
+     */
+    public void invalidate(String artifactoryUrl, BuildPatternArtifactsRequest request) throws IOException {
+        FileUtils.deleteQuietly(getFile(artifactoryUrl, request));
+    }
+
+    private File getFile(String artifactoryUrl, BuildPatternArtifactsRequest request) throws IOException {
+        String key = artifactoryUrl + "\n" + new JsonSerializer<BuildPatternArtifactsRequest>().toJSON(request);
+        return new File(dir, DigestUtils.sha1Hex(key) + ".json");
+    }
+}
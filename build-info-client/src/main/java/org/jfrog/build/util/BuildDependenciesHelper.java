@@ -19,6 +19,9 @@ package org.jfrog.build.util;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.lang.StringUtils;
 import org.jfrog.build.api.builder.dependency.BuildDependencyBuilder;
 import org.jfrog.build.api.builder.dependency.BuildPatternArtifactsRequestBuilder;
@@ -31,12 +34,20 @@ import org.jfrog.build.api.dependency.PatternResult;
 import org.jfrog.build.api.dependency.pattern.BuildDependencyPattern;
 import org.jfrog.build.api.dependency.pattern.DependencyPattern;
 import org.jfrog.build.api.util.Log;
+import org.jfrog.build.client.ArtifactoryDependenciesClient;
+import org.jfrog.build.client.ResolverSettings;
+import org.jfrog.build.client.SearchResultHandler;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 
 
 /**
@@ -48,12 +59,33 @@ public class BuildDependenciesHelper {
 
     private DependenciesDownloader downloader;
     private Log log;
+    private BuildDependenciesCache cache;
 
     public BuildDependenciesHelper(DependenciesDownloader downloader, Log log) {
         this.downloader = downloader;
         this.log = log;
     }
 
+    /**
+     * Resolves the build dependencies with the cache of the build outputs configured for the resolver, if any.
+     *
+     * @param resolver The settings of the resolver of the client of the downloader
+     */
+    public BuildDependenciesHelper(DependenciesDownloader downloader, ResolverSettings resolver, Log log) {
+        this(downloader, log);
+        setCache(BuildDependenciesCache.forResolver(resolver, log));
+    }
+
+    /**
+     * Sets the cache of the build outputs. With a {@link StreamingDependenciesDownloader}, the cached outputs of a
+     * build are invalidated when one of their artifacts is not found anymore.
+     *
+     * @param cache Cache of the build outputs, or null to always request them from Artifactory
+     */
+    public void setCache(BuildDependenciesCache cache) {
+        this.cache = cache;
+    }
+
     public List<BuildDependency> retrieveBuildDependencies(String resolvePattern)
             throws IOException, InterruptedException {
         if (StringUtils.isBlank(resolvePattern)) {
@@ -70,11 +102,29 @@ public class BuildDependenciesHelper {
         log.info("Beginning to resolve Build Info build dependencies.");
         Map<String, Map<String, List<BuildDependencyPattern>>> buildDependencies = getBuildDependencies(patternLines);
         List<BuildPatternArtifactsRequest> artifactsRequests = toArtifactsRequests(buildDependencies);
-        List<BuildPatternArtifacts> artifactsResponses = downloader.getClient().retrievePatternArtifacts(
-                artifactsRequests);
         Set<BuildDependency> result = Sets.newHashSet();
-        downloader.download(
-                collectArtifactsToDownload(buildDependencies, artifactsRequests, artifactsResponses, result));
+        if (downloader instanceof StreamingDependenciesDownloader) {
+            // Download the artifacts of each build while the outputs of the next builds are still being received
+            DependenciesDownloaderHelper.Download download =
+                    ((StreamingDependenciesDownloader) downloader).startDownload();
+            try {
+                Map<DownloadableArtifact, BuildPatternArtifactsRequest> cachedArtifacts = Maps.newIdentityHashMap();
+                retrieveArtifactsToDownload(buildDependencies, artifactsRequests, result, download, cachedArtifacts);
+                download.finish();
+                invalidateNotFound(download.getNotFoundArtifacts(), cachedArtifacts);
+            } finally {
+                download.cancel();
+            }
+        } else {
+            final Set<DownloadableArtifact> downloadableArtifacts = Sets.newHashSet();
+            retrieveArtifactsToDownload(buildDependencies, artifactsRequests, result,
+                    new SearchResultHandler<DownloadableArtifact>() {
+                        public void handle(DownloadableArtifact result) {
+                            downloadableArtifacts.add(result);
+                        }
+                    }, Maps.<DownloadableArtifact, BuildPatternArtifactsRequest>newHashMap());
+            downloader.download(downloadableArtifacts);
+        }
         log.info("Finished resolving Build Info build dependencies.");
 
         return Lists.newArrayList(result);
@@ -126,88 +176,185 @@ public class BuildDependenciesHelper {
         return artifactsRequests;
     }
 
-    private Set<DownloadableArtifact> collectArtifactsToDownload(
+    /**
+     * Requests the outputs of each build separately and in parallel, and collects the artifacts of each build as soon
+     * as its outputs are received, so that the first downloads start before the slowest build is answered.
+     *
+     * @param cachedArtifacts Receives the artifacts of the outputs read from the cache, with their build request
+     */
+    private void retrieveArtifactsToDownload(
             Map<String, Map<String, List<BuildDependencyPattern>>> dependencyPatterns,
-            List<BuildPatternArtifactsRequest> artifactsRequests, List<BuildPatternArtifacts> artifactsResponses,
-            Set<BuildDependency> buildDependencies) {
-        Set<DownloadableArtifact> downloadableArtifacts = Sets.newHashSet();
-        verifySameSize(artifactsRequests, artifactsResponses);
-
-        for (int i = 0; i < artifactsRequests.size(); i++) {
-            BuildPatternArtifacts artifacts = artifactsResponses.get(i);
-            if (artifacts == null) {
-                // Pattern didn't match any results: wrong build name or build number.
-                continue;
+            List<BuildPatternArtifactsRequest> artifactsRequests, Set<BuildDependency> buildDependencies,
+            final SearchResultHandler<DownloadableArtifact> artifactsToDownload,
+            final Map<DownloadableArtifact, BuildPatternArtifactsRequest> cachedArtifacts) throws IOException {
+        ArtifactoryDependenciesClient client = downloader.getClient();
+        String artifactoryUrl = client.getArtifactoryUrl();
+        final BlockingQueue<BuildAnswer> answers = new LinkedBlockingQueue<BuildAnswer>();
+        List<ListenableFuture<BuildPatternArtifacts>> requested = Lists.newArrayList();
+        try {
+            for (BuildPatternArtifactsRequest artifactsRequest : artifactsRequests) {
+                BuildPatternArtifacts cached = cache != null ? cache.get(artifactoryUrl, artifactsRequest) : null;
+                if (cached != null) {
+                    log.debug(String.format("Using the cached outputs of build [%s], number [%s]",
+                            artifactsRequest.getBuildName(), artifactsRequest.getBuildNumber()));
+                    answers.add(new BuildAnswer(artifactsRequest, Futures.immediateFuture(cached), true));
+                    continue;
+                }
+                final BuildAnswer answer = new BuildAnswer(artifactsRequest,
+                        client.retrievePatternArtifactsAsync(artifactsRequest), false);
+                requested.add(answer.artifacts);
+                answer.artifacts.addListener(new Runnable() {
+                    public void run() {
+                        answers.add(answer);
+                    }
+                }, MoreExecutors.sameThreadExecutor());
             }
 
+            for (int i = 0; i < artifactsRequests.size(); i++) {
+                final BuildAnswer answer = answers.take();
+                BuildPatternArtifacts artifacts = answer.get();
+                if (cache != null && !answer.cached) {
+                    cache.put(artifactoryUrl, answer.request, artifacts);
+                }
+                SearchResultHandler<DownloadableArtifact> handler = artifactsToDownload;
+                if (answer.cached) {
+                    handler = new SearchResultHandler<DownloadableArtifact>() {
+                        public void handle(DownloadableArtifact result) throws IOException {
+                            cachedArtifacts.put(result, answer.request);
+                            artifactsToDownload.handle(result);
+                        }
+                    };
+                }
+                collectArtifactsToDownload(dependencyPatterns, answer.request, artifacts, buildDependencies, handler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while retrieving the build dependencies");
+        } finally {
+            // Does nothing for the builds already answered
+            for (ListenableFuture<BuildPatternArtifacts> artifacts : requested) {
+                artifacts.cancel(true);
+            }
+        }
+    }
 
-            List<BuildDependencyPattern> buildDependencyPatterns = dependencyPatterns.get(artifacts.getBuildName()).get(
-                    artifactsRequests.get(i).getBuildNumber());
-            for (int j = 0; j < buildDependencyPatterns.size(); j++) {
-                BuildDependencyPattern buildDependencyPattern = buildDependencyPatterns.get(j);
-                if (!buildDependencyPattern.getBuildName().equals(artifacts.getBuildName())) {
-                    throw new IllegalArgumentException(String.format("Build names don't match: [%s] != [%s]",
-                            buildDependencyPattern.getBuildName(), artifacts.getBuildName()));
+    /**
+     * Invalidates the cached outputs of the builds whose artifacts were not found, e.g. deleted since they were cached.
+     */
+    private void invalidateNotFound(Set<DownloadableArtifact> notFoundArtifacts,
+            Map<DownloadableArtifact, BuildPatternArtifactsRequest> cachedArtifacts) throws IOException {
+        Set<BuildPatternArtifactsRequest> invalidated = Sets.newHashSet();
+        for (DownloadableArtifact notFound : notFoundArtifacts) {
+            BuildPatternArtifactsRequest request = cachedArtifacts.get(notFound);
+            if (request != null && invalidated.add(request)) {
+                log.info(String.format("Invalidating the cached outputs of build [%s], number [%s]: [%s] was not found",
+                        request.getBuildName(), request.getBuildNumber(), notFound.getFilePath()));
+                cache.invalidate(downloader.getClient().getArtifactoryUrl(), request);
+            }
+        }
+    }
+
+    private void collectArtifactsToDownload(
+            Map<String, Map<String, List<BuildDependencyPattern>>> dependencyPatterns,
+            BuildPatternArtifactsRequest artifactsRequest, BuildPatternArtifacts artifacts,
+            Set<BuildDependency> buildDependencies, SearchResultHandler<DownloadableArtifact> artifactsToDownload)
+            throws IOException {
+        if (artifacts == null) {
+            // Pattern didn't match any results: wrong build name or build number.
+            return;
+        }
+
+        List<BuildDependencyPattern> buildDependencyPatterns = dependencyPatterns.get(artifacts.getBuildName()).get(
+                artifactsRequest.getBuildNumber());
+        // The patterns list is linked: iterated together with the pattern results rather than indexed
+        Iterator<PatternResult> patternResults =
+                artifacts.getBuildNumber() != null ? artifacts.getPatternResults().iterator() : null;
+        for (BuildDependencyPattern buildDependencyPattern : buildDependencyPatterns) {
+            if (!buildDependencyPattern.getBuildName().equals(artifacts.getBuildName())) {
+                throw new IllegalArgumentException(String.format("Build names don't match: [%s] != [%s]",
+                        buildDependencyPattern.getBuildName(), artifacts.getBuildName()));
+            }
+
+            final String message = String.format("Dependency on build [%s], number [%s]",
+                    buildDependencyPattern.getBuildName(), buildDependencyPattern.getBuildNumber());
+
+            /**
+             * Build number response is null for unresolved dependencies (wrong build name or build number).
+             */
+            if (artifacts.getBuildNumber() == null) {
+                log.info(
+                        message + " - no results found, check correctness of dependency build name and build number.");
+            } else {
+                if (!patternResults.hasNext()) {
+                    throw new IllegalArgumentException(String.format(
+                            "Received less pattern results than the [%s] requested for build [%s]",
+                            buildDependencyPatterns.size(), artifacts.getBuildName()));
                 }
+                PatternResult patternResult = patternResults.next();
+                List<PatternArtifact> patternArtifacts = patternResult.getPatternArtifacts();
+                log.info(message + String.format(", pattern [%s] - [%s] result%s found.",
+                        buildDependencyPattern.getPattern(), patternArtifacts.size(),
+                        (patternArtifacts.size() == 1 ? "" : "s")));
 
-                final String message = String.format("Dependency on build [%s], number [%s]",
-                        buildDependencyPattern.getBuildName(), buildDependencyPattern.getBuildNumber());
-
-                /**
-                 * Build number response is null for unresolved dependencies (wrong build name or build number).
-                 */
-                if (artifacts.getBuildNumber() == null) {
-                    log.info(
-                            message + " - no results found, check correctness of dependency build name and build number.");
-                } else {
-                    PatternResult patternResult = artifacts.getPatternResults().get(j);
-                    List<PatternArtifact> patternArtifacts = patternResult.getPatternArtifacts();
-                    log.info(message + String.format(", pattern [%s] - [%s] result%s found.",
-                            buildDependencyPattern.getPattern(), patternArtifacts.size(),
-                            (patternArtifacts.size() == 1 ? "" : "s")));
-
-                    for (PatternArtifact patternArtifact : patternArtifacts) {
-                        final String uri = patternArtifact.getUri(); // "libs-release-local/com/goldin/plugins/gradle/0.1.1/gradle-0.1.1.jar"
-                        final int indexOfFirstSlash = uri.indexOf('/');
-
-                        assert (indexOfFirstSlash > 0) : String.format("Failed to locate '/' in [%s]", uri);
-
-                        final String repoUrl = patternArtifact.getArtifactoryUrl() + '/' + uri.substring(0,
-                                indexOfFirstSlash);
-                        final String filePath = uri.substring(indexOfFirstSlash + 1);
-                        downloadableArtifacts.add(
-                                new DownloadableArtifact(repoUrl, buildDependencyPattern.getTargetDirectory(), filePath,
-                                        buildDependencyPattern.getMatrixParams(), buildDependencyPattern.getPattern(),
-                                        buildDependencyPattern.getPatternType()));
-                    }
+                for (PatternArtifact patternArtifact : patternArtifacts) {
+                    final String uri = patternArtifact.getUri(); // "libs-release-local/com/goldin/plugins/gradle/0.1.1/gradle-0.1.1.jar"
+                    final int indexOfFirstSlash = uri.indexOf('/');
 
-                    if (!patternArtifacts.isEmpty()) {
-                        BuildDependency buildDependency = new BuildDependencyBuilder()
-                                .name(artifacts.getBuildName())
-                                .number(artifacts.getBuildNumber())
-                                .url(artifacts.getUrl())
-                                .started(artifacts.getStarted())
-                                .build();
-                        buildDependencies.add(buildDependency);
-                    }
+                    assert (indexOfFirstSlash > 0) : String.format("Failed to locate '/' in [%s]", uri);
+
+                    final String repoUrl = patternArtifact.getArtifactoryUrl() + '/' + uri.substring(0,
+                            indexOfFirstSlash);
+                    final String filePath = uri.substring(indexOfFirstSlash + 1);
+                    artifactsToDownload.handle(
+                            new DownloadableArtifact(repoUrl, buildDependencyPattern.getTargetDirectory(), filePath,
+                                    buildDependencyPattern.getMatrixParams(), buildDependencyPattern.getPattern(),
+                                    buildDependencyPattern.getPatternType()));
+                }
+
+                if (!patternArtifacts.isEmpty()) {
+                    BuildDependency buildDependency = new BuildDependencyBuilder()
+                            .name(artifacts.getBuildName())
+                            .number(artifacts.getBuildNumber())
+                            .url(artifacts.getUrl())
+                            .started(artifacts.getStarted())
+                            .build();
+                    buildDependencies.add(buildDependency);
                 }
             }
         }
-
-        return downloadableArtifacts;
     }
 
     /**
-     * Verifies both lists are of the same size.
-     *
-     * @param l1 first list to check
-     * @param l2 second list to check
-     * @throws IllegalArgumentException if lists are of different sizes.
+     * The outputs of a build, as received from Artifactory or read from the cache.
      */
-    private void verifySameSize(List l1, List l2) {
-        if (l1.size() != l2.size()) {
-            throw new IllegalArgumentException(
-                    String.format("List sizes don't match: [%s] != [%s]", l1.size(), l2.size()));
+    private static class BuildAnswer {
+        private final BuildPatternArtifactsRequest request;
+        private final ListenableFuture<BuildPatternArtifacts> artifacts;
+        private final boolean cached;
+
+        private BuildAnswer(BuildPatternArtifactsRequest request, ListenableFuture<BuildPatternArtifacts> artifacts,
+                boolean cached) {
+            this.request = request;
+            this.artifacts = artifacts;
+            this.cached = cached;
+        }
+
+        private BuildPatternArtifacts get() throws IOException, InterruptedException {
+            try {
+                return artifacts.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw (IOException) new IOException(cause.getMessage()).initCause(cause);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package org.jfrog.build.util;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
@@ -9,14 +10,22 @@ import org.jfrog.build.api.Dependency;
 import org.jfrog.build.api.builder.DependencyBuilder;
 import org.jfrog.build.api.dependency.DownloadableArtifact;
 import org.jfrog.build.api.dependency.pattern.PatternType;
+import org.jfrog.build.api.util.FlightRecorderEvent;
 import org.jfrog.build.api.util.Log;
+import org.jfrog.build.client.SearchResultHandler;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class for downloading dependencies
@@ -24,20 +33,34 @@ import java.util.Set;
  * @author Shay Yaakov
  */
 public class DependenciesDownloaderHelper {
+    private static final FlightRecorderEvent DOWNLOAD_EVENT = FlightRecorderEvent.define(
+            "org.jfrog.build.DependencyDownload", "Dependency Download", "url", String.class, "file", String.class,
+            "bytes", long.class, "status", int.class);
 
     private DependenciesDownloader downloader;
     private Log log;
+    private DownloadStore downloadStore;
 
     public DependenciesDownloaderHelper(DependenciesDownloader downloader, Log log) {
         this.downloader = downloader;
         this.log = log;
     }
 
+    /**
+     * Share the downloaded files with the other builds of the agent. The target directories of the downloader must
+     * be on the local file system.
+     *
+     * @param downloadStore The store, or null to always download the files into the target directories
+     */
+    public void setDownloadStore(DownloadStore downloadStore) {
+        this.downloadStore = downloadStore;
+    }
+
     public List<Dependency> downloadDependencies(Set<DownloadableArtifact> downloadableArtifacts) throws IOException {
         List<Dependency> dependencies = Lists.newArrayList();
         Set<DownloadableArtifact> downloadedArtifacts = Sets.newHashSet();
         for (DownloadableArtifact downloadableArtifact : downloadableArtifacts) {
-            Dependency dependency = downloadArtifact(downloadableArtifact);
+            Dependency dependency = downloadArtifact(downloadableArtifact, Sets.<DownloadableArtifact>newHashSet());
             if (dependency != null) {
                 dependencies.add(dependency);
                 downloadedArtifacts.add(downloadableArtifact);
@@ -45,9 +68,119 @@ public class DependenciesDownloaderHelper {
         }
 
         removeUnusedArtifactsFromLocal(downloadedArtifacts);
+        collectDownloadStore();
         return dependencies;
     }
 
+    /**
+     * Starts a download to which artifacts can be added while they are being searched. The artifacts are downloaded
+     * one after the other on a background thread, in the order they were added.
+     * The caller must either {@link Download#finish()} or {@link Download#cancel()} the download.
+     */
+    public Download startDownload() {
+        return new Download();
+    }
+
+    public class Download implements SearchResultHandler<DownloadableArtifact> {
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "artifactory-dependencies-download");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // Only accessed by the download thread, and read once it has terminated
+        private final List<Dependency> dependencies = Lists.newArrayList();
+        private final Set<DownloadableArtifact> downloadedArtifacts = Sets.newHashSet();
+        private final Set<DownloadableArtifact> notFoundArtifacts = Sets.newHashSet();
+        private volatile Exception failure;
+
+        private Download() {
+        }
+
+        /**
+         * Queues the artifact for download.
+         *
+         * @throws IOException If a previous download failed
+         */
+        public void handle(final DownloadableArtifact downloadableArtifact) throws IOException {
+            checkFailure();
+            executor.execute(new Runnable() {
+                public void run() {
+                    if (failure != null) {
+                        return;
+                    }
+                    try {
+                        Dependency dependency = downloadArtifact(downloadableArtifact, notFoundArtifacts);
+                        if (dependency != null) {
+                            dependencies.add(dependency);
+                            downloadedArtifacts.add(downloadableArtifact);
+                        }
+                    } catch (Exception e) {
+                        failure = e;
+                    }
+                }
+            });
+        }
+
+        /**
+         * Waits for the queued downloads and removes the unused artifacts, like
+         * {@link DependenciesDownloaderHelper#downloadDependencies(java.util.Set)}.
+         *
+         * @return The downloaded dependencies
+         */
+        public List<Dependency> finish() throws IOException {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    checkFailure();
+                }
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while downloading dependencies");
+            }
+            checkFailure();
+            removeUnusedArtifactsFromLocal(downloadedArtifacts);
+            collectDownloadStore();
+            return dependencies;
+        }
+
+        /**
+         * @return The artifacts which Artifactory did not find, once the download is finished
+         */
+        public Set<DownloadableArtifact> getNotFoundArtifacts() {
+            return notFoundArtifacts;
+        }
+
+        /**
+         * Stops the download, the artifact being downloaded may be left incomplete.
+         */
+        public void cancel() {
+            executor.shutdownNow();
+        }
+
+        private void checkFailure() throws IOException {
+            Exception e = failure;
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            if (e != null) {
+                throw (RuntimeException) e;
+            }
+        }
+    }
+
+    private void collectDownloadStore() {
+        if (downloadStore != null) {
+            try {
+                downloadStore.collectGarbage();
+            } catch (IOException e) {
+                log.warn("Could not collect the download store: " + e.getMessage());
+            }
+        }
+    }
+
     private void removeUnusedArtifactsFromLocal(Set<DownloadableArtifact> downloadableArtifacts) throws IOException {
         Set<String> forDeletionFiles = Sets.newHashSet();
         Set<String> allResolvesFiles = Sets.newHashSet();
@@ -64,7 +197,11 @@ public class DependenciesDownloaderHelper {
     }
 
 
-    private Dependency downloadArtifact(DownloadableArtifact downloadableArtifact) throws IOException {
+    /**
+     * @param notFound Receives the artifact if Artifactory did not find it
+     */
+    private Dependency downloadArtifact(DownloadableArtifact downloadableArtifact,
+            Set<DownloadableArtifact> notFound) throws IOException {
         Dependency dependencyResult = null;
         String filePath = downloadableArtifact.getFilePath();
         String matrixParams = downloadableArtifact.getMatrixParameters();
@@ -77,7 +214,12 @@ public class DependenciesDownloaderHelper {
             dependencyResult = getDependencyLocally(uriWithParams, fileDestination);
             if (dependencyResult == null) {
                 log.info("Downloading '" + uriWithParams + "' ...");
+                Object event = DOWNLOAD_EVENT.begin();
                 HttpResponse httpResponse = downloader.getClient().downloadArtifact(uriWithParams);
+                if (downloadStore != null) {
+                    // The previous file may be linked to the store, it must not be overwritten in place
+                    FileUtils.deleteQuietly(new File(fileDestination));
+                }
                 InputStream inputStream = httpResponse.getEntity().getContent();
                 Map<String, String> checksumsMap = downloader.saveDownloadedFile(inputStream, fileDestination);
 
@@ -90,6 +232,13 @@ public class DependenciesDownloaderHelper {
                 String sha1 = validateSha1Checksum(httpResponse, checksumsMap.get("sha1"));
 
                 log.info("Successfully downloaded '" + uriWithParams + "' to '" + fileDestination + "'");
+                if (downloadStore != null) {
+                    downloadStore.add(sha1, new File(fileDestination));
+                }
+                if (event != null) {
+                    DOWNLOAD_EVENT.commit(event, uriWithParams, fileDestination, new File(fileDestination).length(),
+                            httpResponse.getStatusLine().getStatusCode());
+                }
                 dependencyResult = new DependencyBuilder().id(filePath).md5(md5).sha1(sha1).build();
             }
         } catch (FileNotFoundException e) {
@@ -99,6 +248,7 @@ public class DependenciesDownloaderHelper {
             } else {
                 String warningMessage = "Error occurred while resolving published dependency: " + e.getMessage();
                 log.warn(warningMessage);
+                notFound.add(downloadableArtifact);
             }
         }
 
@@ -120,6 +270,9 @@ public class DependenciesDownloaderHelper {
         if (downloader.isFileExistsLocally(filePath, md5, sha1)) {
             log.debug("File '" + filePath + "' already exists locally, skipping remote download.");
             dependencyResult = new DependencyBuilder().id(filePath).md5(md5).sha1(sha1).build();
+        } else if (downloadStore != null && downloadStore.linkTo(sha1, new File(filePath))) {
+            log.debug("File '" + filePath + "' linked from the download store, skipping remote download.");
+            dependencyResult = new DependencyBuilder().id(filePath).md5(md5).sha1(sha1).build();
         }
 
         return dependencyResult;
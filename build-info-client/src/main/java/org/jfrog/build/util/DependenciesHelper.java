@@ -1,18 +1,16 @@
 package org.jfrog.build.util;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
 import org.jfrog.build.api.Dependency;
 import org.jfrog.build.api.dependency.DownloadableArtifact;
-import org.jfrog.build.api.dependency.PatternResultFileSet;
+import org.jfrog.build.api.dependency.PatternArtifact;
 import org.jfrog.build.api.dependency.PropertySearchResult;
 import org.jfrog.build.api.dependency.pattern.BuildDependencyPattern;
 import org.jfrog.build.api.dependency.pattern.DependencyPattern;
 import org.jfrog.build.api.util.Log;
 import org.jfrog.build.client.PatternMatcher;
+import org.jfrog.build.client.SearchResultHandler;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -49,81 +47,90 @@ public class DependenciesHelper {
         }
 
         log.info("Beginning to resolve Build Info published dependencies.");
-        dependencies = downloader.download(collectArtifactsToDownload(patternLines));
+        if (downloader instanceof StreamingDependenciesDownloader) {
+            // Download the artifacts while the searches are still in progress
+            DependenciesDownloaderHelper.Download download =
+                    ((StreamingDependenciesDownloader) downloader).startDownload();
+            try {
+                collectArtifactsToDownload(patternLines, download);
+                dependencies = download.finish();
+            } finally {
+                download.cancel();
+            }
+        } else {
+            final Set<DownloadableArtifact> downloadableArtifacts = Sets.newHashSet();
+            collectArtifactsToDownload(patternLines, new SearchResultHandler<DownloadableArtifact>() {
+                public void handle(DownloadableArtifact result) {
+                    downloadableArtifacts.add(result);
+                }
+            });
+            dependencies = downloader.download(downloadableArtifacts);
+        }
         log.info("Finished resolving Build Info published dependencies.");
 
         return dependencies;
     }
 
-    private Set<DownloadableArtifact> collectArtifactsToDownload(List<String> patternLines)
-            throws IOException, InterruptedException {
-        Set<DownloadableArtifact> downloadableArtifacts = Sets.newHashSet();
+    private void collectArtifactsToDownload(List<String> patternLines,
+            SearchResultHandler<DownloadableArtifact> artifactsToDownload) throws IOException {
         for (String patternLine : patternLines) {
             DependencyPattern dependencyPattern = PatternFactory.create(patternLine);
             if (!(dependencyPattern instanceof BuildDependencyPattern)) {
-                downloadableArtifacts.addAll(handleDependencyPattern(dependencyPattern));
+                handleDependencyPattern(dependencyPattern, artifactsToDownload);
             }
         }
-
-        return downloadableArtifacts;
     }
 
-    private Set<DownloadableArtifact> handleDependencyPattern(DependencyPattern dependencyPattern) throws IOException {
+    private void handleDependencyPattern(DependencyPattern dependencyPattern,
+            SearchResultHandler<DownloadableArtifact> artifactsToDownload) throws IOException {
         String pattern = dependencyPattern.getPattern();
         log.info("Resolving published dependencies with pattern " + pattern);
         if (StringUtils.contains(pattern, "**")) {
             if (StringUtils.isNotBlank(dependencyPattern.getMatrixParams())) {
-                return performPropertySearch(dependencyPattern);
+                performPropertySearch(dependencyPattern, artifactsToDownload);
             } else {
                 throw new IllegalArgumentException(
                         "Wildcard '**' is not allowed without matrix params for pattern '" + pattern + "'");
             }
         } else {
-            return performPatternSearch(dependencyPattern);
-        }
-    }
-
-    private Set<DownloadableArtifact> performPropertySearch(DependencyPattern dependencyPattern) throws IOException {
-        Set<DownloadableArtifact> downloadableArtifacts = Sets.newHashSet();
-        String pattern = dependencyPattern.getPattern();
-        String matrixParams = dependencyPattern.getMatrixParams();
-        PropertySearchResult propertySearchResult = downloader.getClient().searchArtifactsByProperties(matrixParams);
-        List<PropertySearchResult.SearchEntry> filteredEntries = filterResultEntries(
-                propertySearchResult.getResults(), pattern);
-        log.info("Found " + filteredEntries.size() + " dependencies by doing a property search.");
-        for (PropertySearchResult.SearchEntry searchEntry : filteredEntries) {
-            downloadableArtifacts.add(
-                    new DownloadableArtifact(searchEntry.getRepoUri(), dependencyPattern.getTargetDirectory(),
-                            searchEntry.getFilePath(), matrixParams, pattern, dependencyPattern.getPatternType()));
+            performPatternSearch(dependencyPattern, artifactsToDownload);
         }
-
-        return downloadableArtifacts;
     }
 
-    private List<PropertySearchResult.SearchEntry> filterResultEntries(List<PropertySearchResult.SearchEntry> results,
-            String pattern) {
+    private void performPropertySearch(final DependencyPattern dependencyPattern,
+            final SearchResultHandler<DownloadableArtifact> artifactsToDownload) throws IOException {
+        final String pattern = dependencyPattern.getPattern();
+        final String matrixParams = dependencyPattern.getMatrixParams();
         final String patternStr = pattern.replaceFirst(":", "/");
-        return Lists.newArrayList(Iterables.filter(results, new Predicate<PropertySearchResult.SearchEntry>() {
-            @Override
-            public boolean apply(PropertySearchResult.SearchEntry input) {
-                return PatternMatcher.match(patternStr, input.getRepoPath(), false);
-            }
-        }));
+        final int[] found = new int[1];
+        downloader.getClient().searchArtifactsByProperties(matrixParams,
+                new SearchResultHandler<PropertySearchResult.SearchEntry>() {
+                    public void handle(PropertySearchResult.SearchEntry searchEntry) throws IOException {
+                        if (PatternMatcher.match(patternStr, searchEntry.getRepoPath(), false)) {
+                            found[0]++;
+                            artifactsToDownload.handle(new DownloadableArtifact(searchEntry.getRepoUri(),
+                                    dependencyPattern.getTargetDirectory(), searchEntry.getFilePath(), matrixParams,
+                                    pattern, dependencyPattern.getPatternType()));
+                        }
+                    }
+                });
+        log.info("Found " + found[0] + " dependencies by doing a property search.");
     }
 
-    private Set<DownloadableArtifact> performPatternSearch(DependencyPattern dependencyPattern) throws IOException {
-        Set<DownloadableArtifact> downloadableArtifacts = Sets.newHashSet();
-        String pattern = dependencyPattern.getPattern();
-        PatternResultFileSet fileSet = downloader.getClient().searchArtifactsByPattern(pattern);
-        Set<String> filesToDownload = fileSet.getFiles();
-        log.info("Found " + filesToDownload.size() + " dependencies by doing a pattern search.");
-        for (String fileToDownload : filesToDownload) {
-            downloadableArtifacts.add(
-                    new DownloadableArtifact(fileSet.getRepoUri(), dependencyPattern.getTargetDirectory(),
-                            fileToDownload, dependencyPattern.getMatrixParams(), pattern,
-                            dependencyPattern.getPatternType()));
-        }
-
-        return downloadableArtifacts;
+    private void performPatternSearch(final DependencyPattern dependencyPattern,
+            final SearchResultHandler<DownloadableArtifact> artifactsToDownload) throws IOException {
+        final String pattern = dependencyPattern.getPattern();
+        int found = downloader.getClient().searchArtifactsByPattern(pattern,
+                new SearchResultHandler<PatternArtifact>() {
+                    public void handle(PatternArtifact patternArtifact) throws IOException {
+                        String uri = patternArtifact.getUri();
+                        int indexOfFirstSlash = uri.indexOf('/');
+                        artifactsToDownload.handle(new DownloadableArtifact(
+                                patternArtifact.getArtifactoryUrl() + '/' + uri.substring(0, indexOfFirstSlash),
+                                dependencyPattern.getTargetDirectory(), uri.substring(indexOfFirstSlash + 1),
+                                dependencyPattern.getMatrixParams(), pattern, dependencyPattern.getPatternType()));
+                    }
+                });
+        log.info("Found " + found + " dependencies by doing a pattern search.");
     }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.Log;
+import org.jfrog.build.client.ResolverSettings;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of the downloaded dependencies, shared by the builds of an agent. The files are stored
+ * once by SHA-1 and hard linked into the target directories of the builds, or copied when the file system does not
+ * support hard links (or the JVM has no link API, before Java 7). A linked file shares its content with the store,
+ * so it must be replaced rather than overwritten in place.
+ * <p/>
+ * The files are added by linking them to a temporary name, then renaming them to their checksum, so that the
+ * processes populating the store concurrently never see a partial file. The least recently used files are deleted
+ * when the store exceeds its size, under a file lock taken by one process at a time; the builds keep their links.
+ * The uses are recorded by the modification time of a marker file next to the stored file, since touching the stored
+ * file would change the time of all the files of the builds linked to it.
+ */
+public class DownloadStore {
+    private static final Pattern SHA1 = Pattern.compile("[0-9a-f]{40}");
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final String GC_LOCK = ".gc.lock";
+    private static final String USED_SUFFIX = ".used";
+    private static final long MB = 1024 * 1024;
+
+    private final File dir;
+    private final long maxBytes;
+    private final Log log;
+
+    /**
+     * @param dir      The directory of the store, shared by the processes of the agent
+     * @param maxBytes The size above which the least recently used files are deleted
+     */
+    public DownloadStore(File dir, long maxBytes, Log log) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.log = log;
+    }
+
+    /**
+     * @return The store configured for the resolver, or null if it is disabled
+     */
+    public static DownloadStore forResolver(ResolverSettings resolver, Log log) {
+        String dirPath = resolver.getDownloadStore();
+        if (StringUtils.isBlank(dirPath)) {
+            return null;
+        }
+        Integer size = resolver.getDownloadStoreSize();
+        long maxBytes = (size != null && size > 0 ? size : 10 * 1024) * MB;
+        log.info("Sharing the downloaded dependencies through the store " + dirPath + " of " + maxBytes / MB + " MB");
+        return new DownloadStore(new File(dirPath), maxBytes, log);
+    }
+
+    /**
+     * Links the stored file of the checksum to the target, replacing the target.
+     *
+     * @return False if the store does not have the file
+     */
+    public boolean linkTo(String sha1, File target) throws IOException {
+        File stored = getStoredFile(sha1);
+        if (stored == null || !stored.isFile()) {
+            return false;
+        }
+        FileUtils.forceMkdir(target.getParentFile());
+        File temp = new File(target.getParentFile(), TEMP_PREFIX + UUID.randomUUID() + "-" + target.getName());
+        try {
+            if (!link(stored, temp)) {
+                // Collected since
+                return false;
+            }
+            markUsed(stored);
+            if (!temp.renameTo(target)) {
+                FileUtils.deleteQuietly(target);
+                if (!temp.renameTo(target)) {
+                    throw new IOException("Could not create " + target.getAbsolutePath());
+                }
+            }
+            return true;
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Adds the downloaded file to the store, if it does not have the checksum yet.
+     *
+     * @param sha1       The verified checksum of the file
+     * @param downloaded The file, unmodified since the download
+     */
+    public void add(String sha1, File downloaded) throws IOException {
+        File stored = getStoredFile(sha1);
+        if (stored == null || stored.isFile()) {
+            return;
+        }
+        FileUtils.forceMkdir(stored.getParentFile());
+        File temp = new File(stored.getParentFile(), TEMP_PREFIX + UUID.randomUUID());
+        try {
+            if (link(downloaded, temp) && !temp.renameTo(stored) && !stored.isFile()) {
+                log.warn("Could not add " + downloaded.getAbsolutePath() + " to the download store " + dir);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the store is within its size. Does nothing if another process is
+     * collecting the store.
+     */
+    public void collectGarbage() throws IOException {
+        if (!dir.isDirectory()) {
+            return;
+        }
+        RandomAccessFile lockFile = new RandomAccessFile(new File(dir, GC_LOCK), "rw");
+        try {
+            FileLock lock;
+            try {
+                lock = lockFile.getChannel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Collected by another thread of this process
+                return;
+            }
+            if (lock == null) {
+                return;
+            }
+            try {
+                deleteLeastRecentlyUsed();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            lockFile.close();
+        }
+    }
+
+    private void deleteLeastRecentlyUsed() {
+        File[] buckets = dir.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isDirectory();
+            }
+        });
+        if (buckets == null) {
+            return;
+        }
+        long size = 0;
+        List<File> files = Lists.newArrayList();
+        final Map<File, Long> lastUses = Maps.newHashMap();
+        for (File bucket : buckets) {
+            File[] bucketFiles = bucket.listFiles();
+            if (bucketFiles == null) {
+                continue;
+            }
+            for (File file : bucketFiles) {
+                if (SHA1.matcher(file.getName()).matches()) {
+                    size += file.length();
+                    files.add(file);
+                    lastUses.put(file, getLastUse(file));
+                } else if (file.getName().endsWith(USED_SUFFIX)) {
+                    File stored = new File(bucket, StringUtils.removeEnd(file.getName(), USED_SUFFIX));
+                    if (!stored.exists()) {
+                        // The stored file was collected by a process which died before deleting its marker
+                        FileUtils.deleteQuietly(file);
+                    }
+                } else if (file.getName().startsWith(TEMP_PREFIX) &&
+                        file.lastModified() < System.currentTimeMillis() - 60 * 60 * 1000) {
+                    // Left by a process which died while adding it
+                    FileUtils.deleteQuietly(file);
+                }
+            }
+        }
+        if (size <= maxBytes) {
+            return;
+        }
+
+        File[] lru = files.toArray(new File[files.size()]);
+        Arrays.sort(lru, new Comparator<File>() {
+            public int compare(File file1, File file2) {
+                long lastUse1 = lastUses.get(file1);
+                long lastUse2 = lastUses.get(file2);
+                return lastUse1 < lastUse2 ? -1 : (lastUse1 == lastUse2 ? 0 : 1);
+            }
+        });
+        // Collect down to 90% of the size, not to run for every download
+        long targetSize = maxBytes - maxBytes / 10;
+        for (int i = 0; i < lru.length && size > targetSize; i++) {
+            long length = lru[i].length();
+            if (lru[i].delete()) {
+                size -= length;
+                FileUtils.deleteQuietly(getUsedMarker(lru[i]));
+            }
+        }
+        log.debug("Collected the download store " + dir + " down to " + size / MB + " MB");
+    }
+
+    /**
+     * Records the use of the stored file for the LRU collection.
+     */
+    private void markUsed(File stored) {
+        try {
+            FileUtils.touch(getUsedMarker(stored));
+        } catch (IOException e) {
+            log.debug("Could not record the use of " + stored.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The time of the last link to the stored file, or of its download if it was never linked
+     */
+    private long getLastUse(File stored) {
+        File marker = getUsedMarker(stored);
+        return marker.isFile() ? marker.lastModified() : stored.lastModified();
+    }
+
+    private File getUsedMarker(File stored) {
+        return new File(stored.getParentFile(), stored.getName() + USED_SUFFIX);
+    }
+
+    private File getStoredFile(String sha1) {
+        String checksum = StringUtils.lowerCase(sha1);
+        if (checksum == null || !SHA1.matcher(checksum).matches()) {
+            return null;
+        }
+        return new File(new File(dir, checksum.substring(0, 2)), checksum);
+    }
+
+    /**
+     * Hard links the file, or copies it.
+     *
+     * @return False if the source does not exist
+     */
+    private boolean link(File source, File link) throws IOException {
+        if (FileLinks.createLink(source, link)) {
+            return true;
+        }
+        // Not supported across file systems or before Java 7, fall back to a copy
+        if (!source.isFile()) {
+            return false;
+        }
+        try {
+            FileUtils.copyFile(source, link);
+        } catch (IOException e) {
+            if (!source.isFile()) {
+                return false;
+            }
+            throw e;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+
+/**
+ * Hard links and copies of files. The link API of Java 7 is called reflectively, the libraries still run on Java 6.
+ */
+public abstract class FileLinks {
+    private static final Method TO_PATH;
+    private static final Method CREATE_LINK;
+    private static final Method IS_SAME_FILE;
+
+    static {
+        Method toPath = null;
+        Method createLink = null;
+        Method isSameFile = null;
+        try {
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Class<?> filesClass = Class.forName("java.nio.file.Files");
+            toPath = File.class.getMethod("toPath");
+            createLink = filesClass.getMethod("createLink", pathClass, pathClass);
+            isSameFile = filesClass.getMethod("isSameFile", pathClass, pathClass);
+        } catch (Exception e) {
+            // Links are not supported before Java 7, the files are copied
+        }
+        TO_PATH = toPath;
+        CREATE_LINK = createLink;
+        IS_SAME_FILE = isSameFile;
+    }
+
+    /**
+     * @return True if this JVM can create hard links, false on Java 6
+     */
+    public static boolean isSupported() {
+        return CREATE_LINK != null;
+    }
+
+    /**
+     * Hard links the file. A linked file shares its content with the source, so it must be replaced rather than
+     * overwritten in place.
+     *
+     * @return False if the link could not be created: on Java 6, across file systems, or if the link exists
+     */
+    public static boolean createLink(File source, File link) {
+        if (CREATE_LINK == null) {
+            return false;
+        }
+        try {
+            CREATE_LINK.invoke(null, TO_PATH.invoke(link), TO_PATH.invoke(source));
+            return true;
+        } catch (InvocationTargetException e) {
+            return false;
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return True if both files exist and are the same file, e.g. hard links of each other
+     */
+    public static boolean isSameFile(File file1, File file2) {
+        if (IS_SAME_FILE == null || !file1.exists() || !file2.exists()) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_SAME_FILE.invoke(null, TO_PATH.invoke(file1), TO_PATH.invoke(file2));
+        } catch (InvocationTargetException e) {
+            return false;
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies the file with {@link FileChannel#transferTo}, which lets the kernel copy the content without going
+     * through the heap, and keeps its last modified time.
+     */
+    public static void copy(File source, File target) throws IOException {
+        FileUtils.forceMkdir(target.getParentFile());
+        FileInputStream in = new FileInputStream(source);
+        try {
+            FileOutputStream out = new FileOutputStream(target);
+            try {
+                FileChannel inChannel = in.getChannel();
+                FileChannel outChannel = out.getChannel();
+                long size = inChannel.size();
+                long position = 0;
+                while (position < size) {
+                    long copied = inChannel.transferTo(position, size - position, outChannel);
+                    if (copied <= 0) {
+                        throw new IOException("'" + source + "' was truncated while being copied to '" + target +
+                                "'");
+                    }
+                    position += copied;
+                }
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        if (source.length() != target.length()) {
+            throw new IOException("Failed to copy the full content of '" + source + "' to '" + target + "'");
+        }
+        target.setLastModified(source.lastModified());
+    }
+}
@@ -21,6 +21,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.FlightRecorderEvent;
 
 import java.io.File;
 import java.io.IOException;
@@ -34,6 +35,9 @@ import java.util.regex.Pattern;
  * @author Noam Y. Tenne
  */
 public class PublishedItemsHelper {
+    private static final FlightRecorderEvent PATTERN_SCAN_EVENT = FlightRecorderEvent.define(
+            "org.jfrog.build.PatternScan", "Published Items Pattern Scan", "baseDir", String.class, "pattern",
+            String.class, "matches", int.class);
 
     /**
      * Splits a given property value to pairs of source and target strings (the splitter is '=>'
@@ -149,6 +153,8 @@ public class PublishedItemsHelper {
      */
     public static Multimap<String, File> buildPublishingData(File checkoutDir, String pattern, String targetPath)
             throws IOException {
+        Object event = PATTERN_SCAN_EVENT.begin();
+        String sourcePattern = pattern;
         final Multimap<String, File> filePathsMap = HashMultimap.create();
         File patternAbsolutePath = getAbsolutePath(checkoutDir, pattern);
         if (patternAbsolutePath.isFile()) {
@@ -198,6 +204,9 @@ public class PublishedItemsHelper {
             }
         }
 
+        if (event != null) {
+            PATTERN_SCAN_EVENT.commit(event, checkoutDir.getPath(), sourcePattern, filePathsMap.size());
+        }
         return filePathsMap;
     }
 
@@ -0,0 +1,16 @@
+package org.jfrog.build.util;
+
+import java.io.IOException;
+
+/**
+ * Downloader receiving the artifacts as soon as they are found, so that the searches and the downloads overlap.
+ * Downloaders which only implement {@link DependenciesDownloader} receive all the artifacts once the searches are
+ * complete.
+ */
+public interface StreamingDependenciesDownloader extends DependenciesDownloader {
+
+    /**
+     * Starts a download, usually {@code new DependenciesDownloaderHelper(this, log).startDownload()}.
+     */
+    DependenciesDownloaderHelper.Download startDownload() throws IOException;
+}
@@ -0,0 +1,156 @@
+package org.jfrog.build.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+@Test
+public class AdaptiveConcurrencyLimiterTest {
+
+    public void overloadHalvesTheLimitOncePerWindow() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 16, 3);
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+        assertEquals(limiter.getInFlight(), 2);
+        limiter.onOverload(first);
+        assertEquals(limiter.getLimit(), 4);
+        // Started before the decrease, does not shrink the limit again
+        limiter.onOverload(second);
+        assertEquals(limiter.getLimit(), 4);
+        assertEquals(limiter.getOverloads(), 2);
+        assertEquals(limiter.getInFlight(), 0);
+
+        limiter.onOverload(limiter.acquire());
+        limiter.onOverload(limiter.acquire());
+        limiter.onOverload(limiter.acquire());
+        assertEquals(limiter.getLimit(), 1);
+    }
+
+    public void successWhenSaturatedGrowsTheLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 3, 3);
+        limiter.onSuccess(limiter.acquire());
+        limiter.onSuccess(limiter.acquire());
+        assertEquals(limiter.getLimit(), 2);
+        // Not using the whole limit does not grow it
+        limiter.onSuccess(limiter.acquire());
+        assertEquals(limiter.getLimit(), 2);
+        for (int i = 0; i < 20; i++) {
+            long first = limiter.acquire();
+            long second = limiter.acquire();
+            limiter.onSuccess(second);
+            limiter.onSuccess(first);
+        }
+        assertEquals(limiter.getLimit(), 3);
+        assertEquals(limiter.getInFlight(), 0);
+    }
+
+    public void latencyOfLargeUploadsIsNotSampled() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 8, 3);
+        limiter.onSuccess(limiter.acquire());
+        long start = limiter.acquire();
+        Thread.sleep(50);
+        limiter.onResponse(start, AdaptiveConcurrencyLimiter.MAX_LATENCY_SAMPLE_BYTES + 1);
+        limiter.release();
+        assertEquals(limiter.getLimit(), 4, "A slow large upload should not shrink the limit");
+
+        start = limiter.acquire();
+        Thread.sleep(50);
+        limiter.onResponse(start, 0);
+        limiter.release();
+        assertEquals(limiter.getLimit(), 3, "A slow small request should shrink the limit");
+    }
+
+    public void jitteredExponentialBackoff() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4);
+        for (int i = 0; i < 50; i++) {
+            long first = limiter.getBackoffMillis(0, null);
+            assertTrue(first >= 100 && first <= 200, String.valueOf(first));
+            long third = limiter.getBackoffMillis(2, "not a number");
+            assertTrue(third >= 400 && third <= 800, String.valueOf(third));
+            assertTrue(limiter.getBackoffMillis(30, null) <= 10000);
+        }
+        assertEquals(limiter.getBackoffMillis(0, " 3 "), 3000);
+        assertEquals(limiter.getBackoffMillis(0, "3600"), 10000);
+    }
+
+    public void invalidLimits() {
+        try {
+            new AdaptiveConcurrencyLimiter(5, 4, 3);
+            fail("The initial limit is above the maximum");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void retriesIdempotentRequestsRejectedByTheServer() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (requests.incrementAndGet() % 2 == 1) {
+                    exchange.getResponseHeaders().add("Retry-After", "0");
+                    exchange.sendResponseHeaders(503, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, 2);
+                    exchange.getResponseBody().write("ok".getBytes("UTF-8"));
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        PreemptiveHttpClient client = new PreemptiveHttpClient(10);
+        try {
+            URI uri = new URI("http://localhost:" + server.getAddress().getPort() + "/repo/a.jar");
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4);
+            PublishMetrics metrics = new PublishMetrics();
+            client.setConcurrencyLimiter(limiter);
+            // Setting the metrics again does not count the requests twice
+            client.setPublishMetrics(metrics);
+            client.setPublishMetrics(metrics);
+
+            HttpResponse response = client.execute(new HttpGet(uri));
+            EntityUtils.consume(response.getEntity());
+            assertEquals(response.getStatusLine().getStatusCode(), 200);
+            assertEquals(requests.get(), 2);
+            assertEquals(limiter.getOverloads(), 1);
+            assertEquals(limiter.getLimit(), 2);
+            assertEquals(metrics.getRetries(), 1);
+            assertEquals(metrics.getRequests(), 2);
+            assertEquals(metrics.toMap().get("concurrencyLimit"), 2);
+
+            // The request stays in flight until its response is consumed
+            response = client.execute(new HttpGet(uri));
+            assertEquals(limiter.getInFlight(), 1);
+            EntityUtils.consume(response.getEntity());
+            assertEquals(limiter.getInFlight(), 0);
+
+            // Not idempotent, the rejection is returned to the caller
+            response = client.execute(new HttpPost(uri));
+            EntityUtils.consume(response.getEntity());
+            assertEquals(response.getStatusLine().getStatusCode(), 503);
+            assertEquals(requests.get(), 5);
+            assertEquals(limiter.getInFlight(), 0);
+
+            // Requests are no longer counted once the metrics are removed
+            long counted = metrics.getRequests();
+            client.setPublishMetrics(null);
+            EntityUtils.consume(client.execute(new HttpGet(uri)).getEntity());
+            assertEquals(metrics.getRequests(), counted);
+        } finally {
+            client.shutdown();
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.jfrog.build.client;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+@Test
+public class ArtifactSpecsTest {
+
+    private static final String[] NOTATIONS = {
+            "conf grp:art:ver:cls k1:v1",
+            "* grp:art:ver:cls k1:v2",
+            "* g?p:art:ver:cls k2:v1",
+            "* noGrp:art:ver:cls k2:v2",
+            "conf grp:*:*:cls k1:v3",
+            "* *:*:*er:cl* k3:v1",
+            "CONF GRP:*:*:* k1:v4",
+            "conf1 *:*:*er:cl* k3:v2",
+            "* *:*:*:*@j?? k4:v1",
+            "archives org.jfrog:*:*:*@* k5:v1",
+            "all org.jfrog:shared:?.?:* k5:v2",
+            "foo org.jfrog:*:?.?:* k5:v3"
+    };
+
+    public void propertiesMatchLinearScan() throws Exception {
+        ArtifactSpecs specs = new ArtifactSpecs();
+        for (String notation : NOTATIONS) {
+            specs.add(ArtifactSpec.newSpec(notation));
+        }
+        ArtifactSpec[] artifacts = {
+                ArtifactSpec.builder().configuration("conf").group("grp").name("art").version("ver").classifier("cls")
+                        .type("jar").build(),
+                ArtifactSpec.builder().configuration("Conf").group("gRp").name("art").version("ver").classifier("cls")
+                        .type("jar").build(),
+                ArtifactSpec.builder().configuration(null).group("org.jfrog").name("shared").version("1.0")
+                        .classifier(null).type("jar").build(),
+                ArtifactSpec.builder().configuration("archives").group("org.jfrog").name("shared").version("1.0")
+                        .build(),
+                ArtifactSpec.builder().configuration("conf1").group("other").name("art").version("ver")
+                        .classifier("cls").type("zip").build()
+        };
+        for (ArtifactSpec artifact : artifacts) {
+            assertEquals(specs.getProperties(artifact), linearScan(specs, artifact));
+            // Memoized lookup
+            assertSame(specs.getProperties(artifact), specs.getProperties(artifact));
+        }
+    }
+
+    public void indexInvalidatedOnModification() throws Exception {
+        ArtifactSpecs specs = new ArtifactSpecs("conf grp:art:ver:cls k1:v1");
+        ArtifactSpec artifact = ArtifactSpec.builder().configuration("conf").group("grp").name("art").version("ver")
+                .classifier("cls").build();
+        assertEquals(specs.getProperties(artifact).get("k1").size(), 1);
+
+        specs.add(ArtifactSpec.newSpec("* grp:*:*:* k1:v2"));
+        assertEquals(specs.getProperties(artifact).get("k1").size(), 2);
+
+        specs.set(0, ArtifactSpec.newSpec("conf grp:art:ver:cls k2:v1"));
+        assertEquals(specs.getProperties(artifact).get("k1").size(), 1);
+        assertTrue(specs.getProperties(artifact).containsKey("k2"));
+
+        specs.clear();
+        assertTrue(specs.getProperties(artifact).isEmpty());
+    }
+
+    private Multimap<String, CharSequence> linearScan(ArtifactSpecs specs, ArtifactSpec artifact) {
+        Multimap<String, CharSequence> props = ArrayListMultimap.create();
+        for (ArtifactSpec spec : specs) {
+            if (spec.matches(artifact)) {
+                for (Map.Entry<String, CharSequence> entry : spec.getProperties().entrySet()) {
+                    props.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return props;
+    }
+}
@@ -0,0 +1,76 @@
+package org.jfrog.build.client;
+
+import org.jfrog.build.api.util.NullLog;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+@Test
+public class ArtifactoryClientConfigurationTest {
+
+    public void settingsSnapshot() throws Exception {
+        ArtifactoryClientConfiguration conf = new ArtifactoryClientConfiguration(new NullLog());
+        conf.publisher.setContextUrl("http://localhost:8080/artifactory/");
+        conf.publisher.setRepoKey("libs-releases-local");
+        conf.publisher.setSnapshotRepoKey("libs-snapshots-local");
+        conf.publisher.addMatrixParam("key", "value");
+
+        PublisherSettings settings = conf.publisher.getSettings();
+        assertSame(conf.publisher.getSettings(), settings, "Unmodified configuration should reuse the snapshot.");
+        assertEquals(settings.getUrl(), "http://localhost:8080/artifactory/libs-releases-local");
+        assertEquals(settings.getTargetRepository("a/b/1.0-SNAPSHOT/b-1.0-SNAPSHOT.jar"), "libs-snapshots-local");
+        assertEquals(settings.getTargetRepository("a/b/1.0/b-1.0.jar"), "libs-releases-local");
+        assertTrue(settings.isPublishArtifacts());
+        assertEquals(settings.getMatrixParams().get("key"), "value");
+    }
+
+    public void settingsInvalidatedOnModification() throws Exception {
+        ArtifactoryClientConfiguration conf = new ArtifactoryClientConfiguration(new NullLog());
+        conf.publisher.setContextUrl("http://localhost:8080/artifactory");
+        PublisherSettings settings = conf.publisher.getSettings();
+        assertTrue(settings.isPublishArtifacts());
+
+        conf.publisher.setPublishArtifacts(false);
+        conf.publisher.addMatrixParam("key", "value");
+        PublisherSettings modified = conf.publisher.getSettings();
+        assertNotSame(modified, settings, "Modified configuration should create a new snapshot.");
+        assertFalse(modified.isPublishArtifacts());
+        assertEquals(modified.getMatrixParams().get("key"), "value");
+
+        // Modifications through any handler invalidate the snapshots, since they share the same properties
+        conf.info.setBuildName("build");
+        assertNotSame(conf.publisher.getSettings(), modified);
+    }
+
+    public void missingContextUrl() throws Exception {
+        ArtifactoryClientConfiguration conf = new ArtifactoryClientConfiguration(new NullLog());
+        conf.resolver.setRepoKey("repo");
+        ResolverSettings settings = conf.resolver.getSettings();
+        assertFalse(settings.hasContextUrl());
+        // Without a repository, no url is derived from the context url
+        assertNull(settings.getDownloadSnapshotUrl());
+        try {
+            settings.getContextUrl();
+            fail("Context URL should be required.");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+        try {
+            settings.getUrl();
+            fail("The repository url should require the context URL, like the live configuration.");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Context URL cannot be empty");
+        }
+    }
+
+    public void proxySettings() throws Exception {
+        ArtifactoryClientConfiguration conf = new ArtifactoryClientConfiguration(new NullLog());
+        assertFalse(conf.proxy.getSettings().isConfigured());
+        conf.proxy.setHost("proxy");
+        conf.proxy.setPort(8888);
+        ProxySettings settings = conf.proxy.getSettings();
+        assertTrue(settings.isConfigured());
+        assertFalse(settings.hasCredentials());
+        assertEquals(settings.getPort(), Integer.valueOf(8888));
+    }
+}
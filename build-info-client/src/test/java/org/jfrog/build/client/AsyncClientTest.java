@@ -0,0 +1,221 @@
+package org.jfrog.build.client;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.builder.BuildInfoBuilder;
+import org.jfrog.build.api.dependency.PatternResultFileSet;
+import org.jfrog.build.api.util.NullLog;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the asynchronous client API against a local stub of Artifactory.
+ */
+@Test
+public class AsyncClientTest {
+    private static final int REQUESTS = 200;
+
+    private final Set<String> uploads = Collections.synchronizedSet(Sets.<String>newHashSet());
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final AtomicInteger maxInProgress = new AtomicInteger();
+    private final AtomicInteger versionRequests = new AtomicInteger();
+    private volatile String serverVersion;
+    private File dir;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String url;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+        uploads.clear();
+        maxInProgress.set(0);
+        versionRequests.set(0);
+        serverVersion = "3.0.0";
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                int current = inProgress.incrementAndGet();
+                synchronized (maxInProgress) {
+                    maxInProgress.set(Math.max(maxInProgress.get(), current));
+                }
+                try {
+                    handleRequest(exchange);
+                } finally {
+                    inProgress.decrementAndGet();
+                    exchange.close();
+                }
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server.setExecutor(serverExecutor);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/artifactory";
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private void handleRequest(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        IOUtils.toByteArray(exchange.getRequestBody());
+        if (path.endsWith("/api/system/version")) {
+            versionRequests.incrementAndGet();
+            respond(exchange, 200, "{\"version\":\"" + serverVersion + "\",\"addons\":[]}");
+        } else if (path.endsWith("/api/build")) {
+            exchange.sendResponseHeaders(204, -1);
+        } else if (path.contains("/api/search/pattern")) {
+            respond(exchange, 200, "{\"repoUri\":\"" + url + "/libs\",\"sourcePattern\":\"libs:*.jar\"," +
+                    "\"files\":[\"a.jar\",\"b.jar\"]}");
+        } else if ("PUT".equals(method)) {
+            sleep();
+            uploads.add(path);
+            respond(exchange, 201, "{\"repo\":\"libs\",\"path\":\"" + path + "\"}");
+        } else if (path.contains("missing")) {
+            exchange.sendResponseHeaders(404, -1);
+        } else {
+            sleep();
+            respond(exchange, 200, "content of " + path);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @DataProvider
+    public Object[][] transports() {
+        return new Object[][]{{false}, {true}};
+    }
+
+    @Test(dataProvider = "transports")
+    public void concurrentDeployments(boolean nonBlocking) throws Exception {
+        ArtifactoryBuildInfoClient client = new ArtifactoryBuildInfoClient(url, "admin", "password", new NullLog());
+        client.setNonBlockingTransport(nonBlocking);
+        try {
+            List<ListenableFuture<ArtifactoryUploadResponse>> futures = Lists.newArrayList();
+            for (int i = 0; i < REQUESTS; i++) {
+                File file = new File(dir, "a-" + i + ".jar");
+                FileUtils.writeStringToFile(file, "content " + i);
+                DeployDetails details = new DeployDetails.Builder().file(file).targetRepository("libs")
+                        .artifactPath("org/a/" + i + "/a-" + i + ".jar").sha1("sha1-" + i).md5("md5-" + i).build();
+                futures.add(client.deployArtifactAsync(details));
+            }
+            for (int i = 0; i < REQUESTS; i++) {
+                ArtifactoryUploadResponse response = futures.get(i).get();
+                assertEquals(response.getStatusLine().getStatusCode(), 201);
+                assertEquals(response.getPath(), "/artifactory/libs/org/a/" + i + "/a-" + i + ".jar");
+            }
+            assertEquals(uploads.size(), REQUESTS);
+            assertTrue(maxInProgress.get() > 1, "The requests were not concurrent");
+            if (nonBlocking) {
+                assertTrue(maxInProgress.get() > ExecutorHttpTransport.DEFAULT_THREADS,
+                        "The requests in progress are bound to threads: " + maxInProgress.get());
+            }
+            assertEquals(versionRequests.get(), 1, "The version is requested once");
+
+            Build build = new BuildInfoBuilder("async").number("1").started("2014-01-01T00:00:00.000+0000").build();
+            client.sendBuildInfoAsync(build).get();
+            // The synchronous API wraps the asynchronous one
+            client.sendBuildInfo(build);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test(dataProvider = "transports")
+    public void checksumsDeployedToOldVersions(boolean nonBlocking) throws Exception {
+        serverVersion = "2.3.0";
+        ArtifactoryBuildInfoClient client = new ArtifactoryBuildInfoClient(url, "admin", "password", new NullLog());
+        client.setNonBlockingTransport(nonBlocking);
+        try {
+            File file = new File(dir, "a.jar");
+            FileUtils.writeStringToFile(file, "content");
+            // The missing checksums are calculated before their upload
+            DeployDetails details = new DeployDetails.Builder().file(file).targetRepository("libs")
+                    .artifactPath("org/a/a.jar").md5("md5").build();
+            client.deployArtifactAsync(details).get();
+            assertEquals(uploads, Sets.newHashSet("/artifactory/libs/org/a/a.jar", "/artifactory/libs/org/a/a.jar.sha1",
+                    "/artifactory/libs/org/a/a.jar.md5"));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test(dataProvider = "transports")
+    public void concurrentDownloads(boolean nonBlocking) throws Exception {
+        ArtifactoryDependenciesClient client = new ArtifactoryDependenciesClient(url, null, null, new NullLog());
+        client.setNonBlockingTransport(nonBlocking);
+        try {
+            PatternResultFileSet result = client.searchArtifactsByPatternAsync("libs:*.jar").get();
+            assertEquals(result.getFiles().size(), 2);
+
+            // Each response is read as soon as it completes to release its connection
+            List<ListenableFuture<String>> futures = Lists.newArrayList();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(AsyncFutures.map(client.downloadArtifactAsync(url + "/libs/a-" + i + ".jar"),
+                        new AsyncFutures.Transformation<HttpResponse, String>() {
+                            public String apply(HttpResponse response) throws IOException {
+                                return EntityUtils.toString(response.getEntity());
+                            }
+                        }));
+            }
+            for (int i = 0; i < REQUESTS; i++) {
+                assertEquals(futures.get(i).get(), "content of /artifactory/libs/a-" + i + ".jar");
+            }
+            assertTrue(maxInProgress.get() > 1, "The requests were not concurrent");
+
+            try {
+                client.downloadArtifact(url + "/libs/missing.jar");
+                fail("The artifact does not exist");
+            } catch (FileNotFoundException e) {
+                assertTrue(e.getMessage().contains("missing.jar"), e.getMessage());
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.jfrog.build.client;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+@Test
+public class BandwidthLimiterTest {
+    private File dir;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void smallContentsAreNotThrottled() {
+        BandwidthLimiter limiter = new BandwidthLimiter(1024, null, 1024);
+        HttpEntity small = new ByteArrayEntity(new byte[1023]);
+        assertSame(limiter.throttle(small), small);
+        assertNotSame(limiter.throttle(new ByteArrayEntity(new byte[1024])), small);
+    }
+
+    public void throttledWrite() throws Exception {
+        BandwidthLimiter limiter = new BandwidthLimiter(256 * 1024, null, 1024);
+        byte[] content = new byte[128 * 1024];
+        content[content.length - 1] = 7;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        limiter.throttle(new ByteArrayEntity(content)).writeTo(out);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(out.toByteArray(), content);
+        assertTrue(millis >= 400, "128KB at 256KB/s written in " + millis + "ms");
+    }
+
+    public void agentBandwidthIsSharedByTheUploaders() throws Exception {
+        AgentBandwidthShare first = new AgentBandwidthShare(dir, 1000);
+        AgentBandwidthShare second = new AgentBandwidthShare(dir, 1000);
+        assertEquals(first.getBytesPerSecond(), 1000);
+
+        first.uploadStarted();
+        second.uploadStarted();
+        second.uploadStarted();
+        assertEquals(first.countUploaders(), 2);
+        assertEquals(new AgentBandwidthShare(dir, 1000).getBytesPerSecond(), 500);
+
+        second.uploadEnded();
+        assertEquals(first.countUploaders(), 2);
+        second.uploadEnded();
+        assertEquals(first.countUploaders(), 1);
+        first.uploadEnded();
+        assertEquals(first.countUploaders(), 0);
+        assertEquals(dir.list().length, 0);
+    }
+
+    public void oneSharePerDirectory() throws Exception {
+        AgentBandwidthShare share = AgentBandwidthShare.forDirectory(dir, 1000);
+        share.uploadStarted();
+        try {
+            // A reconfigured publisher reuses the share, it does not count as another uploader
+            AgentBandwidthShare reconfigured = AgentBandwidthShare.forDirectory(new File(dir.getPath()), 2000);
+            assertSame(reconfigured, share);
+            assertEquals(reconfigured.countUploaders(), 1);
+            assertEquals(reconfigured.getBytesPerSecond(), 2000);
+        } finally {
+            share.uploadEnded();
+        }
+    }
+
+    public void filesOfDeadUploadersAreDeleted() throws Exception {
+        File stale = new File(dir, "dead.lock");
+        FileUtils.touch(stale);
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        File recent = new File(dir, "starting.lock");
+        FileUtils.touch(recent);
+
+        assertEquals(new AgentBandwidthShare(dir, 1000).countUploaders(), 0);
+        assertFalse(stale.exists());
+        assertTrue(recent.exists());
+    }
+
+    public void lowestRateApplies() {
+        AgentBandwidthShare share = new AgentBandwidthShare(dir, 1000);
+        assertEquals(new BandwidthLimiter(500, share, 1024).getBytesPerSecond(), 500);
+        assertEquals(new BandwidthLimiter(5000, share, 1024).getBytesPerSecond(), 1000);
+        assertEquals(new BandwidthLimiter(0, share, 1024).getBytesPerSecond(), 1000);
+        assertEquals(new BandwidthLimiter(0, null, 1024).getBytesPerSecond(), 0);
+    }
+}
@@ -0,0 +1,74 @@
+package org.jfrog.build.client;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.util.NullLog;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.testng.Assert.*;
+
+@Test
+public class DeployJournalTest {
+    private File dir;
+    private File journalFile;
+    private File artifact;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+        journalFile = new File(dir, "build/deploy-journal.txt");
+        artifact = new File(dir, "a.jar");
+        FileUtils.writeStringToFile(artifact, "content");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void resumeInterruptedPublish() throws Exception {
+        DeployDetails first = details("a.jar", "sha1");
+        DeployDetails second = details("b.jar", "sha1");
+        DeployJournal journal = DeployJournal.open(journalFile, false, new NullLog());
+        journal.planned(Lists.newArrayList(first, second));
+        journal.completed(first);
+        // Simulate a crash in the middle of a record
+        journal.close();
+        FileUtils.writeStringToFile(journalFile, FileUtils.readFileToString(journalFile) + "C\trepo\tb.j");
+
+        DeployJournal resumed = DeployJournal.open(journalFile, true, new NullLog());
+        assertTrue(resumed.isCompleted(details("a.jar", "sha1")));
+        assertFalse(resumed.isCompleted(details("a.jar", "modified")), "Modified artifacts should be deployed.");
+        assertFalse(resumed.isCompleted(second));
+        resumed.completed(second);
+        resumed.close();
+
+        // Interrupted again, the uploads of both attempts are kept
+        DeployJournal again = DeployJournal.open(journalFile, true, new NullLog());
+        assertTrue(again.isCompleted(first));
+        assertTrue(again.isCompleted(second));
+        again.finished();
+        assertFalse(journalFile.exists());
+    }
+
+    public void newPublishIgnoresJournal() throws Exception {
+        DeployJournal journal = DeployJournal.open(journalFile, false, new NullLog());
+        journal.completed(details("a.jar", "sha1"));
+        journal.close();
+
+        DeployJournal next = DeployJournal.open(journalFile, false, new NullLog());
+        assertFalse(next.isCompleted(details("a.jar", "sha1")));
+        next.close();
+        assertEquals(FileUtils.readFileToString(journalFile), "", "A new publish should start a new journal.");
+    }
+
+    private DeployDetails details(String path, String sha1) {
+        return new DeployDetails.Builder().file(artifact).targetRepository("repo").artifactPath(path).sha1(sha1)
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package org.jfrog.build.client;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.util.NullLog;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.testng.Assert.*;
+
+@Test
+public class DeployManifestTest {
+    private static final String URL = "http://localhost:8080/artifactory";
+
+    private File dir;
+    private File manifestFile;
+    private File artifact;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+        manifestFile = new File(dir, "build/deploy-manifest.txt");
+        artifact = new File(dir, "a.jar");
+        FileUtils.writeStringToFile(artifact, "content");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void unchangedArtifactIsUpToDate() throws Exception {
+        DeployManifest manifest = DeployManifest.load(manifestFile, URL, false, new NullLog());
+        DeployDetails details = details("sha1", "key", "value");
+        assertEquals(manifest.getStatus(details), DeployManifest.Status.CHANGED);
+        manifest.deployed(details);
+        manifest.save();
+
+        DeployManifest reloaded = DeployManifest.load(manifestFile, URL + "/", false, new NullLog());
+        assertEquals(reloaded.getStatus(details("sha1", "key", "value")), DeployManifest.Status.UP_TO_DATE);
+        assertEquals(reloaded.getStatus(details("sha1", "key", "other")), DeployManifest.Status.CONTENT_UP_TO_DATE);
+        assertEquals(reloaded.getStatus(details("sha2", "key", "value")), DeployManifest.Status.CHANGED);
+
+        reloaded.skipped(details);
+        assertEquals(reloaded.getRequestsSaved(), 1);
+        assertEquals(reloaded.getBytesSaved(), artifact.length());
+    }
+
+    public void propertiesOrderIsIgnored() throws Exception {
+        DeployDetails first = new DeployDetails.Builder().file(artifact).targetRepository("repo").artifactPath("a.jar")
+                .sha1("sha1").addProperty("a", "1").addProperty("b", "2").build();
+        DeployDetails second = new DeployDetails.Builder().file(artifact).targetRepository("repo")
+                .artifactPath("/a.jar").sha1("sha1").addProperty("b", "2").addProperty("a", "1").build();
+        DeployManifest manifest = DeployManifest.load(manifestFile, URL, false, new NullLog());
+        manifest.deployed(first);
+        assertEquals(manifest.getStatus(second), DeployManifest.Status.UP_TO_DATE);
+    }
+
+    public void invalidation() throws Exception {
+        DeployManifest manifest = DeployManifest.load(manifestFile, URL, false, new NullLog());
+        manifest.deployed(details("sha1", "key", "value"));
+        manifest.save();
+
+        DeployManifest otherServer = DeployManifest.load(manifestFile, "http://other/artifactory", false,
+                new NullLog());
+        assertEquals(otherServer.getStatus(details("sha1", "key", "value")), DeployManifest.Status.CHANGED);
+
+        DeployManifest reset = DeployManifest.load(manifestFile, URL, true, new NullLog());
+        assertEquals(reset.getStatus(details("sha1", "key", "value")), DeployManifest.Status.CHANGED);
+        assertFalse(manifestFile.exists());
+    }
+
+    public void corruptedManifestIsIgnored() throws Exception {
+        FileUtils.writeStringToFile(manifestFile, "garbage");
+        DeployManifest manifest = DeployManifest.load(manifestFile, URL, false, new NullLog());
+        assertEquals(manifest.getStatus(details("sha1", "key", "value")), DeployManifest.Status.CHANGED);
+    }
+
+    private DeployDetails details(String sha1, String key, String value) {
+        return new DeployDetails.Builder().file(artifact).targetRepository("repo").artifactPath("org/a/1.0/a.jar")
+                .sha1(sha1).addProperty(key, value).build();
+    }
+}
@@ -0,0 +1,94 @@
+package org.jfrog.build.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import static org.testng.Assert.*;
+
+@Test
+public class HttpRequestHistogramTest {
+
+    public void urlTemplates() {
+        assertEquals(HttpRequestEvent.urlTemplate("GET", "/artifactory/api/system/version"), "version");
+        assertEquals(HttpRequestEvent.urlTemplate("PUT", "/artifactory/api/build"), "build");
+        assertEquals(HttpRequestEvent.urlTemplate("GET", "/artifactory/api/search/gavc"), "search");
+        assertEquals(HttpRequestEvent.urlTemplate("PUT", "/artifactory/libs-release-local/a/b/1/b-1.jar"), "deploy");
+        assertEquals(HttpRequestEvent.urlTemplate("HEAD", "/artifactory/repo/a/b/1/b-1.jar"), "download");
+        assertEquals(HttpRequestEvent.urlTemplate("DELETE", "/artifactory/repo/a"), "delete");
+    }
+
+    public void percentiles() {
+        HttpRequestHistogram.Histogram histogram = new HttpRequestHistogram.Histogram();
+        assertEquals(histogram.getPercentileMillis(50), 0);
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3000000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(100000000L);
+        }
+        histogram.record(-1);
+        assertEquals(histogram.getCount(), 100);
+        assertEquals(histogram.getPercentileMillis(50), 4);
+        assertEquals(histogram.getPercentileMillis(90), 4);
+        assertEquals(histogram.getPercentileMillis(99), 128);
+    }
+
+    public void instrumentedRequests() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                IOUtils.toByteArray(exchange.getRequestBody());
+                byte[] body = "hello".getBytes("UTF-8");
+                if ("PUT".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(201, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        PreemptiveHttpClient client = new PreemptiveHttpClient(10);
+        try {
+            URI base = new URI("http://localhost:" + server.getAddress().getPort());
+            HttpRequestHistogram histogram = new HttpRequestHistogram();
+            client.setRequestListener(histogram);
+
+            HttpResponse response = client.execute(new HttpGet(base.resolve("/repo/a/b/1/b-1.jar")));
+            assertEquals(EntityUtils.toString(response.getEntity()), "hello");
+            HttpPut put = new HttpPut(base.resolve("/repo/a/b/1/b-1.pom"));
+            put.setEntity(new StringEntity("pom"));
+            EntityUtils.consume(client.execute(put).getEntity());
+
+            assertEquals(histogram.getUrlTemplates().size(), 2);
+            assertEquals(histogram.getCount("download"), 1);
+            assertEquals(histogram.getCount("deploy"), 1);
+            assertEquals(histogram.getFailures("download"), 0);
+            assertEquals(histogram.getLeaseCount(), 2);
+            assertTrue(histogram.getSummary().contains("download: 1 requests"), histogram.getSummary());
+
+            client.setRequestListener(null);
+            EntityUtils.consume(client.execute(new HttpGet(base.resolve("/repo/c"))).getEntity());
+            assertEquals(histogram.getCount("download"), 1);
+        } finally {
+            client.shutdown();
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.jfrog.build.client;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.BuildInfoFields;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.builder.DependencyBuilder;
+import org.jfrog.build.api.util.NullLog;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+@Test
+public class ModuleFingerprintsTest {
+    private static final String URL = "http://localhost:8080/artifactory";
+    private static final String MODULE = "org:a:1";
+
+    private File dir;
+    private File fingerprintsFile;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+        fingerprintsFile = new File(dir, "build/module-fingerprints.txt");
+        FileUtils.writeStringToFile(new File(dir, "a.jar"), "content");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void fingerprintIgnoresOrder() {
+        List<DeployDetails> deployables = Lists.newArrayList(deployable("a.jar", "1", "1.0"),
+                deployable("a.pom", "2", "1.0"));
+        List<DeployDetails> reordered = Lists.newArrayList(deployable("a.pom", "2", "1.0"),
+                deployable("a.jar", "1", "1.0"));
+        List<Dependency> dependencies = Lists.newArrayList(dependency("org:b:1", "3"), dependency("org:c:1", "4"));
+        List<Dependency> reorderedDependencies = Lists.newArrayList(dependency("org:c:1", "4"),
+                dependency("org:b:1", "3"));
+        assertEquals(ModuleFingerprints.fingerprint(MODULE, reordered, reorderedDependencies),
+                ModuleFingerprints.fingerprint(MODULE, deployables, dependencies));
+    }
+
+    public void fingerprintChangesWithContent() {
+        String fingerprint = fingerprint(deployable("a.jar", "1", "1.0"));
+        assertFalse(fingerprint.equals(fingerprint(deployable("a.jar", "2", "1.0"))), "Checksum changed");
+        assertFalse(fingerprint.equals(fingerprint(deployable("b.jar", "1", "1.0"))), "Path changed");
+        assertFalse(fingerprint.equals(fingerprint(deployable("a.jar", "1", "2.0"))), "Property changed");
+        assertNull(fingerprint(deployable("a.jar", null, "1.0")), "Artifact without a checksum");
+    }
+
+    public void fingerprintChangesWithDependencies() {
+        List<DeployDetails> deployables = Lists.newArrayList(deployable("a.jar", "1", "1.0"));
+        String fingerprint = ModuleFingerprints.fingerprint(MODULE, deployables,
+                Lists.newArrayList(dependency("org:b:1", "3")));
+        assertFalse(fingerprint.equals(ModuleFingerprints.fingerprint(MODULE, deployables,
+                Lists.newArrayList(dependency("org:b:1", "4")))), "Dependency checksum changed");
+        assertFalse(fingerprint.equals(ModuleFingerprints.fingerprint(MODULE, deployables,
+                Lists.newArrayList(dependency("org:b:2", "3")))), "Dependency id changed");
+        assertFalse(fingerprint.equals(ModuleFingerprints.fingerprint(MODULE, deployables, null)),
+                "Dependency removed");
+    }
+
+    public void fingerprintIgnoresBuildProperties() {
+        DeployDetails deployable = new DeployDetails.Builder().file(new File(dir, "a.jar")).targetRepository("repo")
+                .artifactPath("org/a/1/a.jar").sha1("1").addProperty(BuildInfoFields.BUILD_NAME, "build")
+                .addProperty(BuildInfoFields.BUILD_NUMBER, "2").addProperty(BuildInfoFields.BUILD_TIMESTAMP, "2")
+                .addProperty("custom", "1.0").build();
+        assertEquals(fingerprint(deployable), fingerprint(deployable("a.jar", "1", "1.0")));
+    }
+
+    public void unchangedModuleIsSkippedAfterSave() throws Exception {
+        ModuleFingerprints fingerprints = ModuleFingerprints.load(fingerprintsFile, URL, new NullLog());
+        assertFalse(fingerprints.isUnchanged(MODULE, deployables("repo"), null));
+        fingerprints.save();
+
+        ModuleFingerprints reloaded = ModuleFingerprints.load(fingerprintsFile, URL + "/", new NullLog());
+        assertTrue(reloaded.isUnchanged(MODULE, deployables("repo"), null));
+        assertFalse(reloaded.isUnchanged(MODULE, deployables("other-repo"), null), "Other target repository");
+        assertFalse(reloaded.isUnchanged(MODULE, Lists.newArrayList(deployable("a.jar", "2", "1.0")), null));
+        assertFalse(reloaded.isUnchanged(MODULE, deployables("repo"), Lists.newArrayList(dependency("org:b:1", "3"))),
+                "Dependency added");
+        assertEquals(reloaded.getSkippedModules(), 1);
+    }
+
+    public void fingerprintsAreNotRecordedWithoutSave() throws Exception {
+        ModuleFingerprints fingerprints = ModuleFingerprints.load(fingerprintsFile, URL, new NullLog());
+        assertFalse(fingerprints.isUnchanged(MODULE, deployables("repo"), null));
+        assertFalse(fingerprints.isUnchanged(MODULE, deployables("repo"), null));
+        assertFalse(fingerprintsFile.exists());
+    }
+
+    public void otherServerIgnoresFingerprints() throws Exception {
+        ModuleFingerprints fingerprints = ModuleFingerprints.load(fingerprintsFile, URL, new NullLog());
+        fingerprints.isUnchanged(MODULE, deployables("repo"), null);
+        fingerprints.save();
+
+        ModuleFingerprints otherServer = ModuleFingerprints.load(fingerprintsFile, "http://other/artifactory",
+                new NullLog());
+        assertFalse(otherServer.isUnchanged(MODULE, deployables("repo"), null));
+    }
+
+    public void corruptedFileIsIgnored() throws Exception {
+        FileUtils.writeStringToFile(fingerprintsFile, "garbage");
+        ModuleFingerprints fingerprints = ModuleFingerprints.load(fingerprintsFile, URL, new NullLog());
+        assertFalse(fingerprints.isUnchanged(MODULE, deployables("repo"), null));
+    }
+
+    private String fingerprint(DeployDetails deployable) {
+        return ModuleFingerprints.fingerprint(MODULE, Lists.newArrayList(deployable), null);
+    }
+
+    private Dependency dependency(String id, String sha1) {
+        return new DependencyBuilder().id(id).sha1(sha1).build();
+    }
+
+    private DeployDetails deployable(String name, String sha1, String version) {
+        return new DeployDetails.Builder().file(new File(dir, "a.jar")).targetRepository("repo")
+                .artifactPath("org/a/1/" + name).sha1(sha1).addProperty("custom", version).build();
+    }
+
+    private List<DeployDetails> deployables(String repository) {
+        return Lists.newArrayList(new DeployDetails.Builder().file(new File(dir, "a.jar")).targetRepository(repository)
+                .artifactPath("org/a/1/a.jar").sha1("1").build());
+    }
+}
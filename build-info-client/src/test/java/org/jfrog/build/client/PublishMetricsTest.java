@@ -0,0 +1,78 @@
+package org.jfrog.build.client;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jfrog.build.api.Build;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+@Test
+public class PublishMetricsTest {
+    private File dir;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void uploadLatencyPercentiles() {
+        PublishMetrics metrics = new PublishMetrics();
+        assertEquals(metrics.getUploadLatencyMillis(50), 0);
+        long now = System.nanoTime();
+        // Latencies of 1 to 100 ms, recorded in reverse order
+        for (int i = 100; i > 0; i--) {
+            metrics.uploaded(10, now - i * 1000000L);
+        }
+        assertEquals(metrics.getUploads(), 100);
+        assertEquals(metrics.getBytesUploaded(), 1000);
+        assertTrue(metrics.getUploadLatencyMillis(50) >= 50);
+        assertTrue(metrics.getUploadLatencyMillis(95) >= 95);
+        assertTrue(metrics.getUploadLatencyMillis(99) >= 99);
+        assertTrue(metrics.getUploadLatencyMillis(50) < metrics.getUploadLatencyMillis(99));
+    }
+
+    public void phasesAccumulate() throws Exception {
+        PublishMetrics metrics = new PublishMetrics();
+        long start = metrics.start();
+        metrics.phaseEnded(PublishMetrics.Phase.CHECKSUMS, start - 2000000L);
+        metrics.phaseEnded(PublishMetrics.Phase.CHECKSUMS, start - 3000000L);
+        assertTrue(metrics.getPhaseMillis(PublishMetrics.Phase.CHECKSUMS) >= 5);
+        assertEquals(metrics.getPhaseMillis(PublishMetrics.Phase.UPLOAD), 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void reportAndProperties() throws Exception {
+        PublishMetrics metrics = new PublishMetrics();
+        metrics.hashed(2048);
+        metrics.requestSent();
+        metrics.retried();
+        metrics.uploaded(1024, metrics.start());
+
+        File report = PublishMetrics.reportFile(new File(dir, "build/build-info.json"));
+        assertEquals(report, new File(dir, "build/" + PublishMetrics.REPORT_FILE_NAME));
+        metrics.writeReport(report);
+        Map<String, Object> values = new ObjectMapper().readValue(report, Map.class);
+        assertEquals(values.get("bytesHashed"), 2048);
+        assertEquals(values.get("bytesUploaded"), 1024);
+        assertEquals(values.get("requests"), 1);
+        assertEquals(values.get("retries"), 1);
+        assertTrue(values.containsKey("uploadLatencyP99Millis"));
+
+        Build build = new Build();
+        metrics.addToBuild(build);
+        assertEquals(build.getProperties().getProperty(PublishMetrics.PROPERTY_PREFIX + "uploads"), "1");
+        assertTrue(metrics.getSummary().contains("1 retries"));
+    }
+}
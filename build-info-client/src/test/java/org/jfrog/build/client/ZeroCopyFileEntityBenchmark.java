@@ -0,0 +1,138 @@
+package org.jfrog.build.client;
+
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.util.EntityUtils;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares the uploads of a large file to a local stub server: the {@link FileEntity} of httpclient, the pooled copy
+ * of {@link ZeroCopyFileEntity#writeTo} and its {@link ZeroCopyFileEntity#transferTo}. Part of the benchmark group,
+ * which the default test run excludes; run it with the benchmark task.
+ */
+@Test(groups = "benchmark")
+public class ZeroCopyFileEntityBenchmark {
+    private static final int FILE_MB = 64;
+    private static final int WARM_UP = 3;
+    private static final int ITERATIONS = 10;
+
+    private final AtomicLong received = new AtomicLong();
+    private File dir;
+    private File file;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String url;
+
+    @BeforeClass(groups = "benchmark")
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+        byte[] content = new byte[FILE_MB * 1024 * 1024];
+        new Random(7).nextBytes(content);
+        file = new File(dir, "a.jar");
+        FileUtils.writeByteArrayToFile(file, content);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                // Discard the content, the server must not be the bottleneck
+                byte[] buffer = new byte[256 * 1024];
+                InputStream in = exchange.getRequestBody();
+                long count = 0;
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    count += read;
+                }
+                received.set(count);
+                exchange.sendResponseHeaders(201, -1);
+                exchange.close();
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/artifactory/libs/a.jar";
+    }
+
+    @AfterClass(groups = "benchmark")
+    public void tearDown() throws Exception {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    /**
+     * Reports the throughput of each upload, and the CPU time and the heap allocated by the uploading thread.
+     */
+    public void uploads() throws Exception {
+        measure("FileEntity", false, false);
+        measure("pooled copy", true, false);
+        measure("transferTo", true, true);
+    }
+
+    private void measure(String name, boolean zeroCopyEntity, boolean zeroCopyUpload) throws Exception {
+        PreemptiveHttpClient client = new PreemptiveHttpClient(null, null, 60);
+        try {
+            client.setZeroCopyUpload(zeroCopyUpload);
+            for (int i = 0; i < WARM_UP; i++) {
+                upload(client, zeroCopyEntity);
+            }
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long allocatedBefore = allocatedBytes(threads);
+            long cpuBefore = threads.getCurrentThreadCpuTime();
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                upload(client, zeroCopyEntity);
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            long cpuNanos = threads.getCurrentThreadCpuTime() - cpuBefore;
+            long allocated = allocatedBytes(threads) - allocatedBefore;
+            Reporter.log(String.format("%-12s %d MB x %d: %.0f MB/s, %d ms CPU and %d KB allocated per upload",
+                    name, FILE_MB, ITERATIONS, FILE_MB * ITERATIONS / (elapsedNanos / 1e9),
+                    cpuNanos / ITERATIONS / 1000000, allocated / ITERATIONS / 1024), true);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private void upload(PreemptiveHttpClient client, boolean zeroCopyEntity) throws IOException {
+        HttpPut put = new HttpPut(url);
+        put.setEntity(zeroCopyEntity ? new ZeroCopyFileEntity(file, "binary/octet-stream") :
+                new FileEntity(file, "binary/octet-stream"));
+        HttpResponse response = client.execute(put);
+        EntityUtils.consume(response.getEntity());
+        assertEquals(response.getStatusLine().getStatusCode(), 201);
+        assertEquals(received.get(), file.length());
+    }
+
+    /**
+     * @return The bytes allocated by the current thread, or 0 if the JVM does not report them
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,112 @@
+package org.jfrog.build.client;
+
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.util.EntityUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.*;
+
+@Test
+public class ZeroCopyFileEntityTest {
+    private HttpServer server;
+    private String url;
+    private File dir;
+    private File file;
+    private byte[] content;
+    private volatile byte[] received;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+        content = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(content);
+        file = new File(dir, "a.jar");
+        FileUtils.writeByteArrayToFile(file, content);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                received = IOUtils.toByteArray(exchange.getRequestBody());
+                exchange.sendResponseHeaders(201, -1);
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/artifactory/libs/a.jar";
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        server.stop(0);
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void transferToPlainConnection() throws Exception {
+        assertEquals(upload(true), 1);
+        assertTrue(Arrays.equals(received, content), "The received content differs");
+    }
+
+    public void copyWhenDisabled() throws Exception {
+        assertEquals(upload(false), 0);
+        assertTrue(Arrays.equals(received, content), "The received content differs");
+    }
+
+    public void modifiedFileFailsTheUpload() throws Exception {
+        ZeroCopyFileEntity entity = new ZeroCopyFileEntity(file, "binary/octet-stream");
+        FileUtils.writeByteArrayToFile(file, Arrays.copyOf(content, 1024));
+        try {
+            entity.transferTo(Channels.newChannel(new ByteArrayOutputStream()));
+            fail("A truncated file should not be sent");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("changed"), e.getMessage());
+        }
+        try {
+            entity.writeTo(new ByteArrayOutputStream());
+            fail("A truncated file should not be sent");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("changed"), e.getMessage());
+        }
+        assertEquals(entity.getContentLength(), content.length);
+    }
+
+    private int upload(boolean zeroCopyUpload) throws IOException {
+        PreemptiveHttpClient client = new PreemptiveHttpClient(null, null, 10);
+        try {
+            client.setZeroCopyUpload(zeroCopyUpload);
+            final int[] transfers = new int[1];
+            HttpPut put = new HttpPut(url);
+            put.setEntity(new ZeroCopyFileEntity(file, "binary/octet-stream") {
+                @Override
+                public long transferTo(WritableByteChannel target) throws IOException {
+                    transfers[0]++;
+                    return super.transferTo(target);
+                }
+            });
+            HttpResponse response = client.execute(put);
+            EntityUtils.consume(response.getEntity());
+            assertEquals(response.getStatusLine().getStatusCode(), 201);
+            return transfers[0];
+        } finally {
+            client.shutdown();
+        }
+    }
+}
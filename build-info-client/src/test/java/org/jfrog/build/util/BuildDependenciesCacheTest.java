@@ -0,0 +1,97 @@
+package org.jfrog.build.util;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.builder.dependency.BuildPatternArtifactsRequestBuilder;
+import org.jfrog.build.api.dependency.BuildPatternArtifacts;
+import org.jfrog.build.api.dependency.BuildPatternArtifactsRequest;
+import org.jfrog.build.api.dependency.PatternArtifact;
+import org.jfrog.build.api.dependency.PatternResult;
+import org.jfrog.build.api.util.NullLog;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link BuildDependenciesCache} of the build outputs
+ */
+@Test
+public class BuildDependenciesCacheTest {
+    private static final String URL = "http://localhost:8081/artifactory";
+
+    private File dir;
+    private BuildDependenciesCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = Files.createTempDir();
+        cache = new BuildDependenciesCache(dir, TimeUnit.HOURS.toMillis(1), new NullLog());
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void cacheBuildNumbers() throws Exception {
+        BuildPatternArtifactsRequest request = request("42");
+        assertNull(cache.get(URL, request));
+        cache.put(URL, request, artifacts("42"));
+
+        BuildPatternArtifacts cached = cache.get(URL, request);
+        assertNotNull(cached);
+        assertEquals(cached.getBuildName(), "my-build");
+        assertEquals(cached.getBuildNumber(), "42");
+        assertEquals(cached.getPatternResults().get(0).getPatternArtifacts().get(0).getUri(), "libs/a.jar");
+        // Another Artifactory or another pattern is another entry
+        assertNull(cache.get("http://other/artifactory", request));
+        assertNull(cache.get(URL, new BuildPatternArtifactsRequestBuilder().buildName("my-build").buildNumber("42")
+                .pattern("*.zip").build()));
+
+        cache.invalidate(URL, request);
+        assertNull(cache.get(URL, request));
+    }
+
+    public void skipMovingBuildNumbers() throws Exception {
+        for (String buildNumber : new String[]{"LATEST", "LAST_RELEASE", "LAST_RELEASE:Released", "1.*"}) {
+            assertFalse(BuildDependenciesCache.isImmutable(buildNumber), buildNumber);
+            cache.put(URL, request(buildNumber), artifacts("42"));
+            assertNull(cache.get(URL, request(buildNumber)), buildNumber);
+        }
+        assertEquals(dir.list().length, 0);
+    }
+
+    public void skipBuildsNotFound() throws Exception {
+        // The build may be deployed later on
+        cache.put(URL, request("43"), new BuildPatternArtifacts());
+        assertNull(cache.get(URL, request("43")));
+    }
+
+    public void expireEntries() throws Exception {
+        cache.put(URL, request("42"), artifacts("42"));
+        File[] files = dir.listFiles();
+        assertEquals(files.length, 1);
+        assertTrue(files[0].setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+
+        assertNull(cache.get(URL, request("42")));
+        assertFalse(files[0].exists(), "The expired entry was not deleted");
+    }
+
+    private BuildPatternArtifactsRequest request(String buildNumber) {
+        return new BuildPatternArtifactsRequestBuilder().buildName("my-build").buildNumber(buildNumber)
+                .pattern("*.jar").build();
+    }
+
+    private BuildPatternArtifacts artifacts(String buildNumber) {
+        BuildPatternArtifacts artifacts = new BuildPatternArtifacts("my-build", buildNumber, "2013-01-01", URL);
+        PatternResult result = new PatternResult();
+        result.addArtifact(new PatternArtifact(URL, "libs/a.jar", 10, "2013-01-01", "sha1"));
+        artifacts.addPatternResult(result);
+        return artifacts;
+    }
+}
@@ -0,0 +1,194 @@
+package org.jfrog.build.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.dependency.BuildDependency;
+import org.jfrog.build.api.dependency.BuildPatternArtifacts;
+import org.jfrog.build.api.dependency.DownloadableArtifact;
+import org.jfrog.build.api.dependency.PatternArtifact;
+import org.jfrog.build.api.dependency.PatternResult;
+import org.jfrog.build.api.util.NullLog;
+import org.jfrog.build.client.ArtifactoryDependenciesClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the resolution of the build dependencies of several builds by {@link BuildDependenciesHelper}
+ */
+@Test
+public class BuildDependenciesHelperTest {
+
+    private final CountDownLatch firstDownload = new CountDownLatch(1);
+    private final List<String> requestedBuilds = Collections.synchronizedList(Lists.<String>newArrayList());
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String url;
+    private File dir;
+    private volatile boolean downloadedBeforeSlowBuild;
+    private volatile boolean deleted;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        requestedBuilds.clear();
+        dir = Files.createTempDir();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handleRequest(exchange);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/artifactory";
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private void handleRequest(HttpExchange exchange) throws IOException, InterruptedException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/api/build/patternArtifacts")) {
+            String request = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+            String buildName = request.contains("\"slow\"") ? "slow" : request.contains("\"gone\"") ? "gone" : "fast";
+            requestedBuilds.add(buildName);
+            if ("slow".equals(buildName)) {
+                // Only answered once the artifact of the other build is being downloaded
+                downloadedBeforeSlowBuild = firstDownload.await(10, TimeUnit.SECONDS);
+            }
+            BuildPatternArtifacts artifacts = new BuildPatternArtifacts(buildName, "1", "2013-01-01", url);
+            PatternResult result = new PatternResult();
+            result.addArtifact(new PatternArtifact(url, "libs/org/" + buildName + "/" + buildName + ".jar", 10,
+                    "2013-01-01", "sha1"));
+            artifacts.addPatternResult(result);
+            respond(exchange, 200, "[" + new JsonSerializer<BuildPatternArtifacts>().toJSON(artifacts) + "]");
+        } else if (deleted && path.contains("/gone/")) {
+            exchange.sendResponseHeaders(404, -1);
+        } else {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                firstDownload.countDown();
+            }
+            byte[] content = ("content of " + path).getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : content.length);
+            exchange.getResponseBody().write(content);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    public void downloadDuringSlowBuilds() throws Exception {
+        TestDownloader downloader = new TestDownloader();
+        try {
+            List<BuildDependency> buildDependencies = new BuildDependenciesHelper(downloader, new NullLog())
+                    .retrieveBuildDependencies("libs:org/fast/*.jar@fast#1=>deps\nlibs:org/slow/*.jar@slow#1=>deps");
+            assertTrue(downloadedBeforeSlowBuild, "The download did not start before the answer of the slow build");
+            assertEquals(buildDependencies.size(), 2);
+            assertEquals(requestedBuilds.size(), 2);
+            assertEquals(FileUtils.readFileToString(new File(dir, "deps/slow.jar")),
+                    "content of /artifactory/libs/org/slow/slow.jar");
+            assertEquals(FileUtils.readFileToString(new File(dir, "deps/fast.jar")),
+                    "content of /artifactory/libs/org/fast/fast.jar");
+        } finally {
+            downloader.getClient().shutdown();
+        }
+    }
+
+    public void invalidateCachedBuildsNotFound() throws Exception {
+        TestDownloader downloader = new TestDownloader();
+        BuildDependenciesHelper helper = new BuildDependenciesHelper(downloader, new NullLog());
+        helper.setCache(new BuildDependenciesCache(new File(dir, "cache"), TimeUnit.HOURS.toMillis(1),
+                new NullLog()));
+        String pattern = "libs:org/fast/*.jar@fast#1=>deps\nlibs:org/gone/*.jar@gone#1=>deps";
+        try {
+            assertEquals(helper.retrieveBuildDependencies(pattern).size(), 2);
+            assertEquals(helper.retrieveBuildDependencies(pattern).size(), 2);
+            assertEquals(requestedBuilds.size(), 2, "The outputs were not cached: " + requestedBuilds);
+
+            // The artifacts of the cached build are deleted, its outputs are not cached anymore
+            deleted = true;
+            helper.retrieveBuildDependencies(pattern);
+            deleted = false;
+            assertEquals(helper.retrieveBuildDependencies(pattern).size(), 2);
+            assertEquals(requestedBuilds, Lists.newArrayList("fast", "gone", "gone"));
+        } finally {
+            downloader.getClient().shutdown();
+        }
+    }
+
+    private class TestDownloader implements StreamingDependenciesDownloader {
+        private final ArtifactoryDependenciesClient client =
+                new ArtifactoryDependenciesClient(url, null, null, new NullLog());
+
+        public ArtifactoryDependenciesClient getClient() {
+            return client;
+        }
+
+        public DependenciesDownloaderHelper.Download startDownload() {
+            return new DependenciesDownloaderHelper(this, new NullLog()).startDownload();
+        }
+
+        public List<Dependency> download(Set<DownloadableArtifact> downloadableArtifacts) throws IOException {
+            return new DependenciesDownloaderHelper(this, new NullLog()).downloadDependencies(downloadableArtifacts);
+        }
+
+        public String getTargetDir(String targetDir, String relativeDir) {
+            return new File(new File(dir, targetDir), relativeDir).getPath();
+        }
+
+        public Map<String, String> saveDownloadedFile(InputStream is, String filePath) throws IOException {
+            try {
+                FileUtils.copyInputStreamToFile(is, new File(filePath));
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+            return Maps.newHashMap();
+        }
+
+        public boolean isFileExistsLocally(String filePath, String md5, String sha1) {
+            return false;
+        }
+
+        public void removeUnusedArtifactsFromLocal(Set<String> allResolvesFiles, Set<String> forDeletionFiles) {
+        }
+    }
+}
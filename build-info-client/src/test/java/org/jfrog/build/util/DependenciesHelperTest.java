@@ -0,0 +1,205 @@
+package org.jfrog.build.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.NameFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.dependency.BuildPatternArtifacts;
+import org.jfrog.build.api.dependency.BuildPatternArtifactsRequest;
+import org.jfrog.build.api.dependency.DownloadableArtifact;
+import org.jfrog.build.api.util.NullLog;
+import org.jfrog.build.client.ArtifactoryDependenciesClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the streaming of the search results of {@link DependenciesHelper} into the downloads
+ */
+@Test
+public class DependenciesHelperTest {
+
+    private final CountDownLatch firstDownload = new CountDownLatch(1);
+    private final List<String> acceptedEncodings = Collections.synchronizedList(Lists.<String>newArrayList());
+    private HttpServer server;
+    private String url;
+    private File targetDir;
+    private volatile boolean searchCompleted;
+    private volatile boolean downloadedDuringSearch;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        acceptedEncodings.clear();
+        targetDir = Files.createTempDir();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handleRequest(exchange);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/artifactory";
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        server.stop(0);
+        FileUtils.deleteDirectory(targetDir);
+    }
+
+    private void handleRequest(HttpExchange exchange) throws IOException, InterruptedException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/api/search/pattern")) {
+            acceptedEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            // The files come before the repository
+            byte[] json = ("{\"files\":[\"org/a/a.jar\",\"org/b/b.jar\"],\"sourcePattern\":\"libs:org/*/*.jar\"," +
+                    "\"repoUri\":\"" + url + "/libs\"}").getBytes("UTF-8");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            GZIPOutputStream out = new GZIPOutputStream(exchange.getResponseBody());
+            out.write(json);
+            out.close();
+        } else if (path.endsWith("/api/build/patternArtifacts")) {
+            acceptedEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            byte[] json = "[{\"buildName\":\"a\",\"buildNumber\":\"1\",\"patternResults\":[]}]".getBytes("UTF-8");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            GZIPOutputStream out = new GZIPOutputStream(exchange.getResponseBody());
+            out.write(json);
+            out.close();
+        } else if (path.endsWith("/api/search/prop")) {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write(("{\"results\":[{\"uri\":\"" + url + "/api/storage/libs/org/c/c.jar\"},").getBytes("UTF-8"));
+            out.flush();
+            // The rest of the results are only sent once the first artifact is being downloaded
+            downloadedDuringSearch = firstDownload.await(10, TimeUnit.SECONDS);
+            out.write(("{\"uri\":\"" + url + "/api/storage/libs/org/d/d.jar\"}," +
+                    "{\"uri\":\"" + url + "/api/storage/other/org/e/e.jar\"}]}").getBytes("UTF-8"));
+            searchCompleted = true;
+            out.close();
+        } else {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                firstDownload.countDown();
+            }
+            byte[] content = ("content of " + path).getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : content.length);
+            exchange.getResponseBody().write(content);
+        }
+    }
+
+    public void streamPatternSearchResults() throws Exception {
+        TestDownloader downloader = new TestDownloader();
+        try {
+            List<Dependency> dependencies = new DependenciesHelper(downloader, new NullLog())
+                    .retrievePublishedDependencies("libs:org/*/*.jar=>deps");
+            assertEquals(dependencies.size(), 2);
+            assertEquals(acceptedEncodings, Lists.newArrayList("gzip"));
+            assertEquals(FileUtils.readFileToString(findFile("b.jar")), "content of /artifactory/libs/org/b/b.jar");
+        } finally {
+            downloader.getClient().shutdown();
+        }
+    }
+
+    public void streamBuildOutputs() throws Exception {
+        ArtifactoryDependenciesClient client = new ArtifactoryDependenciesClient(url, null, null, new NullLog());
+        try {
+            BuildPatternArtifacts artifacts = client.retrievePatternArtifactsAsync(
+                    new BuildPatternArtifactsRequest("a", "1")).get(10, TimeUnit.SECONDS);
+            assertEquals(artifacts.getBuildName(), "a");
+            assertEquals(artifacts.getBuildNumber(), "1");
+            assertEquals(acceptedEncodings, Lists.newArrayList("gzip"));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    public void downloadDuringPropertySearch() throws Exception {
+        TestDownloader downloader = new TestDownloader();
+        try {
+            List<Dependency> dependencies = new DependenciesHelper(downloader, new NullLog())
+                    .retrievePublishedDependencies("libs:org/**;status=ok=>deps");
+            assertTrue(downloadedDuringSearch, "The download did not start before the end of the search");
+            assertTrue(searchCompleted);
+            // The artifact of the other repository does not match the pattern
+            assertEquals(dependencies.size(), 2);
+            assertEquals(FileUtils.readFileToString(findFile("d.jar")), "content of /artifactory/libs/org/d/d.jar;status=ok");
+        } finally {
+            downloader.getClient().shutdown();
+        }
+    }
+
+    private File findFile(String name) {
+        Collection<File> files = FileUtils.listFiles(targetDir, new NameFileFilter(name), TrueFileFilter.INSTANCE);
+        assertEquals(files.size(), 1, name + " was not downloaded");
+        return files.iterator().next();
+    }
+
+    private class TestDownloader implements StreamingDependenciesDownloader {
+        private final ArtifactoryDependenciesClient client =
+                new ArtifactoryDependenciesClient(url, null, null, new NullLog());
+
+        public ArtifactoryDependenciesClient getClient() {
+            return client;
+        }
+
+        public DependenciesDownloaderHelper.Download startDownload() {
+            return new DependenciesDownloaderHelper(this, new NullLog()).startDownload();
+        }
+
+        public List<Dependency> download(Set<DownloadableArtifact> downloadableArtifacts) throws IOException {
+            return new DependenciesDownloaderHelper(this, new NullLog()).downloadDependencies(downloadableArtifacts);
+        }
+
+        public String getTargetDir(String targetDir, String relativeDir) {
+            return new File(new File(DependenciesHelperTest.this.targetDir, targetDir), relativeDir).getPath();
+        }
+
+        public Map<String, String> saveDownloadedFile(InputStream is, String filePath) throws IOException {
+            try {
+                FileUtils.copyInputStreamToFile(is, new File(filePath));
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+            return Maps.newHashMap();
+        }
+
+        public boolean isFileExistsLocally(String filePath, String md5, String sha1) {
+            return false;
+        }
+
+        public void removeUnusedArtifactsFromLocal(Set<String> allResolvesFiles, Set<String> forDeletionFiles) {
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.jfrog.build.util;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.util.NullLog;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link DownloadStore} shared by the builds of an agent
+ */
+@Test
+public class DownloadStoreTest {
+    private static final String SHA1_A = "a9993e364706816aba3e25717850c26c9cd0d89d";
+    private static final String SHA1_B = "b9993e364706816aba3e25717850c26c9cd0d89d";
+    private static final String SHA1_C = "c9993e364706816aba3e25717850c26c9cd0d89d";
+
+    private File dir;
+    private File storeDir;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = Files.createTempDir();
+        storeDir = new File(dir, "store");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void linkStoredFiles() throws Exception {
+        DownloadStore store = new DownloadStore(storeDir, 1024 * 1024, new NullLog());
+        File target = new File(dir, "job1/libs/a.jar");
+        assertFalse(store.linkTo(SHA1_A, target));
+
+        File downloaded = createFile("job2/libs/a.jar", "content a");
+        store.add(SHA1_A, downloaded);
+        assertTrue(store.linkTo(SHA1_A, target));
+        assertEquals(FileUtils.readFileToString(target), "content a");
+
+        // Replaces the previous file of the target
+        assertTrue(target.delete());
+        FileUtils.writeStringToFile(target, "old content");
+        assertTrue(store.linkTo(SHA1_A.toUpperCase(), target));
+        assertEquals(FileUtils.readFileToString(target), "content a");
+    }
+
+    public void ignoreInvalidChecksums() throws Exception {
+        DownloadStore store = new DownloadStore(storeDir, 1024 * 1024, new NullLog());
+        store.add("../../etc", createFile("a.jar", "content a"));
+        store.add("", createFile("a.jar", "content a"));
+        assertFalse(storeDir.exists());
+        assertFalse(store.linkTo(null, new File(dir, "b.jar")));
+    }
+
+    public void concurrentAdditions() throws Exception {
+        final DownloadStore store = new DownloadStore(storeDir, 1024 * 1024, new NullLog());
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        final Exception[] failure = new Exception[1];
+        for (int i = 0; i < threads.length; i++) {
+            final File downloaded = createFile("job" + i + "/a.jar", "content a");
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        store.add(SHA1_A, downloaded);
+                    } catch (Exception e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure[0]);
+        String[] stored = new File(storeDir, "a9").list();
+        assertEquals(stored, new String[]{SHA1_A}, "Temporary files were left");
+    }
+
+    public void collectLeastRecentlyUsed() throws Exception {
+        DownloadStore store = new DownloadStore(storeDir, 2500, new NullLog());
+        long now = System.currentTimeMillis();
+        store.add(SHA1_A, createFile("a.jar", FileUtils.class.getName() + new String(new char[1000])));
+        store.add(SHA1_B, createFile("b.jar", new String(new char[1000])));
+        store.add(SHA1_C, createFile("c.jar", new String(new char[1000])));
+        new File(storeDir, "a9/" + SHA1_A).setLastModified(now - 30000);
+        new File(storeDir, "b9/" + SHA1_B).setLastModified(now - 20000);
+        new File(storeDir, "c9/" + SHA1_C).setLastModified(now - 10000);
+        // Using A makes B the least recently used file
+        assertTrue(store.linkTo(SHA1_A, new File(dir, "job/a.jar")));
+
+        store.collectGarbage();
+        assertTrue(new File(storeDir, "a9/" + SHA1_A).isFile());
+        assertFalse(new File(storeDir, "b9/" + SHA1_B).exists());
+        assertTrue(new File(storeDir, "c9/" + SHA1_C).isFile());
+        // The builds keep their files
+        assertTrue(new File(dir, "b.jar").isFile());
+    }
+
+    public void linkingKeepsModificationTimes() throws Exception {
+        DownloadStore store = new DownloadStore(storeDir, 2500, new NullLog());
+        long lastModified = (System.currentTimeMillis() - 60000) / 1000 * 1000;
+        File downloaded = createFile("job1/a.jar", "content a");
+        assertTrue(downloaded.setLastModified(lastModified));
+        store.add(SHA1_A, downloaded);
+        File target = new File(dir, "job2/a.jar");
+        assertTrue(store.linkTo(SHA1_A, target));
+        // The files linked to the stored file keep the time of the download
+        assertEquals(downloaded.lastModified(), lastModified);
+        assertEquals(target.lastModified(), lastModified);
+        assertEquals(new File(storeDir, "a9/" + SHA1_A).lastModified(), lastModified);
+        assertTrue(new File(storeDir, "a9/" + SHA1_A + ".used").lastModified() > lastModified);
+    }
+
+    private File createFile(String path, String content) throws Exception {
+        File file = new File(dir, path);
+        FileUtils.writeStringToFile(file, content);
+        return file;
+    }
+}
@@ -18,8 +18,10 @@ package org.jfrog.gradle.plugin.artifactory
 
 import org.apache.commons.lang.StringUtils
 import org.gradle.BuildAdapter
+import org.gradle.BuildResult
 import org.gradle.api.Plugin
 import org.gradle.api.Project
+import org.gradle.api.execution.TaskExecutionGraph
 import org.gradle.api.invocation.Gradle
 import org.jfrog.build.client.ArtifactoryClientConfiguration
 import org.jfrog.build.client.ArtifactoryClientConfiguration.ResolverHandler
@@ -27,6 +29,7 @@ import org.jfrog.gradle.plugin.artifactory.dsl.ArtifactoryPluginConvention
 import org.jfrog.gradle.plugin.artifactory.extractor.GradleArtifactoryClientConfigUpdater
 import org.jfrog.gradle.plugin.artifactory.task.BuildInfoBaseTask
 import org.jfrog.gradle.plugin.artifactory.task.BuildInfoConfigurationsTask
+import org.jfrog.gradle.plugin.artifactory.task.BuildInfoPublishCoordinator
 import org.jfrog.gradle.plugin.artifactory.task.BuildInfoPublicationsTask
 import org.slf4j.Logger
 
@@ -71,6 +74,17 @@ abstract class ArtifactoryPluginBase implements Plugin<Project> {
             gradle.rootProject.getTasksByName(BUILD_INFO_TASK_NAME, true).each { BuildInfoBaseTask bit ->
                 bit.projectsEvaluated()
             }
+            //Analyze the task graph once, the publish coordinator is shared by all the artifactoryPublish tasks
+            gradle.taskGraph.whenReady { TaskExecutionGraph graph ->
+                ArtifactoryPluginUtil.getArtifactoryConvention(gradle.rootProject).publishCoordinator =
+                    new BuildInfoPublishCoordinator(graph)
+            }
+        }
+
+        def void buildFinished(BuildResult result) {
+            if (result.gradle != null) {
+                ArtifactoryPluginUtil.getArtifactoryConvention(result.gradle.rootProject).publishCoordinator?.shutdown()
+            }
         }
 
         private void defineResolvers(Project project, ResolverHandler resolverConf) {
@@ -20,6 +20,7 @@ import org.gradle.api.Project
 import org.gradle.util.ConfigureUtil
 import org.jfrog.build.client.ArtifactoryClientConfiguration
 import org.jfrog.gradle.plugin.artifactory.extractor.GradleClientLogger
+import org.jfrog.gradle.plugin.artifactory.task.BuildInfoPublishCoordinator
 
 /**
  * @author Tomer Cohen
@@ -28,6 +29,7 @@ class ArtifactoryPluginConvention {
     final Project project
     final ArtifactoryClientConfiguration clientConfig
     def PublisherConfig publisherConfig
+    def BuildInfoPublishCoordinator publishCoordinator
 
     ArtifactoryPluginConvention(Project project) {
         this.project = project
@@ -20,6 +20,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import org.apache.commons.lang.StringUtils;
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
@@ -36,13 +37,16 @@ import org.jfrog.build.client.ArtifactoryClientConfiguration;
 import org.jfrog.build.client.DeployDetails;
 import org.jfrog.build.client.IncludeExcludePatterns;
 import org.jfrog.build.client.PatternMatcher;
+import org.jfrog.build.client.PublishMetrics;
 import org.jfrog.build.extractor.BuildInfoExtractor;
 import org.jfrog.build.extractor.BuildInfoExtractorUtils;
+import org.jfrog.build.extractor.SpillingModuleList;
 import org.jfrog.gradle.plugin.artifactory.ArtifactoryPluginUtil;
 import org.jfrog.gradle.plugin.artifactory.task.BuildInfoBaseTask;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -65,6 +69,7 @@ public class GradleBuildInfoExtractor implements BuildInfoExtractor<Project, Bui
     private static final String MD5 = "md5";
     private final ArtifactoryClientConfiguration clientConf;
     private final Set<GradleDeployDetails> gradleDeployDetails;
+    private PublishMetrics publishMetrics;
 
 
     public GradleBuildInfoExtractor(ArtifactoryClientConfiguration clientConf,
@@ -73,6 +78,13 @@ public class GradleBuildInfoExtractor implements BuildInfoExtractor<Project, Bui
         this.gradleDeployDetails = gradleDeployDetails;
     }
 
+    /**
+     * @param publishMetrics The metrics of the publish, recording the dependency checksums
+     */
+    public void setPublishMetrics(PublishMetrics publishMetrics) {
+        this.publishMetrics = publishMetrics;
+    }
+
     @Override
     public Build extract(Project rootProject) {
         String buildName = clientConf.info.getBuildName();
@@ -109,6 +121,12 @@ public class GradleBuildInfoExtractor implements BuildInfoExtractor<Project, Bui
         long durationMillis = buildStartDate != null ? System.currentTimeMillis() - buildStartDate.getTime() : 0;
         bib.durationMillis(durationMillis);
 
+        // Extracted modules are kept on disk, the task closes the list once the build info was sent
+        try {
+            bib.modules(SpillingModuleList.create(null));
+        } catch (IOException e) {
+            throw new GradleException("Could not create the build info module list: " + e.getMessage(), e);
+        }
         Set<Project> allProjects = rootProject.getAllprojects();
         for (Project project : allProjects) {
             BuildInfoBaseTask buildInfoTask = getBuildInfoTask(project);
@@ -247,16 +265,15 @@ public class GradleBuildInfoExtractor implements BuildInfoExtractor<Project, Bui
         return null;
     }
 
+    /**
+     * @return The id of the build-info module of the project
+     */
+    public static String getModuleId(Project project) {
+        return getModuleIdString(project.getGroup().toString(), project.getName(), project.getVersion().toString());
+    }
 
     public Module extractModule(Project project) {
-        String artifactName = project.getName();
-        BuildInfoBaseTask task = getBuildInfoTask(project);
-        if (task != null) {
-            artifactName = project.getName();
-        }
-        ModuleBuilder builder = new ModuleBuilder()
-                .id(getModuleIdString(project.getGroup().toString(),
-                        artifactName, project.getVersion().toString()));
+        ModuleBuilder builder = new ModuleBuilder().id(getModuleId(project));
         try {
             ArtifactoryClientConfiguration.PublisherHandler publisher = ArtifactoryPluginUtil.getArtifactoryConvention(project).getClientConfig().publisher;
             boolean excludeArtifactsFromBuild = publisher.isFilterExcludedArtifactsFromBuild();
@@ -321,18 +338,19 @@ public class GradleBuildInfoExtractor implements BuildInfoExtractor<Project, Bui
                     // if it's already in the dependencies list just add the current scope
                     if (any(dependencies, idEqualsPredicate)) {
                         Dependency existingDependency = find(dependencies, idEqualsPredicate);
-                        List<String> existingScopes = existingDependency.getScopes();
-                        String configScope = configuration.getName();
-                        if (!existingScopes.contains(configScope)) {
-                            existingScopes.add(configScope);
-                        }
+                        existingDependency.addScope(configuration.getName());
                     } else {
+                        long start = System.nanoTime();
                         Map<String, String> checksums = FileChecksumCalculator.calculateChecksums(file, MD5, SHA1);
+                        if (publishMetrics != null) {
+                            publishMetrics.hashed(file.length());
+                            publishMetrics.phaseEnded(PublishMetrics.Phase.CHECKSUMS, start);
+                        }
                         DependencyBuilder dependencyBuilder = new DependencyBuilder()
                                 .type(getTypeString(artifact.getType(),
                                         artifact.getClassifier(), artifact.getExtension()))
                                 .id(depId)
-                                .scopes(newArrayList(configuration.getName())).
+                                .addScope(configuration.getName()).
                                         md5(checksums.get(MD5)).sha1(checksums.get(SHA1));
                         dependencies.add(dependencyBuilder.build());
                     }
@@ -1,10 +1,14 @@
 package org.jfrog.gradle.plugin.artifactory.task;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import groovy.lang.Closure;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
@@ -18,13 +22,22 @@ import org.gradle.api.tasks.TaskAction;
 import org.gradle.util.ConfigureUtil;
 import org.jfrog.build.api.Build;
 import org.jfrog.build.api.BuildInfoConfigProperties;
+import org.jfrog.build.api.Module;
+import org.jfrog.build.client.AdaptiveConcurrencyLimiter;
 import org.jfrog.build.client.ArtifactSpec;
 import org.jfrog.build.client.ArtifactSpecs;
 import org.jfrog.build.client.ArtifactoryBuildInfoClient;
+import org.jfrog.build.client.BandwidthLimiter;
 import org.jfrog.build.client.ArtifactoryClientConfiguration;
 import org.jfrog.build.client.DeployDetails;
+import org.jfrog.build.client.DeployJournal;
+import org.jfrog.build.client.DeployManifest;
 import org.jfrog.build.client.IncludeExcludePatterns;
+import org.jfrog.build.client.ModuleFingerprints;
 import org.jfrog.build.client.PatternMatcher;
+import org.jfrog.build.client.ProxySettings;
+import org.jfrog.build.client.PublishMetrics;
+import org.jfrog.build.client.PublisherSettings;
 import org.jfrog.build.extractor.BuildInfoExtractorUtils;
 import org.jfrog.gradle.plugin.artifactory.ArtifactoryPluginUtil;
 import org.jfrog.gradle.plugin.artifactory.dsl.ArtifactoryPluginConvention;
@@ -38,9 +51,9 @@ import org.jfrog.gradle.plugin.artifactory.extractor.PublishArtifactInfo;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -162,24 +175,30 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
             ConfigureUtil.configure(defaultsClosure, this);
         }
 
-        //Depend on buildInfo task in sub-projects
-        for (Project sub : project.getSubprojects()) {
-            Task subBiTask = sub.getTasks().findByName(BUILD_INFO_TASK_NAME);
-            if (subBiTask != null) {
-                dependsOn(subBiTask);
-            }
-        }
+        //Depend on the nearest buildInfo tasks in sub-projects, the rest of the hierarchy follows transitively
+        dependOnChildBuildInfoTasks(project);
 
         checkDependsOnArtifactsToPublish(project, acc);
     }
 
+    private void dependOnChildBuildInfoTasks(Project project) {
+        for (Project child : project.getChildProjects().values()) {
+            Task childBiTask = child.getTasks().findByName(BUILD_INFO_TASK_NAME);
+            if (childBiTask != null) {
+                dependsOn(childBiTask);
+            } else {
+                dependOnChildBuildInfoTasks(child);
+            }
+        }
+    }
+
     protected abstract void checkDependsOnArtifactsToPublish(Project project, ArtifactoryClientConfiguration acc);
 
     @Nonnull
     protected Boolean isPublishArtifacts(ArtifactoryClientConfiguration acc) {
         Boolean publishArtifacts = getPublishArtifacts();
         if (publishArtifacts == null) {
-            return acc.publisher.isPublishArtifacts();
+            return acc.publisher.getSettings().isPublishArtifacts();
         }
         return publishArtifacts;
     }
@@ -188,7 +207,7 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
     protected Boolean isPublishBuildInfo(ArtifactoryClientConfiguration acc) {
         Boolean publishBuildInfo = getPublishBuildInfo();
         if (publishBuildInfo == null) {
-            return acc.publisher.isPublishBuildInfo();
+            return acc.publisher.getSettings().isPublishBuildInfo();
         }
         return publishBuildInfo;
     }
@@ -203,7 +222,7 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
             addProps(defaultProps, properties);
             //Add the publisher properties
             ArtifactoryClientConfiguration clientConf = getArtifactoryClientConfiguration();
-            defaultProps.putAll(clientConf.publisher.getMatrixParams());
+            defaultProps.putAll(clientConf.publisher.getSettings().getMatrixParams());
         }
 
         Map<String, String> propsToAdd = Maps.newHashMap(defaultProps);
@@ -237,20 +256,42 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
 
     protected abstract void collectDescriptorsAndArtifactsForUpload() throws IOException;
 
+    /**
+     * Set the build name, number and timestamp on the root project configuration, if missing. Their deploy properties
+     * are added to the collected artifacts.
+     */
+    void setMissingBuildAttributes() {
+        GradleArtifactoryClientConfigUpdater.setMissingBuildAttributes(getArtifactoryClientConfiguration(),
+                getProject().getRootProject());
+    }
+
+    /**
+     * The checksums of the files to deploy are calculated in the background, and set on the builder before the
+     * deployment.
+     */
+    protected void calculateChecksums(DeployDetails.Builder builder, File file) {
+        getPublishCoordinator().calculateChecksums(builder, file);
+    }
+
     /**
      * This method will be activated only at the end of the build, when we reached the root project.
      *
+     * @param coordinator The coordinator of the build info tasks of the build
      * @throws java.io.IOException In case the deployment fails.
      */
-    protected void prepareAndDeploy() throws IOException {
+    protected void prepareAndDeploy(BuildInfoPublishCoordinator coordinator) throws IOException {
         ArtifactoryClientConfiguration acc = getArtifactoryClientConfiguration();
         // Reset the default properties, they may have changed
         GradleArtifactoryClientConfigUpdater.setMissingBuildAttributes(acc, getProject().getRootProject());
 
-        String contextUrl = acc.publisher.getContextUrl();
+        // The artifacts of all the build info tasks, collected as each task executed
+        Set<GradleDeployDetails> allDeployDetails = coordinator.collectDeployDetails();
+
+        PublisherSettings publisher = acc.publisher.getSettings();
+        String contextUrl = publisher.getContextUrl();
         log.debug("Context URL for deployment '{}", contextUrl);
-        String username = acc.publisher.getUsername();
-        String password = acc.publisher.getPassword();
+        String username = publisher.getUsername();
+        String password = publisher.getPassword();
         if (StringUtils.isBlank(username)) {
             username = "";
         }
@@ -258,20 +299,23 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
             password = "";
         }
 
-        Set<GradleDeployDetails> allDeployDetails = Sets.newHashSet();
-
-        // Update the artifacts for all project build info task
-        List<BuildInfoBaseTask> orderedTasks = getAllBuildInfoTasks();
-        for (BuildInfoBaseTask bit : orderedTasks) {
-            if (bit.getDidWork()) {
-                bit.collectDescriptorsAndArtifactsForUpload();
-                allDeployDetails.addAll(bit.deployDetails);
-            }
-        }
-
         ArtifactoryBuildInfoClient client =
                 new ArtifactoryBuildInfoClient(contextUrl, username, password, new GradleClientLogger(log));
+        Integer maxConcurrentRequests = acc.getMaxConcurrentRequests();
+        if (maxConcurrentRequests != null && maxConcurrentRequests > 0) {
+            client.setConcurrencyLimiter(new AdaptiveConcurrencyLimiter(maxConcurrentRequests));
+        }
+        PublishMetrics metrics = new PublishMetrics();
+        client.setPublishMetrics(metrics);
+        DeployJournal journal = null;
+        ModuleFingerprints fingerprints = null;
+        Build build = null;
+        GradleBuildInfoExtractor gbie = new GradleBuildInfoExtractor(acc, allDeployDetails);
+        gbie.setPublishMetrics(metrics);
         try {
+            //Extract build info and update the clientConf info accordingly (build name, num, etc.). Extracted before
+            //the deployment, the fingerprints of the modules need the checksums of their dependencies.
+            build = gbie.extract(getProject().getRootProject());
             if (isPublishArtifacts(acc)) {
                 log.debug("Uploading artifacts to Artifactory at '{}'", contextUrl);
                 /**
@@ -280,32 +324,52 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
                  * published only after a successful build. This is done before the build-info is sent.
                  */
 
-                IncludeExcludePatterns patterns = new IncludeExcludePatterns(
-                        acc.publisher.getIncludePatterns(),
-                        acc.publisher.getExcludePatterns());
+                IncludeExcludePatterns patterns = publisher.getIncludeExcludePatterns();
                 configureProxy(acc, client);
-                deployArtifacts(allDeployDetails, client, patterns);
+                File buildDir = getProject().getRootProject().getBuildDir();
+                client.setBandwidthLimiter(BandwidthLimiter.forPublisher(publisher, new GradleClientLogger(log)));
+                client.setZeroCopyUpload(publisher.isZeroCopyUpload());
+                client.setDeployManifest(DeployManifest.forPublisher(publisher,
+                        new File(buildDir, "artifactory-deploy-manifest.txt"), new GradleClientLogger(log)));
+                journal = DeployJournal.forPublisher(publisher, new File(buildDir, "artifactory-deploy-journal.txt"),
+                        new GradleClientLogger(log));
+                client.setDeployJournal(journal);
+                fingerprints = ModuleFingerprints.forPublisher(publisher,
+                        new File(buildDir, "artifactory-module-fingerprints.txt"), new GradleClientLogger(log));
+                deployArtifacts(allDeployDetails, client, patterns, journal, build, fingerprints, metrics);
             }
 
-            //Extract build info and update the clientConf info accordingly (build name, num, etc.)
-            GradleBuildInfoExtractor gbie = new GradleBuildInfoExtractor(acc, allDeployDetails);
-            Build build = gbie.extract(getProject().getRootProject());
+            if (publisher.isMetricsProperties()) {
+                // Added before exporting, so that the exported file matches the published build info
+                metrics.addToBuild(build);
+            }
             /**
              * The build-info will be always written to a file in its JSON form.
              */
-            exportBuildInfo(build, getExportFile(acc));
+            exportBuildInfo(build, getExportFile(acc), metrics);
             if (isPublishBuildInfo(acc)) {
                 log.debug("Publishing build info to artifactory at: '{}'", contextUrl);
                 /**
                  * After all the artifacts were uploaded successfully the next task is to send the build-info
                  * object.
                  */
-                // If export property set always save the file before sending it to artifactory
+                // If export property set always save the file before sending it to artifactory, the serialization
+                // was already measured by the export above
                 exportBuildInfo(build, getExportFile(acc));
                 client.sendBuildInfo(build);
             }
+            if (journal != null) {
+                journal.finished();
+            }
+            if (fingerprints != null) {
+                saveFingerprints(fingerprints);
+            }
         } finally {
+            if (build != null && build.getModules() instanceof Closeable) {
+                IOUtils.closeQuietly((Closeable) build.getModules());
+            }
             client.shutdown();
+            writeMetrics(metrics, getExportFile(acc));
         }
     }
 
@@ -328,12 +392,12 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
     }
 
     protected void configureProxy(ArtifactoryClientConfiguration clientConf, ArtifactoryBuildInfoClient client) {
-        ArtifactoryClientConfiguration.ProxyHandler proxy = clientConf.proxy;
-        String proxyHost = proxy.getHost();
-        if (StringUtils.isNotBlank(proxyHost) && proxy.getPort() != null) {
+        ProxySettings proxy = clientConf.proxy.getSettings();
+        if (proxy.isConfigured()) {
+            String proxyHost = proxy.getHost();
             log.debug("Found proxy host '{}'", proxyHost);
             String proxyUserName = proxy.getUsername();
-            if (StringUtils.isNotBlank(proxyUserName)) {
+            if (proxy.hasCredentials()) {
                 log.debug("Found proxy user name '{}'", proxyUserName);
                 client.setProxyConfiguration(proxyHost, proxy.getPort(), proxyUserName, proxy.getPassword());
             } else {
@@ -348,23 +412,42 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
         BuildInfoExtractorUtils.saveBuildInfoToFile(build, toFile);
     }
 
+    private void exportBuildInfo(Build build, File toFile, PublishMetrics metrics) throws IOException {
+        long start = metrics.start();
+        exportBuildInfo(build, toFile);
+        metrics.phaseEnded(PublishMetrics.Phase.SERIALIZATION, start);
+    }
+
+    private void writeMetrics(PublishMetrics metrics, File exportFile) {
+        log.log(LogLevel.LIFECYCLE, metrics.getSummary());
+        File reportFile = PublishMetrics.reportFile(exportFile);
+        try {
+            metrics.writeReport(reportFile);
+        } catch (IOException e) {
+            log.warn("Could not write the publish metrics '{}': {}", reportFile, e.getMessage());
+        }
+    }
+
     @TaskAction
     public void collectProjectBuildInfo() throws IOException {
+        BuildInfoPublishCoordinator coordinator = getPublishCoordinator();
         try {
             log.debug("Task '{}' activated", getPath());
-            // Only the last buildInfo execution activate the deployment
-            List<BuildInfoBaseTask> orderedTasks = getAllBuildInfoTasks();
-            int myIndex = orderedTasks.indexOf(this);
-            if (myIndex == -1) {
+            if (!coordinator.contains(this)) {
                 log.error("Could not find my own task {} in the task graph!", getPath());
                 return;
             }
-            if (myIndex == orderedTasks.size() - 1) {
+            coordinator.taskExecuted(this);
+            // Only the last buildInfo execution activate the deployment
+            if (coordinator.isLastTask(this)) {
                 log.debug("Starting build info extraction for project '{}' using last task in graph '{}'",
                         new Object[]{getProject().getPath(), getPath()});
-                prepareAndDeploy();
+                prepareAndDeploy(coordinator);
             }
         } finally {
+            if (coordinator.isLastTask(this)) {
+                coordinator.shutdown();
+            }
             String propertyFilePath = System.getenv(BuildInfoConfigProperties.PROP_PROPS_FILE);
             if (StringUtils.isNotBlank(propertyFilePath)) {
                 File file = new File(propertyFilePath);
@@ -376,18 +459,20 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
     }
 
     /**
-     * Analyze the task graph ordered and extract a list of build info tasks
+     * The coordinator is created once the task graph is ready, create it here if the graph listener was not called.
      *
-     * @return An ordered list of build info tasks
+     * @return The publish coordinator of the current build
      */
-    protected List<BuildInfoBaseTask> getAllBuildInfoTasks() {
-        List<BuildInfoBaseTask> result = new ArrayList<BuildInfoBaseTask>();
-        for (Task task : getProject().getGradle().getTaskGraph().getAllTasks()) {
-            if (task instanceof BuildInfoBaseTask) {
-                result.add((BuildInfoBaseTask) task);
+    protected BuildInfoPublishCoordinator getPublishCoordinator() {
+        ArtifactoryPluginConvention convention = ArtifactoryPluginUtil.getArtifactoryConvention(getProject());
+        synchronized (convention) {
+            BuildInfoPublishCoordinator coordinator = convention.getPublishCoordinator();
+            if (coordinator == null) {
+                coordinator = new BuildInfoPublishCoordinator(getProject().getGradle().getTaskGraph());
+                convention.setPublishCoordinator(coordinator);
             }
+            return coordinator;
         }
-        return result;
     }
 
     public void properties(Closure closure) {
@@ -397,9 +482,22 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
         artifactSpecs.addAll(propertiesConfig.getArtifactSpecs());
     }
 
+    private void saveFingerprints(ModuleFingerprints fingerprints) {
+        if (fingerprints.getSkippedModules() > 0) {
+            log.log(LogLevel.LIFECYCLE, fingerprints.getSummary());
+        }
+        try {
+            fingerprints.save();
+        } catch (IOException e) {
+            log.warn("Could not save the module fingerprints '" + fingerprints.getFile() + "': " + e.getMessage());
+        }
+    }
+
     private void deployArtifacts(Set<GradleDeployDetails> allDeployDetails, ArtifactoryBuildInfoClient client,
-            IncludeExcludePatterns patterns)
-            throws IOException {
+            IncludeExcludePatterns patterns, DeployJournal journal, Build build,
+            @Nullable ModuleFingerprints fingerprints, PublishMetrics metrics) throws IOException {
+        long start = metrics.start();
+        ListMultimap<String, DeployDetails> moduleDeployDetails = LinkedListMultimap.create();
         for (GradleDeployDetails detail : allDeployDetails) {
             DeployDetails deployDetails = detail.getDeployDetails();
             String artifactPath = deployDetails.getArtifactPath();
@@ -408,8 +506,26 @@ public abstract class BuildInfoBaseTask extends DefaultTask {
                         "' due to the defined include-exclude patterns.");
                 continue;
             }
+            moduleDeployDetails.put(GradleBuildInfoExtractor.getModuleId(detail.getProject()), deployDetails);
+        }
+        List<DeployDetails> toDeploy = Lists.newArrayList();
+        if (fingerprints != null && build.getModules() != null) {
+            for (Module module : build.getModules()) {
+                List<DeployDetails> deployables = moduleDeployDetails.removeAll(module.getId());
+                if (!fingerprints.isUnchanged(module.getId(), deployables, module.getDependencies())) {
+                    toDeploy.addAll(deployables);
+                }
+            }
+        }
+        // Without fingerprints, or artifacts of projects without a build info module
+        toDeploy.addAll(moduleDeployDetails.values());
+        metrics.phaseEnded(PublishMetrics.Phase.FILTERING, start);
+        journal.planned(toDeploy);
+        start = metrics.start();
+        for (DeployDetails deployDetails : toDeploy) {
             client.deployArtifact(deployDetails);
         }
+        metrics.phaseEnded(PublishMetrics.Phase.UPLOAD, start);
     }
 
     public abstract boolean hasModules();
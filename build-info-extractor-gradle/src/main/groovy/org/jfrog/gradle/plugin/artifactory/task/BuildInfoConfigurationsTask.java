@@ -37,10 +37,10 @@ import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.Upload;
-import org.jfrog.build.api.util.FileChecksumCalculator;
 import org.jfrog.build.client.ArtifactoryClientConfiguration;
 import org.jfrog.build.client.DeployDetails;
 import org.jfrog.build.client.LayoutPatterns;
+import org.jfrog.build.client.PublisherSettings;
 import org.jfrog.gradle.plugin.artifactory.extractor.GradleDeployDetails;
 import org.jfrog.gradle.plugin.artifactory.extractor.PublishArtifactInfo;
 
@@ -219,22 +219,16 @@ public class BuildInfoConfigurationsTask extends BuildInfoBaseTask {
     private GradleDeployDetails getIvyDescriptorDeployDetails() {
         ArtifactoryClientConfiguration clientConf = getArtifactoryClientConfiguration();
         DeployDetails.Builder artifactBuilder = new DeployDetails.Builder().file(ivyDescriptor);
-        try {
-            Map<String, String> checksums =
-                    FileChecksumCalculator.calculateChecksums(ivyDescriptor, "MD5", "SHA1");
-            artifactBuilder.md5(checksums.get("MD5")).sha1(checksums.get("SHA1"));
-        } catch (Exception e) {
-            throw new GradleException(
-                    "Failed to calculate checksums for artifact: " + ivyDescriptor.getAbsolutePath(), e);
-        }
+        calculateChecksums(artifactBuilder, ivyDescriptor);
+        PublisherSettings publisherConf = clientConf.publisher.getSettings();
         String gid = getProject().getGroup().toString();
-        if (clientConf.publisher.isM2Compatible()) {
+        if (publisherConf.isM2Compatible()) {
             gid = gid.replace(".", "/");
         }
         artifactBuilder.artifactPath(IvyPatternHelper
-                .substitute(clientConf.publisher.getIvyPattern(), gid, getModuleName(),
+                .substitute(publisherConf.getIvyPattern(), gid, getModuleName(),
                         getProject().getVersion().toString(), null, "ivy", "xml"));
-        artifactBuilder.targetRepository(clientConf.publisher.getRepoKey());
+        artifactBuilder.targetRepository(publisherConf.getRepoKey());
         PublishArtifactInfo artifactInfo =
                 new PublishArtifactInfo(ivyDescriptor.getName(), "xml", "ivy", null, ivyDescriptor);
         Map<String, String> propsToAdd = getPropsToAdd(artifactInfo, null);
@@ -245,19 +239,12 @@ public class BuildInfoConfigurationsTask extends BuildInfoBaseTask {
     private GradleDeployDetails getMavenDeployDetails() {
         ArtifactoryClientConfiguration clientConf = getArtifactoryClientConfiguration();
         DeployDetails.Builder artifactBuilder = new DeployDetails.Builder().file(mavenDescriptor);
-        try {
-            Map<String, String> checksums =
-                    FileChecksumCalculator.calculateChecksums(mavenDescriptor, "MD5", "SHA1");
-            artifactBuilder.md5(checksums.get("MD5")).sha1(checksums.get("SHA1"));
-        } catch (Exception e) {
-            throw new GradleException(
-                    "Failed to calculate checksums for artifact: " + mavenDescriptor.getAbsolutePath(), e);
-        }
+        calculateChecksums(artifactBuilder, mavenDescriptor);
         // for pom files always enforce the M2 pattern
         artifactBuilder.artifactPath(IvyPatternHelper.substitute(LayoutPatterns.M2_PATTERN,
                 getProject().getGroup().toString().replace(".", "/"), getModuleName(),
                 getProject().getVersion().toString(), null, "pom", "pom"));
-        artifactBuilder.targetRepository(clientConf.publisher.getRepoKey());
+        artifactBuilder.targetRepository(clientConf.publisher.getSettings().getRepoKey());
         PublishArtifactInfo artifactInfo =
                 new PublishArtifactInfo(mavenDescriptor.getName(), "pom", "pom", null, mavenDescriptor);
         Map<String, String> propsToAdd = getPropsToAdd(artifactInfo, null);
@@ -431,8 +418,7 @@ public class BuildInfoConfigurationsTask extends BuildInfoBaseTask {
             extraTokens.put("classifier", artifact.getClassifier());
         }
 
-        ArtifactoryClientConfiguration clientConf = getArtifactoryClientConfiguration();
-        ArtifactoryClientConfiguration.PublisherHandler publisherConf = clientConf.publisher;
+        PublisherSettings publisherConf = getArtifactoryClientConfiguration().publisher.getSettings();
         String pattern = publisherConf.getIvyArtifactPattern();
         String gid = getProject().getGroup().toString();
         if (publisherConf.isM2Compatible()) {
@@ -440,14 +426,7 @@ public class BuildInfoConfigurationsTask extends BuildInfoBaseTask {
         }
 
         DeployDetails.Builder deployDetailsBuilder = new DeployDetails.Builder().file(file);
-        try {
-            Map<String, String> checksums =
-                    FileChecksumCalculator.calculateChecksums(file, "MD5", "SHA1");
-            deployDetailsBuilder.md5(checksums.get("MD5")).sha1(checksums.get("SHA1"));
-        } catch (Exception e) {
-            throw new GradleException(
-                    "Failed to calculate checksums for artifact: " + file.getAbsolutePath(), e);
-        }
+        calculateChecksums(deployDetailsBuilder, file);
 
         if (artifactPath != null) {
             deployDetailsBuilder.artifactPath(artifactPath);
@@ -40,10 +40,10 @@ import org.gradle.api.publish.maven.internal.publisher.MavenNormalizedPublicatio
 import org.gradle.api.publish.maven.internal.publisher.MavenProjectIdentity;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Optional;
-import org.jfrog.build.api.util.FileChecksumCalculator;
 import org.jfrog.build.client.ArtifactoryClientConfiguration;
 import org.jfrog.build.client.DeployDetails;
 import org.jfrog.build.client.LayoutPatterns;
+import org.jfrog.build.client.PublisherSettings;
 import org.jfrog.gradle.plugin.artifactory.extractor.GradleDeployDetails;
 import org.jfrog.gradle.plugin.artifactory.extractor.PublishArtifactInfo;
 
@@ -247,14 +247,7 @@ public class BuildInfoPublicationsTask extends BuildInfoBaseTask {
         processedFiles.add(file.getAbsolutePath());
 
         DeployDetails.Builder artifactBuilder = new DeployDetails.Builder().file(file);
-        try {
-            Map<String, String> checksums =
-                    FileChecksumCalculator.calculateChecksums(file, "MD5", "SHA1");
-            artifactBuilder.md5(checksums.get("MD5")).sha1(checksums.get("SHA1"));
-        } catch (Exception e) {
-            throw new GradleException(
-                    "Failed to calculate checksums for artifact: " + file.getAbsolutePath(), e);
-        }
+        calculateChecksums(artifactBuilder, file);
         return artifactBuilder;
     }
 
@@ -269,8 +262,7 @@ public class BuildInfoPublicationsTask extends BuildInfoBaseTask {
     private void addIvyArtifactToDeployDetails(Set<GradleDeployDetails> deployDetails, String publicationName,
                                                IvyPublicationIdentity projectIdentity, DeployDetails.Builder builder,
                                                PublishArtifactInfo artifactInfo) {
-        ArtifactoryClientConfiguration clientConf = getArtifactoryClientConfiguration();
-        ArtifactoryClientConfiguration.PublisherHandler publisherConf = clientConf.publisher;
+        PublisherSettings publisherConf = getArtifactoryClientConfiguration().publisher.getSettings();
         String pattern;
         if ("ivy".equals(artifactInfo.getType())) {
             pattern = publisherConf.getIvyPattern();
@@ -308,7 +300,7 @@ public class BuildInfoPublicationsTask extends BuildInfoBaseTask {
 
     private void addArtifactInfoToDeployDetails(Set<GradleDeployDetails> deployDetails, String publicationName,
                                                 DeployDetails.Builder builder, PublishArtifactInfo artifactInfo) {
-        builder.targetRepository(getArtifactoryClientConfiguration().publisher.getRepoKey());
+        builder.targetRepository(getArtifactoryClientConfiguration().publisher.getSettings().getRepoKey());
         Map<String, String> propsToAdd = getPropsToAdd(artifactInfo, publicationName);
         builder.addProperties(propsToAdd);
         DeployDetails details = builder.build();
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.gradle.plugin.artifactory.task;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.jfrog.build.api.util.FileChecksumCalculator;
+import org.jfrog.build.client.DeployDetails;
+import org.jfrog.gradle.plugin.artifactory.extractor.GradleDeployDetails;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Coordinates the artifactoryPublish tasks of a single build.
+ * <p/>
+ * The task graph is analyzed once, when it is ready, instead of on every task execution. Each build info task
+ * collects its descriptors and artifacts on its own thread as it executes, since the Gradle model must not be read from
+ * other threads, and the checksums of the collected files are calculated in the background meanwhile. With parallel
+ * project execution, the tasks of the different projects are collected in parallel. The last build info task in the
+ * graph waits for the pending checksums and deploys.
+ */
+public class BuildInfoPublishCoordinator {
+    private static final Logger log = Logging.getLogger(BuildInfoPublishCoordinator.class);
+
+    private final List<BuildInfoBaseTask> orderedTasks;
+    private final Set<BuildInfoBaseTask> tasks;
+    private final BuildInfoBaseTask lastTask;
+    private final Set<GradleDeployDetails> collectedDeployDetails = Sets.newLinkedHashSet();
+    private final List<PendingChecksums> pendingChecksums = Lists.newArrayList();
+    private boolean buildAttributesSet;
+    private ExecutorService executor;
+
+    public BuildInfoPublishCoordinator(TaskExecutionGraph taskGraph) {
+        ImmutableList.Builder<BuildInfoBaseTask> builder = ImmutableList.builder();
+        for (Task task : taskGraph.getAllTasks()) {
+            if (task instanceof BuildInfoBaseTask) {
+                builder.add((BuildInfoBaseTask) task);
+            }
+        }
+        orderedTasks = builder.build();
+        tasks = ImmutableSet.copyOf(orderedTasks);
+        lastTask = orderedTasks.isEmpty() ? null : orderedTasks.get(orderedTasks.size() - 1);
+    }
+
+    /**
+     * @return The build info tasks of the task graph, in execution order
+     */
+    public List<BuildInfoBaseTask> getOrderedTasks() {
+        return orderedTasks;
+    }
+
+    public boolean contains(BuildInfoBaseTask task) {
+        return tasks.contains(task);
+    }
+
+    /**
+     * @return True if the given task is the last build info task of the graph, the one that activates the deployment
+     */
+    public boolean isLastTask(BuildInfoBaseTask task) {
+        return lastTask == task;
+    }
+
+    /**
+     * Collect the descriptors and artifacts of a build info task that executed, on the thread of the task. The build
+     * attributes are set before the first collection, since the deploy properties are taken from them. The checksums
+     * of the collected files are calculated in the background.
+     *
+     * @param task The executed build info task
+     * @throws IOException In case the collection failed on I/O
+     */
+    public void taskExecuted(BuildInfoBaseTask task) throws IOException {
+        synchronized (this) {
+            if (!buildAttributesSet) {
+                task.setMissingBuildAttributes();
+                buildAttributesSet = true;
+            }
+        }
+        log.debug("Collecting artifacts for upload of task '{}'", task.getPath());
+        task.collectDescriptorsAndArtifactsForUpload();
+        Set<GradleDeployDetails> deployDetails = task.getDeployDetails();
+        synchronized (this) {
+            collectedDeployDetails.addAll(deployDetails);
+        }
+    }
+
+    /**
+     * Wait for the checksums of the files collected from the executed tasks.
+     *
+     * @return The deploy details of all the executed tasks, with their checksums, in task execution order
+     */
+    public synchronized Set<GradleDeployDetails> collectDeployDetails() {
+        awaitChecksums();
+        return Sets.newLinkedHashSet(collectedDeployDetails);
+    }
+
+    /**
+     * Calculate the checksums of a file to deploy in the background. They are set on the builder before
+     * {@link #collectDeployDetails()} returns.
+     *
+     * @param builder The deploy details builder of the file
+     * @param file    The file to deploy
+     */
+    public synchronized void calculateChecksums(DeployDetails.Builder builder, final File file) {
+        Future<Map<String, String>> checksums = getExecutor().submit(new Callable<Map<String, String>>() {
+            public Map<String, String> call() throws Exception {
+                return FileChecksumCalculator.calculateChecksums(file, "MD5", "SHA1");
+            }
+        });
+        pendingChecksums.add(new PendingChecksums(builder, file, checksums));
+    }
+
+    private void awaitChecksums() {
+        try {
+            for (PendingChecksums pending : pendingChecksums) {
+                try {
+                    Map<String, String> checksums = pending.checksums.get();
+                    pending.builder.md5(checksums.get("MD5")).sha1(checksums.get("SHA1"));
+                } catch (ExecutionException e) {
+                    throw new GradleException(
+                            "Failed to calculate checksums for artifact: " + pending.file.getAbsolutePath(),
+                            e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while calculating the checksums of the artifacts", e);
+        } finally {
+            pendingChecksums.clear();
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+            executor = Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat("artifactory-checksums-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+
+    private static class PendingChecksums {
+        private final DeployDetails.Builder builder;
+        private final File file;
+        private final Future<Map<String, String>> checksums;
+
+        private PendingChecksums(DeployDetails.Builder builder, File file, Future<Map<String, String>> checksums) {
+            this.builder = builder;
+            this.file = file;
+            this.checksums = checksums;
+        }
+    }
+}
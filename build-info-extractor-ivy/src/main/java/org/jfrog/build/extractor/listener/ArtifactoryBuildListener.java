@@ -341,29 +341,63 @@ public class ArtifactoryBuildListener implements BuildListener {
         String contextUrl = clientConf.publisher.getContextUrl();
         String username = clientConf.publisher.getUsername();
         String password = clientConf.publisher.getPassword();
+        ArtifactoryBuildInfoClient client =
+                new ArtifactoryBuildInfoClient(contextUrl, username, password, log);
+        Integer maxConcurrentRequests = clientConf.getMaxConcurrentRequests();
+        if (maxConcurrentRequests != null && maxConcurrentRequests > 0) {
+            client.setConcurrencyLimiter(new AdaptiveConcurrencyLimiter(maxConcurrentRequests));
+        }
+        PublishMetrics metrics = new PublishMetrics();
+        client.setPublishMetrics(metrics);
+        DeployJournal journal = null;
         try {
-            ArtifactoryBuildInfoClient client =
-                    new ArtifactoryBuildInfoClient(contextUrl, username, password, log);
-
-
             configureProxy(clientConf, client);
             if (clientConf.publisher.isPublishArtifacts()) {
                 IncludeExcludePatterns patterns = new IncludeExcludePatterns(
                         clientConf.publisher.getIncludePatterns(), clientConf.publisher.getExcludePatterns());
 
-                deployArtifacts(project, client, deployDetails, patterns);
+                PublisherSettings publisher = clientConf.publisher.getSettings();
+                client.setBandwidthLimiter(BandwidthLimiter.forPublisher(publisher, log));
+                client.setZeroCopyUpload(publisher.isZeroCopyUpload());
+                client.setDeployManifest(DeployManifest.forPublisher(publisher,
+                        new File(project.getBaseDir(), "build/artifactory-deploy-manifest.txt"), log));
+                journal = DeployJournal.forPublisher(publisher,
+                        new File(project.getBaseDir(), "build/artifactory-deploy-journal.txt"), log);
+                client.setDeployJournal(journal);
+                deployArtifacts(project, client, deployDetails, patterns, journal, metrics);
             }
             if (clientConf.publisher.isPublishBuildInfo()) {
+                if (clientConf.publisher.isMetricsProperties()) {
+                    metrics.addToBuild(build);
+                }
                 client.sendBuildInfo(build);
             }
+            if (journal != null) {
+                journal.finished();
+            }
             isDidDeploy = true;
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            client.shutdown();
+            writeMetrics(log, metrics, new File(project.getBaseDir(), "build/" + PublishMetrics.REPORT_FILE_NAME));
+        }
+    }
+
+    private void writeMetrics(IvyBuildInfoLog log, PublishMetrics metrics, File reportFile) {
+        log.info("[buildinfo:deploy] " + metrics.getSummary());
+        try {
+            metrics.writeReport(reportFile);
+        } catch (IOException e) {
+            log.warn("Could not write the publish metrics '" + reportFile + "': " + e.getMessage());
         }
     }
 
     private void deployArtifacts(Project project, ArtifactoryBuildInfoClient client, Set<DeployDetails> deployDetails,
-                                 IncludeExcludePatterns patterns) throws IOException {
+                                 IncludeExcludePatterns patterns, DeployJournal journal, PublishMetrics metrics)
+            throws IOException {
+        long start = metrics.start();
+        List<DeployDetails> toDeploy = new ArrayList<DeployDetails>();
         for (DeployDetails deployDetail : deployDetails) {
             String artifactPath = deployDetail.getArtifactPath();
             if (PatternMatcher.pathConflicts(artifactPath, patterns)) {
@@ -371,8 +405,15 @@ public class ArtifactoryBuildListener implements BuildListener {
                         "' due to the defined include-exclude patterns.", Project.MSG_INFO);
                 continue;
             }
+            toDeploy.add(deployDetail);
+        }
+        metrics.phaseEnded(PublishMetrics.Phase.FILTERING, start);
+        journal.planned(toDeploy);
+        start = metrics.start();
+        for (DeployDetails deployDetail : toDeploy) {
             client.deployArtifact(deployDetail);
         }
+        metrics.phaseEnded(PublishMetrics.Phase.UPLOAD, start);
     }
 
     protected void configureProxy(ArtifactoryClientConfiguration clientConf, ArtifactoryBuildInfoClient client) {
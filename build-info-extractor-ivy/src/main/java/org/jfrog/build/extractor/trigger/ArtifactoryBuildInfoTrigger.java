@@ -31,6 +31,7 @@ import org.jfrog.build.client.ArtifactoryClientConfiguration;
 import org.jfrog.build.client.DeployDetails;
 import org.jfrog.build.client.IncludeExcludePatterns;
 import org.jfrog.build.client.PatternMatcher;
+import org.jfrog.build.client.PublisherSettings;
 import org.jfrog.build.context.BuildContext;
 import org.jfrog.build.util.IvyResolverHelper;
 
@@ -114,7 +115,7 @@ public class ArtifactoryBuildInfoTrigger implements Trigger {
                     Dependency dependency = findDependencyInList(id, type, moduleDependencies);
                     if (dependency == null) {
                         DependencyBuilder dependencyBuilder = new DependencyBuilder();
-                        dependencyBuilder.type(type).scopes(Lists.newArrayList(configuration));
+                        dependencyBuilder.type(type).addScope(configuration);
                         String idString = getModuleIdString(id.getOrganisation(),
                                 id.getName(), id.getRevision());
                         dependencyBuilder.id(idString);
@@ -134,7 +135,7 @@ public class ArtifactoryBuildInfoTrigger implements Trigger {
                                 "[buildinfo:collect] Added dependency '" + dependency.getId() + "'", Project.MSG_DEBUG);
                     } else {
                         if (!dependency.getScopes().contains(configuration)) {
-                            dependency.getScopes().add(configuration);
+                            dependency.addScope(configuration);
                             project.log(
                                     "[buildinfo:collect] Added scope " + configuration +
                                             " to dependency '" + dependency.getId() + "'", Project.MSG_DEBUG);
@@ -156,9 +157,8 @@ public class ArtifactoryBuildInfoTrigger implements Trigger {
      * @param event the Ivy publish event
      */
     private void collectModuleInformation(IvyEvent event) {
-        ArtifactoryClientConfiguration.PublisherHandler publisher = ctx.getClientConf().publisher;
-        IncludeExcludePatterns patterns = new IncludeExcludePatterns(
-                publisher.getIncludePatterns(), publisher.getExcludePatterns());
+        PublisherSettings publisher = ctx.getClientConf().publisher.getSettings();
+        IncludeExcludePatterns patterns = publisher.getIncludeExcludePatterns();
         boolean excludeArtifactsFromBuild = publisher.isFilterExcludedArtifactsFromBuild();
         Project project = (Project) IvyContext.peekInContextStack(IvyTask.ANT_PROJECT_CONTEXT_KEY);
 
@@ -236,11 +236,12 @@ public class ArtifactoryBuildInfoTrigger implements Trigger {
     private DeployDetails buildDeployDetails(File artifactFile, Artifact artifact,
                                              BuildContext ctx, Map<String, String> map, Map<String, String> extraAttributes) {
         ArtifactoryClientConfiguration clientConf = ctx.getClientConf();
+        PublisherSettings publisher = clientConf.publisher.getSettings();
         DeployDetails.Builder builder =
                 new DeployDetails.Builder().file(artifactFile).sha1(artifact.getSha1()).md5(artifact.getMd5());
         builder.artifactPath(
-                IvyResolverHelper.calculateArtifactPath(clientConf.publisher, map, extraAttributes));
-        builder.targetRepository(clientConf.publisher.getRepoKey());
+                IvyResolverHelper.calculateArtifactPath(publisher, map, extraAttributes));
+        builder.targetRepository(publisher.getRepoKey());
         if (StringUtils.isNotBlank(clientConf.info.getVcsRevision())) {
             builder.addProperty(BuildInfoFields.VCS_REVISION, clientConf.info.getVcsRevision());
         }
@@ -264,7 +265,7 @@ public class ArtifactoryBuildInfoTrigger implements Trigger {
         if (StringUtils.isNotBlank(clientConf.info.getParentBuildNumber())) {
             builder.addProperty(BuildInfoFields.BUILD_PARENT_NUMBER, clientConf.info.getParentBuildNumber());
         }
-        builder.addProperties(clientConf.publisher.getMatrixParams());
+        builder.addProperties(publisher.getMatrixParams());
         return builder.build();
     }
 
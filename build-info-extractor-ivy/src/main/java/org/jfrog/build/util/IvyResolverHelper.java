@@ -2,7 +2,7 @@ package org.jfrog.build.util;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.ivy.core.IvyPatternHelper;
-import org.jfrog.build.client.ArtifactoryClientConfiguration;
+import org.jfrog.build.client.RepositorySettings;
 
 import java.util.Map;
 
@@ -21,7 +21,7 @@ public class IvyResolverHelper {
      * @param attributes
      * @param extraAttributes
      */
-    public static String calculateArtifactPath(ArtifactoryClientConfiguration.PublisherHandler publisher,
+    public static String calculateArtifactPath(RepositorySettings publisher,
             Map<String, String> attributes,
             Map<String, String> extraAttributes) {
         String organization = attributes.get("organisation");
@@ -39,7 +39,7 @@ public class IvyResolverHelper {
                 extraAttributes, null);
     }
 
-    private static String getPattern(ArtifactoryClientConfiguration.PublisherHandler pub, String type) {
+    private static String getPattern(RepositorySettings pub, String type) {
         if (isIvy(type)) {
             return pub.getIvyPattern();
         } else {
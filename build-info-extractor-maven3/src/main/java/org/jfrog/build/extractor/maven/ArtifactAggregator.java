@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.maven;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.util.FileChecksumCalculator;
+import org.jfrog.build.client.DeployDetails;
+import org.jfrog.build.util.FileLinks;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Copies the artifacts of the Maven invocations of a build into the aggregate directory, in parallel. The artifacts
+ * already in the directory with the same size and checksum are skipped.
+ * <p/>
+ * When linking, the artifacts are hard linked rather than copied, and copied only if the aggregate directory is on
+ * another file system. A linked file shares its content with the artifact: the aggregated files are always replaced,
+ * never overwritten in place. The reverse also holds: an artifact rewritten in place, rather than deleted and created
+ * again, silently changes its aggregated file, which is still reported up to date while the checksums recorded in
+ * deployables.json are stale. Linking is only safe when the artifacts are replaced, e.g. by clean builds.
+ */
+class ArtifactAggregator {
+
+    private final File    aggregateDirectory;
+    private final String  workspacePath;
+    private final boolean link;
+
+    ArtifactAggregator( File aggregateDirectory, boolean link ) throws IOException
+    {
+        this.aggregateDirectory = aggregateDirectory;
+        this.workspacePath      = aggregateDirectory.getAbsoluteFile().getParentFile().getCanonicalPath().replace( '\\', '/' );
+        this.link               = link;
+    }
+
+
+    /**
+     * @return The number of artifacts copied or linked, the others were up to date
+     */
+    int aggregate( Collection<DeployDetails> deployables ) throws IOException
+    {
+        if ( deployables.isEmpty()) {
+            return 0;
+        }
+
+        int             threads  = Math.min( Runtime.getRuntime().availableProcessors(), deployables.size());
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try {
+            List<Future<Boolean>> aggregations = Lists.newArrayListWithCapacity( deployables.size());
+            for ( final DeployDetails details : deployables ) {
+                final File source = details.getFile();
+                final File target = aggregatedFile( source );
+                aggregations.add( executor.submit( new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        return aggregate( source, target, details.getSha1());
+                    }
+                }));
+            }
+
+            int aggregated = 0;
+            for ( Future<Boolean> aggregation : aggregations ) {
+                if ( get( aggregation )) {
+                    aggregated++;
+                }
+            }
+            return aggregated;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    File aggregatedFile( File file ) throws IOException
+    {
+        String artifactPath         = file.getCanonicalPath().replace( '\\', '/' );
+        String artifactRelativePath = artifactPath.startsWith( workspacePath ) ?
+           /**
+            * "/Users/evgenyg/.hudson/jobs/teamcity-artifactory-plugin/workspace/agent/target/teamcity-artifactory-plugin-agent-2.1.x-SNAPSHOT.jar" =>
+            * "agent/target/teamcity-artifactory-plugin-agent-2.1.x-SNAPSHOT.jar"
+            */
+            artifactPath.substring( workspacePath.length() + 1 ) :
+           /**
+            * Artifact is outside workspace, wonder if it works on Windows
+            */
+            artifactPath;
+
+        return new File( aggregateDirectory, artifactRelativePath );
+    }
+
+
+    private boolean aggregate( File source, File target, String sha1 ) throws IOException, NoSuchAlgorithmException
+    {
+        if ( isUpToDate( source, target, sha1 )) {
+            return false;
+        }
+
+        if ( target.exists()) {
+            FileUtils.forceDelete( target );
+        }
+        FileUtils.forceMkdir( target.getParentFile());
+        if ( ! ( link && FileLinks.createLink( source, target ))) {
+            FileLinks.copy( source, target );
+        }
+        return true;
+    }
+
+
+    /**
+     * Most *.jar files contain a timestamp in pom.properties (thanks, Maven), so their checksum only matches when the
+     * module was not rebuilt. The checksum is only calculated for files of the same size.
+     */
+    private boolean isUpToDate( File source, File target, String sha1 ) throws IOException, NoSuchAlgorithmException
+    {
+        if (( ! target.isFile()) || ( target.length() != source.length())) {
+            return false;
+        }
+        if ( FileLinks.isSameFile( source, target )) {
+            return true;
+        }
+        return ( sha1 != null ) && sha1.equals( FileChecksumCalculator.calculateChecksums( target, "sha1" ).get( "sha1" ));
+    }
+
+
+    /**
+     * Wait for the result of a task, rethrowing its failure as is.
+     */
+    private static <T> T get( Future<T> future ) throws IOException
+    {
+        try {
+            return future.get();
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while aggregating the artifacts", e );
+        }
+        catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw ( IOException ) cause;
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw ( RuntimeException ) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw ( Error ) cause;
+            }
+            throw new IOException( cause );
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.jfrog.build.extractor.maven;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
@@ -29,9 +30,11 @@ import org.jfrog.build.api.Module;
 import org.jfrog.build.api.util.FileChecksumCalculator;
 import org.jfrog.build.client.*;
 import org.jfrog.build.extractor.BuildInfoExtractorUtils;
+import org.jfrog.build.extractor.codec.BuildInfoCodecs;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -61,49 +64,79 @@ public class BuildDeploymentHelper {
                         File                           basedir )
     {
 
-        Set<DeployDetails> deployableArtifacts = prepareDeployableArtifacts(build, deployableArtifactBuilders);
+        PublisherSettings publisher = clientConf.publisher.getSettings();
+        PublishMetrics metrics = new PublishMetrics();
+        // Unchanged modules are skipped only when deploying, aggregation needs all the artifacts
+        ModuleFingerprints fingerprints = null;
+        if (publisher.isPublishArtifacts() && publisher.getAggregateArtifacts() == null &&
+                (publisher.isEvenUnstable() || !wereThereTestFailures)) {
+            fingerprints = ModuleFingerprints.forPublisher(publisher,
+                    new File(basedir, "target/artifactory-module-fingerprints.txt"), clientConf.getLog());
+        }
+        Set<DeployDetails> deployableArtifacts = prepareDeployableArtifacts(build, deployableArtifactBuilders,
+                fingerprints, metrics);
 
-        logger.debug("Build Info Recorder: " + clientConf.publisher.isPublishBuildInfo());
+        logger.debug("Build Info Recorder: " + publisher.isPublishBuildInfo());
 
         File aggregateDirectory;
         File buildInfoAggregated = null;
         File buildInfoFile = null;
-        if (clientConf.publisher.isPublishBuildInfo() || clientConf.publisher.getAggregateArtifacts() != null) {
-            buildInfoFile = saveBuildInfoToFile(build, clientConf, basedir);
+        if (publisher.isPublishBuildInfo() || publisher.getAggregateArtifacts() != null) {
+            buildInfoFile = saveBuildInfoToFile(build, clientConf, basedir, metrics);
         }
-        if (clientConf.publisher.getAggregateArtifacts() != null) {
-            aggregateDirectory                   = new File( clientConf.publisher.getAggregateArtifacts());
-            buildInfoAggregated                  = new File( aggregateDirectory, "build-info.json" );
-            boolean isCopyAggregatedArtifacts    = clientConf.publisher.isCopyAggregatedArtifacts();
-            boolean isPublishAggregatedArtifacts = clientConf.publisher.isPublishAggregatedArtifacts();
+        if (publisher.getAggregateArtifacts() != null) {
+            aggregateDirectory                   = new File( publisher.getAggregateArtifacts());
+            buildInfoAggregated                  = new File( aggregateDirectory, "build-info" +
+                                                                   BuildInfoCodecs.forFile( buildInfoFile ).getExtension());
+            boolean isCopyAggregatedArtifacts    = publisher.isCopyAggregatedArtifacts();
+            boolean isLinkAggregatedArtifacts    = publisher.isLinkAggregatedArtifacts();
+            boolean isPublishAggregatedArtifacts = publisher.isPublishAggregatedArtifacts();
             deployableArtifacts                  = aggregateArtifacts( aggregateDirectory, buildInfoFile, buildInfoAggregated, deployableArtifacts,
-                                                                       isCopyAggregatedArtifacts, isPublishAggregatedArtifacts );
+                                                                       isCopyAggregatedArtifacts, isLinkAggregatedArtifacts, isPublishAggregatedArtifacts );
 
             if ( ! isPublishAggregatedArtifacts ) {
                 return;
             }
         }
 
-        if (clientConf.publisher.isPublishBuildInfo() || clientConf.publisher.isPublishArtifacts()) {
+        if (publisher.isPublishBuildInfo() || publisher.isPublishArtifacts()) {
             ArtifactoryBuildInfoClient client = buildInfoClientBuilder.resolveProperties(clientConf);
-            boolean isDeployArtifacts = clientConf.publisher.isPublishArtifacts() &&
+            client.setPublishMetrics(metrics);
+            boolean isDeployArtifacts = publisher.isPublishArtifacts() &&
                                         ( deployableArtifacts != null )           &&
                                         ( ! deployableArtifacts.isEmpty())        &&
-                                        ( clientConf.publisher.isEvenUnstable() || ( ! wereThereTestFailures ));
-            boolean isSendBuildInfo   = clientConf.publisher.isPublishBuildInfo() &&
-                                        ( clientConf.publisher.isEvenUnstable() || ( ! wereThereTestFailures ));
+                                        ( publisher.isEvenUnstable() || ( ! wereThereTestFailures ));
+            boolean isSendBuildInfo   = publisher.isPublishBuildInfo() &&
+                                        ( publisher.isEvenUnstable() || ( ! wereThereTestFailures ));
 
+            DeployJournal journal = null;
             try {
                 if ( isDeployArtifacts ) {
-                    deployArtifacts(clientConf.publisher, deployableArtifacts, client);
+                    client.setBandwidthLimiter(BandwidthLimiter.forPublisher(publisher, clientConf.getLog()));
+                    client.setZeroCopyUpload(publisher.isZeroCopyUpload());
+                    client.setDeployManifest(DeployManifest.forPublisher(publisher,
+                            new File(basedir, "target/artifactory-deploy-manifest.txt"), clientConf.getLog()));
+                    journal = DeployJournal.forPublisher(publisher,
+                            new File(basedir, "target/artifactory-deploy-journal.txt"), clientConf.getLog());
+                    client.setDeployJournal(journal);
+                    deployArtifacts(publisher, deployableArtifacts, client, journal, metrics);
                 }
 
                 if ( isSendBuildInfo ) {
                     logger.info("Artifactory Build Info Recorder: Deploying build info ...");
+                    if ( publisher.isMetricsProperties() ) {
+                        metrics.addToBuild( build );
+                        // The build info was exported before the deployment, export it again with the metrics.
+                        // Not timed, the serialization phase was measured by the first export and the metrics
+                        // in the build must match the report.
+                        if ( buildInfoFile != null ) {
+                            saveBuildInfoToFile( build, clientConf, basedir );
+                        }
+                    }
                     try {
                         if ( buildInfoAggregated != null ) {
                             String buildInfoJson           = client.buildInfoToJsonString( build );
-                            String buildInfoAggregatedJson = FileUtils.readFileToString( buildInfoAggregated, "UTF-8" );
+                            String buildInfoAggregatedJson = buildInfoMergeHelper.jsonFileToString( buildInfoAggregated );
                             String buildInfoMerged         = buildInfoMergeHelper.mergeJsons( buildInfoAggregatedJson, buildInfoJson );
                             client.sendBuildInfo( buildInfoMerged );
                         }
@@ -114,18 +147,36 @@ public class BuildDeploymentHelper {
                         throw new RuntimeException("Error occurred while publishing Build Info to Artifactory.", e);
                     }
                 }
+                if ( journal != null ) {
+                    journal.finished();
+                }
+                if ( fingerprints != null ) {
+                    saveFingerprints(fingerprints);
+                }
             } finally {
                 client.shutdown();
+                writeMetrics(metrics, getBuildInfoFile(clientConf, basedir));
             }
         }
     }
 
-    private File saveBuildInfoToFile(Build build, ArtifactoryClientConfiguration clientConf, File basedir) {
+    private File getBuildInfoFile(ArtifactoryClientConfiguration clientConf, File basedir) {
         String outputFile = clientConf.getExportFile();
-        File buildInfoFile = StringUtils.isBlank(outputFile) ? new File(basedir, "target/build-info.json" ) :
-                new File(outputFile);
+        return StringUtils.isBlank(outputFile) ? new File(basedir, "target/build-info.json" ) : new File(outputFile);
+    }
 
-        logger.debug("Build Info Recorder: " + BuildInfoConfigProperties.EXPORT_FILE + " = " + outputFile);
+    private File saveBuildInfoToFile(Build build, ArtifactoryClientConfiguration clientConf, File basedir,
+            PublishMetrics metrics) {
+        long start = metrics.start();
+        File buildInfoFile = saveBuildInfoToFile(build, clientConf, basedir);
+        metrics.phaseEnded(PublishMetrics.Phase.SERIALIZATION, start);
+        return buildInfoFile;
+    }
+
+    private File saveBuildInfoToFile(Build build, ArtifactoryClientConfiguration clientConf, File basedir) {
+        File buildInfoFile = getBuildInfoFile(clientConf, basedir);
+
+        logger.debug("Build Info Recorder: " + BuildInfoConfigProperties.EXPORT_FILE + " = " + clientConf.getExportFile());
         logger.info("Artifactory Build Info Recorder: Saving Build Info to '" + buildInfoFile + "'" );
 
         try {
@@ -142,10 +193,36 @@ public class BuildDeploymentHelper {
                                                     File               buildInfoDestination,
                                                     Set<DeployDetails> deployables,
                                                     boolean            isCopyAggregatedArtifacts,
+                                                    boolean            isLinkAggregatedArtifacts,
                                                     boolean            isPublishAggregatedArtifacts ){
         try {
             File                deployablesDestination = new File( aggregateDirectory, "deployables.json" );
             List<Map<String,?>> mergedDeployables      = null;
+            ArtifactAggregator  aggregator             = new ArtifactAggregator( aggregateDirectory, isLinkAggregatedArtifacts );
+
+            /**
+             * The artifacts are aggregated before the metadata is written, so that the metadata never refers
+             * to artifacts missing from the aggregate directory.
+             */
+            if ( isCopyAggregatedArtifacts ) {
+                int aggregated = aggregator.aggregate( deployables );
+                logger.info( "Artifactory Build Info Recorder: " + ( isLinkAggregatedArtifacts ? "Linked " : "Copied " ) +
+                             aggregated + " of " + deployables.size() + " artifacts to '" + aggregateDirectory +
+                             "', the others were up to date" );
+            }
+
+            if ( deployablesDestination.isFile()) {
+                List<Map<String,?>> currentDeployables  = deployablesMergeHelper.jsonToObject ( deployablesMergeHelper.objectToJson( deployables ), List.class );
+                List<Map<String,?>> previousDeployables = deployablesMergeHelper.jsonToObject ( deployablesDestination, List.class );
+                mergedDeployables                       = deployablesMergeHelper.mergeLists( currentDeployables, new ArrayList<Map<String,?>>( previousDeployables ));
+                // Invocations deploying the same artifacts leave the metadata unchanged, it is not rewritten
+                if ( ! new HashSet<Map<String,?>>( mergedDeployables ).equals( new HashSet<Map<String,?>>( previousDeployables ))) {
+                    deployablesMergeHelper.jsonWrite( mergedDeployables, deployablesDestination );
+                }
+            }
+            else {
+                FileUtils.write( deployablesDestination, deployablesMergeHelper.objectToJson( deployables ), "UTF-8" );
+            }
 
             if ( buildInfoDestination.isFile()) {
                 Map<String,Object> buildInfoSourceMap      = buildInfoMergeHelper.jsonToObject( buildInfoSource,      Map.class );
@@ -160,28 +237,8 @@ public class BuildDeploymentHelper {
                 FileUtils.copyFile( buildInfoSource, buildInfoDestination );
             }
 
-            if ( deployablesDestination.isFile()) {
-                List<Map<String,?>> currentDeployables  = deployablesMergeHelper.jsonToObject ( deployablesMergeHelper.objectToJson( deployables ), List.class );
-                List<Map<String,?>> previousDeployables = deployablesMergeHelper.jsonToObject ( deployablesDestination, List.class );
-                mergedDeployables                       = deployablesMergeHelper.mergeAndWrite( currentDeployables, previousDeployables, deployablesDestination );
-            }
-            else {
-                FileUtils.write( deployablesDestination, deployablesMergeHelper.objectToJson( deployables ), "UTF-8" );
-            }
-
-            if ( isCopyAggregatedArtifacts ) {
-                for ( DeployDetails details : deployables ) {
-                    /**
-                     * We could check MD5 checksum of destination file (if it exists) and save on copy operation but since most *.jar
-                     * files contain a timestamp in pom.properties (thanks, Maven) - checksum would only match for POM files.
-                     */
-                    File aggregatedFile = aggregatedFile( aggregateDirectory, details.getFile());
-                    FileUtils.copyFile( details.getFile(), aggregatedFile );
-                }
-            }
-
             return ( isPublishAggregatedArtifacts && ( mergedDeployables != null )) ?
-                       convertDeployables( aggregateDirectory, mergedDeployables, isCopyAggregatedArtifacts ) :
+                       convertDeployables( aggregator, mergedDeployables, isCopyAggregatedArtifacts ) :
                        deployables;
         }
         catch ( IOException e ){
@@ -192,7 +249,7 @@ public class BuildDeploymentHelper {
 
 
     @SuppressWarnings({ "FeatureEnvy" , "SuppressionAnnotation" })
-    private Set<DeployDetails> convertDeployables ( File aggregateDirectory, Iterable<Map<String, ?>> deployables, boolean isCopyAggregatedArtifacts )
+    private Set<DeployDetails> convertDeployables ( ArtifactAggregator aggregator, Iterable<Map<String, ?>> deployables, boolean isCopyAggregatedArtifacts )
         throws IOException
     {
         Set<DeployDetails> result = new HashSet<DeployDetails>();
@@ -200,7 +257,7 @@ public class BuildDeploymentHelper {
         for ( Map<String,?> map : deployables ) {
 
             File file = new File(( String ) map.get( "file" ));
-            if ( isCopyAggregatedArtifacts ){ file = aggregatedFile( aggregateDirectory, file ); }
+            if ( isCopyAggregatedArtifacts ){ file = aggregator.aggregatedFile( file ); }
 
             DeployDetails.Builder builder = new DeployDetails.Builder().
                                             targetRepository(( String ) map.get( "targetRepository" )).
@@ -216,53 +273,51 @@ public class BuildDeploymentHelper {
     }
 
 
-    private File aggregatedFile( File aggregateDirectory, File file ) throws IOException
-    {
-        String workspacePath        = aggregateDirectory.getParentFile().getCanonicalPath().replace( '\\', '/' );
-        String artifactPath         = file.getCanonicalPath().replace( '\\', '/' );
-        String artifactRelativePath = artifactPath.startsWith( workspacePath ) ?
-           /**
-            * "/Users/evgenyg/.hudson/jobs/teamcity-artifactory-plugin/workspace/agent/target/teamcity-artifactory-plugin-agent-2.1.x-SNAPSHOT.jar" =>
-            * "agent/target/teamcity-artifactory-plugin-agent-2.1.x-SNAPSHOT.jar"
-            */
-            artifactPath.substring( workspacePath.length() + 1 ) :
-           /**
-            * Artifact is outside workspace, wonder if it works on Windows
-            */
-            artifactPath;
-
-        return new File( aggregateDirectory, artifactRelativePath );
-    }
-
-
     private Set<DeployDetails> prepareDeployableArtifacts(Build build,
-            Map<String, DeployDetails> deployableArtifactBuilders) {
+            Map<String, DeployDetails> deployableArtifactBuilders, ModuleFingerprints fingerprints,
+            PublishMetrics metrics) {
         Set<DeployDetails> deployableArtifacts = Sets.newLinkedHashSet();
         List<Module> modules = build.getModules();
-        for (Module module : modules) {
+        for (int i = 0; i < modules.size(); i++) {
+            Module module = modules.get(i);
             List<Artifact> artifacts = module.getArtifacts();
             if(artifacts!=null){
+                Set<DeployDetails> moduleDeployables = Sets.newLinkedHashSet();
+                boolean checksumsSet = false;
                 for (Artifact artifact : artifacts) {
                     String artifactId = BuildInfoExtractorUtils.getArtifactId(module.getId(), artifact.getName());
                     DeployDetails deployable = deployableArtifactBuilders.get(artifactId);
                     if (deployable != null) {
                         File file = deployable.getFile();
-                        setArtifactChecksums(file, artifact);
-                        deployableArtifacts.add(new DeployDetails.Builder().artifactPath(deployable.getArtifactPath()).
+                        setArtifactChecksums(file, artifact, metrics);
+                        checksumsSet = true;
+                        moduleDeployables.add(new DeployDetails.Builder().artifactPath(deployable.getArtifactPath()).
                                 file(file).md5(artifact.getMd5()).sha1(artifact.getSha1()).
                                 addProperties(deployable.getProperties()).
                                 targetRepository(deployable.getTargetRepository()).build());
                     }
                 }
+                if (checksumsSet) {
+                    // Spilled modules are read back as copies, store the updated checksums
+                    modules.set(i, module);
+                }
+                if (fingerprints == null || !fingerprints.isUnchanged(module.getId(), moduleDeployables,
+                        module.getDependencies())) {
+                    deployableArtifacts.addAll(moduleDeployables);
+                }
             }
         }
         return deployableArtifacts;
     }
 
-    private void deployArtifacts(ArtifactoryClientConfiguration.PublisherHandler publishConf,
+    private void deployArtifacts(PublisherSettings publishConf,
             Set<DeployDetails> deployableArtifacts,
-            ArtifactoryBuildInfoClient client) {
-        IncludeExcludePatterns includeExcludePatterns = getArtifactDeploymentPatterns(publishConf);
+            ArtifactoryBuildInfoClient client,
+            DeployJournal journal,
+            PublishMetrics metrics) {
+        IncludeExcludePatterns includeExcludePatterns = publishConf.getIncludeExcludePatterns();
+        long start = metrics.start();
+        List<DeployDetails> toDeploy = Lists.newArrayList();
         for (DeployDetails artifact : deployableArtifacts) {
             String artifactPath = artifact.getArtifactPath();
             if (PatternMatcher.pathConflicts(artifactPath, includeExcludePatterns)) {
@@ -270,7 +325,13 @@ public class BuildDeploymentHelper {
                         artifactPath + "' due to the defined include-exclude patterns.");
                 continue;
             }
+            toDeploy.add(artifact);
+        }
+        metrics.phaseEnded(PublishMetrics.Phase.FILTERING, start);
+        journal.planned(toDeploy);
 
+        start = metrics.start();
+        for (DeployDetails artifact : toDeploy) {
             try {
                 client.deployArtifact(artifact);
             } catch (IOException e) {
@@ -279,22 +340,44 @@ public class BuildDeploymentHelper {
                         ".\n Skipping deployment of remaining artifacts (if any) and build info.", e);
             }
         }
+        metrics.phaseEnded(PublishMetrics.Phase.UPLOAD, start);
+    }
+
+    private void saveFingerprints(ModuleFingerprints fingerprints) {
+        if (fingerprints.getSkippedModules() > 0) {
+            logger.info("Artifactory Build Info Recorder: " + fingerprints.getSummary());
+        }
+        try {
+            fingerprints.save();
+        } catch (IOException e) {
+            logger.warn("Could not save the module fingerprints '" + fingerprints.getFile() + "': " +
+                    e.getMessage());
+        }
     }
 
-    private void setArtifactChecksums(File artifactFile, org.jfrog.build.api.Artifact artifact) {
+    private void writeMetrics(PublishMetrics metrics, File buildInfoFile) {
+        logger.info("Artifactory Build Info Recorder: " + metrics.getSummary());
+        File reportFile = PublishMetrics.reportFile(buildInfoFile);
+        try {
+            metrics.writeReport(reportFile);
+        } catch (IOException e) {
+            logger.warn("Could not write the publish metrics '" + reportFile + "': " + e.getMessage());
+        }
+    }
+
+    private void setArtifactChecksums(File artifactFile, org.jfrog.build.api.Artifact artifact,
+            PublishMetrics metrics) {
         if ((artifactFile != null) && (artifactFile.isFile())) {
+            long start = metrics.start();
             try {
                 Map<String, String> checksums = FileChecksumCalculator.calculateChecksums(artifactFile, "md5", "sha1");
                 artifact.setMd5(checksums.get("md5"));
                 artifact.setSha1(checksums.get("sha1"));
+                metrics.hashed(artifactFile.length());
             } catch (Exception e) {
                 logger.error("Could not set checksum values on '" + artifact.getName() + "': " + e.getMessage(), e);
             }
+            metrics.phaseEnded(PublishMetrics.Phase.CHECKSUMS, start);
         }
     }
-
-    private IncludeExcludePatterns getArtifactDeploymentPatterns(
-            ArtifactoryClientConfiguration.PublisherHandler publishConf) {
-        return new IncludeExcludePatterns(publishConf.getIncludePatterns(), publishConf.getExcludePatterns());
-    }
 }
@@ -4,10 +4,12 @@ import org.apache.commons.lang.StringUtils;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.logging.Logger;
+import org.jfrog.build.client.AdaptiveConcurrencyLimiter;
 import org.jfrog.build.client.ArtifactoryBuildInfoClient;
 import org.jfrog.build.client.ArtifactoryClientConfiguration;
 import org.jfrog.build.client.ClientConfigurationFields;
 
+import static org.jfrog.build.client.ClientProperties.PROP_MAX_CONCURRENT_REQUESTS;
 import static org.jfrog.build.client.ClientProperties.PROP_TIMEOUT;
 
 /**
@@ -24,6 +26,7 @@ public class BuildInfoClientBuilder {
     public ArtifactoryBuildInfoClient resolveProperties(ArtifactoryClientConfiguration clientConf) {
         ArtifactoryBuildInfoClient client = resolveClientProps(clientConf);
         resolveTimeout(clientConf, client);
+        resolveConcurrency(clientConf, client);
         resolveProxy(clientConf.proxy, client);
         return client;
     }
@@ -62,6 +65,19 @@ public class BuildInfoClientBuilder {
         }
     }
 
+    private void resolveConcurrency(ArtifactoryClientConfiguration clientConf, ArtifactoryBuildInfoClient client) {
+        Integer maxConcurrentRequests = clientConf.getMaxConcurrentRequests();
+        if (maxConcurrentRequests == null) {
+            return;
+        }
+        logResolvedProperty(PROP_MAX_CONCURRENT_REQUESTS, maxConcurrentRequests.toString());
+        if (maxConcurrentRequests < 1) {
+            logger.debug("Unable to resolve Artifactory Build Info Client concurrency: value is not positive.");
+            return;
+        }
+        client.setConcurrencyLimiter(new AdaptiveConcurrencyLimiter(maxConcurrentRequests));
+    }
+
     private void resolveProxy(ArtifactoryClientConfiguration.ProxyHandler proxyConf,
             ArtifactoryBuildInfoClient client) {
         String proxyHost = proxyConf.getHost();
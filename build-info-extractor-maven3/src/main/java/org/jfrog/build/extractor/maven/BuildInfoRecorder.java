@@ -22,7 +22,6 @@ import com.google.common.collect.Sets;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.metadata.ArtifactMetadata;
 import org.apache.maven.execution.AbstractExecutionListener;
 import org.apache.maven.execution.ExecutionEvent;
@@ -39,10 +38,10 @@ import org.jfrog.build.api.builder.ArtifactBuilder;
 import org.jfrog.build.api.builder.BuildInfoMavenBuilder;
 import org.jfrog.build.api.builder.DependencyBuilder;
 import org.jfrog.build.api.builder.ModuleBuilder;
-import org.jfrog.build.api.util.FileChecksumCalculator;
 import org.jfrog.build.client.*;
 import org.jfrog.build.extractor.BuildInfoExtractor;
 import org.jfrog.build.extractor.BuildInfoExtractorUtils;
+import org.jfrog.build.extractor.SpillingModuleList;
 import org.jfrog.build.extractor.maven.resolver.ResolutionHelper;
 import org.xml.sax.InputSource;
 import javax.xml.xpath.*;
@@ -79,16 +78,18 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
 
     private ExecutionListener wrappedListener;
     private BuildInfoMavenBuilder buildInfoBuilder;
+    private SpillingModuleList modules;
     private ThreadLocal<ModuleBuilder> currentModule = new ThreadLocal<ModuleBuilder>();
     private ThreadLocal<Set<Artifact>> currentModuleArtifacts = new ThreadLocal<Set<Artifact>>();
-    private ThreadLocal<Set<Artifact>> currentModuleDependencies = new ThreadLocal<Set<Artifact>>();
+    private ThreadLocal<ResolutionLedger.ModuleDependencies> currentModuleDependencies =
+            new ThreadLocal<ResolutionLedger.ModuleDependencies>();
     private volatile boolean projectHasTestFailures;
     private Map<String, DeployDetails> deployableArtifactBuilderMap;
     private ArtifactoryClientConfiguration conf;
     private Map<String, String> matrixParams;
     private XPath xPath;
     private XPathExpression xPathExpression;
-    private Set<Artifact> resolvedArtifacts = Collections.synchronizedSet(new HashSet<Artifact>());
+    private ResolutionLedger resolutionLedger = new ResolutionLedger();
 
     public void setListenerToWrap(ExecutionListener executionListener) {
         wrappedListener = executionListener;
@@ -104,11 +105,26 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
      * @param artifact  The artifact being resolved by Maven.
      */
     public void artifactResolved(Artifact artifact) {
-        if (artifact != null) {
-            resolvedArtifacts.add(artifact);
+        if (artifact == null || !isRecordingResolvedArtifacts()) {
+            return;
+        }
+        int id = resolutionLedger.record(artifact);
+        // Maven resolves the artifacts of a module on the thread building it
+        ResolutionLedger.ModuleDependencies moduleDependencies = currentModuleDependencies.get();
+        if (moduleDependencies != null) {
+            moduleDependencies.addResolved(id, artifact.getScope());
+        } else {
+            resolutionLedger.addUnattributed(id, artifact.getScope());
         }
     }
 
+    /**
+     * @return False if the resolved artifacts are not recorded, the listeners can skip converting them
+     */
+    public boolean isRecordingResolvedArtifacts() {
+        return conf == null || conf.publisher.getSettings().isRecordAllDependencies();
+    }
+
     @Override
     public void projectDiscoveryStarted(ExecutionEvent event) {
         if (wrappedListener != null) {
@@ -121,6 +137,9 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
         try {
             logger.info("Initializing Artifactory Build-Info Recording");
             buildInfoBuilder = buildInfoModelPropertyResolver.resolveProperties(event, conf);
+            // Finished modules are kept on disk until the build info is written
+            modules = SpillingModuleList.create(null);
+            buildInfoBuilder.modules(modules);
             deployableArtifactBuilderMap = Maps.newHashMap();
             matrixParams = Maps.newHashMap();
             Map<String, String> matrixParamProps = conf.publisher.getMatrixParams();
@@ -158,6 +177,10 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
             logger.error(message, t);
             throw new RuntimeException(message, t);
         } finally {
+            if (modules != null) {
+                modules.close();
+                modules = null;
+            }
             String propertyFilePath = System.getenv(BuildInfoConfigProperties.PROP_PROPS_FILE);
             if (StringUtils.isNotBlank(propertyFilePath)) {
                 File file = new File(propertyFilePath);
@@ -346,7 +369,7 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
         currentModule.set(module);
 
         currentModuleArtifacts.set(Sets.<Artifact>newHashSet());
-        currentModuleDependencies.set(Sets.<Artifact>newHashSet());
+        currentModuleDependencies.set(resolutionLedger.new ModuleDependencies());
     }
 
     private void extractArtifactsAndDependencies(MavenProject project) {
@@ -395,44 +418,15 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
     }
 
     private void extractModuleDependencies(MavenProject project) {
-        Set<Artifact> moduleDependencies = currentModuleDependencies.get();
+        ResolutionLedger.ModuleDependencies moduleDependencies = currentModuleDependencies.get();
         if (moduleDependencies == null) {
             logger.warn("Skipping Artifactory Build-Info project dependency extraction: Null current module dependencies.");
             return;
         }
 
-        mergeProjectDependencies(project.getArtifacts());
-    }
-
-    /**
-     * Merge the dependencies taken from the MavenProject object with those collected inside the resolvedArtifacts collection.
-     * @param projectDependencies   The artifacts taken from the MavenProject object.
-     */
-    private void mergeProjectDependencies(Set<Artifact> projectDependencies) {
-        // Go over all the artifacts taken from the MavenProject object, and replace their equals method, so that we are
-        // able to merge them together with the artifacts inside the resolvedArtifacts set:
-        Set<Artifact> dependecies = Sets.newHashSet();
-        for(Artifact artifact : projectDependencies) {
-            String classifier = artifact.getClassifier();
-            classifier = classifier == null ? "" : classifier;
-            DefaultArtifact art = new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
-                    artifact.getScope(), artifact.getType(), classifier, artifact.getArtifactHandler());
-
-            art.setFile(artifact.getFile());
-            dependecies.add(art);
-        }
-
-        // Now we merge the artifacts from the two collections. In case an artifact is included in both collections, we'd like to keep
-        // the one that was taken from the MavenProject, because of the scope it has.
-        // The merge is done only if the client is configured to do so.
-        Set<Artifact> moduleDependencies = currentModuleDependencies.get();
-        Set<Artifact> tempSet = Sets.newHashSet(moduleDependencies);
-        moduleDependencies.clear();
-        moduleDependencies.addAll(dependecies);
-        moduleDependencies.addAll(tempSet);
-        if (conf.publisher.isRecordAllDependencies()) {
-            moduleDependencies.addAll(resolvedArtifacts);
-        }
+        // The artifacts of the MavenProject object take precedence over the resolved artifacts, because of the scope
+        // they have. The resolved artifacts are added as they are resolved, if the client is configured to do so.
+        moduleDependencies.addProjectDependencies(project.getArtifacts());
     }
 
     private void finalizeAndAddModule(MavenProject project) {
@@ -440,7 +434,6 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
         currentModule.remove();
         currentModuleArtifacts.remove();
         currentModuleDependencies.remove();
-        resolvedArtifacts.clear();
     }
 
     private void addFilesToCurrentModule(MavenProject project) {
@@ -462,9 +455,8 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
             return;
         }
 
-        ArtifactoryClientConfiguration.PublisherHandler publisher = conf.publisher;
-        IncludeExcludePatterns patterns = new IncludeExcludePatterns(
-                publisher.getIncludePatterns(), publisher.getExcludePatterns());
+        PublisherSettings publisher = conf.publisher.getSettings();
+        IncludeExcludePatterns patterns = publisher.getIncludeExcludePatterns();
         boolean excludeArtifactsFromBuild = publisher.isFilterExcludedArtifactsFromBuild();
         for (Artifact moduleArtifact : moduleArtifacts) {
             String artifactId = moduleArtifact.getArtifactId();
@@ -528,10 +520,11 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
         if (fileToDeploy == null || !fileToDeploy.isFile()) {
             return false;
         }
-        if (!conf.publisher.isPublishArtifacts()) {
+        PublisherSettings publisher = conf.publisher.getSettings();
+        if (!publisher.isPublishArtifacts()) {
             return false;
         }
-        return conf.publisher.isEvenUnstable() || !projectHasTestFailures;
+        return publisher.isEvenUnstable() || !projectHasTestFailures;
     }
 
     private String getArtifactName(String artifactId, String version, String classifier, String fileExtension) {
@@ -546,11 +539,12 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
     private void addDeployableArtifact(org.jfrog.build.api.Artifact artifact, File artifactFile,
                                        String groupId, String artifactId, String version, String classifier, String fileExtension) {
         String deploymentPath = getDeploymentPath(groupId, artifactId, version, classifier, fileExtension);
+        PublisherSettings publisher = conf.publisher.getSettings();
         // deploy to snapshots or releases repository based on the deploy version
-        String targetRepository = getTargetRepository(deploymentPath);
+        String targetRepository = publisher.getTargetRepository(deploymentPath);
 
         DeployDetails deployable = new DeployDetails.Builder().artifactPath(deploymentPath).file(artifactFile).
-                targetRepository(targetRepository).addProperties(conf.publisher.getMatrixParams()).build();
+                targetRepository(targetRepository).addProperties(publisher.getMatrixParams()).build();
         String myArtifactId = BuildInfoExtractorUtils.getArtifactId(currentModule.get().build().getId(),
                 artifact.getName());
         deployableArtifactBuilderMap.put(myArtifactId, deployable);
@@ -562,11 +556,7 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
      * and the deployed file is a snapshot.
      */
     public String getTargetRepository(String deployPath) {
-        String snapshotsRepository = conf.publisher.getSnapshotRepoKey();
-        if (snapshotsRepository != null && deployPath.contains("-SNAPSHOT")) {
-            return snapshotsRepository;
-        }
-        return conf.publisher.getRepoKey();
+        return conf.publisher.getSettings().getTargetRepository(deployPath);
     }
 
     private String getDeploymentPath(String groupId, String artifactId, String version, String classifier,
@@ -576,49 +566,39 @@ public class BuildInfoRecorder extends AbstractExecutionListener implements Buil
     }
 
     private void addDependenciesToCurrentModule(ModuleBuilder module) {
-        Set<Artifact> moduleDependencies = currentModuleDependencies.get();
+        ResolutionLedger.ModuleDependencies moduleDependencies = currentModuleDependencies.get();
         if (moduleDependencies == null) {
             logger.warn("Skipping Artifactory Build-Info module dependency addition: Null current module dependency " +
                     "list.");
             return;
         }
-        for (Artifact dependency : moduleDependencies) {
-            File depFile = dependency.getFile();
+        if (isRecordingResolvedArtifacts()) {
+            resolutionLedger.attributeTo(moduleDependencies);
+        }
+        for (int id : moduleDependencies.getIds()) {
+            ResolutionLedger.Entry dependency = resolutionLedger.getEntry(id);
             DependencyBuilder dependencyBuilder = new DependencyBuilder()
-                    .id(getModuleIdString(dependency.getGroupId(), dependency.getArtifactId(),
-                            dependency.getVersion()))
-                    .type(getTypeString(dependency.getType(),
-                            dependency.getClassifier(), getExtension(depFile)));
-            String scopes = dependency.getScope();
+                    .id(dependency.getId())
+                    .type(dependency.getType());
+            String scopes = moduleDependencies.getScope(id);
             if (StringUtils.isNotBlank(scopes)) {
-                dependencyBuilder.scopes(Lists.newArrayList(scopes));
+                dependencyBuilder.addScope(scopes);
             }
-            setDependencyChecksums(depFile, dependencyBuilder);
+            setDependencyChecksums(dependency, dependencyBuilder);
             module.addDependency(dependencyBuilder.build());
         }
     }
 
-    private String getExtension(File depFile) {
-        String extension = "";
-        String fileName = depFile.getName();
-        if (depFile != null && fileName != null) {
-            int lastDot = fileName.lastIndexOf('.');
-            if (lastDot > 0 && lastDot + 1 < fileName.length()) {
-                extension = fileName.substring(lastDot + 1);
-            }
-        }
-        return extension;
-    }
-
     private boolean isPomProject(Artifact moduleArtifact) {
         return "pom".equals(moduleArtifact.getType());
     }
 
-    private void setDependencyChecksums(File dependencyFile, DependencyBuilder dependencyBuilder) {
+    private void setDependencyChecksums(ResolutionLedger.Entry dependency, DependencyBuilder dependencyBuilder) {
+        File dependencyFile = dependency.getFile();
         if ((dependencyFile != null) && (dependencyFile.isFile())) {
             try {
-                Map<String, String> checksumsMap =
-                        FileChecksumCalculator.calculateChecksums(dependencyFile, "md5", "sha1");
+                // Calculated once for all the modules depending on it
+                Map<String, String> checksumsMap = dependency.getChecksums();
                 dependencyBuilder.md5(checksumsMap.get("md5"));
                 dependencyBuilder.sha1(checksumsMap.get("sha1"));
             } catch (Exception e) {
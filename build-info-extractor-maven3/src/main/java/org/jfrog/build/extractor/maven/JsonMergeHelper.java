@@ -1,14 +1,14 @@
 package org.jfrog.build.extractor.maven;
 
-import org.apache.commons.io.FileUtils;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.jfrog.build.extractor.codec.BuildInfoCodecs;
 
 import java.io.File;
 import java.util.*;
 
 
 /**
- * Helper class for merging JSON data.
+ * Helper class for merging JSON data. Files are read and written with the build-info codec of their extension.
  */
 class JsonMergeHelper
 {
@@ -42,7 +42,7 @@ class JsonMergeHelper
 
     <T> T jsonToObject ( File jsonFile, Class<T> type ) {
         try {
-            return new ObjectMapper().reader( type ).readValue( jsonFile );
+            return BuildInfoCodecs.load( jsonFile, type );
         }
         catch ( Exception e ) {
             throw new RuntimeException( String.format( "Failed to convert JSON file '%s' to object", jsonFile ), e );
@@ -50,15 +50,17 @@ class JsonMergeHelper
     }
 
 
-    Map<String, ?> mergeAndWrite ( Map<String, ?> source, Map<String, ?> destination, File destinationFile )
-    {
-        return jsonWrite( mergeMaps( source, destination ), destinationFile );
+    /**
+     * Reads a file written in any of the build-info encodings as a JSON string.
+     */
+    String jsonFileToString ( File jsonFile ) {
+        return objectToJson( jsonToObject( jsonFile, Object.class ));
     }
 
 
-    <T> List<T> mergeAndWrite ( List<T> source, List<T> destination, File destinationFile )
+    Map<String, ?> mergeAndWrite ( Map<String, ?> source, Map<String, ?> destination, File destinationFile )
     {
-        return jsonWrite( mergeLists( source, destination ), destinationFile );
+        return jsonWrite( mergeMaps( source, destination ), destinationFile );
     }
 
 
@@ -121,10 +123,10 @@ class JsonMergeHelper
     }
 
 
-    private <T> T jsonWrite ( T object, File destinationFile )
+    <T> T jsonWrite ( T object, File destinationFile )
     {
         try {
-            FileUtils.write( destinationFile, objectToJson( object ), "UTF-8" );
+            BuildInfoCodecs.save( object, destinationFile );
             return object;
         }
         catch ( Exception e ) {
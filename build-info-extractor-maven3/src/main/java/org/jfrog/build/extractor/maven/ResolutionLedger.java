@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.maven;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.maven.artifact.Artifact;
+import org.jfrog.build.api.util.FileChecksumCalculator;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.jfrog.build.extractor.BuildInfoExtractorUtils.getModuleIdString;
+import static org.jfrog.build.extractor.BuildInfoExtractorUtils.getTypeString;
+
+/**
+ * The artifacts resolved by the modules of a build, each stored once with an integer id: the modules reference their
+ * dependencies by id, and the checksums of a dependency are calculated once for the whole build. The artifacts are
+ * identified like Maven artifacts are equal, by group, artifact, version, type and classifier.
+ */
+class ResolutionLedger {
+
+    private final ConcurrentMap<String, Integer> ids = Maps.newConcurrentMap();
+    private final List<Entry> entries = Lists.newArrayList();
+    private final List<String> scopes = Lists.newArrayList();
+    // Resolved out of the threads building a module, attributed to the next finished module
+    private final Map<Integer, String> unattributed = Maps.newLinkedHashMap();
+
+    /**
+     * @return The id of the artifact, added to the ledger if needed
+     */
+    int record(Artifact artifact) {
+        String classifier = artifact.getClassifier() == null ? "" : artifact.getClassifier();
+        String key = artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getVersion() + ':' +
+                artifact.getType() + ':' + classifier;
+        Integer id = ids.get(key);
+        if (id == null) {
+            synchronized (this) {
+                id = ids.get(key);
+                if (id == null) {
+                    id = entries.size();
+                    entries.add(new Entry(artifact, classifier));
+                    ids.put(key, id);
+                }
+            }
+        }
+        getEntry(id).setFile(artifact.getFile());
+        return id;
+    }
+
+    synchronized Entry getEntry(int id) {
+        return entries.get(id);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void addUnattributed(int id, String scope) {
+        if (!unattributed.containsKey(id)) {
+            unattributed.put(id, scope);
+        }
+    }
+
+    /**
+     * Moves the artifacts resolved out of the module threads to the module.
+     */
+    synchronized void attributeTo(ModuleDependencies module) {
+        for (Map.Entry<Integer, String> resolved : unattributed.entrySet()) {
+            module.addResolved(resolved.getKey(), resolved.getValue());
+        }
+        unattributed.clear();
+    }
+
+    private synchronized byte scopeCode(String scope) {
+        int index = scopes.indexOf(scope);
+        if (index < 0) {
+            index = scopes.size();
+            scopes.add(scope);
+        }
+        // 0 stands for no dependency, there are only a handful of scopes
+        return (byte) (index + 1);
+    }
+
+    private synchronized String scopeOf(byte code) {
+        return scopes.get(code - 1);
+    }
+
+    /**
+     * A resolved artifact, shared by all the modules depending on it.
+     */
+    static class Entry {
+        private final String id;
+        private final String type;
+        private final String classifier;
+        private volatile File file;
+        private String typeString;
+        private Map<String, String> checksums;
+
+        private Entry(Artifact artifact, String classifier) {
+            this.id = getModuleIdString(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+            this.type = artifact.getType();
+            this.classifier = classifier;
+        }
+
+        private void setFile(File file) {
+            if (this.file == null && file != null) {
+                this.file = file;
+            }
+        }
+
+        String getId() {
+            return id;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        synchronized String getType() {
+            if (typeString == null) {
+                typeString = getTypeString(type, classifier, getExtension(file));
+            }
+            return typeString;
+        }
+
+        /**
+         * @return The md5 and sha1 checksums of the file, calculated once. Empty if the file is missing or after the
+         * calculation failed once.
+         */
+        synchronized Map<String, String> getChecksums() throws Exception {
+            if (checksums == null) {
+                checksums = Collections.emptyMap();
+                if (file != null && file.isFile()) {
+                    checksums = FileChecksumCalculator.calculateChecksums(file, "md5", "sha1");
+                }
+            }
+            return checksums;
+        }
+
+        private static String getExtension(File file) {
+            String extension = "";
+            if (file != null) {
+                String fileName = file.getName();
+                int lastDot = fileName.lastIndexOf('.');
+                if (lastDot > 0 && lastDot + 1 < fileName.length()) {
+                    extension = fileName.substring(lastDot + 1);
+                }
+            }
+            return extension;
+        }
+    }
+
+    /**
+     * The dependencies of a module: the scope code of each ledger id and the ids of the module, confined to the thread
+     * building the module.
+     */
+    class ModuleDependencies {
+        private byte[] scopeCodes = new byte[Math.max(ResolutionLedger.this.size(), 16)];
+        private int[] ids = new int[16];
+        private int count;
+
+        /**
+         * Adds the dependencies of the Maven project, they take precedence over the resolved artifacts.
+         */
+        void addProjectDependencies(Collection<Artifact> projectDependencies) {
+            for (Artifact artifact : projectDependencies) {
+                set(record(artifact), scopeCode(artifact.getScope()), true);
+            }
+        }
+
+        void addResolved(int id, String scope) {
+            set(id, scopeCode(scope), false);
+        }
+
+        private void set(int id, byte code, boolean replace) {
+            if (id >= scopeCodes.length) {
+                scopeCodes = Arrays.copyOf(scopeCodes, Math.max(id + 1, scopeCodes.length * 2));
+            }
+            if (scopeCodes[id] == 0) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = id;
+            } else if (!replace) {
+                return;
+            }
+            scopeCodes[id] = code;
+        }
+
+        int size() {
+            return count;
+        }
+
+        /**
+         * @return The ids of the dependencies, in the order of the ledger
+         */
+        int[] getIds() {
+            int[] result = Arrays.copyOf(ids, count);
+            Arrays.sort(result);
+            return result;
+        }
+
+        String getScope(int id) {
+            return id < scopeCodes.length && scopeCodes[id] != 0 ? scopeOf(scopeCodes[id]) : null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.jfrog.build.extractor.maven.reader;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullWriter;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.extractor.release.StreamingXmlRewriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The module coordinates and the module poms of a pom file, shared by the {@link ProjectReader} and the pom
+ * transformers. The pom is streamed once and only these values are kept in memory.
+ */
+public class ProjectPom {
+    private final File file;
+    private final ModuleName moduleName;
+    private final List<File> modulePoms;
+
+    private ProjectPom(File file, ModuleName moduleName, List<File> modulePoms) {
+        this.file = file;
+        this.moduleName = moduleName;
+        this.modulePoms = modulePoms;
+    }
+
+    /**
+     * Parse the given pom file.
+     *
+     * @param pomFile The pom file
+     * @return The parsed pom
+     * @throws IOException If the pom cannot be read or parsed
+     */
+    public static ProjectPom parse(File pomFile) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(pomFile), "UTF-8"));
+        try {
+            PomReader pomReader = new PomReader(reader);
+            pomReader.rewrite();
+            File baseDir = pomFile.getAbsoluteFile().getParentFile();
+            ImmutableList.Builder<File> modulePoms = ImmutableList.builder();
+            for (String module : pomReader.modules) {
+                if (!module.endsWith("pom.xml")) {
+                    module += "/pom.xml";
+                }
+                modulePoms.add(new File(baseDir, module));
+            }
+            return new ProjectPom(pomFile, pomReader.getModuleName(), modulePoms.build());
+        } catch (IOException e) {
+            throw new IOException("Failed to parse pom: " + pomFile.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The module name of the pom, the group id is inherited from the parent if not declared
+     */
+    public ModuleName getModuleName() {
+        if (moduleName == null) {
+            throw new IllegalArgumentException("Couldn't extract module key from: " + file.getAbsolutePath());
+        }
+        return moduleName;
+    }
+
+    /**
+     * @return The pom files of the modules declared in this pom
+     */
+    public List<File> getModulePoms() {
+        return modulePoms;
+    }
+
+    /**
+     * Collects the module coordinates and the modules without writing anything.
+     */
+    private static class PomReader extends StreamingXmlRewriter {
+        private static final Set<String> TEXT_ELEMENTS = ImmutableSet.of("project/groupId", "project/artifactId",
+                "project/parent/groupId", "project/modules/module");
+
+        private String groupId;
+        private String parentGroupId;
+        private String artifactId;
+        private final List<String> modules = Lists.newArrayList();
+
+        private PomReader(Reader in) {
+            super(in, new NullWriter());
+        }
+
+        @Override
+        protected boolean isScope(String elementPath) {
+            return false;
+        }
+
+        @Override
+        protected boolean isTextElement(String elementPath) {
+            return TEXT_ELEMENTS.contains(elementPath);
+        }
+
+        @Override
+        protected void rewrite(String parentPath, Map<String, TextElement> textElements) {
+            for (TextElement element : textElements.values()) {
+                String text = StringUtils.trim(element.getText());
+                if ("project/modules".equals(parentPath)) {
+                    modules.add(text);
+                } else if ("project/parent".equals(parentPath)) {
+                    parentGroupId = text;
+                } else if ("groupId".equals(element.getName())) {
+                    groupId = text;
+                } else {
+                    artifactId = text;
+                }
+            }
+        }
+
+        private ModuleName getModuleName() {
+            String moduleGroupId = StringUtils.isBlank(groupId) ? parentGroupId : groupId;
+            if (StringUtils.isBlank(moduleGroupId) || StringUtils.isBlank(artifactId)) {
+                return null;
+            }
+            return new ModuleName(moduleGroupId, artifactId);
+        }
+    }
+}
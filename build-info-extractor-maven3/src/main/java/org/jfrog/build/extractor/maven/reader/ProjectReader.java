@@ -1,27 +1,29 @@
 package org.jfrog.build.extractor.maven.reader;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.io.Files;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
-import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Read a Maven project recursively.
+ * <p/>
+ * The module tree is discovered level by level, the poms of each level are parsed concurrently.
  *
  * @author Tomer Cohen
  */
 public class ProjectReader {
     private final File rootPom;
+    private final ExecutorService executor;
 
     /**
      * Constructor, gets the file which represents the location of the <b>root</b> pom of the Maven project.
@@ -29,7 +31,17 @@ public class ProjectReader {
      * @param rootPom The root pom of the Maven project.
      */
     public ProjectReader(File rootPom) {
+        this(rootPom, null);
+    }
+
+    /**
+     * @param rootPom  The root pom of the Maven project.
+     * @param executor The executor to parse the poms with, if null a pool sized to the available processors is used
+     *                 for the duration of the read.
+     */
+    public ProjectReader(File rootPom, ExecutorService executor) {
         this.rootPom = rootPom;
+        this.executor = executor;
     }
 
     /**
@@ -41,49 +53,80 @@ public class ProjectReader {
      * @throws IOException Thrown in case of an error occurring while reading the pom.
      */
     public Map<ModuleName, File> read() throws IOException {
-        Map<ModuleName, File> result = Maps.newHashMap();
-        readRecursive(result, rootPom);
+        Map<ModuleName, File> result = Maps.newLinkedHashMap();
+        for (Map.Entry<ModuleName, ProjectPom> entry : readPoms().entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getFile());
+        }
         return result;
     }
 
     /**
-     * Read the modules recursively and populate the {@link ModuleName} and file map according to the modules.
+     * Read the project starting with the root pom, keeping the parsed poms for the transformation.
+     *
+     * @return A map of {@link ModuleName} and its parsed pom, in discovery order.
+     * @throws IOException Thrown in case of an error occurring while reading the pom.
      */
-    private void readRecursive(Map<ModuleName, File> modules, File current) throws IOException {
-        if (!current.exists()) {
-            throw new IllegalArgumentException("Root pom file: " + current.getAbsolutePath() + " does not exist");
+    public Map<ModuleName, ProjectPom> readPoms() throws IOException {
+        ExecutorService readExecutor = executor;
+        if (readExecutor == null) {
+            readExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         }
-        Model model = readModel(current);
-        String groupId = model.getGroupId();
-        if (StringUtils.isBlank(groupId)) {
-            groupId = model.getParent().getGroupId();
+        try {
+            Map<ModuleName, ProjectPom> result = Maps.newLinkedHashMap();
+            List<File> level = Collections.singletonList(rootPom);
+            while (!level.isEmpty()) {
+                List<Future<ProjectPom>> futures = Lists.newArrayList();
+                for (final File pomFile : level) {
+                    futures.add(readExecutor.submit(new Callable<ProjectPom>() {
+                        public ProjectPom call() throws Exception {
+                            return readPom(pomFile);
+                        }
+                    }));
+                }
+                List<File> nextLevel = Lists.newArrayList();
+                for (Future<ProjectPom> future : futures) {
+                    ProjectPom pom = get(future);
+                    result.put(pom.getModuleName(), pom);
+                    nextLevel.addAll(pom.getModulePoms());
+                }
+                level = nextLevel;
+            }
+            return result;
+        } finally {
+            if (executor == null) {
+                readExecutor.shutdownNow();
+            }
         }
-        modules.put(new ModuleName(groupId, model.getArtifactId()), current);
+    }
 
-        List<String> children = model.getModules();
-        for (String child : children) {
-            if (!child.endsWith("pom.xml")) {
-                child += "/pom.xml";
-            }
-            File childPom = new File(current.getParentFile().getAbsolutePath(), child);
-            readRecursive(modules, childPom);
+    private ProjectPom readPom(File pomFile) throws IOException {
+        if (!pomFile.exists()) {
+            throw new IllegalArgumentException("Root pom file: " + pomFile.getAbsolutePath() + " does not exist");
         }
+        return ProjectPom.parse(pomFile);
     }
 
     /**
-     * @return Construct a Maven {@link Model} from the pom.
+     * Wait for the result of a task, rethrowing its failure as is.
      */
-    private Model readModel(File pom) throws IOException {
-        MavenXpp3Reader reader = new MavenXpp3Reader();
-        StringReader stringReader = null;
+    private static <T> T get(Future<T> future) throws IOException {
         try {
-            stringReader = new StringReader(Files.toString(pom, Charset.forName("UTF-8")));
-            return reader.read(stringReader);
-        } catch (XmlPullParserException e) {
-            throw new IOException(e);
-        } finally {
-            IOUtils.closeQuietly(stringReader);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the project", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
         }
     }
-
 }
@@ -1,5 +1,6 @@
 package org.jfrog.build.extractor.maven.resolver;
 
+import com.google.common.collect.MapMaker;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.repository.internal.DefaultArtifactDescriptorReader;
 import org.codehaus.plexus.PlexusConstants;
@@ -23,6 +24,8 @@ import org.jfrog.build.extractor.maven.BuildInfoRecorder;
 
 import java.lang.reflect.Field;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Repository listener when running in Maven 3.1.x
@@ -33,6 +36,13 @@ import java.util.Properties;
 @Component(role = RepositoryListener.class)
 public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryListener implements Contextualizable {
 
+    // Looked up once, the listener is called for every download of a parallel resolution
+    private static final Field URL_FIELD = getRepositoryField("url");
+    private static final Field AUTHENTICATION_FIELD = getRepositoryField("authentication");
+    private static final Field PROXY_FIELD = getRepositoryField("proxy");
+    private static final Field RELEASE_POLICY_FIELD = getRepositoryField("releasePolicy");
+    private static final Field SNAPSHOT_POLICY_FIELD = getRepositoryField("snapshotPolicy");
+
     @Requirement
     private Logger logger;
 
@@ -43,9 +53,16 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
 
     private PlexusContainer plexusContainer;
 
-    Boolean artifactoryRepositoriesEnforced = false;
+    volatile boolean artifactoryRepositoriesEnforced = false;
+    // Opened once the enforcement is done or failed, the events received before it wait for it
+    final CountDownLatch enforcement = new CountDownLatch(1);
     private ArtifactoryEclipseArtifactResolver artifactResolver = null;
     private ArtifactoryEclipseMetadataResolver metadataResolver = null;
+    private volatile boolean buildInfoRecorderMissing = false;
+    // The URL each repository was replaced with, keyed by identity: a repository is only added once all its fields
+    // are written, the downloads from it skip the replacement without reading its fields
+    private final ConcurrentMap<RemoteRepository, String> replacedRepositories =
+            new MapMaker().weakKeys().makeMap();
 
     /**
      * The method replaces the DefaultArtifactResolver instance with an instance of ArtifactoryEclipseArtifactResolver.
@@ -70,13 +87,11 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
         repositorySystem.setMetadataResolver(metadataResolver);
 
         artifactoryRepositoriesEnforced = true;
-        synchronized (artifactoryRepositoriesEnforced) {
-            artifactoryRepositoriesEnforced.notifyAll();
-        }
     }
 
     private BuildInfoRecorder getBuildInfoRecorder() {
-        if (buildInfoRecorder == null) {
+        // Not looked up again for every resolved artifact once it failed
+        if (buildInfoRecorder == null && !buildInfoRecorderMissing) {
             try {
                 buildInfoRecorder = (BuildInfoRecorder)plexusContainer.lookup(BuildInfoRecorder.class.getName());
             } catch (ComponentLookupException e) {
@@ -84,6 +99,7 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
             }
             if (buildInfoRecorder == null) {
                 logger.error("Could not fetch BuildInfoRecorder from the container in " + this.getClass().getName() + ". Artifacts resolution cannot be recorded.");
+                buildInfoRecorderMissing = true;
             }
         }
         return buildInfoRecorder;
@@ -121,14 +137,15 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
 
         // In case the Artifactory resolver is not yet set, we wait for it first:
         if (!artifactoryRepositoriesEnforced) {
-            synchronized (artifactoryRepositoriesEnforced) {
-                if (!artifactoryRepositoriesEnforced) {
-                    try {
-                        artifactoryRepositoriesEnforced.wait();
-                    } catch (InterruptedException e) {
-                        logger.error("Failed while waiting for Artifactory repositories enforcement", e);
-                    }
-                }
+            try {
+                enforcement.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Failed while waiting for Artifactory repositories enforcement", e);
+                return;
+            }
+            if (!artifactoryRepositoriesEnforced) {
+                return;
             }
         }
 
@@ -136,31 +153,31 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
         artifactResolver.initResolutionRepositories(event.getSession());
 
         // Take the Artifactory resolution repositories from the Artifactory resolver:
-        RemoteRepository artifactorySnapshotRepo;
-        RemoteRepository artifactoryReleaseRepo;
-        boolean snapshot;
+        RemoteRepository artifactoryRepo;
         if (event.getArtifact() != null) {
-            artifactorySnapshotRepo = artifactResolver.getSnapshotRepository(event.getSession());
-            artifactoryReleaseRepo = artifactResolver.getReleaseRepository(event.getSession());
-            snapshot = event.getArtifact().isSnapshot();
+            artifactoryRepo = event.getArtifact().isSnapshot() ?
+                    artifactResolver.getSnapshotRepository(event.getSession()) :
+                    artifactResolver.getReleaseRepository(event.getSession());
         } else {
-            artifactorySnapshotRepo = metadataResolver.getSnapshotRepository(event.getSession());
-            artifactoryReleaseRepo = metadataResolver.getReleaseRepository(event.getSession());
-            snapshot = event.getMetadata().getNature() == Metadata.Nature.SNAPSHOT;
+            artifactoryRepo = event.getMetadata().getNature() == Metadata.Nature.SNAPSHOT ?
+                    metadataResolver.getSnapshotRepository(event.getSession()) :
+                    metadataResolver.getReleaseRepository(event.getSession());
+        }
+        if (artifactoryRepo == null || artifactoryRepo.getUrl().equals(replacedRepositories.get(repo))) {
+            return;
         }
 
         // If the artifact about to be downloaded was not handled by the Artifactory resolution resolver, but by the default resolver (before
         // it had been replaced), modify the repository URL:
         try {
-            if (snapshot && !repo.getUrl().equals(artifactorySnapshotRepo.getUrl())) {
-                logger.debug("Replacing resolution repository URL: " + repo + " with: " + artifactorySnapshotRepo.getUrl());
-                copyRepositoryFields(artifactorySnapshotRepo, repo);
-                setRepositoryPolicy(repo);
-            } else
-            if (!snapshot && !repo.getUrl().equals(artifactoryReleaseRepo.getUrl())) {
-                logger.debug("Replacing resolution repository URL: " + repo + " with: " + artifactoryReleaseRepo.getUrl());
-                copyRepositoryFields(artifactoryReleaseRepo, repo);
-                setRepositoryPolicy(repo);
+            // Replaced once by the first of the concurrent downloads from the repository
+            synchronized (repo) {
+                if (!artifactoryRepo.getUrl().equals(replacedRepositories.get(repo))) {
+                    logger.debug("Replacing resolution repository URL: " + repo + " with: " + artifactoryRepo.getUrl());
+                    copyRepositoryFields(artifactoryRepo, repo);
+                    setRepositoryPolicy(repo);
+                    replacedRepositories.put(repo, artifactoryRepo.getUrl());
+                }
             }
         } catch (Exception e) {
             logger.error("Failed while replacing resolution repository URL", e);
@@ -177,20 +194,32 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
         resolutionHelper.init(allMavenProps);
     }
 
+    private static Field getRepositoryField(String name) {
+        try {
+            Field field = RemoteRepository.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            // Reported when a repository is replaced
+            return null;
+        }
+    }
+
+    private static Field checkRepositoryField(Field field, String name) throws NoSuchFieldException {
+        if (field == null) {
+            throw new NoSuchFieldException(RemoteRepository.class.getName() + "." + name);
+        }
+        return field;
+    }
+
     private void copyRepositoryFields(RemoteRepository fromRepo, RemoteRepository toRepo)
             throws IllegalAccessException, NoSuchFieldException {
-        Field url = RemoteRepository.class.getDeclaredField("url");
-        url.setAccessible(true);
-        url.set(toRepo, fromRepo.getUrl());
+        checkRepositoryField(URL_FIELD, "url").set(toRepo, fromRepo.getUrl());
         if (fromRepo.getAuthentication() != null) {
-            Field authentication = RemoteRepository.class.getDeclaredField("authentication");
-            authentication.setAccessible(true);
-            authentication.set(toRepo, fromRepo.getAuthentication());
+            checkRepositoryField(AUTHENTICATION_FIELD, "authentication").set(toRepo, fromRepo.getAuthentication());
         }
         if (fromRepo.getProxy() != null) {
-            Field proxy = RemoteRepository.class.getDeclaredField("proxy");
-            proxy.setAccessible(true);
-            proxy.set(toRepo, fromRepo.getProxy());
+            checkRepositoryField(PROXY_FIELD, "proxy").set(toRepo, fromRepo.getProxy());
         }
     }
 
@@ -200,12 +229,8 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
     private void setRepositoryPolicy(RemoteRepository repo) throws NoSuchFieldException, IllegalAccessException {
         RepositoryPolicy policy = new RepositoryPolicy(true, RepositoryPolicy.UPDATE_POLICY_DAILY, RepositoryPolicy.CHECKSUM_POLICY_WARN);
 
-        Field releasePolicyField = RemoteRepository.class.getDeclaredField("releasePolicy");
-        Field snapshotPolicyField = RemoteRepository.class.getDeclaredField("snapshotPolicy");
-        releasePolicyField.setAccessible(true);
-        snapshotPolicyField.setAccessible(true);
-        releasePolicyField.set(repo, policy);
-        snapshotPolicyField.set(repo, policy);
+        checkRepositoryField(RELEASE_POLICY_FIELD, "releasePolicy").set(repo, policy);
+        checkRepositoryField(SNAPSHOT_POLICY_FIELD, "snapshotPolicy").set(repo, policy);
     }
 
     /**
@@ -213,17 +238,21 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
      */
     @Override
     public void artifactResolved(RepositoryEvent event) {
-        String requestContext = ((ArtifactRequest)event.getTrace().getData()).getRequestContext();
-        String scope = resolutionHelper.getScopeByRequestContext(requestContext);
-        org.apache.maven.artifact.Artifact artifact = toMavenArtifact(event.getArtifact(), scope);
-        if (event.getRepository() != null) {
-            logger.debug("[buildinfo] Resolved artifact: " + artifact + " from: " + event.getRepository() + " Context is: " + requestContext);
-
-            if (getBuildInfoRecorder() != null) {
-                getBuildInfoRecorder().artifactResolved(artifact);
+        BuildInfoRecorder recorder = getBuildInfoRecorder();
+        // The artifacts are only converted when they are recorded or logged
+        if ((recorder != null && recorder.isRecordingResolvedArtifacts()) || logger.isDebugEnabled()) {
+            String requestContext = ((ArtifactRequest)event.getTrace().getData()).getRequestContext();
+            String scope = resolutionHelper.getScopeByRequestContext(requestContext);
+            org.apache.maven.artifact.Artifact artifact = toMavenArtifact(event.getArtifact(), scope);
+            if (event.getRepository() != null) {
+                logger.debug("[buildinfo] Resolved artifact: " + artifact + " from: " + event.getRepository() + " Context is: " + requestContext);
+
+                if (recorder != null) {
+                    recorder.artifactResolved(artifact);
+                }
+            } else {
+                logger.debug("[buildinfo] Could not resolve artifact: " + artifact);
             }
-        } else {
-            logger.debug("[buildinfo] Could not resolve artifact: " + artifact);
         }
         super.artifactResolved(event);
     }
@@ -249,6 +278,8 @@ public class ArtifactoryEclipseRepositoryListener extends AbstractRepositoryList
             enforceArtifactoryResolver();
         } catch (Exception e) {
             logger.error("Failed while enforcing Artifactory artifact resolver", e);
+        } finally {
+            enforcement.countDown();
         }
     }
 }
@@ -53,11 +53,11 @@ public class ResolutionHelper {
     }
 
     public String getRepoReleaseUrl() {
-        return internalConfiguration.resolver.getUrl(internalConfiguration.resolver.getRepoKey());
+        return internalConfiguration.resolver.getSettings().getUrl();
     }
 
     public String getRepoSnapshotUrl() {
-        return internalConfiguration.resolver.getUrl(internalConfiguration.resolver.getDownloadSnapshotRepoKey());
+        return internalConfiguration.resolver.getSettings().getDownloadSnapshotUrl();
     }
 
     /**
@@ -69,26 +69,26 @@ public class ResolutionHelper {
     }
 
     public String getRepoUsername() {
-        return internalConfiguration.resolver.getUsername();
+        return internalConfiguration.resolver.getSettings().getUsername();
     }
 
     public String getRepoPassword() {
-        return internalConfiguration.resolver.getPassword();
+        return internalConfiguration.resolver.getSettings().getPassword();
     }
 
     public String getProxyHost() {
-        return internalConfiguration.proxy.getHost();
+        return internalConfiguration.proxy.getSettings().getHost();
     }
 
     public Integer getProxyPort() {
-        return internalConfiguration.proxy.getPort();
+        return internalConfiguration.proxy.getSettings().getPort();
     }
 
     public String getProxyUsername() {
-        return internalConfiguration.proxy.getUsername();
+        return internalConfiguration.proxy.getSettings().getUsername();
     }
 
     public String getProxyPassword() {
-        return internalConfiguration.proxy.getPassword();
+        return internalConfiguration.proxy.getSettings().getPassword();
     }
 }
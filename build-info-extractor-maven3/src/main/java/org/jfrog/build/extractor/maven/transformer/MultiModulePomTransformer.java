@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.maven.transformer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jfrog.build.extractor.maven.reader.ModuleName;
+import org.jfrog.build.extractor.maven.reader.ProjectPom;
+import org.jfrog.build.extractor.maven.reader.ProjectReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites the versions of all the poms of a multi-module project.
+ * <p/>
+ * The module tree is read once with the {@link ProjectReader}, and the poms are concurrently streamed to temporary
+ * files. The originals are replaced only when all the modules were transformed successfully, so a module failing the
+ * snapshot check leaves every pom untouched. If a replacement fails, the poms already replaced are restored.
+ */
+public class MultiModulePomTransformer {
+    private static final String TEMP_SUFFIX = ".release-tmp";
+    private static final String BACKUP_SUFFIX = ".release-bak";
+
+    private final Map<ModuleName, String> versionsByModule;
+    private final String scmUrl;
+    private final boolean failOnSnapshot;
+
+    /**
+     * @param versionsByModule Map of module names to module version
+     * @param scmUrl           Scm url to use if scm element exists in the pom files
+     * @param failOnSnapshot   If true, fail with {@link SnapshotNotAllowedException} if any pom contains snapshot
+     *                         version after the version changes
+     */
+    public MultiModulePomTransformer(Map<ModuleName, String> versionsByModule, String scmUrl, boolean failOnSnapshot) {
+        this.versionsByModule = versionsByModule;
+        this.scmUrl = scmUrl;
+        this.failOnSnapshot = failOnSnapshot;
+    }
+
+    /**
+     * Read the project of the given root pom and transform all its modules.
+     *
+     * @param rootPom The root pom of the Maven project
+     * @return The pom files that were modified
+     */
+    public List<File> transform(File rootPom) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            Map<ModuleName, ProjectPom> poms = new ProjectReader(rootPom, executor).readPoms();
+            return transform(poms, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Transform the given parsed poms, as returned by {@link ProjectReader#readPoms()}.
+     *
+     * @param poms     The parsed poms by module name
+     * @param executor The executor to transform and write the poms with
+     * @return The pom files that were modified
+     */
+    public List<File> transform(Map<ModuleName, ProjectPom> poms, ExecutorService executor) throws IOException {
+        final AtomicBoolean aborted = new AtomicBoolean();
+        Map<ProjectPom, Future<Boolean>> transformations = Maps.newLinkedHashMap();
+        for (Map.Entry<ModuleName, ProjectPom> entry : poms.entrySet()) {
+            final PomTransformer transformer =
+                    new PomTransformer(entry.getKey(), versionsByModule, scmUrl, failOnSnapshot);
+            final File pomFile = entry.getValue().getFile();
+            transformations.put(entry.getValue(), executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    boolean modified = transformer.transform(pomFile, tempFile(pomFile));
+                    if (aborted.get()) {
+                        // Another module failed while this one was transformed
+                        tempFile(pomFile).delete();
+                    }
+                    return modified;
+                }
+            }));
+        }
+
+        List<ProjectPom> modified = Lists.newArrayList();
+        try {
+            for (Map.Entry<ProjectPom, Future<Boolean>> transformation : transformations.entrySet()) {
+                if (get(transformation.getValue())) {
+                    modified.add(transformation.getKey());
+                }
+            }
+        } catch (RuntimeException e) {
+            // No pom was replaced yet, just stop the other transformations
+            abort(aborted, transformations);
+            throw e;
+        } catch (IOException e) {
+            abort(aborted, transformations);
+            throw e;
+        }
+
+        return swap(modified);
+    }
+
+    private void abort(AtomicBoolean aborted, Map<ProjectPom, Future<Boolean>> transformations) {
+        aborted.set(true);
+        cancel(transformations.values());
+        deleteTemporaryFiles(transformations.keySet());
+    }
+
+    /**
+     * Replace the original poms with the temporary files, restoring all of them if any replacement fails.
+     */
+    private List<File> swap(List<ProjectPom> modified) throws IOException {
+        List<File> swapped = Lists.newArrayList();
+        try {
+            for (ProjectPom pom : modified) {
+                File pomFile = pom.getFile();
+                File backup = backupFile(pomFile);
+                if (!pomFile.renameTo(backup)) {
+                    throw new IOException("Failed to backup pom: " + pomFile.getAbsolutePath());
+                }
+                if (!tempFile(pomFile).renameTo(pomFile)) {
+                    backup.renameTo(pomFile);
+                    throw new IOException("Failed to replace pom: " + pomFile.getAbsolutePath());
+                }
+                swapped.add(pomFile);
+            }
+        } catch (IOException e) {
+            List<File> notRestored = Lists.newArrayList();
+            for (File pomFile : swapped) {
+                if (!pomFile.delete() || !backupFile(pomFile).renameTo(pomFile)) {
+                    notRestored.add(backupFile(pomFile));
+                }
+            }
+            deleteTemporaryFiles(modified);
+            if (!notRestored.isEmpty()) {
+                throw new IOException(e.getMessage() + ". Failed to restore the poms from the backups " + notRestored,
+                        e);
+            }
+            throw e;
+        }
+        for (File pomFile : swapped) {
+            backupFile(pomFile).delete();
+        }
+        return swapped;
+    }
+
+    private void deleteTemporaryFiles(Iterable<ProjectPom> poms) {
+        for (ProjectPom pom : poms) {
+            tempFile(pom.getFile()).delete();
+        }
+    }
+
+    private static File tempFile(File pomFile) {
+        return new File(pomFile.getPath() + TEMP_SUFFIX);
+    }
+
+    private static File backupFile(File pomFile) {
+        return new File(pomFile.getPath() + BACKUP_SUFFIX);
+    }
+
+    private static void cancel(Iterable<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while transforming the poms", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
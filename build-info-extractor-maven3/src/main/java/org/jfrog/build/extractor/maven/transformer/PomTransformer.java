@@ -16,40 +16,48 @@
 
 package org.jfrog.build.extractor.maven.transformer;
 
+import com.google.common.collect.ImmutableSet;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.jdom.Document;
-import org.jdom.Element;
-import org.jdom.JDOMException;
-import org.jdom.Namespace;
-import org.jdom.input.SAXBuilder;
-import org.jdom.output.Format;
-import org.jdom.output.XMLOutputter;
-import org.jfrog.build.extractor.EolDetectingInputStream;
 import org.jfrog.build.extractor.maven.reader.ModuleName;
+import org.jfrog.build.extractor.release.StreamingXmlRewriter;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.util.List;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Rewrites the project versions in the pom.
+ * <p/>
+ * The pom is streamed with a {@link StreamingXmlRewriter}: everything but the replaced versions and scm urls is copied
+ * verbatim, so the transformation produces a minimal diff.
  *
  * @author Yossi Shaul
  */
 public class PomTransformer {
+    private static final String PROJECT = "project";
+    private static final String PARENT = "project/parent";
+    private static final String SCM = "project/scm";
+    private static final Set<String> DEPENDENCY_SCOPES = ImmutableSet.of(PARENT,
+            "project/dependencyManagement/dependencies/dependency", "project/dependencies/dependency");
+    private static final Set<String> TEXT_ELEMENTS = ImmutableSet.of("project/version", "project/scm/connection",
+            "project/scm/developerConnection", "project/scm/url");
+    private static final Set<String> DEPENDENCY_TEXT_ELEMENTS = ImmutableSet.of("groupId", "artifactId", "version");
 
     private final String scmUrl;
     private final ModuleName currentModule;
     private final Map<ModuleName, String> versionsByModule;
     private final boolean failOnSnapshot;
 
-    private boolean modified;
     private File pomFile;
 
     /**
@@ -86,180 +94,140 @@ public class PomTransformer {
      * @return True if the file was modified.
      */
     public Boolean transform(File pomFile) throws IOException {
-        this.pomFile = pomFile;
-        if (!pomFile.exists()) {
-            throw new IllegalArgumentException("Couldn't find pom file: " + pomFile);
-        }
-
-        SAXBuilder saxBuilder = createSaxBuilder();
-        Document document;
-        EolDetectingInputStream eolDetectingStream = null;
-        try {
-            eolDetectingStream = new EolDetectingInputStream(new FileInputStream(pomFile));
-            InputStreamReader inputStreamReader = new InputStreamReader(eolDetectingStream, "UTF-8");
-            document = saxBuilder.build(inputStreamReader);
-        } catch (JDOMException e) {
-            throw new IOException("Failed to parse pom: " + pomFile.getAbsolutePath(), e);
-        } finally {
-            if (eolDetectingStream != null) {
-                eolDetectingStream.close();
+        File transformedFile = new File(pomFile.getPath() + ".tmp");
+        boolean modified = transform(pomFile, transformedFile);
+        if (modified) {
+            pomFile.delete();
+            if (!transformedFile.renameTo(pomFile)) {
+                throw new IOException("Failed to replace pom: " + pomFile.getAbsolutePath());
             }
         }
+        return modified;
+    }
 
-        Element rootElement = document.getRootElement();
-        Namespace ns = rootElement.getNamespace();
-
-        changeParentVersion(rootElement, ns);
-
-        changeCurrentModuleVersion(rootElement, ns);
-
-        //changePropertiesVersion(rootElement, ns);
-
-        changeDependencyManagementVersions(rootElement, ns);
-
-        changeDependencyVersions(rootElement, ns);
-
-        if (scmUrl != null) {
-            changeScm(rootElement, ns);
+    /**
+     * Performs the transformation, writing the transformed pom to the target file. The target file is deleted if the
+     * pom is not modified or the transformation fails.
+     *
+     * @param pomFile The pom file to transform
+     * @param target  The file to write the transformed pom to
+     * @return True if the pom was modified.
+     */
+    public boolean transform(File pomFile, File target) throws IOException {
+        if (!pomFile.exists()) {
+            throw new IllegalArgumentException("Couldn't find pom file: " + pomFile);
         }
+        this.pomFile = pomFile;
 
-        if (modified) {
-            FileOutputStream fileOutputStream = new FileOutputStream(pomFile);
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(fileOutputStream, "UTF-8");
+        boolean modified = false;
+        Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(pomFile), "UTF-8"));
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target), "UTF-8"));
             try {
-                XMLOutputter outputter = new XMLOutputter();
-                String eol = eolDetectingStream.getEol();
-                if (!"".equals(eol)) {
-                    Format format = outputter.getFormat();
-                    format.setLineSeparator(eol);
-                    format.setTextMode(Format.TextMode.PRESERVE);
-                    outputter.setFormat(format);
-                }
-                outputter.output(document, outputStreamWriter);
+                modified = new PomRewriter(reader, writer).rewrite();
             } finally {
-                IOUtils.closeQuietly(outputStreamWriter);
+                IOUtils.closeQuietly(writer);
+            }
+        } finally {
+            IOUtils.closeQuietly(reader);
+            if (!modified) {
+                target.delete();
             }
         }
-
         return modified;
     }
 
-    private void changeParentVersion(Element root, Namespace ns) {
-        Element parentElement = root.getChild("parent", ns);
-        if (parentElement == null) {
+    private void changeCurrentModuleVersion(StreamingXmlRewriter.TextElement version) {
+        if (version == null) {
             return;
         }
-
-        ModuleName parentName = extractModuleName(parentElement, ns);
-        if (versionsByModule.containsKey(parentName)) {
-            setVersion(parentElement, ns, versionsByModule.get(parentName));
+        if (versionsByModule.containsKey(currentModule)) {
+            version.setText(versionsByModule.get(currentModule));
         }
-        verifyNonSnapshotVersion(parentName, parentElement, ns);
+        verifyNonSnapshotVersion(currentModule, version);
     }
 
-    private void changeCurrentModuleVersion(Element rootElement, Namespace ns) {
-        setVersion(rootElement, ns, versionsByModule.get(currentModule));
-        verifyNonSnapshotVersion(currentModule, rootElement, ns);
-    }
-
-    private void changeDependencyManagementVersions(Element rootElement, Namespace ns) {
-        Element dependencyManagement = rootElement.getChild("dependencyManagement", ns);
-        if (dependencyManagement == null) {
-            return;
-        }
-
-        Element dependenciesElement = dependencyManagement.getChild("dependencies", ns);
-        if (dependenciesElement == null) {
+    private void changeDependencyVersion(String scopePath, Map<String, StreamingXmlRewriter.TextElement> elements) {
+        ModuleName moduleName = extractModuleName(scopePath, elements);
+        StreamingXmlRewriter.TextElement version = elements.get("version");
+        if (version == null) {
             return;
         }
-
-        List<Element> dependencies = dependenciesElement.getChildren("dependency", ns);
-        for (Element dependency : dependencies) {
-            changeDependencyVersion(ns, dependency);
+        if (versionsByModule.containsKey(moduleName)) {
+            version.setText(versionsByModule.get(moduleName));
         }
+        verifyNonSnapshotVersion(moduleName, version);
     }
 
-    private void changeDependencyVersions(Element rootElement, Namespace ns) {
-        Element dependenciesElement = rootElement.getChild("dependencies", ns);
-        if (dependenciesElement == null) {
+    private void changeScm(StreamingXmlRewriter.TextElement element) {
+        if (scmUrl == null) {
             return;
         }
-
-        List<Element> dependencies = dependenciesElement.getChildren("dependency", ns);
-        for (Element dependency : dependencies) {
-            changeDependencyVersion(ns, dependency);
+        if ("url".equals(element.getName())) {
+            element.setText(scmUrl);
+        } else {
+            element.setText("scm:svn:" + scmUrl);
         }
     }
 
-    private void changeDependencyVersion(Namespace ns, Element dependency) {
-        ModuleName moduleName = extractModuleName(dependency, ns);
-        if (versionsByModule.containsKey(moduleName)) {
-            setVersion(dependency, ns, versionsByModule.get(moduleName));
-        }
-        verifyNonSnapshotVersion(moduleName, dependency, ns);
-    }
-
-    private void changeScm(Element rootElement, Namespace ns) {
-        Element scm = rootElement.getChild("scm", ns);
-        if (scm == null) {
+    private void verifyNonSnapshotVersion(ModuleName moduleName, StreamingXmlRewriter.TextElement version) {
+        if (!failOnSnapshot) {
             return;
         }
-        Element connection = scm.getChild("connection", ns);
-        if (connection != null) {
-            connection.setText("scm:svn:" + scmUrl);
-        }
-        Element developerConnection = scm.getChild("developerConnection", ns);
-        if (developerConnection != null) {
-            developerConnection.setText("scm:svn:" + scmUrl);
-        }
-        Element url = scm.getChild("url", ns);
-        if (url != null) {
-            url.setText(scmUrl);
+        String currentVersion = version.getText().trim();
+        if (currentVersion.endsWith("-SNAPSHOT")) {
+            throw new SnapshotNotAllowedException(String.format("Snapshot detected in file '%s': %s:%s",
+                    pomFile.getAbsolutePath(), moduleName, currentVersion));
         }
     }
 
-    private void setVersion(Element element, Namespace ns, String version) {
-        Element versionElement = element.getChild("version", ns);
-        if (versionElement != null) {
-            String currentVersion = versionElement.getText();
-            if (!version.equals(currentVersion)) {
-                versionElement.setText(version);
-                modified = true;
-            }
+    private ModuleName extractModuleName(String scopePath, Map<String, StreamingXmlRewriter.TextElement> elements) {
+        String groupId = getText(elements, "groupId");
+        String artifactId = getText(elements, "artifactId");
+        if (StringUtils.isBlank(groupId) || StringUtils.isBlank(artifactId)) {
+            throw new IllegalArgumentException("Couldn't extract module key from: " + scopePath + " in " +
+                    pomFile.getAbsolutePath());
         }
+        return new ModuleName(groupId.trim(), artifactId.trim());
     }
 
-    private void verifyNonSnapshotVersion(ModuleName moduleName, Element element, Namespace ns) {
-        if (!failOnSnapshot) {
-            return;
-        }
-        Element versionElement = element.getChild("version", ns);
-        if (versionElement != null) {
-            String currentVersion = versionElement.getText();
-            if (currentVersion.endsWith("-SNAPSHOT")) {
-                throw new SnapshotNotAllowedException(String.format("Snapshot detected in file '%s': %s:%s",
-                        pomFile.getAbsolutePath(), moduleName, currentVersion));
-            }
-        }
+    private static String getText(Map<String, StreamingXmlRewriter.TextElement> elements, String name) {
+        StreamingXmlRewriter.TextElement element = elements.get(name);
+        return element != null ? element.getText() : null;
     }
 
-    private ModuleName extractModuleName(Element element, Namespace ns) {
-        String groupId = element.getChildText("groupId", ns);
-        String artifactId = element.getChildText("artifactId", ns);
-        if (StringUtils.isBlank(groupId) || StringUtils.isBlank(artifactId)) {
-            throw new IllegalArgumentException("Couldn't extract module key from: " + element);
+    private class PomRewriter extends StreamingXmlRewriter {
+
+        private PomRewriter(Reader in, Writer out) {
+            super(in, out);
         }
-        return new ModuleName(groupId, artifactId);
-    }
 
+        @Override
+        protected boolean isScope(String elementPath) {
+            return DEPENDENCY_SCOPES.contains(elementPath);
+        }
 
-    static SAXBuilder createSaxBuilder() {
-        SAXBuilder sb = new SAXBuilder();
-        // don't validate and don't load dtd
-        sb.setValidation(false);
-        sb.setFeature("http://xml.org/sax/features/validation", false);
-        sb.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
-        sb.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        return sb;
+        @Override
+        protected boolean isTextElement(String elementPath) {
+            if (TEXT_ELEMENTS.contains(elementPath)) {
+                return true;
+            }
+            int slash = elementPath.lastIndexOf('/');
+            return slash != -1 && DEPENDENCY_SCOPES.contains(elementPath.substring(0, slash)) &&
+                    DEPENDENCY_TEXT_ELEMENTS.contains(elementPath.substring(slash + 1));
+        }
+
+        @Override
+        protected void rewrite(String parentPath, Map<String, TextElement> textElements) {
+            if (PROJECT.equals(parentPath)) {
+                changeCurrentModuleVersion(textElements.get("version"));
+            } else if (SCM.equals(parentPath)) {
+                for (TextElement element : textElements.values()) {
+                    changeScm(element);
+                }
+            } else if (DEPENDENCY_SCOPES.contains(parentPath)) {
+                changeDependencyVersion(parentPath, textElements);
+            }
+        }
     }
 }
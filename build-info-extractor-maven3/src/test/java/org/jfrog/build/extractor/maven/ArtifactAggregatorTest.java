@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.maven;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.util.FileChecksumCalculator;
+import org.jfrog.build.client.DeployDetails;
+import org.jfrog.build.util.FileLinks;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the aggregation of the artifacts of several Maven invocations.
+ */
+public class ArtifactAggregatorTest {
+
+    private File workspace;
+    private File aggregateDirectory;
+
+    @BeforeMethod
+    public void setUp() {
+        workspace = Files.createTempDir();
+        aggregateDirectory = new File(workspace, "aggregate");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workspace);
+    }
+
+    @Test
+    public void copyChangedArtifacts() throws Exception {
+        List<DeployDetails> deployables = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            deployables.add(deployable("module" + i + "/target/module" + i + ".jar", "content " + i));
+        }
+        ArtifactAggregator aggregator = new ArtifactAggregator(aggregateDirectory, false);
+        assertEquals(aggregator.aggregate(deployables), 20);
+        File aggregated = new File(aggregateDirectory, "module7/target/module7.jar");
+        assertEquals(aggregator.aggregatedFile(deployables.get(7).getFile()), aggregated);
+        assertEquals(FileUtils.readFileToString(aggregated), "content 7");
+
+        // Only the rebuilt artifact is copied again
+        deployables.set(7, deployable("module7/target/module7.jar", "content 7 rebuilt"));
+        assertEquals(aggregator.aggregate(deployables), 1);
+        assertEquals(FileUtils.readFileToString(aggregated), "content 7 rebuilt");
+        assertFalse(FileLinks.isSameFile(deployables.get(7).getFile(), aggregated));
+    }
+
+    @Test
+    public void linkArtifacts() throws Exception {
+        skipWithoutLinks();
+        DeployDetails deployable = deployable("module/target/module.jar", "content");
+        ArtifactAggregator aggregator = new ArtifactAggregator(aggregateDirectory, true);
+        assertEquals(aggregator.aggregate(Lists.newArrayList(deployable)), 1);
+        File aggregated = aggregator.aggregatedFile(deployable.getFile());
+        assertEquals(FileUtils.readFileToString(aggregated), "content");
+        assertTrue(FileLinks.isSameFile(deployable.getFile(), aggregated), "The artifact was not linked");
+        assertEquals(aggregator.aggregate(Lists.newArrayList(deployable)), 0);
+
+        // A clean build deletes the artifact, the aggregated link is replaced by the next one
+        FileUtils.forceDelete(deployable.getFile());
+        DeployDetails rebuilt = deployable("module/target/module.jar", "rebuilt content");
+        assertEquals(aggregator.aggregate(Lists.newArrayList(rebuilt)), 1);
+        assertEquals(FileUtils.readFileToString(aggregated), "rebuilt content");
+    }
+
+    /**
+     * Documents the limitation of links: the aggregated file follows the artifact rewritten in place.
+     */
+    @Test
+    public void linkedArtifactsRewrittenInPlace() throws Exception {
+        skipWithoutLinks();
+        DeployDetails deployable = deployable("module/target/module.jar", "content");
+        ArtifactAggregator aggregator = new ArtifactAggregator(aggregateDirectory, true);
+        assertEquals(aggregator.aggregate(Lists.newArrayList(deployable)), 1);
+        File aggregated = aggregator.aggregatedFile(deployable.getFile());
+
+        FileUtils.writeStringToFile(deployable.getFile(), "CONTENT");
+        assertEquals(FileUtils.readFileToString(aggregated), "CONTENT");
+        assertEquals(aggregator.aggregate(Lists.newArrayList(deployable)), 0);
+        assertFalse(deployable.getSha1().equals(
+                FileChecksumCalculator.calculateChecksums(aggregated, "sha1").get("sha1")));
+
+        // Copies keep the aggregated content
+        File copyDirectory = new File(workspace, "copies");
+        ArtifactAggregator copier = new ArtifactAggregator(copyDirectory, false);
+        DeployDetails copied = deployable("module/target/module.jar", "content");
+        assertEquals(copier.aggregate(Lists.newArrayList(copied)), 1);
+        FileUtils.writeStringToFile(copied.getFile(), "CONTENT");
+        assertEquals(FileUtils.readFileToString(copier.aggregatedFile(copied.getFile())), "content");
+    }
+
+    private void skipWithoutLinks() {
+        if (!FileLinks.isSupported()) {
+            throw new SkipException("Hard links are not supported before Java 7");
+        }
+    }
+
+    private DeployDetails deployable(String path, String content) throws Exception {
+        File file = new File(workspace, path);
+        FileUtils.writeStringToFile(file, content);
+        String sha1 = FileChecksumCalculator.calculateChecksums(file, "sha1").get("sha1");
+        return new DeployDetails.Builder().file(file).artifactPath(path).targetRepository("libs").sha1(sha1)
+                .md5("md5").build();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.maven;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the build-wide ledger of the resolved artifacts.
+ */
+public class ResolutionLedgerTest {
+
+    @Test
+    public void sameArtifactRecordedOnce() {
+        ResolutionLedger ledger = new ResolutionLedger();
+        int id = ledger.record(artifact("a", "compile", null));
+        assertEquals(ledger.record(artifact("a", "test", null)), id, "Same artifact should share its id.");
+        assertFalse(ledger.record(artifact("a", "compile", "sources")) == id,
+                "A classified artifact should have its own id.");
+        assertEquals(ledger.size(), 2);
+        assertEquals(ledger.getEntry(id).getId(), "org.jfrog:a:1.0");
+        assertEquals(ledger.getEntry(id).getType(), "jar");
+    }
+
+    @Test
+    public void projectDependenciesTakePrecedence() {
+        ResolutionLedger ledger = new ResolutionLedger();
+        ResolutionLedger.ModuleDependencies module = ledger.new ModuleDependencies();
+        int resolved = ledger.record(artifact("a", "runtime", null));
+        module.addResolved(resolved, "runtime");
+        module.addResolved(ledger.record(artifact("b", "runtime", null)), "runtime");
+
+        List<Artifact> projectDependencies = Lists.newArrayList(artifact("a", "compile", null));
+        module.addProjectDependencies(projectDependencies);
+        module.addResolved(resolved, "test");
+
+        assertEquals(module.size(), 2);
+        assertEquals(module.getScope(resolved), "compile", "The project scope should override the resolved one.");
+        assertTrue(Arrays.equals(module.getIds(), new int[]{0, 1}), "The ids should follow the ledger order.");
+    }
+
+    @Test
+    public void projectDependenciesChangedInPlace() {
+        ResolutionLedger ledger = new ResolutionLedger();
+        ResolutionLedger.ModuleDependencies module = ledger.new ModuleDependencies();
+        List<Artifact> projectDependencies = Lists.newArrayList(artifact("a", "compile", null));
+        module.addProjectDependencies(projectDependencies);
+
+        // The same collection, with the same size but another artifact
+        projectDependencies.set(0, artifact("b", "test", null));
+        module.addProjectDependencies(projectDependencies);
+        assertEquals(module.size(), 2);
+        assertEquals(module.getScope(ledger.record(artifact("b", "test", null))), "test");
+    }
+
+    @Test
+    public void modulesShareEntries() throws Exception {
+        File file = File.createTempFile("ledger", ".jar");
+        try {
+            Files.write("dependency".getBytes("UTF-8"), file);
+            ResolutionLedger ledger = new ResolutionLedger();
+            Artifact artifact = artifact("a", "compile", null);
+            artifact.setFile(file);
+            int id = ledger.record(artifact);
+            Map<String, String> checksums = ledger.getEntry(id).getChecksums();
+            assertEquals(checksums.get("sha1").length(), 40);
+
+            // A second module reuses the checksums calculated for the first
+            FileUtils.forceDelete(file);
+            ResolutionLedger.ModuleDependencies other = ledger.new ModuleDependencies();
+            other.addResolved(ledger.record(artifact("a", "test", null)), "test");
+            assertSame(ledger.getEntry(other.getIds()[0]).getChecksums(), checksums);
+            assertEquals(ledger.getEntry(id).getFile(), file, "The file of the first resolution should be kept.");
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Test
+    public void unattributedResolutionsGoToNextModule() {
+        ResolutionLedger ledger = new ResolutionLedger();
+        ResolutionLedger.ModuleDependencies first = ledger.new ModuleDependencies();
+        ResolutionLedger.ModuleDependencies second = ledger.new ModuleDependencies();
+        int id = ledger.record(artifact("a", "compile", null));
+        ledger.addUnattributed(id, "provided");
+
+        ledger.attributeTo(first);
+        ledger.attributeTo(second);
+        assertEquals(first.getScope(id), "provided");
+        assertEquals(second.size(), 0, "Resolutions should be attributed once.");
+    }
+
+    private Artifact artifact(String artifactId, String scope, String classifier) {
+        return new DefaultArtifact("org.jfrog", artifactId, "1.0", scope, "jar", classifier,
+                new DefaultArtifactHandler("jar"));
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.maven.resolver;
+
+import com.google.common.collect.Lists;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.RequestTrace;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.jfrog.build.api.util.NullLog;
+import org.jfrog.build.client.ArtifactoryClientConfiguration;
+import org.jfrog.build.extractor.maven.BuildInfoRecorder;
+import org.testng.Reporter;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the enforcement of the Artifactory repositories on the downloads of a parallel resolution.
+ */
+public class ArtifactoryEclipseRepositoryListenerTest {
+
+    private static final String RELEASE_URL = "http://localhost:8081/artifactory/libs-release";
+    private static final String SNAPSHOT_URL = "http://localhost:8081/artifactory/libs-snapshot";
+    private static final int THREADS = 8;
+
+    private final RemoteRepository releaseRepository =
+            new RemoteRepository.Builder("artifactory-release", "default", RELEASE_URL).build();
+    private final RemoteRepository snapshotRepository =
+            new RemoteRepository.Builder("artifactory-snapshot", "default", SNAPSHOT_URL).build();
+    private final RepositorySystemSession session = new DefaultRepositorySystemSession();
+    private ArtifactoryEclipseRepositoryListener listener;
+    private BuildInfoRecorder recorder;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() throws Exception {
+        listener = new ArtifactoryEclipseRepositoryListener();
+        recorder = new BuildInfoRecorder();
+        listener.buildInfoRecorder = recorder;
+        inject("logger", new ConsoleLogger(Logger.LEVEL_INFO, "test"));
+        inject("resolutionHelper", new ResolutionHelper() {
+            @Override
+            public boolean isInitialized() {
+                return true;
+            }
+
+            @Override
+            public boolean resolutionRepositoriesConfigured() {
+                return true;
+            }
+
+            @Override
+            public String getScopeByRequestContext(String requestContext) {
+                return "project";
+            }
+        });
+        inject("artifactResolver", new ArtifactoryEclipseArtifactResolver() {
+            @Override
+            public void initResolutionRepositories(RepositorySystemSession session) {
+            }
+
+            @Override
+            public RemoteRepository getSnapshotRepository(RepositorySystemSession session) {
+                return snapshotRepository;
+            }
+
+            @Override
+            public RemoteRepository getReleaseRepository(RepositorySystemSession session) {
+                return releaseRepository;
+            }
+        });
+        inject("metadataResolver", new ArtifactoryEclipseMetadataResolver() {
+            @Override
+            public RemoteRepository getSnapshotRepository(RepositorySystemSession session) {
+                return snapshotRepository;
+            }
+
+            @Override
+            public RemoteRepository getReleaseRepository(RepositorySystemSession session) {
+                return releaseRepository;
+            }
+        });
+    }
+
+    @Test
+    public void waitForEnforcement() throws Exception {
+        final RemoteRepository central = new RemoteRepository.Builder("central", "default",
+                "http://repo.maven.apache.org/maven2").build();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> downloads = Lists.newArrayList();
+            for (int i = 0; i < THREADS; i++) {
+                final int thread = i;
+                downloads.add(executor.submit(new Runnable() {
+                    public void run() {
+                        listener.artifactDownloading(artifactEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING,
+                                central, "1.0", thread));
+                    }
+                }));
+            }
+            Thread.sleep(100);
+            for (Future<?> download : downloads) {
+                assertFalse(download.isDone(), "A download did not wait for the enforcement");
+            }
+
+            listener.artifactoryRepositoriesEnforced = true;
+            listener.enforcement.countDown();
+            for (Future<?> download : downloads) {
+                download.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(central.getUrl(), RELEASE_URL);
+            assertTrue(central.getPolicy(true).isEnabled());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void skipResolutionWhenEnforcementFailed() throws Exception {
+        RemoteRepository central = new RemoteRepository.Builder("central", "default",
+                "http://repo.maven.apache.org/maven2").build();
+        listener.enforcement.countDown();
+        listener.artifactDownloading(artifactEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING, central, "1.0", 0));
+        assertEquals(central.getUrl(), "http://repo.maven.apache.org/maven2");
+    }
+
+    /**
+     * Not a precise benchmark, reports the events handled per second by the listener in the test output. Part of the
+     * benchmark group, which the default test run excludes.
+     */
+    @Test(groups = "benchmark")
+    public void parallelResolution() throws Exception {
+        // The resolved artifacts are not recorded by default
+        recorder.setConfiguration(new ArtifactoryClientConfiguration(new NullLog()));
+        listener.artifactoryRepositoriesEnforced = true;
+        listener.enforcement.countDown();
+        final List<RemoteRepository> repositories = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            repositories.add(new RemoteRepository.Builder("repo" + i, "default", "http://repo" + i + "/maven2").build());
+        }
+
+        // The events are created upfront, only the listener is measured
+        final int artifactsPerThread = 20000;
+        final List<List<RepositoryEvent>> events = Lists.newArrayList();
+        for (int i = 0; i < THREADS; i++) {
+            List<RepositoryEvent> threadEvents = Lists.newArrayListWithCapacity(artifactsPerThread * 4);
+            for (int j = 0; j < artifactsPerThread; j++) {
+                // Even repositories serve the snapshots, odd ones the releases
+                int repository = (j % 50) * 2;
+                RemoteRepository snapshotRepo = repositories.get(repository);
+                RemoteRepository releaseRepo = repositories.get(repository + 1);
+                threadEvents.add(metadataEvent(snapshotRepo));
+                threadEvents.add(artifactEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING, snapshotRepo,
+                        "1.0-SNAPSHOT", j));
+                threadEvents.add(artifactEvent(RepositoryEvent.EventType.ARTIFACT_DOWNLOADING, releaseRepo, "1.0", j));
+                threadEvents.add(artifactEvent(RepositoryEvent.EventType.ARTIFACT_RESOLVED, releaseRepo, "1.0", i));
+            }
+            events.add(threadEvents);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long elapsedNanos = 0;
+            // Warm up, then measure
+            for (int round = 0; round < 4; round++) {
+                List<Callable<Object>> resolutions = Lists.newArrayList();
+                for (final List<RepositoryEvent> threadEvents : events) {
+                    resolutions.add(new Callable<Object>() {
+                        public Object call() {
+                            for (RepositoryEvent event : threadEvents) {
+                                switch (event.getType()) {
+                                    case METADATA_DOWNLOADING:
+                                        listener.metadataDownloading(event);
+                                        break;
+                                    case ARTIFACT_DOWNLOADING:
+                                        listener.artifactDownloading(event);
+                                        break;
+                                    default:
+                                        listener.artifactResolved(event);
+                                }
+                            }
+                            return null;
+                        }
+                    });
+                }
+                long start = System.nanoTime();
+                for (Future<Object> resolution : executor.invokeAll(resolutions)) {
+                    resolution.get();
+                }
+                if (round > 0) {
+                    elapsedNanos += System.nanoTime() - start;
+                }
+            }
+            long eventCount = 3L * THREADS * artifactsPerThread * 4;
+            Reporter.log(String.format("%d threads: %d repository events in %d ms, %d events/s", THREADS, eventCount,
+                    elapsedNanos / 1000000, eventCount * 1000000000L / Math.max(elapsedNanos, 1)), true);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < repositories.size(); i++) {
+            assertEquals(repositories.get(i).getUrl(), i % 2 == 0 ? SNAPSHOT_URL : RELEASE_URL);
+        }
+        assertFalse(recorder.isRecordingResolvedArtifacts());
+    }
+
+    private RepositoryEvent artifactEvent(RepositoryEvent.EventType type, RemoteRepository repository, String version,
+            int index) {
+        Artifact artifact = new DefaultArtifact("org.jfrog.test", "artifact" + index, "jar", version);
+        return new RepositoryEvent.Builder(session, type).setArtifact(artifact).setRepository(repository)
+                .setTrace(new RequestTrace(new ArtifactRequest(artifact, null, "project"))).build();
+    }
+
+    private RepositoryEvent metadataEvent(RemoteRepository repository) {
+        Metadata metadata = new DefaultMetadata("org.jfrog.test", "artifact", "1.0-SNAPSHOT", "maven-metadata.xml",
+                Metadata.Nature.SNAPSHOT);
+        return new RepositoryEvent.Builder(session, RepositoryEvent.EventType.METADATA_DOWNLOADING)
+                .setMetadata(metadata).setRepository(repository).build();
+    }
+
+    private void inject(String name, Object value) throws Exception {
+        Field field = ArtifactoryEclipseRepositoryListener.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(listener, value);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.maven.transformer;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.extractor.maven.reader.ModuleName;
+import org.jfrog.build.extractor.maven.reader.ProjectReader;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the version changes of a whole multi-module project.
+ */
+public class MultiModulePomTransformerTest {
+
+    private File root;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        root = Files.createTempDir();
+        writePom(root, "<artifactId>parent</artifactId><version>1.0-SNAPSHOT</version>" +
+                "<modules><module>one</module><module>two/pom.xml</module></modules>");
+        writePom(new File(root, "one"), "<parent><groupId>org.jfrog.test</groupId><artifactId>parent</artifactId>" +
+                "<version>1.0-SNAPSHOT</version></parent><artifactId>one</artifactId><version>1.0-SNAPSHOT</version>");
+        writePom(new File(root, "two"), "<parent><groupId>org.jfrog.test</groupId><artifactId>parent</artifactId>" +
+                "<version>1.0-SNAPSHOT</version></parent><artifactId>two</artifactId><version>1.0-SNAPSHOT</version>" +
+                "<dependencies><dependency><groupId>other</groupId><artifactId>lib</artifactId>" +
+                "<version>2.0-SNAPSHOT</version></dependency></dependencies>");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(root);
+    }
+
+    @Test
+    public void readProject() throws Exception {
+        Map<ModuleName, File> modules = new ProjectReader(new File(root, "pom.xml")).read();
+        assertEquals(modules.size(), 3);
+        assertEquals(modules.get(new ModuleName("org.jfrog.test", "two")).getCanonicalFile(),
+                new File(root, "two/pom.xml").getCanonicalFile());
+    }
+
+    @Test
+    public void transformAllModules() throws Exception {
+        List<File> modified = new MultiModulePomTransformer(releaseVersions(), null, false)
+                .transform(new File(root, "pom.xml"));
+
+        assertEquals(modified.size(), 3);
+        for (String pom : new String[]{"pom.xml", "one/pom.xml", "two/pom.xml"}) {
+            String content = FileUtils.readFileToString(new File(root, pom), "UTF-8");
+            assertFalse(content.contains("1.0-SNAPSHOT"), pom + " was not transformed: " + content);
+        }
+        assertEquals(new File(root, "one").list().length, 1, "Temporary files should be removed.");
+    }
+
+    @Test
+    public void snapshotInAnyModuleLeavesAllPomsUntouched() throws Exception {
+        String before = FileUtils.readFileToString(new File(root, "one/pom.xml"), "UTF-8");
+        try {
+            new MultiModulePomTransformer(releaseVersions(), null, true).transform(new File(root, "pom.xml"));
+            fail("Module two depends on a snapshot and should fail");
+        } catch (SnapshotNotAllowedException e) {
+            assertTrue(e.getMessage().contains("other:lib:2.0-SNAPSHOT"), "Unexpected error message: " + e.getMessage());
+        }
+        assertEquals(FileUtils.readFileToString(new File(root, "one/pom.xml"), "UTF-8"), before);
+        assertTrue(FileUtils.readFileToString(new File(root, "pom.xml"), "UTF-8").contains("1.0-SNAPSHOT"));
+        assertEquals(new File(root, "one").list().length, 1, "Temporary files should be removed.");
+    }
+
+    private Map<ModuleName, String> releaseVersions() {
+        Map<ModuleName, String> versions = Maps.newHashMap();
+        versions.put(new ModuleName("org.jfrog.test", "parent"), "1.0");
+        versions.put(new ModuleName("org.jfrog.test", "one"), "1.0");
+        versions.put(new ModuleName("org.jfrog.test", "two"), "1.0");
+        return versions;
+    }
+
+    private void writePom(File dir, String content) throws Exception {
+        FileUtils.writeStringToFile(new File(dir, "pom.xml"), "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+                "<modelVersion>4.0.0</modelVersion>\n<groupId>org.jfrog.test</groupId>\n" + content + "\n</project>\n",
+                "UTF-8");
+    }
+}
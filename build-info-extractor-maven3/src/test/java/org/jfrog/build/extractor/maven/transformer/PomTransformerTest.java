@@ -18,8 +18,6 @@ package org.jfrog.build.extractor.maven.transformer;
 
 import com.google.common.collect.Maps;
 import com.google.common.io.Files;
-import org.jdom.Document;
-import org.jdom.output.XMLOutputter;
 import org.jfrog.build.extractor.maven.reader.ModuleName;
 import org.testng.annotations.Test;
 
@@ -49,9 +47,7 @@ public class PomTransformerTest {
         new PomTransformer(new ModuleName("org.jfrog.test", "one"), modules, "").transform(pomFile);
 
         String pomStr = getFileAsString(pomFile);
-        Document expected = PomTransformer.createSaxBuilder().build(
-                getResourceAsFile("/poms/parentonly/pom.expected.xml"));
-        String expectedStr = new XMLOutputter().outputString(expected);
+        String expectedStr = getFileAsString(getResourceAsFile("/poms/parentonly/pom.expected.xml"));
 
         assertEquals(pomStr, expectedStr);
     }
@@ -67,8 +63,7 @@ public class PomTransformerTest {
         new PomTransformer(new ModuleName("org.jfrog.test.nested", "two"), modules, "").transform(pomFile);
 
         String pomStr = getFileAsString(pomFile);
-        Document expected = PomTransformer.createSaxBuilder().build(getResourceAsFile("/poms/multi/pom.expected.xml"));
-        String expectedStr = new XMLOutputter().outputString(expected);
+        String expectedStr = getFileAsString(getResourceAsFile("/poms/multi/pom.expected.xml"));
 
         assertEquals(pomStr, expectedStr);
     }
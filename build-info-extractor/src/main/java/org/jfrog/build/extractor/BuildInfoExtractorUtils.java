@@ -16,26 +16,23 @@
 
 package org.jfrog.build.extractor;
 
-import com.google.common.base.Charsets;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Maps;
-import com.google.common.io.Files;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonParser;
-import org.codehaus.jackson.map.DeserializationConfig;
-import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.annotate.JsonSerialize;
-import org.codehaus.jackson.map.introspect.JacksonAnnotationIntrospector;
 import org.jfrog.build.api.Build;
 import org.jfrog.build.api.BuildInfoConfigProperties;
 import org.jfrog.build.api.BuildInfoProperties;
 import org.jfrog.build.api.util.Log;
+import org.jfrog.build.client.ArtifactoryBuildInfoClient;
 import org.jfrog.build.client.ClientProperties;
 import org.jfrog.build.client.IncludeExcludePatterns;
 import org.jfrog.build.client.PatternMatcher;
+import org.jfrog.build.extractor.codec.BuildInfoCodecs;
+import org.jfrog.build.extractor.codec.JsonBuildInfoCodec;
 
 import java.io.*;
 import java.util.HashMap;
@@ -177,13 +174,7 @@ public abstract class BuildInfoExtractorUtils {
 
 
     private static JsonFactory createJsonFactory() {
-        JsonFactory jsonFactory = new JsonFactory();
-        ObjectMapper mapper = new ObjectMapper(jsonFactory);
-        mapper.getSerializationConfig().setAnnotationIntrospector(new JacksonAnnotationIntrospector());
-        mapper.getSerializationConfig().setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
-        mapper.getDeserializationConfig().disable(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES);
-        jsonFactory.setCodec(mapper);
-        return jsonFactory;
+        return JsonBuildInfoCodec.createObjectMapper().getJsonFactory();
     }
 
     public static String buildInfoToJsonString(Build buildInfo) throws IOException {
@@ -222,15 +213,24 @@ public abstract class BuildInfoExtractorUtils {
         return jsonFactory.getCodec().readValue(parser, clazz);
     }
 
+    /**
+     * Save the build info to the file, encoded by the codec of the file extension (e.g. {@code .json.gz} for
+     * compressed JSON).
+     *
+     * @see BuildInfoCodecs
+     */
     public static void saveBuildInfoToFile(Build build, File toFile) throws IOException {
-        String buildInfoJson = buildInfoToJsonString(build);
-        if (!toFile.getParentFile().exists()) {
-            toFile.getParentFile().mkdirs();
-        }
-        if (!toFile.exists()) {
-            toFile.createNewFile();
-        }
-        Files.write(buildInfoJson, toFile, Charsets.UTF_8);
+        Object event = ArtifactoryBuildInfoClient.SERIALIZATION_EVENT.begin();
+        BuildInfoCodecs.save(build, toFile);
+        ArtifactoryBuildInfoClient.commitSerializationEvent(event, build, toFile.length());
+    }
+
+    /**
+     * Load the build info from a file saved by {@link #saveBuildInfoToFile(Build, File)}, streaming it with the
+     * codec of the file extension.
+     */
+    public static Build loadBuildInfoFromFile(File file) throws IOException {
+        return BuildInfoCodecs.load(file, Build.class);
     }
 
     private static String getAdditionalPropertiesFile(Properties additionalProps, Log log) {
@@ -1,19 +1,13 @@
 package org.jfrog.build.extractor;
 
-import com.google.common.primitives.Bytes;
-
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
 
 /**
  * @author Noam Y. Tenne
  */
 public class EolDetectingInputStream extends InputStream {
 
-    private static final byte[] lfBytes = new byte[]{10};
-    private static final byte[] crBytes = new byte[]{13};
-
     private boolean lf;
     private boolean cr;
 
@@ -26,31 +20,24 @@ public class EolDetectingInputStream extends InputStream {
     @Override
     public int read() throws IOException {
         int readByte = inputStream.read();
-        if ((!lf || !cr) && readByte != -1) {
-            byte[] bytes = {
-                    (byte) (readByte >>> 24),
-                    (byte) (readByte >>> 16),
-                    (byte) (readByte >>> 8),
-                    (byte) readByte};
-            isByteEol(bytes);
+        if (readByte == '\n') {
+            lf = true;
+        } else if (readByte == '\r') {
+            cr = true;
         }
         return readByte;
     }
 
     @Override
     public int read(byte[] b) throws IOException {
-        int readBytes = inputStream.read(b);
-        if ((!lf || !cr) && readBytes != -1) {
-            isByteEol(b);
-        }
-        return readBytes;
+        return read(b, 0, b.length);
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         int readBytes = inputStream.read(b, off, len);
         if ((!lf || !cr) && readBytes != -1) {
-            isByteEol(Arrays.copyOfRange(b, off, off + (readBytes - 1)));
+            detectEol(b, off, off + readBytes);
         }
         return readBytes;
     }
@@ -104,16 +91,13 @@ public class EolDetectingInputStream extends InputStream {
         return eol;
     }
 
-    private void isByteEol(byte[] bytes) {
-        if (!lf) {
-            lf = isByteEol(bytes, lfBytes);
-        }
-        if (!cr) {
-            cr = isByteEol(bytes, crBytes);
+    private void detectEol(byte[] bytes, int from, int to) {
+        for (int i = from; i < to && (!lf || !cr); i++) {
+            if (bytes[i] == '\n') {
+                lf = true;
+            } else if (bytes[i] == '\r') {
+                cr = true;
+            }
         }
     }
-
-    private boolean isByteEol(byte[] bytesToCheck, byte[] eolType) {
-        return Bytes.indexOf(bytesToCheck, eolType) != -1;
-    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor;
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jfrog.build.api.Module;
+import org.jfrog.build.extractor.codec.JsonBuildInfoCodec;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A list of build modules kept in a temporary segment file instead of the heap.
+ * <p/>
+ * Every added module is serialized to the end of the segment file and dropped, only its offset is kept, and
+ * {@link #get(int)} deserializes it again. Builds with thousands of modules therefore hold a single module in memory at
+ * a time: when the build info is written, Jackson iterates the list and each module is read, serialized and released.
+ * Modules returned by the list are copies, a modified module must be stored back with {@link #set(int, Module)}.
+ * <p/>
+ * Only appending and replacing modules is supported. {@link #close()} deletes the segment file.
+ */
+public class SpillingModuleList extends AbstractList<Module> implements Closeable {
+    private final ObjectMapper mapper = JsonBuildInfoCodec.createObjectMapper();
+    private final File segmentFile;
+    private RandomAccessFile segments;
+    private long[] offsets = new long[16];
+    private int[] lengths = new int[16];
+    private int size;
+
+    /**
+     * @param segmentFile The temporary file to spill the modules to, overwritten if it exists
+     */
+    public SpillingModuleList(File segmentFile) throws IOException {
+        this.segmentFile = segmentFile;
+        segmentFile.deleteOnExit();
+        segments = new RandomAccessFile(segmentFile, "rw");
+        segments.setLength(0);
+    }
+
+    /**
+     * Create a list spilling to a new temporary file in the given directory.
+     *
+     * @param directory The directory of the segment file, the default temporary directory if null
+     */
+    public static SpillingModuleList create(File directory) throws IOException {
+        if (directory != null && !directory.exists()) {
+            directory.mkdirs();
+        }
+        return new SpillingModuleList(File.createTempFile("build-info-modules", ".segments", directory));
+    }
+
+    @Override
+    public synchronized Module get(int index) {
+        checkIndex(index);
+        byte[] bytes = new byte[lengths[index]];
+        try {
+            segments.seek(offsets[index]);
+            segments.readFully(bytes);
+            return mapper.readValue(bytes, 0, bytes.length, Module.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read module " + index + " from " + segmentFile, e);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void add(int index, Module module) {
+        if (index != size) {
+            throw new UnsupportedOperationException("Modules can only be appended");
+        }
+        checkOpen();
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        write(size, module);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public synchronized Module set(int index, Module module) {
+        Module previous = get(index);
+        // The previous segment is left unused, replacing is rare (merged modules)
+        write(index, module);
+        return previous;
+    }
+
+    /**
+     * Close and delete the segment file. The list must not be used afterwards.
+     */
+    public synchronized void close() {
+        if (segments != null) {
+            IOUtils.closeQuietly(segments);
+            segments = null;
+            segmentFile.delete();
+        }
+    }
+
+    private void write(int index, Module module) {
+        try {
+            byte[] bytes = mapper.writeValueAsBytes(module);
+            long offset = segments.length();
+            segments.seek(offset);
+            segments.write(bytes);
+            offsets[index] = offset;
+            lengths[index] = bytes.length;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to spill module " + module.getId() + " to " + segmentFile, e);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        checkOpen();
+    }
+
+    private void checkOpen() {
+        if (segments == null) {
+            throw new IllegalStateException("The module list is closed");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encodes and decodes exported build-info files. Codecs are selected by the file extension, see
+ * {@link BuildInfoCodecs}.
+ */
+public interface BuildInfoCodec {
+
+    /**
+     * @return The file extension handled by this codec, including the leading dot (e.g. {@code .json})
+     */
+    String getExtension();
+
+    /**
+     * Encode the value to the stream. The stream is not closed.
+     *
+     * @param value The build info or build info component to write
+     * @param out   The stream to write to
+     */
+    void write(Object value, OutputStream out) throws IOException;
+
+    /**
+     * Decode a value of the given type from the stream.
+     *
+     * @param in   The stream to read from
+     * @param type The type of the value
+     * @return The decoded value
+     */
+    <T> T read(InputStream in, Class<T> type) throws IOException;
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the build-info codecs, selecting the codec of a file by its extension. Files with an unknown extension
+ * are plain JSON.
+ */
+public abstract class BuildInfoCodecs {
+    public static final BuildInfoCodec JSON = new JsonBuildInfoCodec(false);
+    public static final BuildInfoCodec COMPRESSED_JSON = new JsonBuildInfoCodec(true);
+    public static final BuildInfoCodec SMILE = new SmileBuildInfoCodec();
+
+    private static final List<BuildInfoCodec> codecs = new CopyOnWriteArrayList<BuildInfoCodec>();
+
+    static {
+        codecs.add(SMILE);
+        codecs.add(COMPRESSED_JSON);
+        codecs.add(JSON);
+    }
+
+    /**
+     * Register an additional codec. Codecs registered last take precedence, so a codec may override the extension of
+     * a built-in one.
+     *
+     * @param codec The codec to register
+     */
+    public static void register(BuildInfoCodec codec) {
+        codecs.add(0, codec);
+    }
+
+    /**
+     * Remove a codec added with {@link #register(BuildInfoCodec)}.
+     *
+     * @param codec The codec to remove
+     */
+    public static void unregister(BuildInfoCodec codec) {
+        codecs.remove(codec);
+    }
+
+    /**
+     * @param file The file to read or write
+     * @return The codec matching the extension of the file, the JSON codec if none matches
+     */
+    public static BuildInfoCodec forFile(File file) {
+        String name = file.getName().toLowerCase();
+        for (BuildInfoCodec codec : codecs) {
+            if (name.endsWith(codec.getExtension())) {
+                return codec;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Write the value to the file with the codec of the file extension, creating the parent directories if needed.
+     */
+    public static void save(Object value, File toFile) throws IOException {
+        File parent = toFile.getAbsoluteFile().getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(toFile));
+        try {
+            forFile(toFile).write(value, out);
+            out.flush();
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Read a value from the file with the codec of the file extension.
+     */
+    public static <T> T load(File file, Class<T> type) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return forFile(file).read(in, type);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+}
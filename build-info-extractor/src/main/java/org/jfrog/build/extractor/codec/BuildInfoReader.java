@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.jfrog.build.api.Artifact;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.Module;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pull based reader of build-info documents, holding a single module in memory at a time. Any
+ * {@link StreamingBuildInfoCodec} encoding can be read, files are read with the codec of their extension.
+ * <p/>
+ * The build header (all the build fields except the modules) is read when the reader is created. The modules are
+ * then pulled one by one with {@link #nextModule()}, or element by element with {@link #nextModule(ModuleVisitor)}
+ * for modules too large to materialize. Build fields that appear after the modules in the document are added to the
+ * header once the last module was read.
+ * <pre>
+ * BuildInfoReader reader = BuildInfoReader.open(buildInfoFile);
+ * try {
+ *     Build header = reader.getHeader();
+ *     Module module;
+ *     while ((module = reader.nextModule()) != null) {
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ */
+public class BuildInfoReader implements Closeable {
+    private static final String MODULES = "modules";
+
+    private final ObjectMapper mapper = JsonBuildInfoCodec.createObjectMapper();
+    private final InputStream in;
+    private final JsonParser parser;
+    private final Build header;
+    private boolean inModules;
+
+    /**
+     * Create a reader of the JSON document in the stream and read the build header. The stream is closed by
+     * {@link #close()}.
+     *
+     * @param in The build-info JSON stream
+     */
+    public BuildInfoReader(InputStream in) throws IOException {
+        this(in, (StreamingBuildInfoCodec) BuildInfoCodecs.JSON);
+    }
+
+    /**
+     * Create a reader of the document encoded in the stream and read the build header. The stream is closed by
+     * {@link #close()}.
+     *
+     * @param in    The encoded build-info stream
+     * @param codec The codec of the stream encoding
+     */
+    public BuildInfoReader(InputStream in, StreamingBuildInfoCodec codec) throws IOException {
+        this.in = in;
+        parser = codec.createParser(in);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException("Expected a build-info object", parser.getCurrentLocation());
+        }
+        ObjectNode headerNode = mapper.createObjectNode();
+        inModules = readBuildFields(headerNode);
+        header = mapper.treeToValue(headerNode, Build.class);
+    }
+
+    /**
+     * Create a reader of the build-info file, decoded by the codec of the file extension.
+     *
+     * @param file The build-info file
+     */
+    public static BuildInfoReader open(File file) throws IOException {
+        BuildInfoCodec codec = BuildInfoCodecs.forFile(file);
+        if (!(codec instanceof StreamingBuildInfoCodec)) {
+            throw new IOException("The '" + codec.getExtension() + "' build-info codec cannot read '" + file +
+                    "' a module at a time");
+        }
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return new BuildInfoReader(in, (StreamingBuildInfoCodec) codec);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(in);
+            throw e;
+        }
+    }
+
+    /**
+     * @return The build without its modules. Fields following the modules in the document are set only after the
+     *         last module was read.
+     */
+    public Build getHeader() {
+        return header;
+    }
+
+    /**
+     * @return The next module of the build, null if all the modules were read
+     */
+    public Module nextModule() throws IOException {
+        if (!nextModuleStarted()) {
+            return null;
+        }
+        return mapper.readValue(parser, Module.class);
+    }
+
+    /**
+     * Read the next module, passing its artifacts and dependencies to the visitor one at a time.
+     *
+     * @param visitor The visitor of the module elements
+     * @return False if all the modules were read
+     */
+    public boolean nextModule(ModuleVisitor visitor) throws IOException {
+        if (!nextModuleStarted()) {
+            return false;
+        }
+        ObjectNode moduleNode = mapper.createObjectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("artifacts".equals(name) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    visitor.visitArtifact(mapper.readValue(parser, Artifact.class));
+                }
+            } else if ("excludedArtifacts".equals(name) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    visitor.visitExcludedArtifact(mapper.readValue(parser, Artifact.class));
+                }
+            } else if ("dependencies".equals(name) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    visitor.visitDependency(mapper.readValue(parser, Dependency.class));
+                }
+            } else {
+                moduleNode.put(name, mapper.readTree(parser));
+            }
+        }
+        visitor.visitModuleEnd(mapper.treeToValue(moduleNode, Module.class));
+        return true;
+    }
+
+    public void close() throws IOException {
+        try {
+            parser.close();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Advance to the start of the next module, reading the trailing build fields once the modules ended.
+     */
+    private boolean nextModuleStarted() throws IOException {
+        if (!inModules) {
+            return false;
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            return true;
+        }
+        if (token != JsonToken.END_ARRAY) {
+            throw new JsonParseException("Expected a module object", parser.getCurrentLocation());
+        }
+        inModules = false;
+        ObjectNode trailingNode = mapper.createObjectNode();
+        readBuildFields(trailingNode);
+        if (trailingNode.size() > 0) {
+            mapper.updatingReader(header).readValue(trailingNode);
+        }
+        return false;
+    }
+
+    /**
+     * Read the build fields into the node until the modules array or the end of the build.
+     *
+     * @return True if the parser stopped at the start of the modules array
+     */
+    private boolean readBuildFields(ObjectNode node) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (MODULES.equals(name) && value == JsonToken.START_ARRAY) {
+                return true;
+            }
+            if (MODULES.equals(name)) {
+                parser.skipChildren();
+            } else {
+                node.put(name, mapper.readTree(parser));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Receives the elements of a module read by {@link BuildInfoReader#nextModule(ModuleVisitor)}.
+     */
+    public abstract static class ModuleVisitor {
+
+        public void visitArtifact(Artifact artifact) {
+        }
+
+        public void visitExcludedArtifact(Artifact artifact) {
+        }
+
+        public void visitDependency(Dependency dependency) {
+        }
+
+        /**
+         * Called after the module was read.
+         *
+         * @param module The module id and properties, without the artifacts and dependencies passed to the visitor
+         */
+        public void visitModuleEnd(Module module) {
+        }
+    }
+}
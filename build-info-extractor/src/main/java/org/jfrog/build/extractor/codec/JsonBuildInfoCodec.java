@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+import org.codehaus.jackson.map.introspect.JacksonAnnotationIntrospector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson based build-info codec.
+ * <p/>
+ * The plain codec writes pretty printed JSON, as sent to Artifactory. The compressed codec writes compact JSON through
+ * GZIP: build-info documents repeat the same ids, scopes and types for every artifact and dependency, and the
+ * back-references of the DEFLATE dictionary shrink them to a few bytes each.
+ */
+public class JsonBuildInfoCodec implements StreamingBuildInfoCodec {
+    public static final String JSON_EXTENSION = ".json";
+    public static final String COMPRESSED_JSON_EXTENSION = ".json.gz";
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final ObjectMapper mapper = createObjectMapper();
+    private final boolean compressed;
+
+    /**
+     * @param compressed True to GZIP compress compact JSON, false for plain pretty printed JSON
+     */
+    public JsonBuildInfoCodec(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * @return An object mapper configured for build-info serialization, omitting null values and ignoring unknown
+     *         properties
+     */
+    public static ObjectMapper createObjectMapper() {
+        return createObjectMapper(new JsonFactory());
+    }
+
+    /**
+     * @param factory The factory of the encoding parsers and generators
+     * @return An object mapper of the given encoding configured for build-info serialization
+     */
+    public static ObjectMapper createObjectMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.getSerializationConfig().setAnnotationIntrospector(new JacksonAnnotationIntrospector());
+        mapper.getSerializationConfig().setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+        mapper.getDeserializationConfig().disable(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapper.getJsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        mapper.getJsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return mapper;
+    }
+
+    public String getExtension() {
+        return compressed ? COMPRESSED_JSON_EXTENSION : JSON_EXTENSION;
+    }
+
+    public void write(Object value, OutputStream out) throws IOException {
+        if (!compressed) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(out, value);
+            return;
+        }
+        GZIPOutputStream gzip = new GZIPOutputStream(new CloseShieldOutputStream(out), GZIP_BUFFER_SIZE);
+        mapper.writeValue(gzip, value);
+        gzip.finish();
+    }
+
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        if (!compressed) {
+            return mapper.readValue(in, type);
+        }
+        return mapper.readValue(new GZIPInputStream(in, GZIP_BUFFER_SIZE), type);
+    }
+
+    public JsonParser createParser(InputStream in) throws IOException {
+        if (compressed) {
+            in = new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+        }
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(in);
+        parser.enable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+}
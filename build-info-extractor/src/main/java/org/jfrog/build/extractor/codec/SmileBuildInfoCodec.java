@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.smile.SmileFactory;
+import org.codehaus.jackson.smile.SmileGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Binary build-info codec writing the Jackson Smile encoding of the JSON model.
+ * <p/>
+ * Smile writes every field name and every short string value once, later occurrences are back-references to the
+ * first one. The ids, scopes and types repeated for every dependency of every module are encoded in one or two bytes
+ * each, and the document is parsed without any decompression.
+ */
+public class SmileBuildInfoCodec implements StreamingBuildInfoCodec {
+    public static final String SMILE_EXTENSION = ".smile";
+
+    private final ObjectMapper mapper;
+
+    public SmileBuildInfoCodec() {
+        SmileFactory factory = new SmileFactory();
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_NAMES);
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        mapper = JsonBuildInfoCodec.createObjectMapper(factory);
+    }
+
+    public String getExtension() {
+        return SMILE_EXTENSION;
+    }
+
+    public void write(Object value, OutputStream out) throws IOException {
+        mapper.writeValue(out, value);
+    }
+
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        return mapper.readValue(in, type);
+    }
+
+    public JsonParser createParser(InputStream in) throws IOException {
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(in);
+        parser.enable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import org.codehaus.jackson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A build-info codec of a Jackson encoding, which the {@link BuildInfoReader} can read a module at a time.
+ */
+public interface StreamingBuildInfoCodec extends BuildInfoCodec {
+
+    /**
+     * Create a token parser of the encoded stream. Closing the parser closes the stream.
+     *
+     * @param in The stream to read from
+     * @return The parser of the decoded tokens
+     */
+    JsonParser createParser(InputStream in) throws IOException;
+}
@@ -15,24 +15,33 @@
 
 package org.jfrog.build.extractor.release;
 
-import com.google.common.base.Charsets;
-import com.google.common.io.Files;
+import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
-import org.jfrog.build.extractor.EolDetectingInputStream;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 
 /**
  * Rewrites the given properties in the input properties file.
+ * <p/>
+ * The file is streamed line by line in the properties file encoding (ISO 8859-1), lines are copied verbatim unless
+ * they hold one of the given properties with a different value, in which case only the value is replaced. Comments,
+ * ordering, separators and line terminators are preserved.
  *
  * @author Tomer Cohen
  */
 public class PropertiesTransformer {
+    private static final String ENCODING = "ISO-8859-1";
 
     private final File propertiesFile;
     private final Map<String, String> versionsByName;
@@ -51,47 +60,256 @@ public class PropertiesTransformer {
         if (!propertiesFile.exists()) {
             throw new IllegalArgumentException("Couldn't find properties file: " + propertiesFile.getAbsolutePath());
         }
-        Properties properties = new Properties();
-        EolDetectingInputStream eolDetectingInputStream = null;
+        File transformedFile = new File(propertiesFile.getPath() + ".tmp");
+        Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(propertiesFile), ENCODING));
+        boolean modified = false;
         try {
-            eolDetectingInputStream = new EolDetectingInputStream(new FileInputStream(propertiesFile));
-            properties.load(eolDetectingInputStream);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(transformedFile), ENCODING));
+            try {
+                modified = transform(reader, writer);
+            } finally {
+                IOUtils.closeQuietly(writer);
+            }
         } finally {
-            IOUtils.closeQuietly(eolDetectingInputStream);
+            IOUtils.closeQuietly(reader);
+            if (!modified) {
+                transformedFile.delete();
+            }
         }
-        String eol = eolDetectingInputStream.getEol();
-        boolean hasEol = !"".equals(eol);
 
-        StringBuilder resultBuilder = new StringBuilder();
+        if (modified) {
+            propertiesFile.delete();
+            if (!transformedFile.renameTo(propertiesFile)) {
+                throw new IOException("Failed to replace " + propertiesFile.getAbsolutePath());
+            }
+        }
+
+        return modified;
+    }
+
+    boolean transform(Reader reader, Writer writer) throws IOException {
+        LineReader lines = new LineReader(reader);
         boolean modified = false;
-        Enumeration<?> propertyNames = properties.propertyNames();
-        while (propertyNames.hasMoreElements()) {
-            String propertyName = (String) propertyNames.nextElement();
-            String propertyValue = properties.getProperty(propertyName);
+        List<String> logicalLine;
+        while (!(logicalLine = lines.readLogicalLine()).isEmpty()) {
+            String transformed = transformLine(logicalLine);
+            if (transformed != null) {
+                writer.write(transformed);
+                modified = true;
+            } else {
+                for (String line : logicalLine) {
+                    writer.write(line);
+                }
+            }
+        }
+        return modified;
+    }
 
-            StringBuilder lineBuilder = new StringBuilder(propertyName).append("=");
+    /**
+     * @param logicalLine The physical lines of a logical line, with their terminators
+     * @return The transformed line, or null if the line should be kept as is
+     */
+    private String transformLine(List<String> logicalLine) {
+        String first = logicalLine.get(0);
+        int length = contentLength(first);
+        int i = skipWhitespace(first, 0, length);
+        if (i == length || first.charAt(i) == '#' || first.charAt(i) == '!') {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        while (i < length) {
+            char c = first.charAt(i);
+            if (c == '\\') {
+                if (i + 1 == length) {
+                    // The key continues on the next line, keep the line as is
+                    return null;
+                }
+                i = unescape(first, i, key);
+            } else if (c == '=' || c == ':' || isWhitespace(c)) {
+                break;
+            } else {
+                key.append(c);
+                i++;
+            }
+        }
+        String newValue = versionsByName.get(key.toString());
+        if (newValue == null) {
+            return null;
+        }
+        i = skipWhitespace(first, i, length);
+        if (i < length && (first.charAt(i) == '=' || first.charAt(i) == ':')) {
+            i = skipWhitespace(first, i + 1, length);
+        }
+        int valueStart = i;
 
-            String newPropertyValue = versionsByName.get(propertyName);
-            if ((newPropertyValue != null) && !newPropertyValue.equals(propertyValue)) {
-                if (!modified) {
-                    modified = true;
+        StringBuilder value = new StringBuilder();
+        for (int lineIndex = 0; lineIndex < logicalLine.size(); lineIndex++) {
+            String line = logicalLine.get(lineIndex);
+            int lineLength = contentLength(line);
+            int j = lineIndex == 0 ? valueStart : skipWhitespace(line, 0, lineLength);
+            while (j < lineLength) {
+                if (line.charAt(j) == '\\') {
+                    if (j + 1 == lineLength) {
+                        // Continuation
+                        break;
+                    }
+                    j = unescape(line, j, value);
+                } else {
+                    value.append(line.charAt(j++));
                 }
-                lineBuilder.append(newPropertyValue);
+            }
+        }
+        if (newValue.equals(value.toString())) {
+            return null;
+        }
+        String last = logicalLine.get(logicalLine.size() - 1);
+        return first.substring(0, valueStart) + escapeValue(newValue) + last.substring(contentLength(last));
+    }
+
+    private static int unescape(String line, int backslash, StringBuilder target) {
+        char c = line.charAt(backslash + 1);
+        switch (c) {
+            case 't':
+                target.append('\t');
+                break;
+            case 'n':
+                target.append('\n');
+                break;
+            case 'r':
+                target.append('\r');
+                break;
+            case 'f':
+                target.append('\f');
+                break;
+            case 'u':
+                if (backslash + 6 <= line.length()) {
+                    try {
+                        target.append((char) Integer.parseInt(line.substring(backslash + 2, backslash + 6), 16));
+                        return backslash + 6;
+                    } catch (NumberFormatException e) {
+                        // Not a unicode escape, keep as is
+                    }
+                }
+                target.append(c);
+                break;
+            default:
+                target.append(c);
+        }
+        return backslash + 2;
+    }
+
+    private static String escapeValue(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                escaped.append("\\\\");
+            } else if (c == '\t') {
+                escaped.append("\\t");
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else if (c == '\r') {
+                escaped.append("\\r");
+            } else if (c == '\f') {
+                escaped.append("\\f");
+            } else if (c == ' ' && i == 0) {
+                escaped.append("\\ ");
+            } else if (c < 0x20 || c > 0x7e) {
+                escaped.append(String.format("\\u%04x", (int) c));
             } else {
-                lineBuilder.append(propertyValue);
+                escaped.append(c);
             }
-            resultBuilder.append(lineBuilder.toString());
-            if (hasEol) {
-                resultBuilder.append(eol);
+        }
+        return escaped.toString();
+    }
+
+    private static int skipWhitespace(String line, int from, int length) {
+        int i = from;
+        while (i < length && isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    /**
+     * @return The length of the line without its terminator
+     */
+    private static int contentLength(String line) {
+        int length = line.length();
+        while (length > 0 && (line.charAt(length - 1) == '\n' || line.charAt(length - 1) == '\r')) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Reads physical lines with their terminators, grouped into logical lines.
+     */
+    private static class LineReader {
+        private final Reader reader;
+        private int pushedBack = -1;
+
+        private LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        private List<String> readLogicalLine() throws IOException {
+            List<String> lines = Lists.newArrayList();
+            String line;
+            while ((line = readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == 1 && isComment(line) || !isContinued(line)) {
+                    break;
+                }
             }
+            return lines;
         }
 
-        if (modified) {
-            propertiesFile.delete();
-            String toWrite = resultBuilder.toString();
-            Files.write(toWrite, propertiesFile, Charsets.UTF_8);
+        private boolean isComment(String line) {
+            int i = skipWhitespace(line, 0, contentLength(line));
+            return i < line.length() && (line.charAt(i) == '#' || line.charAt(i) == '!');
         }
 
-        return modified;
+        private boolean isContinued(String line) {
+            int backslashes = 0;
+            for (int i = contentLength(line) - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+                backslashes++;
+            }
+            return backslashes % 2 == 1;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = read()) != -1) {
+                line.append((char) c);
+                if (c == '\n') {
+                    break;
+                }
+                if (c == '\r') {
+                    int next = read();
+                    if (next == '\n') {
+                        line.append('\n');
+                    } else {
+                        pushedBack = next;
+                    }
+                    break;
+                }
+            }
+            return line.length() == 0 ? null : line.toString();
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -1) {
+                int c = pushedBack;
+                pushedBack = -1;
+                return c;
+            }
+            return reader.read();
+        }
     }
 }
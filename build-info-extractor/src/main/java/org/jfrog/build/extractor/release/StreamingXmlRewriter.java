@@ -0,0 +1,482 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.release;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming, format preserving rewriter of the text of selected XML elements.
+ * <p/>
+ * The input is copied to the output verbatim, character by character, including the prolog, comments, whitespace
+ * and attributes. Only the text content of the elements selected by {@link #isTextElement(String)} can be replaced,
+ * by the {@link #rewrite(String, Map)} callback.
+ * <p/>
+ * Text elements are passed to the callback as soon as they end, unless they are direct children of a scope element
+ * selected by {@link #isScope(String)}. The content of scope elements is buffered until the scope ends, so that the
+ * decision can depend on siblings appearing after the text element (e.g. a version preceding its artifact id).
+ * Memory is therefore bounded by the largest scope element, not by the document size.
+ * <p/>
+ * Element paths are the local names of the elements from the root, separated by slashes, e.g.
+ * {@code project/dependencies/dependency/version}.
+ */
+public abstract class StreamingXmlRewriter {
+    private static final int EOF = -1;
+    private static final int TEXT_FLUSH_THRESHOLD = 8192;
+    private static final String COMMENT_START = "<!--";
+    private static final String CDATA_START = "<![CDATA[";
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+
+    private final LinkedList<String> path = Lists.newLinkedList();
+    private final LinkedList<Scope> scopes = Lists.newLinkedList();
+    private final Sink documentSink;
+    private TextElement capture;
+    private int captureDepth;
+    private boolean modified;
+
+    protected StreamingXmlRewriter(Reader in, final Writer out) {
+        this.in = in;
+        this.documentSink = new Sink() {
+            public void append(CharSequence raw) throws IOException {
+                out.append(raw);
+            }
+
+            public void append(TextElement element) throws IOException {
+                out.append(element.getOutput());
+            }
+        };
+    }
+
+    /**
+     * @param elementPath The path of an element
+     * @return True if the content of the element should be buffered until its end
+     */
+    protected abstract boolean isScope(String elementPath);
+
+    /**
+     * @param elementPath The path of an element
+     * @return True if the text of the element may be replaced
+     */
+    protected abstract boolean isTextElement(String elementPath);
+
+    /**
+     * Called with the text elements of a scope when the scope ends, or with a single text element when it ends
+     * outside of a scope. Replace texts using {@link TextElement#setText(String)}.
+     *
+     * @param parentPath   The path of the scope or of the parent of the text element
+     * @param textElements The text elements by local name, the last one wins if a name repeats
+     */
+    protected abstract void rewrite(String parentPath, Map<String, TextElement> textElements);
+
+    /**
+     * Copy the whole input to the output, replacing the texts set by {@link #rewrite(String, Map)}.
+     *
+     * @return True if any text was replaced
+     * @throws IOException On read or write failure, or if the document is truncated
+     */
+    public boolean rewrite() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == '<') {
+                flushText(text);
+                readMarkup();
+            } else {
+                text.append((char) c);
+                if (capture == null && text.length() >= TEXT_FLUSH_THRESHOLD) {
+                    flushText(text);
+                }
+            }
+        }
+        flushText(text);
+        if (capture != null || !scopes.isEmpty()) {
+            throw new IOException("Unexpected end of document in element " + getPath());
+        }
+        return modified;
+    }
+
+    private void flushText(StringBuilder text) throws IOException {
+        if (text.length() == 0) {
+            return;
+        }
+        if (capture != null) {
+            capture.appendRaw(text);
+            capture.appendText(decode(text));
+        } else {
+            getSink().append(text);
+        }
+        text.setLength(0);
+    }
+
+    private void readMarkup() throws IOException {
+        StringBuilder raw = new StringBuilder().append('<');
+        int c = readInto(raw);
+        if (c == '!') {
+            readDeclaration(raw);
+        } else if (c == '?') {
+            readUntil(raw, "?>");
+            appendRaw(raw);
+        } else if (c == '/') {
+            readTag(raw);
+            endElement(raw);
+        } else {
+            readTag(raw);
+            startElement(raw);
+        }
+    }
+
+    private void readDeclaration(StringBuilder raw) throws IOException {
+        while (true) {
+            String prefix = raw.toString();
+            if (COMMENT_START.equals(prefix)) {
+                readUntil(raw, "-->");
+                appendRaw(raw);
+                return;
+            }
+            if (CDATA_START.equals(prefix)) {
+                readUntil(raw, "]]>");
+                if (capture != null) {
+                    capture.appendRaw(raw);
+                    capture.appendText(raw.substring(CDATA_START.length(), raw.length() - 3));
+                } else {
+                    getSink().append(raw);
+                }
+                return;
+            }
+            if (!COMMENT_START.startsWith(prefix) && !CDATA_START.startsWith(prefix)) {
+                break;
+            }
+            readInto(raw);
+        }
+        // Document type declaration, may contain an internal subset and quoted strings
+        int brackets = 0;
+        char quote = 0;
+        int i = 2;
+        while (true) {
+            char c = i < raw.length() ? raw.charAt(i) : (char) readInto(raw);
+            i++;
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[') {
+                brackets++;
+            } else if (c == ']') {
+                brackets--;
+            } else if (c == '>' && brackets <= 0) {
+                break;
+            }
+        }
+        appendRaw(raw);
+    }
+
+    private void readTag(StringBuilder raw) throws IOException {
+        char quote = 0;
+        int c = raw.charAt(raw.length() - 1);
+        while (quote != 0 || c != '>') {
+            c = readInto(raw);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = (char) c;
+            }
+        }
+    }
+
+    private void startElement(StringBuilder raw) throws IOException {
+        boolean empty = raw.charAt(raw.length() - 2) == '/';
+        if (capture != null) {
+            // Mixed content, the element is not a text element after all
+            TextElement abandoned = capture;
+            capture = null;
+            getSink().append(abandoned.getRaw());
+        }
+        path.addLast(localName(raw, 1));
+        String elementPath = getPath();
+        getSink().append(raw);
+        if (empty) {
+            path.removeLast();
+        } else if (isTextElement(elementPath)) {
+            capture = new TextElement(path.getLast());
+            captureDepth = path.size();
+        } else if (isScope(elementPath)) {
+            scopes.addLast(new Scope(elementPath, path.size()));
+        }
+    }
+
+    private void endElement(StringBuilder raw) throws IOException {
+        if (path.isEmpty()) {
+            throw new IOException("Unexpected end tag " + raw);
+        }
+        int depth = path.size();
+        path.removeLast();
+        String parentPath = getPath();
+        if (capture != null && depth == captureDepth) {
+            TextElement element = capture;
+            capture = null;
+            Scope scope = scopes.isEmpty() ? null : scopes.getLast();
+            if (scope != null && scope.depth == depth - 1) {
+                scope.elements.put(element.getName(), element);
+            } else {
+                rewrite(parentPath, Collections.singletonMap(element.getName(), element));
+            }
+            getSink().append(element);
+            getSink().append(raw);
+        } else if (!scopes.isEmpty() && scopes.getLast().depth == depth) {
+            Scope scope = scopes.removeLast();
+            scope.append(raw);
+            rewrite(scope.path, scope.elements);
+            Sink parent = getSink();
+            for (Object part : scope.parts) {
+                if (part instanceof TextElement) {
+                    parent.append((TextElement) part);
+                } else {
+                    parent.append((CharSequence) part);
+                }
+            }
+        } else {
+            appendRaw(raw);
+        }
+    }
+
+    private void appendRaw(CharSequence raw) throws IOException {
+        if (capture != null) {
+            capture.appendRaw(raw);
+        } else {
+            getSink().append(raw);
+        }
+    }
+
+    private Sink getSink() {
+        return scopes.isEmpty() ? documentSink : scopes.getLast();
+    }
+
+    private String getPath() {
+        return StringUtils.join(path, '/');
+    }
+
+    private static String localName(StringBuilder raw, int start) {
+        int end = start;
+        while (end < raw.length()) {
+            char c = raw.charAt(end);
+            if (Character.isWhitespace(c) || c == '/' || c == '>') {
+                break;
+            }
+            end++;
+        }
+        String name = raw.substring(start, end);
+        return name.substring(name.indexOf(':') + 1);
+    }
+
+    private void readUntil(StringBuilder raw, String terminator) throws IOException {
+        int minLength = raw.length() + terminator.length();
+        while (raw.length() < minLength || !endsWith(raw, terminator)) {
+            readInto(raw);
+        }
+    }
+
+    private static boolean endsWith(StringBuilder raw, String suffix) {
+        int offset = raw.length() - suffix.length();
+        for (int i = 0; i < suffix.length(); i++) {
+            if (raw.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readInto(StringBuilder raw) throws IOException {
+        int c = read();
+        if (c == EOF) {
+            throw new IOException("Unexpected end of document in markup " + raw);
+        }
+        raw.append((char) c);
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Decode the predefined and character entities of a text.
+     */
+    static String decode(CharSequence text) {
+        String s = text.toString();
+        int amp = s.indexOf('&');
+        if (amp == -1) {
+            return s;
+        }
+        StringBuilder decoded = new StringBuilder(s.length());
+        int from = 0;
+        while (amp != -1) {
+            int semicolon = s.indexOf(';', amp);
+            if (semicolon == -1) {
+                break;
+            }
+            decoded.append(s, from, amp);
+            String entity = s.substring(amp + 1, semicolon);
+            String value = decodeEntity(entity);
+            decoded.append(value != null ? value : s.substring(amp, semicolon + 1));
+            from = semicolon + 1;
+            amp = s.indexOf('&', from);
+        }
+        decoded.append(s, from, s.length());
+        return decoded.toString();
+    }
+
+    private static String decodeEntity(String entity) {
+        if ("lt".equals(entity)) {
+            return "<";
+        } else if ("gt".equals(entity)) {
+            return ">";
+        } else if ("amp".equals(entity)) {
+            return "&";
+        } else if ("quot".equals(entity)) {
+            return "\"";
+        } else if ("apos".equals(entity)) {
+            return "'";
+        } else if (entity.startsWith("#x") || entity.startsWith("#X")) {
+            return codePoint(entity.substring(2), 16);
+        } else if (entity.startsWith("#")) {
+            return codePoint(entity.substring(1), 10);
+        }
+        return null;
+    }
+
+    private static String codePoint(String number, int radix) {
+        try {
+            return new String(Character.toChars(Integer.parseInt(number, radix)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private interface Sink {
+        void append(CharSequence raw) throws IOException;
+
+        void append(TextElement element) throws IOException;
+    }
+
+    /**
+     * Buffered content of a scope element
+     */
+    private static class Scope implements Sink {
+        private final String path;
+        private final int depth;
+        private final List<Object> parts = Lists.newArrayList();
+        private final Map<String, TextElement> elements = Maps.newHashMap();
+
+        private Scope(String path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+
+        public void append(CharSequence raw) {
+            parts.add(raw.toString());
+        }
+
+        public void append(TextElement element) {
+            parts.add(element);
+        }
+    }
+
+    /**
+     * An element with text only content, whose text may be replaced.
+     */
+    public class TextElement {
+        private final String name;
+        private final StringBuilder raw = new StringBuilder();
+        private final StringBuilder text = new StringBuilder();
+        private String replacement;
+
+        private TextElement(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The text content, with entities decoded
+         */
+        public String getText() {
+            return text.toString();
+        }
+
+        /**
+         * Replace the content of the element, the output is modified only if the text is different.
+         *
+         * @param newText The new text
+         */
+        public void setText(String newText) {
+            if (newText.equals(getText())) {
+                return;
+            }
+            replacement = escape(newText);
+            text.setLength(0);
+            text.append(newText);
+            modified = true;
+        }
+
+        private void appendRaw(CharSequence content) {
+            raw.append(content);
+        }
+
+        private void appendText(String content) {
+            text.append(content);
+        }
+
+        private String getRaw() {
+            return raw.toString();
+        }
+
+        private String getOutput() {
+            return replacement != null ? replacement : raw.toString();
+        }
+    }
+}
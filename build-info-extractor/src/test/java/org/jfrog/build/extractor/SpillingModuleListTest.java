@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.Module;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.jfrog.build.api.builder.BuildInfoMavenBuilder;
+import org.jfrog.build.api.builder.DependencyBuilder;
+import org.jfrog.build.api.builder.ModuleBuilder;
+import org.jfrog.build.extractor.codec.BuildInfoCodecs;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the disk backed module list.
+ */
+@Test
+public class SpillingModuleListTest {
+    private File dir;
+    private SpillingModuleList modules;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        dir = Files.createTempDir();
+        modules = SpillingModuleList.create(dir);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        modules.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void addAndGet() {
+        for (int i = 0; i < 100; i++) {
+            modules.add(module("module" + i, 3));
+        }
+        assertEquals(modules.size(), 100);
+        Module module = modules.get(42);
+        assertEquals(module.getId(), "org.jfrog:module42:1.0");
+        assertEquals(module.getArtifacts().size(), 3);
+        assertEquals(module.getDependencies().get(0).getScopes().get(0), "compile");
+        assertNotSame(modules.get(42), module, "Modules should be read back from the segment file");
+    }
+
+    public void setReplacesModule() {
+        modules.add(module("a", 1));
+        modules.add(module("b", 1));
+        Module module = modules.get(0);
+        module.getArtifacts().get(0).setSha1("updated");
+        Module previous = modules.set(0, module);
+        assertEquals(previous.getArtifacts().get(0).getSha1(), module("a", 1).getArtifacts().get(0).getSha1());
+        assertEquals(modules.get(0).getArtifacts().get(0).getSha1(), "updated");
+        assertEquals(modules.get(1).getId(), "org.jfrog:b:1.0");
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void insertNotSupported() {
+        modules.add(module("a", 1));
+        modules.add(0, module("b", 1));
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        modules.add(module("a", 1));
+        modules.get(1);
+    }
+
+    public void closeDeletesSegmentFile() throws IOException {
+        modules.add(module("a", 1));
+        assertEquals(dir.listFiles().length, 1);
+        modules.close();
+        assertEquals(dir.listFiles().length, 0);
+    }
+
+    public void spilledBuildSerializesLikeInMemory() throws IOException {
+        List<Module> inMemory = new ArrayList<Module>();
+        for (int i = 0; i < 20; i++) {
+            inMemory.add(module("module" + i, 2));
+            modules.add(module("module" + i, 2));
+        }
+        File inMemoryFile = new File(dir, "in-memory.json");
+        File spilledFile = new File(dir, "spilled.json");
+        BuildInfoCodecs.save(build(inMemory), inMemoryFile);
+        BuildInfoCodecs.save(build(modules), spilledFile);
+        assertEquals(FileUtils.readFileToString(spilledFile), FileUtils.readFileToString(inMemoryFile));
+        assertEquals(BuildInfoCodecs.load(spilledFile, Build.class).getModules().size(), 20);
+    }
+
+    public void mavenBuilderMergesSpilledModules() {
+        BuildInfoMavenBuilder builder = new BuildInfoMavenBuilder("test").number("1").started("2014-01-01");
+        builder.modules(modules);
+        builder.addModule(module("a", 1));
+        builder.addModule(module("b", 1));
+        builder.addModule(new ModuleBuilder().id("org.jfrog:a:1.0")
+                .addArtifact(new ArtifactBuilder("a-sources.jar").type("jar").build()).build());
+        assertEquals(modules.size(), 2);
+        assertEquals(modules.get(0).getArtifacts().size(), 2, "Merged module should be stored back");
+    }
+
+    private Build build(List<Module> buildModules) {
+        Build build = new Build();
+        build.setName("test");
+        build.setNumber("1");
+        build.setStarted("2014-01-01T00:00:00.000+0000");
+        build.setModules(buildModules);
+        return build;
+    }
+
+    private Module module(String artifactId, int artifactCount) {
+        ModuleBuilder builder = new ModuleBuilder().id("org.jfrog:" + artifactId + ":1.0");
+        for (int i = 0; i < artifactCount; i++) {
+            builder.addArtifact(new ArtifactBuilder(artifactId + "-" + i + ".jar").type("jar").md5("md5")
+                    .sha1("sha1").build());
+        }
+        builder.addDependency(new DependencyBuilder().id("org.jfrog:dep:1.0").type("jar").addScope("compile")
+                .build());
+        return builder.build();
+    }
+}
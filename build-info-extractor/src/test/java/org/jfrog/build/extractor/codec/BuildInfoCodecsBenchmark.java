@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.extractor.BuildInfoExtractorUtils;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+/**
+ * Reports the size and parse time of a large build in each encoding. Part of the benchmark group, which the default
+ * test run excludes; run it with the benchmark task.
+ */
+@Test(groups = "benchmark")
+public class BuildInfoCodecsBenchmark {
+    private static final int WARM_UP = 3;
+    private static final int ITERATIONS = 10;
+
+    private File dir;
+    private File json;
+    private File compressed;
+    private File smile;
+
+    @BeforeClass(groups = "benchmark")
+    public void setUp() throws Exception {
+        dir = Files.createTempDir();
+        Build build = BuildInfoCodecsTest.createBuild(100, 200);
+        json = new File(dir, "build-info.json");
+        compressed = new File(dir, "build-info.json.gz");
+        smile = new File(dir, "build-info.smile");
+        BuildInfoExtractorUtils.saveBuildInfoToFile(build, json);
+        BuildInfoExtractorUtils.saveBuildInfoToFile(build, compressed);
+        BuildInfoExtractorUtils.saveBuildInfoToFile(build, smile);
+    }
+
+    @AfterClass(groups = "benchmark")
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void parseTimes() throws Exception {
+        long jsonStringNanos = 0;
+        long jsonNanos = 0;
+        long compressedNanos = 0;
+        long smileNanos = 0;
+        for (int i = 0; i < WARM_UP + ITERATIONS; i++) {
+            long start = System.nanoTime();
+            BuildInfoExtractorUtils.jsonStringToBuildInfo(FileUtils.readFileToString(json, "UTF-8"));
+            long jsonStringEnd = System.nanoTime();
+            BuildInfoExtractorUtils.loadBuildInfoFromFile(json);
+            long jsonEnd = System.nanoTime();
+            BuildInfoExtractorUtils.loadBuildInfoFromFile(compressed);
+            long compressedEnd = System.nanoTime();
+            BuildInfoExtractorUtils.loadBuildInfoFromFile(smile);
+            long smileEnd = System.nanoTime();
+            if (i >= WARM_UP) {
+                jsonStringNanos += jsonStringEnd - start;
+                jsonNanos += jsonEnd - jsonStringEnd;
+                compressedNanos += compressedEnd - jsonEnd;
+                smileNanos += smileEnd - compressedEnd;
+            }
+        }
+        Reporter.log(String.format("json: %d bytes, %d ms as string, %d ms streamed; json.gz: %d bytes, %d ms; " +
+                "smile: %d bytes, %d ms", json.length(), millis(jsonStringNanos), millis(jsonNanos),
+                compressed.length(), millis(compressedNanos), smile.length(), millis(smileNanos)), true);
+    }
+
+    private static long millis(long totalNanos) {
+        return totalNanos / ITERATIONS / 1000000;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.Module;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.jfrog.build.api.builder.BuildInfoBuilder;
+import org.jfrog.build.api.builder.DependencyBuilder;
+import org.jfrog.build.api.builder.ModuleBuilder;
+import org.jfrog.build.extractor.BuildInfoExtractorUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the build-info codecs and compares the size of the encodings.
+ */
+@Test
+public class BuildInfoCodecsTest {
+    private File dir;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void selectCodecByExtension() {
+        assertSame(BuildInfoCodecs.forFile(new File("build-info.json")), BuildInfoCodecs.JSON);
+        assertSame(BuildInfoCodecs.forFile(new File("build-info.JSON.GZ")), BuildInfoCodecs.COMPRESSED_JSON);
+        assertSame(BuildInfoCodecs.forFile(new File("build-info.smile")), BuildInfoCodecs.SMILE);
+        assertSame(BuildInfoCodecs.forFile(new File("build-info")), BuildInfoCodecs.JSON);
+    }
+
+    public void roundTrip() throws Exception {
+        Build build = createBuild(3, 5);
+        for (String name : new String[]{"build-info.json", "build-info.json.gz", "build-info.smile"}) {
+            File file = new File(dir, "nested/" + name);
+            BuildInfoExtractorUtils.saveBuildInfoToFile(build, file);
+            Build loaded = BuildInfoExtractorUtils.loadBuildInfoFromFile(file);
+            assertEquals(loaded.getModules().size(), 3, name);
+            Dependency dependency = loaded.getModules().get(2).getDependencies().get(4);
+            assertEquals(dependency.getId(), "org.jfrog.test:lib4:1.0", name);
+            assertEquals(dependency.getScopes(), Arrays.asList("compile", "runtime"), name);
+        }
+        String json = Files.toString(new File(dir, "nested/build-info.json"), Charsets.UTF_8);
+        assertEquals(BuildInfoExtractorUtils.jsonStringToBuildInfo(json).getName(), "codec-test");
+    }
+
+    public void registeredCodecTakesPrecedence() throws Exception {
+        BuildInfoCodec reversed = new BuildInfoCodec() {
+            public String getExtension() {
+                return ".rev";
+            }
+
+            public void write(Object value, OutputStream out) throws IOException {
+                ByteArrayOutputStream json = new ByteArrayOutputStream();
+                BuildInfoCodecs.JSON.write(value, json);
+                out.write(new StringBuilder(json.toString("UTF-8")).reverse().toString().getBytes("UTF-8"));
+            }
+
+            public <T> T read(InputStream in, Class<T> type) throws IOException {
+                String json = new StringBuilder(IOUtils.toString(in, "UTF-8")).reverse().toString();
+                return BuildInfoCodecs.JSON.read(new ByteArrayInputStream(json.getBytes("UTF-8")), type);
+            }
+        };
+        BuildInfoCodecs.register(reversed);
+        try {
+            File file = new File(dir, "build-info.rev");
+            BuildInfoCodecs.save(createBuild(1, 1), file);
+            assertTrue(Files.toString(file, Charsets.UTF_8).endsWith("{"));
+            assertEquals(BuildInfoCodecs.load(file, Build.class).getName(), "codec-test");
+        } finally {
+            BuildInfoCodecs.unregister(reversed);
+        }
+        assertSame(BuildInfoCodecs.forFile(new File("build-info.rev")), BuildInfoCodecs.JSON);
+    }
+
+    public void compressedEncodingsAreSmaller() throws Exception {
+        Build build = createBuild(100, 200);
+        File json = new File(dir, "build-info.json");
+        File compressed = new File(dir, "build-info.json.gz");
+        File smile = new File(dir, "build-info.smile");
+        BuildInfoExtractorUtils.saveBuildInfoToFile(build, json);
+        BuildInfoExtractorUtils.saveBuildInfoToFile(build, compressed);
+        BuildInfoExtractorUtils.saveBuildInfoToFile(build, smile);
+
+        assertTrue(compressed.length() * 4 < json.length(),
+                "Expected at least 4 times smaller: " + compressed.length() + " / " + json.length());
+        assertTrue(smile.length() < json.length(),
+                "Expected smaller than JSON: " + smile.length() + " / " + json.length());
+    }
+
+    static Build createBuild(int moduleCount, int dependencyCount) {
+        BuildInfoBuilder builder = new BuildInfoBuilder("codec-test").number("1").started("2014-01-01T00:00:00.000+0000");
+        for (int m = 0; m < moduleCount; m++) {
+            ModuleBuilder module = new ModuleBuilder().id("org.jfrog.test:module" + m + ":1.0");
+            module.addArtifact(new ArtifactBuilder("module" + m + "-1.0.jar").type("jar")
+                    .sha1(checksum("a" + m, 40)).md5(checksum("a" + m, 32)).build());
+            for (int d = 0; d < dependencyCount; d++) {
+                module.addDependency(new DependencyBuilder().id("org.jfrog.test:lib" + d + ":1.0").type("jar")
+                        .scopes(Lists.newArrayList("compile", "runtime"))
+                        .sha1(checksum("d" + d, 40)).md5(checksum("d" + d, 32)).build());
+            }
+            Module built = module.build();
+            builder.addModule(built);
+        }
+        return builder.build();
+    }
+
+    private static String checksum(String seed, int length) {
+        StringBuilder checksum = new StringBuilder();
+        int hash = seed.hashCode();
+        while (checksum.length() < length) {
+            hash = hash * 31 + 17;
+            checksum.append(Integer.toHexString(hash & 0xf));
+        }
+        return checksum.toString();
+    }
+}
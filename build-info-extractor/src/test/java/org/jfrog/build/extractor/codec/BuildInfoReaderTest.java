@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.codec;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.Artifact;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.Module;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.jfrog.build.api.builder.BuildInfoBuilder;
+import org.jfrog.build.api.builder.DependencyBuilder;
+import org.jfrog.build.api.builder.ModuleBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the streaming build-info reader.
+ */
+@Test
+public class BuildInfoReaderTest {
+    private File dir;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void readModulesOneByOne() throws IOException {
+        Build build = build(5);
+        File file = new File(dir, "build-info.json");
+        BuildInfoCodecs.save(build, file);
+
+        BuildInfoReader reader = BuildInfoReader.open(file);
+        try {
+            Build header = reader.getHeader();
+            assertEquals(header.getName(), "test");
+            assertEquals(header.getNumber(), "42");
+            assertNull(header.getModules());
+            List<Module> modules = Lists.newArrayList();
+            Module module;
+            while ((module = reader.nextModule()) != null) {
+                modules.add(module);
+            }
+            assertEquals(modules.size(), build.getModules().size());
+            for (int i = 0; i < modules.size(); i++) {
+                Module expected = build.getModules().get(i);
+                assertEquals(modules.get(i).getId(), expected.getId());
+                assertEquals(modules.get(i).getArtifacts().size(), expected.getArtifacts().size());
+                assertEquals(modules.get(i).getDependencies().get(0).getId(), "org.jfrog:dep:1.0");
+            }
+            assertNull(reader.nextModule());
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void readEncodedFiles() throws IOException {
+        for (String name : new String[]{"build-info.json.gz", "build-info.smile"}) {
+            File file = new File(dir, name);
+            BuildInfoCodecs.save(build(3), file);
+            BuildInfoReader reader = BuildInfoReader.open(file);
+            try {
+                assertEquals(reader.getHeader().getName(), "test", name);
+                int count = 0;
+                while (reader.nextModule() != null) {
+                    count++;
+                }
+                assertEquals(count, 3, name);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    public void visitModuleElements() throws IOException {
+        File file = new File(dir, "build-info.json");
+        BuildInfoCodecs.save(build(2), file);
+        final List<Artifact> artifacts = Lists.newArrayList();
+        final List<Dependency> dependencies = Lists.newArrayList();
+        final List<Module> modules = Lists.newArrayList();
+        BuildInfoReader.ModuleVisitor visitor = new BuildInfoReader.ModuleVisitor() {
+            @Override
+            public void visitArtifact(Artifact artifact) {
+                artifacts.add(artifact);
+            }
+
+            @Override
+            public void visitDependency(Dependency dependency) {
+                dependencies.add(dependency);
+            }
+
+            @Override
+            public void visitModuleEnd(Module module) {
+                modules.add(module);
+            }
+        };
+        BuildInfoReader reader = BuildInfoReader.open(file);
+        try {
+            while (reader.nextModule(visitor)) {
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(artifacts.size(), 4);
+        assertEquals(artifacts.get(2).getName(), "module1-0.jar");
+        assertEquals(dependencies.size(), 2);
+        assertEquals(dependencies.get(1).getScopes(), Lists.newArrayList("compile"));
+        assertEquals(modules.size(), 2);
+        assertEquals(modules.get(1).getId(), "org.jfrog:module1:1.0");
+        assertEquals(modules.get(1).getProperties().getProperty("key"), "value");
+        assertNull(modules.get(1).getArtifacts());
+    }
+
+    public void fieldsAfterModulesAreAddedToHeader() throws IOException {
+        String json = "{\"name\":\"test\",\"modules\":[{\"id\":\"a\"},{\"id\":\"b\"}],\"number\":\"7\"," +
+                "\"url\":\"http://ci/7\"}";
+        BuildInfoReader reader = new BuildInfoReader(new ByteArrayInputStream(json.getBytes("UTF-8")));
+        try {
+            Build header = reader.getHeader();
+            assertEquals(header.getName(), "test");
+            assertNull(header.getNumber());
+            assertEquals(reader.nextModule().getId(), "a");
+            assertEquals(reader.nextModule().getId(), "b");
+            assertNull(reader.nextModule());
+            assertEquals(header.getNumber(), "7");
+            assertEquals(header.getUrl(), "http://ci/7");
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void buildWithoutModules() throws IOException {
+        String json = "{\"name\":\"test\",\"number\":\"1\"}";
+        BuildInfoReader reader = new BuildInfoReader(new ByteArrayInputStream(json.getBytes("UTF-8")));
+        try {
+            assertEquals(reader.getHeader().getNumber(), "1");
+            assertNull(reader.nextModule());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Build build(int moduleCount) {
+        BuildInfoBuilder builder = new BuildInfoBuilder("test").number("42").started("2014-01-01T00:00:00.000+0000");
+        for (int i = 0; i < moduleCount; i++) {
+            String name = "module" + i;
+            builder.addModule(new ModuleBuilder().id("org.jfrog:" + name + ":1.0").addProperty("key", "value")
+                    .addArtifact(new ArtifactBuilder(name + "-0.jar").type("jar").sha1("sha1").build())
+                    .addArtifact(new ArtifactBuilder(name + "-1.jar").type("jar").sha1("sha1").build())
+                    .addDependency(new DependencyBuilder().id("org.jfrog:dep:1.0").addScope("compile").build())
+                    .build());
+        }
+        return builder.build();
+    }
+}
@@ -90,4 +90,40 @@ public class PropertiesTransformerTest {
         assertEquals(transformedProperties.getProperty("momo"), "2.0", "Unexpected transformed property.");
         assertEquals(transformedProperties.getProperty("popo"), "3.0", "Unexpected transformed property.");
     }
+
+    @Test
+    public void testTransformPreservesLayout() throws Exception {
+        File properties = File.createTempFile("temp", "properties");
+        Files.write("# Release versions\r\n" +
+                "popo : 2.0\r\n" +
+                "! untouched\r\n" +
+                "other=a\\\r\n" +
+                "    b\r\n" +
+                "momo=1.0\\\r\n" +
+                "  -SNAPSHOT\r\n", properties, Charset.forName("iso-8859-1"));
+        Map<String, String> versions = Maps.newHashMap();
+        versions.put("momo", "1.0");
+        versions.put("popo", "3.0");
+        versions.put("missing", "1.0");
+        boolean transformed = new PropertiesTransformer(properties, versions).transform();
+        assertTrue(transformed);
+        assertEquals(Files.toString(properties, Charset.forName("iso-8859-1")), "# Release versions\r\n" +
+                "popo : 3.0\r\n" +
+                "! untouched\r\n" +
+                "other=a\\\r\n" +
+                "    b\r\n" +
+                "momo=1.0\r\n", "Unexpected transformed properties.");
+    }
+
+    @Test
+    public void testTransformUnchanged() throws Exception {
+        File properties = File.createTempFile("temp", "properties");
+        Files.write("momo=1.0\npopo=2.0\n", properties, Charset.forName("iso-8859-1"));
+        Map<String, String> versions = Maps.newHashMap();
+        versions.put("momo", "1.0");
+        boolean transformed = new PropertiesTransformer(properties, versions).transform();
+        assertFalse(transformed);
+        assertEquals(Files.toString(properties, Charset.forName("iso-8859-1")), "momo=1.0\npopo=2.0\n");
+        assertFalse(new File(properties.getPath() + ".tmp").exists(), "Temporary file should be removed.");
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.build.extractor.release;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the streaming, format preserving xml rewriter.
+ */
+public class StreamingXmlRewriterTest {
+
+    @Test
+    public void copyVerbatim() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n" +
+                "<!DOCTYPE project [<!ENTITY x \"<y>\">]>\r\n" +
+                "<!-- <version>1</version> -->\r\n" +
+                "<project a='1 > 0'   b=\"x\">\r\n" +
+                "  <version>1.0</version>\r\n" +
+                "  <description><![CDATA[<version>2</version>]]> &amp; more</description>\r\n" +
+                "  <empty/>\r\n" +
+                "</project>\r\n";
+        assertEquals(rewrite(xml, "9.9"), xml.replace("<version>1.0<", "<version>9.9<"));
+    }
+
+    @Test
+    public void unchangedTextIsNotModified() throws Exception {
+        String xml = "<project><version> 1.0 </version></project>";
+        StringWriter out = new StringWriter();
+        boolean modified = new VersionRewriter(xml, out, " 1.0 ").rewrite();
+        assertFalse(modified);
+        assertEquals(out.toString(), xml);
+    }
+
+    @Test
+    public void scopeSeesLaterSiblings() throws Exception {
+        String xml = "<project><dependencies>\n" +
+                "  <dependency><version>1.0</version><!-- c --><artifactId>a</artifactId></dependency>\n" +
+                "  <dependency><version>1.0</version><artifactId>b</artifactId></dependency>\n" +
+                "</dependencies></project>";
+        StringWriter out = new StringWriter();
+        VersionRewriter rewriter = new VersionRewriter(xml, out, "2.0");
+        rewriter.artifactId = "b";
+        assertTrue(rewriter.rewrite());
+        assertEquals(out.toString(), xml.replace("<version>1.0</version><artifactId>b", "<version>2.0</version>" +
+                "<artifactId>b"));
+    }
+
+    @Test
+    public void entitiesAreDecodedAndEscaped() throws Exception {
+        String xml = "<project xmlns:p=\"urn:p\"><p:version>a&amp;b&#x41;</p:version></project>";
+        final Map<String, String> texts = Maps.newHashMap();
+        StringWriter out = new StringWriter();
+        new StreamingXmlRewriter(new StringReader(xml), out) {
+            @Override
+            protected boolean isScope(String elementPath) {
+                return false;
+            }
+
+            @Override
+            protected boolean isTextElement(String elementPath) {
+                return "project/version".equals(elementPath);
+            }
+
+            @Override
+            protected void rewrite(String parentPath, Map<String, TextElement> textElements) {
+                TextElement version = textElements.get("version");
+                texts.put(parentPath, version.getText());
+                version.setText("<1>");
+            }
+        }.rewrite();
+        assertEquals(texts.get("project"), "a&bA");
+        assertEquals(out.toString(), "<project xmlns:p=\"urn:p\"><p:version>&lt;1&gt;</p:version></project>");
+    }
+
+    @Test
+    public void mixedContentIsNotRewritten() throws Exception {
+        String xml = "<project><version>1.0<b>x</b></version></project>";
+        assertEquals(rewrite(xml, "2.0"), xml);
+    }
+
+    @Test(expectedExceptions = java.io.IOException.class)
+    public void truncatedDocument() throws Exception {
+        rewrite("<project><version>1.0</vers", "2.0");
+    }
+
+    private String rewrite(String xml, String version) throws Exception {
+        StringWriter out = new StringWriter();
+        new VersionRewriter(xml, out, version).rewrite();
+        return out.toString();
+    }
+
+    private static class VersionRewriter extends StreamingXmlRewriter {
+        private final String version;
+        private String artifactId;
+
+        private VersionRewriter(String xml, StringWriter out, String version) {
+            super(new StringReader(xml), out);
+            this.version = version;
+        }
+
+        @Override
+        protected boolean isScope(String elementPath) {
+            return elementPath.endsWith("/dependency");
+        }
+
+        @Override
+        protected boolean isTextElement(String elementPath) {
+            return elementPath.endsWith("/version") || elementPath.endsWith("/artifactId");
+        }
+
+        @Override
+        protected void rewrite(String parentPath, Map<String, TextElement> textElements) {
+            TextElement versionElement = textElements.get("version");
+            if (versionElement == null) {
+                return;
+            }
+            if (artifactId == null || artifactId.equals(textElements.get("artifactId").getText())) {
+                versionElement.setText(version);
+            }
+        }
+    }
+}